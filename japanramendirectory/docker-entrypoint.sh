@@ -0,0 +1,34 @@
+#!/bin/sh
+# Starts the backend. With APP_STARTUP_OPTIMIZED=true it uses the AOT-processed
+# context, the "startup" Spring profile and an AppCDS archive. The archive is
+# created by a training start (the context is refreshed, then the JVM exits)
+# the first time an image runs; keep /app/cds on a volume so later replicas
+# and restarts reuse it.
+set -e
+
+cd /app/application
+JAVA_OPTS="${JAVA_OPTS:-}"
+
+if [ "${APP_STARTUP_OPTIMIZED:-false}" = "true" ]; then
+    JAVA_OPTS="$JAVA_OPTS -Dspring.aot.enabled=true"
+    export SPRING_PROFILES_ACTIVE="${SPRING_PROFILES_ACTIVE:-docker},startup"
+
+    CDS_ARCHIVE="${APP_CDS_DIRECTORY:-/app/cds}/app-$(cat build-id).jsa"
+    if [ ! -f "$CDS_ARCHIVE" ]; then
+        echo "No class data archive for this build, creating $CDS_ARCHIVE"
+        # Written under a temporary name so replicas training at the same time never read a partial archive
+        # shellcheck disable=SC2086
+        if java $JAVA_OPTS -XX:ArchiveClassesAtExit="$CDS_ARCHIVE.$$" -Dspring.context.exit=onRefresh -jar app.jar; then
+            mv -f "$CDS_ARCHIVE.$$" "$CDS_ARCHIVE"
+        else
+            rm -f "$CDS_ARCHIVE.$$"
+            echo "Class data archive training failed, starting without it"
+        fi
+    fi
+    if [ -f "$CDS_ARCHIVE" ]; then
+        JAVA_OPTS="$JAVA_OPTS -XX:SharedArchiveFile=$CDS_ARCHIVE -Xshare:auto"
+    fi
+fi
+
+# shellcheck disable=SC2086
+exec java $JAVA_OPTS -jar app.jar "$@"
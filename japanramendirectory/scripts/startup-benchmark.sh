@@ -0,0 +1,79 @@
+#!/bin/sh
+# Reports time to first request of the backend: from launching the JVM until
+# the first successful response from the health endpoint, which is when a
+# load balancer starts sending traffic to a new replica.
+#
+# Usage: scripts/startup-benchmark.sh [runs] [-- extra java options]
+#
+#   # Baseline
+#   scripts/startup-benchmark.sh 5
+#   # AOT + startup profile (jar built with mvn -Pstartup package)
+#   SPRING_PROFILES_ACTIVE=docker,startup scripts/startup-benchmark.sh 5 -- -Dspring.aot.enabled=true
+#   # ... plus a CDS archive created from an extracted jar, see DOCKER_README.md
+#   JAR=application/app.jar SPRING_PROFILES_ACTIVE=docker,startup \
+#       scripts/startup-benchmark.sh 5 -- -Dspring.aot.enabled=true -XX:SharedArchiveFile=app.jsa
+#
+# The datasource and other settings come from the environment as usual. The
+# application logs its own measurement too ("First request ... served N ms
+# after JVM start") and exposes it as app.startup.time-to-first-request.
+set -e
+
+RUNS="${1:-5}"
+[ $# -gt 0 ] && shift
+[ "$1" = "--" ] && shift
+
+JAR="${JAR:-$(ls target/*.jar 2>/dev/null | grep -v '\.original$' | head -n 1)}"
+PORT="${PORT:-8080}"
+URL="http://localhost:$PORT/actuator/health"
+TIMEOUT_S="${TIMEOUT_S:-180}"
+
+if [ -z "$JAR" ] || [ ! -f "$JAR" ]; then
+    echo "No jar found, build with mvn package or set JAR" >&2
+    exit 1
+fi
+
+now_ms() {
+    date +%s%3N
+}
+
+results=""
+i=1
+while [ "$i" -le "$RUNS" ]; do
+    log="$(mktemp)"
+    start="$(now_ms)"
+    java "$@" -Dserver.port="$PORT" -jar "$JAR" > "$log" 2>&1 &
+    pid=$!
+
+    elapsed=""
+    deadline=$(( $(date +%s) + TIMEOUT_S ))
+    while [ "$(date +%s)" -lt "$deadline" ]; do
+        if curl -fs -o /dev/null "$URL"; then
+            elapsed=$(( $(now_ms) - start ))
+            break
+        fi
+        if ! kill -0 "$pid" 2>/dev/null; then
+            break
+        fi
+        sleep 0.05
+    done
+
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+
+    if [ -z "$elapsed" ]; then
+        echo "Run $i: no response within ${TIMEOUT_S}s, log: $log" >&2
+        exit 1
+    fi
+    echo "Run $i: first request after ${elapsed} ms"
+    rm -f "$log"
+    results="$results $elapsed"
+    i=$(( i + 1 ))
+done
+
+echo "$results" | tr ' ' '\n' | grep -v '^$' | sort -n | awk '
+    { v[NR] = $1; sum += $1 }
+    END {
+        median = (NR % 2) ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2
+        printf "Time to first request over %d runs: min %d ms, median %d ms, mean %d ms, max %d ms\n",
+            NR, v[1], median, sum / NR, v[NR]
+    }'
@@ -0,0 +1,66 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-workload concurrency limits. The permits of all workloads together
+ * should not exceed the connection pool size, so that each workload always
+ * has connections left no matter how busy the others are.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.bulkhead.enabled", havingValue = "true", matchIfMissing = true)
+public class BulkheadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadConfig.class);
+
+    @Value("${app.bulkhead.max-wait-ms:500}")
+    private long maxWaitMs;
+
+    @Value("${app.bulkhead.public-read.permits:10}")
+    private int publicReadPermits;
+
+    @Value("${app.bulkhead.write.permits:5}")
+    private int writePermits;
+
+    @Value("${app.bulkhead.auth.permits:3}")
+    private int authPermits;
+
+    @Value("${app.bulkhead.admin.permits:2}")
+    private int adminPermits;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Bean
+    public FilterRegistrationBean<WorkloadBulkheadFilter> workloadBulkheadFilter(MeterRegistry meterRegistry) {
+        Map<Workload, WorkloadBulkhead> bulkheads = new EnumMap<>(Workload.class);
+        bulkheads.put(Workload.PUBLIC_READ, new WorkloadBulkhead(Workload.PUBLIC_READ, publicReadPermits, meterRegistry));
+        bulkheads.put(Workload.WRITE, new WorkloadBulkhead(Workload.WRITE, writePermits, meterRegistry));
+        bulkheads.put(Workload.AUTH, new WorkloadBulkhead(Workload.AUTH, authPermits, meterRegistry));
+        bulkheads.put(Workload.ADMIN, new WorkloadBulkhead(Workload.ADMIN, adminPermits, meterRegistry));
+
+        int totalPermits = publicReadPermits + writePermits + authPermits + adminPermits;
+        if (totalPermits > connectionPoolSize) {
+            logger.warn("Bulkhead permits ({}) exceed the connection pool size ({}), workloads can still starve each other",
+                    totalPermits, connectionPoolSize);
+        }
+
+        FilterRegistrationBean<WorkloadBulkheadFilter> registration =
+                new FilterRegistrationBean<>(new WorkloadBulkheadFilter(bulkheads, maxWaitMs));
+        // Ahead of Spring Security so login's user lookup is limited as well
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+}
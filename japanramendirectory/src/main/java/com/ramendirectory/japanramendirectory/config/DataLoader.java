@@ -2,10 +2,14 @@ package com.ramendirectory.japanramendirectory.config;
 
 import com.ramendirectory.japanramendirectory.model.*;
 import com.ramendirectory.japanramendirectory.repository.*;
+import com.ramendirectory.japanramendirectory.service.LegacyCollectionTables;
+import com.ramendirectory.japanramendirectory.service.RestaurantTextStore;
+import com.ramendirectory.japanramendirectory.service.RestaurantTextStore.Kind;
 import com.ramendirectory.japanramendirectory.service.UserServiceImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -33,47 +37,73 @@ public class DataLoader {
     @Autowired
     private QueueMethodRepository queueMethodRepository;
     
+    @Autowired
+    private RestaurantTextStore restaurantTextStore;
+
+    @Autowired
+    private LegacyCollectionTables legacyCollectionTables;
+    
     @Autowired
     private Environment environment;
     
     @Autowired
     private UserServiceImpl userService; // Inject UserService
 
+    // Seed in the background so the server takes requests without waiting for it
+    @Value("${app.data-loader.async:false}")
+    private boolean loadAsync;
+
     @Bean
     public CommandLineRunner initDatabase() {
         return args -> {
-            // Create initial admin user
-            logger.info("Checking for initial admin user...");
-            User adminUser = userService.createInitialAdminUser(
-                environment.getProperty("admin.username", "admin"),
-                environment.getProperty("admin.password", "Admin123!")
-            );
-            if (adminUser != null) {
-                logger.info("Created initial admin user: {}", adminUser.getUsername());
-            } else {
-                logger.info("Admin user creation skipped (users already exist)");
-            }
-
-            // Check if database is already populated
-            if (prefectureRepository.count() > 0) {
-                logger.info("Database already contains data, skipping initialization");
+            if (!loadAsync) {
+                loadInitialData();
                 return;
             }
-            
-            logger.info("Starting database initialization...");
-            
-            // Initialize prefectures
-            Map<String, Prefecture> prefectureMap = initializePrefectures();
-            
-            // Initialize areas within prefectures
-            Map<String, Area> areaMap = initializeAreas(prefectureMap);
-            
-            // Initialize some sample restaurants
-            initializeRestaurants(areaMap);
-            
-            logger.info("Database initialization completed successfully");
+            Thread loader = new Thread(() -> {
+                try {
+                    loadInitialData();
+                } catch (RuntimeException e) {
+                    logger.error("Initial data load failed: {}", e.getMessage(), e);
+                }
+            }, "data-loader");
+            loader.setDaemon(true);
+            loader.start();
         };
     }
+
+    private void loadInitialData() {
+        // Create initial admin user
+        logger.info("Checking for initial admin user...");
+        User adminUser = userService.createInitialAdminUser(
+            environment.getProperty("admin.username", "admin"),
+            environment.getProperty("admin.password", "Admin123!")
+        );
+        if (adminUser != null) {
+            logger.info("Created initial admin user: {}", adminUser.getUsername());
+        } else {
+            logger.info("Admin user creation skipped (users already exist)");
+        }
+
+        // Check if database is already populated
+        if (prefectureRepository.count() > 0) {
+            logger.info("Database already contains data, skipping initialization");
+            return;
+        }
+        
+        logger.info("Starting database initialization...");
+        
+        // Initialize prefectures
+        Map<String, Prefecture> prefectureMap = initializePrefectures();
+        
+        // Initialize areas within prefectures
+        Map<String, Area> areaMap = initializeAreas(prefectureMap);
+        
+        // Initialize some sample restaurants
+        initializeRestaurants(areaMap);
+        
+        logger.info("Database initialization completed successfully");
+    }
     
     private Map<String, Prefecture> initializePrefectures() {
         logger.info("Initializing prefectures...");
@@ -511,33 +541,12 @@ public class DataLoader {
         restaurant.setRestDay(restDay);
         restaurant.setOpeningDate(openingDate);
         
-        // Save restaurant first
         restaurant = restaurantRepository.save(restaurant);
+        legacyCollectionTables.write(restaurant);
         
-        // Create and save menu if menuContent is provided
-        if (menuContent != null && !menuContent.trim().isEmpty()) {
-            Menu menu = new Menu();
-            menu.setRestaurant(restaurant);
-            menu.setMenuContent(menuContent);
-            menu.setLastUpdated(new Date());
-            
-            // Set menu relationship on restaurant
-            restaurant.setMenu(menu);
-        }
-        
-        // Create and save description if descriptionContent is provided
-        if (descriptionContent != null && !descriptionContent.trim().isEmpty()) {
-            RestaurantDescription description = new RestaurantDescription();
-            description.setRestaurant(restaurant);
-            description.setContent(descriptionContent);
-            description.setLastUpdated(new Date());
-            
-            // Set description relationship on restaurant
-            restaurant.setDescription(description);
-        }
-        
-        // Save again to update the relationships
-        restaurantRepository.save(restaurant);
+        // Menu and description bodies are stored compressed, outside the entities
+        restaurantTextStore.save(restaurant.getId(), Kind.MENU, menuContent);
+        restaurantTextStore.save(restaurant.getId(), Kind.DESCRIPTION, descriptionContent);
     }
     
     private Map<String, String> createSocialMediaLinks(String twitter, String instagram) {
@@ -0,0 +1,43 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Wraps the application's datasource in an {@link InstrumentedDataSource}
+ * for statement budgets and request tracing, when either is enabled. With a
+ * read replica this is the lazy routing proxy, so a replica connection is
+ * only fetched when the first statement runs and its pool wait is timed as
+ * SQL.
+ */
+@Configuration
+public class DataSourceInstrumentationConfig {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Bean
+    public static BeanPostProcessor instrumentedDataSourcePostProcessor(
+            ObjectProvider<StatementCounter> statementCounter, ObjectProvider<RequestTracer> requestTracer,
+            Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!DATA_SOURCE_BEAN.equals(beanName) || !(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                StatementCounter counter = statementCounter.getIfAvailable();
+                RequestTracer tracer = environment.getProperty("app.request-trace.enabled", Boolean.class, true)
+                        ? requestTracer.getIfAvailable() : null;
+                if (counter == null && tracer == null) {
+                    return bean;
+                }
+                return new InstrumentedDataSource(dataSource, counter, tracer);
+            }
+        };
+    }
+}
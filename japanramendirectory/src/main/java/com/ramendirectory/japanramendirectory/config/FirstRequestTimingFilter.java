@@ -0,0 +1,55 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Measures time to first request: from JVM start until the first response has
+ * been written. This is what a load balancer waiting on a new replica sees,
+ * unlike the started/ready times, which end before the first request. After
+ * the first request the filter only reads one flag.
+ */
+public class FirstRequestTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FirstRequestTimingFilter.class);
+
+    private final AtomicBoolean recorded = new AtomicBoolean();
+    private final MeterRegistry meterRegistry;
+    private volatile long timeToFirstRequestMs = -1;
+
+    public FirstRequestTimingFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (!recorded.get() && recorded.compareAndSet(false, true)) {
+                long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+                timeToFirstRequestMs = System.currentTimeMillis() - jvmStart;
+                TimeGauge.builder("app.startup.time-to-first-request", this, TimeUnit.MILLISECONDS,
+                                filter -> filter.timeToFirstRequestMs)
+                        .description("Time from JVM start until the first request was served")
+                        .register(meterRegistry);
+                logger.info("First request ({} {}) served {} ms after JVM start",
+                        request.getMethod(), request.getRequestURI(), timeToFirstRequestMs);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.ramendirectory.japanramendirectory.config.RequestTrace.Phase;
+
+/**
+ * Watches every statement sent through its connections, whether it comes
+ * from Hibernate or from a JdbcTemplate.
+ *
+ * <p>With a {@link StatementCounter} each statement of a counted request is
+ * counted; a prepared statement counts once when it is prepared, so a JDBC
+ * batch is one statement however many rows it carries. With a
+ * {@link RequestTracer} sampled requests have the pool wait timed as
+ * {@link Phase#CONNECTION_WAIT} and statement preparation and execution,
+ * commits and rollbacks as {@link Phase#SQL}.
+ *
+ * <p>Only connections fetched by a counted or sampled request are wrapped.
+ * Everything else, including every request when the statement budget is off
+ * and the request is not sampled, gets the pool's connection as it is.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private static final Set<String> PREPARING_METHODS = Set.of("prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTING_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private static final Set<String> ENDING_METHODS = Set.of("commit", "rollback");
+
+    private final StatementCounter counter;
+    private final RequestTracer tracer;
+
+    /**
+     * @param counter Counter to report statements to, or null
+     * @param tracer  Tracer to time connections and statements with, or null
+     */
+    public InstrumentedDataSource(DataSource target, StatementCounter counter, RequestTracer tracer) {
+        super(target);
+        this.counter = counter;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        RequestTrace trace = sampledTrace();
+        if (trace == null) {
+            return instrumented(obtainTargetDataSource().getConnection(), false);
+        }
+        trace.enter(Phase.CONNECTION_WAIT);
+        try {
+            return instrumented(obtainTargetDataSource().getConnection(), true);
+        } finally {
+            trace.exit();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return instrumented(obtainTargetDataSource().getConnection(username, password), sampledTrace() != null);
+    }
+
+    private RequestTrace sampledTrace() {
+        return tracer == null ? null : tracer.sampled();
+    }
+
+    private Connection instrumented(Connection connection, boolean sampled) {
+        if (!sampled && (counter == null || !counter.isCounting())) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    String name = method.getName();
+                    String sql = null;
+                    if (PREPARING_METHODS.contains(name) && args != null && args[0] instanceof String prepared) {
+                        sql = prepared;
+                        if (counter != null) {
+                            counter.record(sql);
+                        }
+                    }
+                    RequestTrace trace = sampledTrace();
+                    if (trace == null) {
+                        Object result = invoke(connection, method, args);
+                        return counter != null && "createStatement".equals(name)
+                                ? instrumented((Statement) result, Statement.class, null) : result;
+                    }
+                    if (ENDING_METHODS.contains(name)) {
+                        return timed(trace, connection, method, args, null);
+                    }
+                    // Preparing is timed too: behind a lazy proxy it is where the connection is fetched
+                    Object result = sql != null ? timed(trace, connection, method, args, null)
+                            : invoke(connection, method, args);
+                    if (result instanceof Statement statement && (sql != null || "createStatement".equals(name))) {
+                        return instrumented(statement, method.getReturnType(), sql);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * @param type The statement interface the caller asked for
+     * @param sql  The SQL of a prepared statement; plain statements carry
+     *             theirs in the execute call
+     */
+    private Statement instrumented(Statement statement, Class<?> type, String sql) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[] { type }, (proxy, method, args) -> {
+                    String name = method.getName();
+                    String executed = sql;
+                    if (sql == null && args != null && args.length > 0 && args[0] instanceof String plain
+                            && (EXECUTING_METHODS.contains(name) || "addBatch".equals(name))) {
+                        executed = plain;
+                        if (counter != null) {
+                            counter.record(plain);
+                        }
+                    }
+                    RequestTrace trace = sampledTrace();
+                    if (trace != null && EXECUTING_METHODS.contains(name)) {
+                        return timed(trace, statement, method, args, executed);
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object timed(RequestTrace trace, Object target, Method method, Object[] args, String sql)
+            throws Throwable {
+        trace.enter(Phase.SQL);
+        try {
+            return invoke(target, method, args);
+        } finally {
+            long nanos = trace.exit();
+            if (sql != null) {
+                trace.statement(sql, nanos);
+            }
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
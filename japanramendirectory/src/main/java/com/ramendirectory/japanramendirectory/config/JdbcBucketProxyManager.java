@@ -0,0 +1,125 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AbstractCompareAndSwapBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AsyncCompareAndSwapOperation;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.CompareAndSwapOperation;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+
+/**
+ * Keeps bucket4j bucket state in the rate_limit_buckets table so every
+ * instance draws from the same buckets.
+ *
+ * Updates are compare-and-swap on a version column: a state is written only
+ * if nobody changed the row since it was read, otherwise bucket4j reads it
+ * again and retries. The first write of a bucket is an INSERT IGNORE that
+ * only one instance can win. Each statement runs in its own short read-write
+ * transaction so it always reaches the primary.
+ */
+public class JdbcBucketProxyManager extends AbstractCompareAndSwapBasedProxyManager<String> {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcBucketProxyManager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ClientSideConfig clientSideConfig) {
+        super(clientSideConfig);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    protected CompareAndSwapOperation beginCompareAndSwapOperation(String key) {
+        return new CompareAndSwapOperation() {
+            // Version of the row read by getStateData, null if there was none
+            private Long version;
+
+            @Override
+            public Optional<byte[]> getStateData(Optional<Long> timeoutNanos) {
+                List<StoredState> rows = transactionTemplate.execute(status -> jdbcTemplate.query(
+                        "SELECT state, version FROM rate_limit_buckets WHERE bucket_key = ?",
+                        (rs, rowNum) -> new StoredState(rs.getBytes("state"), rs.getLong("version")), key));
+                if (rows.isEmpty()) {
+                    version = null;
+                    return Optional.empty();
+                }
+                version = rows.get(0).version();
+                return Optional.of(rows.get(0).state());
+            }
+
+            @Override
+            public boolean compareAndSwap(byte[] originalData, byte[] newData, RemoteBucketState newState,
+                    Optional<Long> timeoutNanos) {
+                long expiresAt = expiresAt(newState);
+                int updated = transactionTemplate.execute(status -> version == null
+                        ? jdbcTemplate.update("INSERT IGNORE INTO rate_limit_buckets "
+                                + "(bucket_key, state, version, expires_at) VALUES (?, ?, 1, ?)",
+                                key, newData, expiresAt)
+                        : jdbcTemplate.update("UPDATE rate_limit_buckets SET state = ?, version = version + 1, "
+                                + "expires_at = ? WHERE bucket_key = ? AND version = ?",
+                                newData, expiresAt, key, version));
+                return updated == 1;
+            }
+        };
+    }
+
+    @Override
+    protected AsyncCompareAndSwapOperation beginAsyncCompareAndSwapOperation(String key) {
+        throw new UnsupportedOperationException("JDBC buckets are synchronous");
+    }
+
+    @Override
+    public void removeProxy(String key) {
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update("DELETE FROM rate_limit_buckets WHERE bucket_key = ?", key));
+    }
+
+    @Override
+    protected CompletableFuture<Void> removeAsync(String key) {
+        throw new UnsupportedOperationException("JDBC buckets are synchronous");
+    }
+
+    @Override
+    public boolean isAsyncModeSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isExpireAfterWriteSupported() {
+        return true;
+    }
+
+    /**
+     * Delete buckets whose expiry has passed; they would be full again by now.
+     *
+     * @return Number of buckets deleted
+     */
+    public int removeExpired() {
+        return transactionTemplate.execute(status -> jdbcTemplate.update(
+                "DELETE FROM rate_limit_buckets WHERE expires_at < ?", System.currentTimeMillis()));
+    }
+
+    private long expiresAt(RemoteBucketState state) {
+        long now = System.currentTimeMillis();
+        Optional<ExpirationAfterWriteStrategy> expiration = getClientSideConfig().getExpirationAfterWriteStrategy();
+        if (expiration.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        long ttlMillis = expiration.get().calculateTimeToLiveMillis(state, now * 1_000_000);
+        return ttlMillis < 0 ? Long.MAX_VALUE : now + ttlMillis;
+    }
+
+    private record StoredState(byte[] state, long version) {
+    }
+}
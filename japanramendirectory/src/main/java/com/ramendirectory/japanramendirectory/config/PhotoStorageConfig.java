@@ -0,0 +1,59 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.ramendirectory.japanramendirectory.service.LocalPhotoStorage;
+import com.ramendirectory.japanramendirectory.service.PhotoStorage;
+import com.ramendirectory.japanramendirectory.service.S3PhotoStorage;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+/**
+ * Chooses where comment photos are stored: the S3 bucket (default) or a
+ * local directory served by this application (app.photo.storage=local).
+ * Setting app.photo.public-base-url to this application's /api/photos hands
+ * out URLs that go through the photo cache instead of the storage itself.
+ */
+@Configuration
+public class PhotoStorageConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoStorageConfig.class);
+
+    @Bean
+    @ConditionalOnProperty(name = "app.photo.storage", havingValue = "s3", matchIfMissing = true)
+    public PhotoStorage s3PhotoStorage(S3Client s3Client, S3Presigner s3Presigner,
+            @Value("${aws.s3.bucket-name}") String bucketName,
+            @Value("${app.photo.public-base-url:}") String publicBaseUrl) {
+        return new S3PhotoStorage(s3Client, s3Presigner, bucketName, publicBaseUrl);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.photo.storage", havingValue = "local")
+    public LocalPhotoStorage localPhotoStorage(
+            @Value("${app.photo.storage.local.directory:${java.io.tmpdir}/ramen-photos}") String directory,
+            @Value("${app.photo.storage.local.base-url:http://localhost:8080}") String baseUrl,
+            @Value("${app.photo.storage.local.secret:}") String secret,
+            @Value("${app.photo.public-base-url:}") String publicBaseUrl) throws IOException {
+        byte[] key;
+        if (secret.isBlank()) {
+            // Upload URLs signed with a random key do not survive a restart, which is fine for their short lifetime
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        logger.info("Storing photos in local directory {}", directory);
+        return new LocalPhotoStorage(Path.of(directory), baseUrl, publicBaseUrl, key);
+    }
+}
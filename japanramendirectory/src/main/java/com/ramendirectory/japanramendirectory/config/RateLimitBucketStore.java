@@ -0,0 +1,124 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+
+/**
+ * Where rate limit buckets live.
+ *
+ * In local mode every instance has its own buckets, so N replicas together
+ * allow N times the configured capacity. In shared mode the buckets are
+ * stored in the database through {@link JdbcBucketProxyManager}. Each
+ * instance then keeps a near-cache of its buckets that may consume up to
+ * max-unsynchronized-tokens tokens, or wait max-unsynchronized-ms, before
+ * writing back, which trades a bounded overshoot (N times that many tokens)
+ * for fewer round trips.
+ */
+@Component
+public class RateLimitBucketStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitBucketStore.class);
+
+    private final boolean shared;
+    private final JdbcBucketProxyManager proxyManager;
+    private final Optimization nearCache;
+
+    @Autowired
+    public RateLimitBucketStore(@Value("${app.rate-limit.store:local}") String store,
+            @Value("${app.rate-limit.shared.max-unsynchronized-tokens:2}") long maxUnsynchronizedTokens,
+            @Value("${app.rate-limit.shared.max-unsynchronized-ms:500}") long maxUnsynchronizedMs,
+            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        if (!"local".equals(store) && !"shared".equals(store)) {
+            throw new IllegalArgumentException("app.rate-limit.store must be local or shared, not " + store);
+        }
+        this.shared = "shared".equals(store);
+        ClientSideConfig clientSideConfig = ClientSideConfig.getDefault().withExpirationAfterWriteStrategy(
+                ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(Duration.ofMinutes(1)));
+        this.proxyManager = shared ? new JdbcBucketProxyManager(jdbcTemplate, transactionManager, clientSideConfig)
+                : null;
+        this.nearCache = maxUnsynchronizedTokens > 0
+                ? Optimizations.delaying(new DelayParameters(maxUnsynchronizedTokens,
+                        Duration.ofMillis(maxUnsynchronizedMs)))
+                : null;
+        logger.info("Rate limit buckets are {}", shared ? "shared through the database" : "local to this instance");
+    }
+
+    /**
+     * Buckets of one kind of limit, such as registrations per IP.
+     *
+     * @param name Prefix of the bucket keys in the shared store
+     */
+    public Limiter limiter(String name, long capacity, Duration refillPeriod) {
+        return new Limiter(name, capacity, refillPeriod);
+    }
+
+    @Scheduled(cron = "${app.rate-limit.shared.cleanup-cron:0 */10 * * * *}")
+    void removeExpired() {
+        if (!shared) {
+            return;
+        }
+        try {
+            logger.debug("Removed {} expired rate limit buckets", proxyManager.removeExpired());
+        } catch (RuntimeException e) {
+            logger.warn("Could not remove expired rate limit buckets: {}", e.getMessage());
+        }
+    }
+
+    public final class Limiter {
+
+        private final String name;
+        private final Bandwidth limit;
+        private final BucketConfiguration configuration;
+        // An idle bucket is full again after the refill period, so dropping it then loses nothing
+        private final Cache<String, Bucket> buckets;
+
+        private Limiter(String name, long capacity, Duration refillPeriod) {
+            this.name = name;
+            this.limit = Bandwidth.classic(capacity, Refill.greedy(capacity, refillPeriod));
+            this.configuration = BucketConfiguration.builder().addLimit(limit).build();
+            this.buckets = Caffeine.newBuilder().expireAfterAccess(refillPeriod).build();
+        }
+
+        /**
+         * The bucket for a key, created on first use.
+         *
+         * @param onCreate Called with the key when this instance creates the bucket
+         */
+        public Bucket resolve(String key, Consumer<String> onCreate) {
+            return buckets.get(key, k -> {
+                onCreate.accept(k);
+                if (!shared) {
+                    return Bucket.builder().addLimit(limit).build();
+                }
+                RemoteBucketBuilder<String> builder = proxyManager.builder();
+                if (nearCache != null) {
+                    builder = builder.withOptimization(nearCache);
+                }
+                return builder.build(name + ":" + k, () -> configuration);
+            });
+        }
+    }
+}
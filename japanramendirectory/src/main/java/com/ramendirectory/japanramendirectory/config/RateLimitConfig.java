@@ -1,17 +1,15 @@
 package com.ramendirectory.japanramendirectory.config;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import jakarta.annotation.PostConstruct;
 
 @Component
 public class RateLimitConfig {
@@ -24,17 +22,22 @@ public class RateLimitConfig {
     @Value("${rate.limit.refill:10}")
     private long refillMinutes;
     
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final RateLimitBucketStore bucketStore;
+    private RateLimitBucketStore.Limiter buckets;
+    
+    @Autowired
+    public RateLimitConfig(RateLimitBucketStore bucketStore) {
+        this.bucketStore = bucketStore;
+    }
     
     /**
-     * Create a token bucket for rate limiting.
+     * Create the token buckets for rate limiting, local or shared between
+     * instances depending on app.rate-limit.store.
      * Default configuration allows 5 registrations per IP every 10 minutes.
-     * 
-     * @return a configured token bucket
      */
-    private Bucket createNewBucket() {
-        Bandwidth limit = Bandwidth.classic(capacity, Refill.greedy(capacity, Duration.ofMinutes(refillMinutes)));
-        return Bucket.builder().addLimit(limit).build();
+    @PostConstruct
+    void createBuckets() {
+        buckets = bucketStore.limiter("registration", capacity, Duration.ofMinutes(refillMinutes));
     }
     
     /**
@@ -44,11 +47,7 @@ public class RateLimitConfig {
      * @return the bucket for the given IP
      */
     public Bucket resolveBucket(String ipAddress) {
-        Bucket bucket = buckets.computeIfAbsent(ipAddress, ip -> {
-            logger.info("Creating new rate limit bucket for IP: {}", maskIP(ip));
-            return createNewBucket();
-        });
-        return bucket;
+        return buckets.resolve(ipAddress, ip -> logger.info("Creating new rate limit bucket for IP: {}", maskIP(ip)));
     }
     
     /**
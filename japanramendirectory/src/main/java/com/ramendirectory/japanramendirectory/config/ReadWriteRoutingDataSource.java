@@ -0,0 +1,82 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Routes connections between the primary and the read replica.
+ *
+ * Read-only transactions and reads outside any transaction go to the replica,
+ * everything else goes to the primary. Once a request has used the primary for
+ * a read-write transaction it stays pinned to the primary (see
+ * {@link ReadYourWritesContext}) so it can read back what it just wrote.
+ *
+ * Must be wrapped in a LazyConnectionDataSourceProxy: the read-only flag of a
+ * transaction is only known after the transaction manager has begun it.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final ReadYourWritesContext readYourWrites;
+    private final Counter primaryCounter;
+    private final Counter replicaCounter;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica,
+            ReadYourWritesContext readYourWrites, MeterRegistry meterRegistry) {
+        this.readYourWrites = readYourWrites;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        if (meterRegistry != null) {
+            primaryCounter = Counter.builder("app.datasource.routing")
+                    .description("Connections handed out per pool")
+                    .tag("pool", "primary")
+                    .register(meterRegistry);
+            replicaCounter = Counter.builder("app.datasource.routing")
+                    .description("Connections handed out per pool")
+                    .tag("pool", "replica")
+                    .register(meterRegistry);
+        } else {
+            primaryCounter = null;
+            replicaCounter = null;
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Route route = currentRoute();
+        Counter counter = route == Route.PRIMARY ? primaryCounter : replicaCounter;
+        if (counter != null) {
+            counter.increment();
+        }
+        return route;
+    }
+
+    Route currentRoute() {
+        boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+
+        if (inTransaction && !readOnly) {
+            readYourWrites.markWrite();
+            return Route.PRIMARY;
+        }
+
+        return readYourWrites.isPinned() ? Route.PRIMARY : Route.REPLICA;
+    }
+}
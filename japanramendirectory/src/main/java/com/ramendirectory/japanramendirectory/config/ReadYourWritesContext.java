@@ -0,0 +1,70 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.time.Duration;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Tracks which threads and users must read from the primary.
+ *
+ * A thread is pinned for the rest of the current request after its first
+ * write. The writing user is also remembered for a short window, so their next
+ * requests are pinned too and will not read stale data from a lagging replica.
+ *
+ * Only request threads are pinned, between {@link #beginRequest()} and
+ * {@link #endRequest()}. Scheduler, event worker and async threads have no
+ * request to end, so their writes never pin them.
+ */
+public class ReadYourWritesContext {
+
+    // Unset outside a request, FALSE or TRUE inside one
+    private final ThreadLocal<Boolean> pinned = new ThreadLocal<>();
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesContext(Duration window) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void markWrite() {
+        if (pinned.get() != null) {
+            pinned.set(Boolean.TRUE);
+        }
+        String username = currentUsername();
+        if (username != null) {
+            recentWriters.put(username, Boolean.TRUE);
+        }
+    }
+
+    public boolean isPinned() {
+        return Boolean.TRUE.equals(pinned.get());
+    }
+
+    /**
+     * Pin the current request to the primary if its user wrote recently.
+     */
+    public void beginRequest() {
+        String username = currentUsername();
+        pinned.set(username != null && recentWriters.getIfPresent(username) != null);
+    }
+
+    public void endRequest() {
+        pinned.remove();
+    }
+
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,34 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Opens and closes the {@link ReadYourWritesContext} around every request.
+ * Registered after the Spring Security filter chain so the user is known.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ReadYourWritesContext readYourWrites;
+
+    public ReadYourWritesFilter(ReadYourWritesContext readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        readYourWrites.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            readYourWrites.endRequest();
+        }
+    }
+}
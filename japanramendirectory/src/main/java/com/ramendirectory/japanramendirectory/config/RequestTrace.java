@@ -0,0 +1,141 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timing of one request, split into phases. Time is charged to the
+ * innermost phase that is running, so the phases add up to the whole
+ * request: SQL run while mapping DTOs (a lazy load) counts as SQL, not as
+ * mapping. Only used by the thread of the request.
+ *
+ * <p>Only sampled requests time their SQL. The others run on unwrapped
+ * connections, so their SQL counts towards the phase that ran it.
+ */
+public class RequestTrace {
+
+    public enum Phase {
+        CONNECTION_WAIT,    // Waiting for a pooled connection
+        SQL,                // Executing statements, commits and rollbacks
+        HYDRATION,          // Repository calls outside SQL: query translation, entity hydration, flushes
+        MAPPING,            // Entities to DTOs
+        SERIALIZATION,      // Writing the JSON response
+        OTHER               // Filters, security, controllers and everything else
+    }
+
+    // Slowest statements kept per request
+    static final int SLOW_STATEMENTS = 5;
+
+    private static final int MAX_DEPTH = 32;
+
+    public record Statement(String sql, long nanos) {
+    }
+
+    private final boolean sampled;
+    private final long startNanos;
+    private final long[] selfNanos = new long[Phase.values().length];
+    private final Phase[] stack = new Phase[MAX_DEPTH];
+    private final long[] enteredAt = new long[MAX_DEPTH];
+    private int depth;
+    private int overflow;
+    private long lastSwitch;
+    private int statements;
+    private final List<Statement> slowest = new ArrayList<>(SLOW_STATEMENTS + 1);
+
+    RequestTrace(boolean sampled) {
+        this.sampled = sampled;
+        startNanos = System.nanoTime();
+        lastSwitch = startNanos;
+        stack[0] = Phase.OTHER;
+        depth = 1;
+    }
+
+    /**
+     * Start a phase; every enter must be followed by an {@link #exit()}.
+     */
+    public void enter(Phase phase) {
+        long now = System.nanoTime();
+        if (depth == MAX_DEPTH) {
+            overflow++;
+            return;
+        }
+        selfNanos[stack[depth - 1].ordinal()] += now - lastSwitch;
+        stack[depth] = phase;
+        enteredAt[depth] = now;
+        depth++;
+        lastSwitch = now;
+    }
+
+    /**
+     * End the phase started last.
+     *
+     * @return Time since the phase was entered, including nested phases
+     */
+    public long exit() {
+        long now = System.nanoTime();
+        if (overflow > 0) {
+            overflow--;
+            return 0;
+        }
+        depth--;
+        selfNanos[stack[depth].ordinal()] += now - lastSwitch;
+        lastSwitch = now;
+        return now - enteredAt[depth];
+    }
+
+    public boolean isIn(Phase phase) {
+        for (int i = depth - 1; i > 0; i--) {
+            if (stack[i] == phase) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void statement(String sql, long nanos) {
+        statements++;
+        if (slowest.size() == SLOW_STATEMENTS && slowest.get(SLOW_STATEMENTS - 1).nanos() >= nanos) {
+            return;
+        }
+        int index = 0;
+        while (index < slowest.size() && slowest.get(index).nanos() >= nanos) {
+            index++;
+        }
+        slowest.add(index, new Statement(sql, nanos));
+        if (slowest.size() > SLOW_STATEMENTS) {
+            slowest.remove(SLOW_STATEMENTS);
+        }
+    }
+
+    /**
+     * Close the trace: time since the last phase change goes to the phase
+     * still running, normally {@link Phase#OTHER}.
+     *
+     * @return Total time of the request
+     */
+    long finish() {
+        long now = System.nanoTime();
+        selfNanos[stack[depth - 1].ordinal()] += now - lastSwitch;
+        lastSwitch = now;
+        return now - startNanos;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public long getSelfNanos(Phase phase) {
+        return selfNanos[phase.ordinal()];
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    /**
+     * The slowest statements, slowest first, with their SQL as sent.
+     */
+    public List<Statement> getSlowestStatements() {
+        return slowest;
+    }
+}
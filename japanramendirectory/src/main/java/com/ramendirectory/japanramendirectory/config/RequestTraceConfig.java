@@ -0,0 +1,94 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.ramendirectory.japanramendirectory.config.RequestTrace.Phase;
+import com.ramendirectory.japanramendirectory.service.RequestTraceBuffer;
+
+/**
+ * Per-request latency breakdown. The filter traces every request; the
+ * repositories and the JSON converter time their part of it, and code such
+ * as the ranking's DTO mapping times itself through the
+ * {@link RequestTracer}. The datasource times SQL only for the requests the
+ * {@link RequestTraceBuffer} samples, as it has to wrap their connections
+ * and statements in proxies. Which traces are kept is up to the buffer.
+ *
+ * <p>Repository calls are timed as {@link Phase#HYDRATION} less the SQL they
+ * run, which leaves query translation, result set reading and entity
+ * building. Lazy loads triggered outside a repository call are charged to
+ * the phase that triggered them. With app.request-trace.enabled=false only
+ * the tracer is left, and every hook costs one thread-local read.
+ */
+@Configuration
+public class RequestTraceConfig {
+
+    private static final String ENABLED = "app.request-trace.enabled";
+
+    @Bean
+    public static RequestTracer requestTracer() {
+        return new RequestTracer();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true", matchIfMissing = true)
+    public static BeanPostProcessor repositoryTracingPostProcessor(ObjectProvider<RequestTracer> requestTracer) {
+        MethodInterceptor hydration = invocation -> {
+            RequestTrace trace = requestTracer.getObject().current();
+            if (trace == null || trace.isIn(Phase.HYDRATION)) {
+                return invocation.proceed();
+            }
+            trace.enter(Phase.HYDRATION);
+            try {
+                return invocation.proceed();
+            } finally {
+                trace.exit();
+            }
+        };
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(hydration)));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true", matchIfMissing = true)
+    public WebMvcConfigurer tracingMessageConverters(RequestTracer requestTracer) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                converters.replaceAll(converter -> converter instanceof MappingJackson2HttpMessageConverter jackson
+                        ? new TracingJackson2HttpMessageConverter(jackson, requestTracer) : converter);
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<RequestTraceFilter> requestTraceFilter(RequestTracer requestTracer,
+            RequestTraceBuffer requestTraceBuffer) {
+        FilterRegistrationBean<RequestTraceFilter> registration =
+                new FilterRegistrationBean<>(new RequestTraceFilter(requestTracer, requestTraceBuffer));
+        // Outermost of the application's filters, so the trace covers the others
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 3);
+        return registration;
+    }
+}
@@ -0,0 +1,51 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.ramendirectory.japanramendirectory.config.RequestTracer.Finished;
+import com.ramendirectory.japanramendirectory.service.RequestTraceBuffer;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Traces every request, so slow ones can be kept, and offers the finished
+ * trace to the {@link RequestTraceBuffer} with the route template the request
+ * was mapped to. The buffer decides up front which requests are sampled.
+ * Requests that fail with an exception are recorded as 500.
+ */
+public class RequestTraceFilter extends OncePerRequestFilter {
+
+    private static final String UNMAPPED = "<unmapped>";
+
+    private final RequestTracer tracer;
+    private final RequestTraceBuffer buffer;
+
+    public RequestTraceFilter(RequestTracer tracer, RequestTraceBuffer buffer) {
+        this.tracer = tracer;
+        this.buffer = buffer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        tracer.beginRequest(buffer.sample());
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            Finished finished = tracer.endRequest();
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String path = request.getQueryString() == null ? request.getRequestURI()
+                    : request.getRequestURI() + "?" + request.getQueryString();
+            buffer.offer(request.getMethod(), route == null ? UNMAPPED : route.toString(), path,
+                    failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(), finished);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.util.function.Supplier;
+
+import com.ramendirectory.japanramendirectory.config.RequestTrace.Phase;
+
+/**
+ * Holds the {@link RequestTrace} of the request running on the current
+ * thread. Without a trace (tracing disabled, scheduled jobs, startup) every
+ * hook costs one thread-local read.
+ */
+public class RequestTracer {
+
+    private final ThreadLocal<RequestTrace> current = new ThreadLocal<>();
+
+    /**
+     * @param sampled Whether the request's SQL is timed as well
+     */
+    public void beginRequest(boolean sampled) {
+        current.set(new RequestTrace(sampled));
+    }
+
+    /**
+     * @return The finished trace with its total time, or null if none was begun
+     */
+    public Finished endRequest() {
+        RequestTrace trace = current.get();
+        current.remove();
+        return trace == null ? null : new Finished(trace, trace.finish());
+    }
+
+    /**
+     * The trace of the current request, or null.
+     */
+    public RequestTrace current() {
+        return current.get();
+    }
+
+    /**
+     * The trace of the current request if it is sampled, or null.
+     */
+    public RequestTrace sampled() {
+        RequestTrace trace = current.get();
+        return trace != null && trace.isSampled() ? trace : null;
+    }
+
+    /**
+     * Run work as a phase of the current request, if it is traced.
+     */
+    public <T> T time(Phase phase, Supplier<T> work) {
+        RequestTrace trace = current.get();
+        if (trace == null) {
+            return work.get();
+        }
+        trace.enter(phase);
+        try {
+            return work.get();
+        } finally {
+            trace.exit();
+        }
+    }
+
+    public record Finished(RequestTrace trace, long totalNanos) {
+    }
+}
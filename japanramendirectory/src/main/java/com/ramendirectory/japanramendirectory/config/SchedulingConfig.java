@@ -0,0 +1,13 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs such as the photo garbage
+ * collector.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,47 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Support for the optimized startup mode (the "startup" profile, see
+ * application-startup.properties): which beans stay eager when lazy
+ * initialization is on, and the time-to-first-request measurement.
+ */
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Beans with {@code @Scheduled} methods are only scheduled once they are
+     * created, so a lazy one would never run. Keep those eager.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && hasScheduledMethods(beanType);
+    }
+
+    @Bean
+    public FilterRegistrationBean<FirstRequestTimingFilter> firstRequestTimingFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<FirstRequestTimingFilter> registration =
+                new FilterRegistrationBean<>(new FirstRequestTimingFilter(meterRegistry));
+        // Outermost, so the time includes every other filter's first-use setup
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    private static boolean hasScheduledMethods(Class<?> beanType) {
+        boolean[] found = new boolean[1];
+        ReflectionUtils.doWithMethods(beanType,
+                method -> found[0] = true,
+                method -> !found[0] && AnnotatedElementUtils.hasAnnotation(method, Scheduled.class));
+        return found[0];
+    }
+}
@@ -0,0 +1,35 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.ramendirectory.japanramendirectory.service.StatementBudgetMonitor;
+
+/**
+ * Statement counting per request, to catch N+1 queries before they reach
+ * the database graphs. Statements are seen through the
+ * {@link InstrumentedDataSource}; Flyway's are not. Counting costs a
+ * thread-local lookup and a map update per statement.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.statement-budget.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementBudgetConfig {
+
+    @Bean
+    public static StatementCounter statementCounter() {
+        return new StatementCounter();
+    }
+
+    @Bean
+    public FilterRegistrationBean<StatementBudgetFilter> statementBudgetFilter(StatementCounter statementCounter,
+            StatementBudgetMonitor statementBudgetMonitor) {
+        FilterRegistrationBean<StatementBudgetFilter> registration =
+                new FilterRegistrationBean<>(new StatementBudgetFilter(statementCounter, statementBudgetMonitor));
+        // Outside the bulkhead and security filters so their statements count too
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 2);
+        return registration;
+    }
+}
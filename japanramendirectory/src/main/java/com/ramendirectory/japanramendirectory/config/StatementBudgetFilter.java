@@ -0,0 +1,46 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.ramendirectory.japanramendirectory.config.StatementCounter.Tally;
+import com.ramendirectory.japanramendirectory.service.StatementBudgetMonitor;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Counts the statements of every request and hands them to the
+ * {@link StatementBudgetMonitor}, keyed by the route template the request
+ * was mapped to. Requests no handler matched share one key.
+ */
+public class StatementBudgetFilter extends OncePerRequestFilter {
+
+    private static final String UNMAPPED = "<unmapped>";
+
+    private final StatementCounter counter;
+    private final StatementBudgetMonitor monitor;
+
+    public StatementBudgetFilter(StatementCounter counter, StatementBudgetMonitor monitor) {
+        this.counter = counter;
+        this.monitor = monitor;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        counter.beginRequest();
+        Tally tally;
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            tally = counter.endRequest();
+        }
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        monitor.check(request.getMethod(), route == null ? UNMAPPED : route.toString(), tally);
+    }
+}
@@ -0,0 +1,69 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ramendirectory.japanramendirectory.util.SqlShapes;
+
+/**
+ * Counts the JDBC statements of the request running on the current thread,
+ * by statement shape. Statements outside a request (scheduled jobs, startup)
+ * are not counted.
+ */
+public class StatementCounter {
+
+    private final ThreadLocal<Tally> current = new ThreadLocal<>();
+
+    public void beginRequest() {
+        current.set(new Tally());
+    }
+
+    /**
+     * @return The statements of the request, or null if none was begun
+     */
+    public Tally endRequest() {
+        Tally tally = current.get();
+        current.remove();
+        return tally;
+    }
+
+    boolean isCounting() {
+        return current.get() != null;
+    }
+
+    void record(String sql) {
+        Tally tally = current.get();
+        if (tally != null) {
+            tally.record(sql);
+        }
+    }
+
+    /**
+     * Statements of one request. Only used by the thread of that request.
+     */
+    public static class Tally {
+
+        private int statements;
+        private final Map<String, Integer> shapes = new HashMap<>();
+
+        void record(String sql) {
+            statements++;
+            shapes.merge(SqlShapes.normalize(sql), 1, Integer::sum);
+        }
+
+        public int getStatements() {
+            return statements;
+        }
+
+        /**
+         * Number of times each statement shape ran.
+         */
+        public Map<String, Integer> getShapes() {
+            return shapes;
+        }
+
+        public int getMaxRepeats() {
+            return shapes.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.ramendirectory.japanramendirectory.config.RequestTrace.Phase;
+
+/**
+ * The application's JSON converter, with response writing timed as
+ * {@link Phase#SERIALIZATION}. Jackson streams to the response, so a slow
+ * client's socket writes are part of it.
+ */
+public class TracingJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final RequestTracer tracer;
+
+    public TracingJackson2HttpMessageConverter(MappingJackson2HttpMessageConverter converter, RequestTracer tracer) {
+        super(converter.getObjectMapper());
+        setSupportedMediaTypes(converter.getSupportedMediaTypes());
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        RequestTrace trace = tracer.current();
+        if (trace == null) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        trace.enter(Phase.SERIALIZATION);
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            trace.exit();
+        }
+    }
+}
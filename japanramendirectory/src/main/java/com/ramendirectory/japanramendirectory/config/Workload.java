@@ -0,0 +1,47 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Classes of traffic that get their own bulkhead, chosen by route.
+ */
+public enum Workload {
+    PUBLIC_READ,  // GET requests, mostly anonymous listing and ranking traffic
+    WRITE,        // Authenticated writes such as posting or editing comments
+    AUTH,         // Login and registration
+    ADMIN;        // Moderation, role changes and operational endpoints
+
+    /**
+     * Classify a request by method and path.
+     *
+     * @param request the incoming request
+     * @return the workload, or null when the request is not limited
+     */
+    public static Workload classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+
+        if ("OPTIONS".equals(method) || path.equals("/actuator/health")) {
+            return null;
+        }
+
+        if (path.startsWith("/auth/") || path.equals("/api/users/register")) {
+            return AUTH;
+        }
+
+        if (path.startsWith("/actuator/")
+                || path.startsWith("/api/admin/")
+                || path.startsWith("/api/comments/reported")
+                || path.startsWith("/api/comments/events/")
+                || path.matches("/api/users/[^/]+/role/.*")) {
+            return ADMIN;
+        }
+
+        // A POST only because the id list may not fit in a query string
+        if ("GET".equals(method) || "HEAD".equals(method) || path.equals("/api/restaurants/batch")) {
+            return PUBLIC_READ;
+        }
+
+        return WRITE;
+    }
+}
@@ -0,0 +1,99 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Concurrency limit for one {@link Workload}.
+ *
+ * Requests beyond the limit wait up to the configured time for a permit and
+ * are rejected afterwards. Publishes the number of waiting and running
+ * requests, the time spent waiting and the number of rejections, all tagged
+ * with the workload.
+ */
+public class WorkloadBulkhead {
+
+    private final Workload workload;
+    private final int permits;
+    private final Semaphore semaphore;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    public WorkloadBulkhead(Workload workload, int permits, MeterRegistry meterRegistry) {
+        this.workload = workload;
+        this.permits = permits;
+        this.semaphore = new Semaphore(permits, true);
+
+        String tag = workload.name().toLowerCase(Locale.ROOT);
+        Gauge.builder("app.bulkhead.queue", waiting, AtomicInteger::get)
+                .description("Requests waiting for a permit")
+                .tag("workload", tag)
+                .register(meterRegistry);
+        Gauge.builder("app.bulkhead.active", this, WorkloadBulkhead::getActive)
+                .description("Requests holding a permit")
+                .tag("workload", tag)
+                .register(meterRegistry);
+        waitTimer = Timer.builder("app.bulkhead.wait")
+                .description("Time spent waiting for a permit")
+                .tag("workload", tag)
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("app.bulkhead.rejected")
+                .description("Requests rejected after waiting too long")
+                .tag("workload", tag)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Wait up to maxWaitMs for a permit. Every successful call must be
+     * followed by {@link #release()}.
+     *
+     * @return true if a permit was acquired
+     */
+    public boolean tryAcquire(long maxWaitMs) throws InterruptedException {
+        if (semaphore.tryAcquire()) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return true;
+        }
+
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            boolean acquired = semaphore.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                rejectedCounter.increment();
+            }
+            return acquired;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    public int getActive() {
+        return permits - semaphore.availablePermits();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+}
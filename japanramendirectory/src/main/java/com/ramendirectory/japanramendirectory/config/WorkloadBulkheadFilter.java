@@ -0,0 +1,90 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Runs every request inside the bulkhead of its {@link Workload}, so a burst
+ * in one class of traffic cannot take all request threads and connections
+ * from the others. Requests that cannot get a permit in time get a 503.
+ *
+ * Rejections are counted per workload in {@code app.bulkhead.rejected}; the
+ * log gets at most one warning per {@value #WARN_INTERVAL_SECONDS} seconds.
+ */
+public class WorkloadBulkheadFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadBulkheadFilter.class);
+
+    static final long WARN_INTERVAL_SECONDS = 10;
+
+    private final Map<Workload, WorkloadBulkhead> bulkheads;
+    private final long maxWaitMs;
+    private final AtomicLong nextWarnAt = new AtomicLong(System.nanoTime());
+    private final AtomicLong rejectedSinceWarn = new AtomicLong();
+
+    public WorkloadBulkheadFilter(Map<Workload, WorkloadBulkhead> bulkheads, long maxWaitMs) {
+        this.bulkheads = bulkheads;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Workload workload = Workload.classify(request);
+        WorkloadBulkhead bulkhead = workload == null ? null : bulkheads.get(workload);
+        if (bulkhead == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(maxWaitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            logRejection(workload, bulkhead, request);
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Server is busy. Please try again shortly.");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private void logRejection(Workload workload, WorkloadBulkhead bulkhead, HttpServletRequest request) {
+        long rejected = rejectedSinceWarn.incrementAndGet();
+        long now = System.nanoTime();
+        long warnAt = nextWarnAt.get();
+        if (now - warnAt >= 0
+                && nextWarnAt.compareAndSet(warnAt, now + TimeUnit.SECONDS.toNanos(WARN_INTERVAL_SECONDS))) {
+            rejectedSinceWarn.addAndGet(-rejected);
+            logger.warn("{} bulkhead full ({} running, {} waiting), rejected {} {} and {} other requests since the "
+                    + "last warning", workload, bulkhead.getActive(), bulkhead.getWaiting(), request.getMethod(),
+                    request.getRequestURI(), rejected - 1);
+        } else {
+            logger.debug("{} bulkhead full, rejected {} {}", workload, request.getMethod(), request.getRequestURI());
+        }
+    }
+}
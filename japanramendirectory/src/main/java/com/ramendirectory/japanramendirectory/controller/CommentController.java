@@ -12,8 +12,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -28,15 +30,22 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.ramendirectory.japanramendirectory.config.CommentRateLimitConfig;
 import com.ramendirectory.japanramendirectory.dto.CommentDTO;
 import com.ramendirectory.japanramendirectory.dto.CommentRequestDTO;
+import com.ramendirectory.japanramendirectory.dto.CursorPage;
 import com.ramendirectory.japanramendirectory.dto.ReportCommentDTO;
+import com.ramendirectory.japanramendirectory.event.CommentEventDispatcher;
 import com.ramendirectory.japanramendirectory.model.Comment;
 import com.ramendirectory.japanramendirectory.model.Restaurant;
 import com.ramendirectory.japanramendirectory.service.CommentService;
+import com.ramendirectory.japanramendirectory.service.CommentStreamHub;
+import com.ramendirectory.japanramendirectory.service.StreamingJsonWriter;
 import com.ramendirectory.japanramendirectory.service.UserService;
 import com.ramendirectory.japanramendirectory.util.IPAddressUtil;
 
@@ -53,15 +62,24 @@ public class CommentController {
     private final CommentService commentService;
     private final UserService userService;
     private final CommentRateLimitConfig rateLimitConfig;
+    private final CommentEventDispatcher eventDispatcher;
+    private final CommentStreamHub commentStreamHub;
+    private final StreamingJsonWriter streamingJsonWriter;
     
     @Autowired
     public CommentController(
             CommentService commentService, 
             UserService userService,
-            CommentRateLimitConfig rateLimitConfig) {
+            CommentRateLimitConfig rateLimitConfig,
+            CommentEventDispatcher eventDispatcher,
+            CommentStreamHub commentStreamHub,
+            StreamingJsonWriter streamingJsonWriter) {
         this.commentService = commentService;
         this.userService = userService;
         this.rateLimitConfig = rateLimitConfig;
+        this.eventDispatcher = eventDispatcher;
+        this.commentStreamHub = commentStreamHub;
+        this.streamingJsonWriter = streamingJsonWriter;
     }
     
     /**
@@ -198,6 +216,17 @@ public class CommentController {
         return ResponseEntity.ok(comments);
     }
     
+    /**
+     * Same as the list above, written while the comments are read instead of
+     * from a list built in memory. Unknown restaurants give an empty list.
+     */
+    @GetMapping(value = "/restaurant/{restaurantId}", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> getCommentsByRestaurantStreamed(@PathVariable Long restaurantId) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(streamingJsonWriter.array(
+                () -> commentService.streamCommentsByRestaurant(restaurantId),
+                comments -> comments.stream().map(CommentDTO::fromEntity).toList()));
+    }
+    
     @GetMapping("/restaurant/{restaurantId}/paginated")
     public ResponseEntity<Page<CommentDTO>> getCommentsByRestaurantPaginated(
             @PathVariable Long restaurantId, 
@@ -206,6 +235,61 @@ public class CommentController {
         return ResponseEntity.ok(comments);
     }
     
+    /**
+     * Infinite-scroll feed of a restaurant's comments, newest first. Pass the
+     * nextCursor of a page to get the one after it.
+     */
+    @GetMapping("/restaurant/{restaurantId}/feed")
+    public ResponseEntity<?> getCommentFeedByRestaurant(
+            @PathVariable Long restaurantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            CursorPage<CommentDTO> feed = commentService.getCommentFeedByRestaurant(restaurantId, cursor, size);
+            return ResponseEntity.ok(feed);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Restaurant comment feed failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    /**
+     * Server-Sent Events stream of reviews posted to a restaurant from now on,
+     * as "comment" events carrying a CommentDTO.
+     */
+    @GetMapping(value = "/restaurant/{restaurantId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamCommentsByRestaurant(@PathVariable Long restaurantId) {
+        try {
+            return ResponseEntity.ok()
+                    .header("X-Accel-Buffering", "no")
+                    .body(commentStreamHub.subscribe(restaurantId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            logger.warn("Review stream refused for restaurant {}: {}", restaurantId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "30").build();
+        }
+    }
+    
+    @GetMapping("/user/feed")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getUserCommentFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            String username = getCurrentUsername();
+            Long userId = userService.findByUsername(username).getId();
+            return ResponseEntity.ok(commentService.getCommentFeedByUser(userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            logger.warn("User comment feed failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error getting user comment feed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("An error occurred while loading comments");
+        }
+    }
+    
     @GetMapping("/user")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<List<CommentDTO>> getUserComments() {
@@ -295,6 +379,44 @@ public class CommentController {
         }
     }
     
+    /**
+     * Re-publish events for comments changed since the given time,
+     * used to recover events dropped while the event queue was full
+     */
+    @PostMapping("/events/replay")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> replayCommentEvents(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        try {
+            int replayed = commentService.replayCommentEvents(since);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("since", since);
+            response.put("replayed", replayed);
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            logger.warn("Comment event replay failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error replaying comment events: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("An error occurred while replaying comment events");
+        }
+    }
+    
+    @GetMapping("/events/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCommentEventStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", eventDispatcher.getQueueDepth());
+        stats.put("published", eventDispatcher.getPublishedCount());
+        stats.put("processed", eventDispatcher.getProcessedCount());
+        stats.put("dropped", eventDispatcher.getDroppedCount());
+        stats.put("failed", eventDispatcher.getFailedCount());
+        return ResponseEntity.ok(stats);
+    }
+    
     @GetMapping("/has-commented/{restaurantId}")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Boolean> hasUserCommentedOnRestaurant(
@@ -320,25 +442,23 @@ public class CommentController {
             String username = getCurrentUsername();
             Long userId = userService.findByUsername(username).getId();
             
-            boolean canComment = commentService.canUserCommentOnRestaurant(userId, restaurantId);
+            // One lookup answers both whether and when the user can comment
+            Optional<LocalDateTime> nextCommentTime = commentService.getTimeWhenUserCanCommentAgain(userId, restaurantId);
             Map<String, Object> response = new HashMap<>();
-            response.put("canComment", canComment);
+            response.put("canComment", nextCommentTime.isEmpty());
             
-            if (!canComment) {
-                Optional<LocalDateTime> nextCommentTime = commentService.getTimeWhenUserCanCommentAgain(userId, restaurantId);
-                if (nextCommentTime.isPresent()) {
-                    LocalDateTime now = LocalDateTime.now();
-                    LocalDateTime nextTime = nextCommentTime.get();
-                    
-                    long hoursRemaining = now.until(nextTime, ChronoUnit.HOURS);
-                    long minutesRemaining = now.until(nextTime, ChronoUnit.MINUTES) % 60;
-                    
-                    response.put("nextCommentTime", nextTime);
-                    response.put("hoursRemaining", hoursRemaining);
-                    response.put("minutesRemaining", minutesRemaining);
-                    response.put("message", String.format("You can comment again in %d hours and %d minutes", 
-                                                         hoursRemaining, minutesRemaining));
-                }
+            if (nextCommentTime.isPresent()) {
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime nextTime = nextCommentTime.get();
+                
+                long hoursRemaining = now.until(nextTime, ChronoUnit.HOURS);
+                long minutesRemaining = now.until(nextTime, ChronoUnit.MINUTES) % 60;
+                
+                response.put("nextCommentTime", nextTime);
+                response.put("hoursRemaining", hoursRemaining);
+                response.put("minutesRemaining", minutesRemaining);
+                response.put("message", String.format("You can comment again in %d hours and %d minutes", 
+                                                     hoursRemaining, minutesRemaining));
             }
             
             return ResponseEntity.ok(response);
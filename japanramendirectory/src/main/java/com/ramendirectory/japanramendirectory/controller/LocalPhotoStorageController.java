@@ -0,0 +1,87 @@
+package com.ramendirectory.japanramendirectory.controller;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ramendirectory.japanramendirectory.service.LocalPhotoStorage;
+import com.ramendirectory.japanramendirectory.service.PhotoStorage;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * HTTP side of {@link LocalPhotoStorage}: accepts presigned PUT uploads and
+ * serves stored photos, standing in for the S3 bucket when
+ * app.photo.storage=local.
+ */
+@RestController
+@RequestMapping("/local-storage")
+@ConditionalOnProperty(name = "app.photo.storage", havingValue = "local")
+public class LocalPhotoStorageController {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalPhotoStorageController.class);
+
+    private final LocalPhotoStorage storage;
+
+    @Autowired
+    public LocalPhotoStorageController(LocalPhotoStorage storage) {
+        this.storage = storage;
+    }
+
+    @PutMapping("/{*key}")
+    public ResponseEntity<?> upload(
+            @PathVariable String key,
+            @RequestParam String type,
+            @RequestParam long length,
+            @RequestParam String sha256,
+            @RequestParam long expires,
+            @RequestParam String signature,
+            @RequestHeader(value = "Content-Type", required = false) String contentType,
+            HttpServletRequest request) throws IOException {
+        try {
+            storage.acceptUpload(key.substring(1), type, length, sha256, expires, signature, contentType,
+                    request.getInputStream());
+            return ResponseEntity.ok().build();
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected local upload of {}: {}", key, e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{*key}")
+    public ResponseEntity<InputStreamResource> download(@PathVariable String key) throws IOException {
+        String storageKey = key.substring(1);
+        Optional<PhotoStorage.StoredObject> stored;
+        try {
+            stored = storage.stat(storageKey);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+        if (stored.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String contentType = stored.get().contentType();
+        return ResponseEntity.ok()
+                .contentType(contentType == null ? MediaType.APPLICATION_OCTET_STREAM : MediaType.parseMediaType(contentType))
+                .contentLength(stored.get().size())
+                .body(new InputStreamResource(storage.open(storageKey)));
+    }
+}
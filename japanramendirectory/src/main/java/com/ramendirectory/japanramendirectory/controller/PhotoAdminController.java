@@ -0,0 +1,47 @@
+package com.ramendirectory.japanramendirectory.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ramendirectory.japanramendirectory.service.PhotoGarbageCollector;
+
+@RestController
+@RequestMapping("/api/admin/photos")
+public class PhotoAdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoAdminController.class);
+
+    private final PhotoGarbageCollector photoGarbageCollector;
+
+    @Autowired
+    public PhotoAdminController(PhotoGarbageCollector photoGarbageCollector) {
+        this.photoGarbageCollector = photoGarbageCollector;
+    }
+
+    /**
+     * Run the orphaned photo collector now. Defaults to a dry run that only
+     * reports what would be deleted.
+     */
+    @PostMapping("/gc")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> collectGarbage(@RequestParam(defaultValue = "true") boolean dryRun) {
+        try {
+            return ResponseEntity.ok(photoGarbageCollector.collect(dryRun));
+        } catch (IllegalStateException e) {
+            logger.warn("Photo garbage collection refused: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error collecting orphaned photos: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("An error occurred while collecting orphaned photos");
+        }
+    }
+}
@@ -16,16 +16,22 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.ramendirectory.japanramendirectory.dto.PhotoUploadCompleteDTO;
+import com.ramendirectory.japanramendirectory.dto.PhotoUploadSlotDTO;
+import com.ramendirectory.japanramendirectory.dto.PhotoUploadSlotRequestDTO;
 import com.ramendirectory.japanramendirectory.model.Comment;
 import com.ramendirectory.japanramendirectory.repository.CommentRepository;
 import com.ramendirectory.japanramendirectory.service.S3Service;
 import com.ramendirectory.japanramendirectory.util.JwtUtil;
 
+import jakarta.validation.Valid;
+
 @RestController
 @RequestMapping("/api/photos")
 public class PhotoController {
@@ -93,12 +99,10 @@ public class PhotoController {
             MultipartFile file = files[i];
             
             try {
+                // uploadFile also adds the photo URL to the comment
                 String photoUrl = s3Service.uploadFile(file, userId, commentId);
                 uploadedPhotoUrls.add(photoUrl);
                 
-                // Add the photo URL to the comment
-                comment.addPhoto(photoUrl);
-                
             } catch (IOException e) {
                 logger.error("Error uploading file: {}", e.getMessage());
                 errors.put("file_" + i, "Error uploading: " + e.getMessage());
@@ -108,9 +112,6 @@ public class PhotoController {
             }
         }
         
-        // Save the comment with the new photos
-        commentRepository.save(comment);
-        
         // Return the response with URLs and any errors
         Map<String, Object> response = new HashMap<>();
         response.put("uploadedPhotos", uploadedPhotoUrls);
@@ -122,4 +123,111 @@ public class PhotoController {
         
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Issue presigned upload slots so the client can upload photos straight
+     * to storage instead of through this backend.
+     * 
+     * @param commentId The ID of the comment the photos are for
+     * @param slotRequest Content type, size and SHA-256 of each photo
+     * @param jwt The authenticated user's JWT
+     * @return One upload slot per photo, in request order
+     */
+    @PostMapping("/comment/{commentId}/upload-slots")
+    public ResponseEntity<?> createUploadSlots(
+            @PathVariable Long commentId,
+            @Valid @RequestBody PhotoUploadSlotRequestDTO slotRequest,
+            @AuthenticationPrincipal Jwt jwt) {
+        
+        ResponseEntity<?> denied = checkCommentOwner(commentId, jwt);
+        if (denied != null) {
+            return denied;
+        }
+        
+        Comment comment = commentRepository.findById(commentId).orElseThrow();
+        if (comment.getPhotos().size() + slotRequest.getFiles().size() > maxPhotosPerComment) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Maximum " + maxPhotosPerComment + " photos allowed per comment");
+        }
+        
+        try {
+            List<PhotoUploadSlotDTO> slots = new ArrayList<>();
+            for (PhotoUploadSlotRequestDTO.FileInfo file : slotRequest.getFiles()) {
+                slots.add(s3Service.createUploadSlot(file.getSha256(), file.getContentType(), file.getSize()));
+            }
+            return ResponseEntity.ok(slots);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid upload slot request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    /**
+     * Attach photos uploaded through upload slots to a comment. Completing a
+     * key twice is harmless.
+     * 
+     * @param commentId The ID of the comment to attach the photos to
+     * @param completion The keys of the finished upload slots
+     * @param jwt The authenticated user's JWT
+     * @return A response with URLs of the attached photos
+     */
+    @PostMapping("/comment/{commentId}/complete")
+    public ResponseEntity<?> completeUploads(
+            @PathVariable Long commentId,
+            @Valid @RequestBody PhotoUploadCompleteDTO completion,
+            @AuthenticationPrincipal Jwt jwt) {
+        
+        ResponseEntity<?> denied = checkCommentOwner(commentId, jwt);
+        if (denied != null) {
+            return denied;
+        }
+        
+        List<String> uploadedPhotoUrls = new ArrayList<>();
+        Map<String, String> errors = new HashMap<>();
+        
+        for (String key : completion.getKeys()) {
+            try {
+                uploadedPhotoUrls.add(s3Service.completeUpload(commentId, key));
+            } catch (IOException e) {
+                logger.error("Error reading upload {}: {}", key, e.getMessage());
+                errors.put(key, "Error reading upload: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid upload {}: {}", key, e.getMessage());
+                errors.put(key, e.getMessage());
+            }
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("uploadedPhotos", uploadedPhotoUrls);
+        
+        if (!errors.isEmpty()) {
+            response.put("errors", errors);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).body(response);
+        }
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * @return An error response, or null if the user owns the comment
+     */
+    private ResponseEntity<?> checkCommentOwner(Long commentId, Jwt jwt) {
+        Long userId = jwtUtil.getUserIdFromJwt(jwt);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("User authentication failed");
+        }
+        
+        Comment comment = commentRepository.findById(commentId).orElse(null);
+        if (comment == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("Comment not found");
+        }
+        
+        if (!comment.getUser().getId().equals(userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body("You can only upload photos to your own comments");
+        }
+        return null;
+    }
+}
\ No newline at end of file
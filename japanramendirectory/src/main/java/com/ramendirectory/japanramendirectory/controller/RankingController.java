@@ -1,34 +1,54 @@
 package com.ramendirectory.japanramendirectory.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.ramendirectory.japanramendirectory.config.RequestTrace.Phase;
+import com.ramendirectory.japanramendirectory.config.RequestTracer;
 import com.ramendirectory.japanramendirectory.dto.PageResponse;
 import com.ramendirectory.japanramendirectory.dto.RestaurantRankingDTO;
 import com.ramendirectory.japanramendirectory.model.Genre;
 import com.ramendirectory.japanramendirectory.model.Restaurant;
 import com.ramendirectory.japanramendirectory.model.SoupBase;
+import com.ramendirectory.japanramendirectory.service.CommentService;
+import com.ramendirectory.japanramendirectory.service.OpeningHoursIndex;
 import com.ramendirectory.japanramendirectory.service.RestaurantService;
+import com.ramendirectory.japanramendirectory.service.StreamingJsonWriter;
 
 @RestController
 @RequestMapping("/api/ranking")
 public class RankingController {
 
     private final RestaurantService restaurantService;
+    private final CommentService commentService;
+    private final OpeningHoursIndex openingHoursIndex;
+    private final RequestTracer requestTracer;
+    private final StreamingJsonWriter streamingJsonWriter;
     
     @Autowired
-    public RankingController(RestaurantService restaurantService) {
+    public RankingController(RestaurantService restaurantService, CommentService commentService,
+            OpeningHoursIndex openingHoursIndex, RequestTracer requestTracer,
+            StreamingJsonWriter streamingJsonWriter) {
         this.restaurantService = restaurantService;
+        this.commentService = commentService;
+        this.openingHoursIndex = openingHoursIndex;
+        this.requestTracer = requestTracer;
+        this.streamingJsonWriter = streamingJsonWriter;
     }
     
     @GetMapping
@@ -39,6 +59,8 @@ public class RankingController {
             @RequestParam(required = false) List<SoupBase> soupBases,
             @RequestParam(required = false) Double minScore,
             @RequestParam(required = false) String name,
+            @RequestParam(required = false, defaultValue = "false") boolean openNow,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime openAt,
             @RequestParam(defaultValue = "score") String sortBy,
             @RequestParam(defaultValue = "DESC") Sort.Direction sortDirection,
             @RequestParam(defaultValue = "0") int page,
@@ -46,6 +68,8 @@ public class RankingController {
             @RequestParam(required = false, defaultValue = "false") boolean paginated) {
         
         Pageable pageable = PageRequest.of(page, size);
+        // Local time where the restaurants are, not of the server
+        LocalDateTime openTime = openNow ? openingHoursIndex.localNow() : openAt;
         
         if (paginated) {
             Page<Restaurant> restaurantPage = restaurantService.findWithFiltersPage(
@@ -55,13 +79,14 @@ public class RankingController {
                     soupBases,
                     minScore,
                     name,
+                    openTime,
                     sortBy,
                     sortDirection,
                     pageable
             );
             
             return ResponseEntity.ok(
-                    PageResponse.of(restaurantPage, RestaurantRankingDTO.fromEntities(restaurantPage.getContent())));
+                    PageResponse.of(restaurantPage, toRankingDTOs(restaurantPage.getContent())));
         } else {
             List<Restaurant> restaurants = restaurantService.findWithFilters(
                     prefectureId,
@@ -70,21 +95,52 @@ public class RankingController {
                     soupBases,
                     minScore,
                     name,
+                    openTime,
                     sortBy,
                     sortDirection,
                     pageable
             );
             
-            return ResponseEntity.ok(RestaurantRankingDTO.fromEntities(restaurants));
+            return ResponseEntity.ok(toRankingDTOs(restaurants));
         }
     }
     
+    /**
+     * Every restaurant matching the filters in ranking order, written while
+     * they are read instead of from a list built in memory. Takes the
+     * filters and sort of the unpaginated ranking; there is no page or size.
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> getRankedRestaurantsStreamed(
+            @RequestParam(required = false) Long prefectureId,
+            @RequestParam(required = false) Long areaId,
+            @RequestParam(required = false) List<Genre> genres,
+            @RequestParam(required = false) List<SoupBase> soupBases,
+            @RequestParam(required = false) Double minScore,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false, defaultValue = "false") boolean openNow,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime openAt,
+            @RequestParam(defaultValue = "score") String sortBy,
+            @RequestParam(defaultValue = "DESC") Sort.Direction sortDirection) {
+        
+        LocalDateTime openTime = openNow ? openingHoursIndex.localNow() : openAt;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(streamingJsonWriter.array(
+                () -> restaurantService.streamIdsWithFilters(prefectureId, areaId, genres, soupBases, minScore, name,
+                        openTime, sortBy, sortDirection),
+                ids -> toRankingDTOs(restaurantService.findAllByIds(ids))));
+    }
+    
     @GetMapping("/top")
     public ResponseEntity<List<RestaurantRankingDTO>> getTopRatedRestaurants(
             @RequestParam(defaultValue = "10") int limit) {
         
         List<Restaurant> restaurants = restaurantService.findTopRatedRestaurants(limit);
-        return ResponseEntity.ok(RestaurantRankingDTO.fromEntities(restaurants));
+        return ResponseEntity.ok(toRankingDTOs(restaurants));
     }
     
-} 
\ No newline at end of file
+    private List<RestaurantRankingDTO> toRankingDTOs(List<Restaurant> restaurants) {
+        List<Long> ids = restaurants.stream().map(Restaurant::getId).toList();
+        Map<Long, String> thumbnails = commentService.getThumbnailUrlsForRestaurants(ids);
+        return requestTracer.time(Phase.MAPPING, () -> RestaurantRankingDTO.fromEntities(restaurants, thumbnails));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.ramendirectory.japanramendirectory.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ramendirectory.japanramendirectory.service.RequestTraceBuffer;
+import com.ramendirectory.japanramendirectory.service.RequestTraceBuffer.Trace;
+
+@RestController
+@RequestMapping("/api/admin/request-traces")
+public class RequestTraceAdminController {
+
+    private final RequestTraceBuffer requestTraceBuffer;
+
+    @Autowired
+    public RequestTraceAdminController(RequestTraceBuffer requestTraceBuffer) {
+        this.requestTraceBuffer = requestTraceBuffer;
+    }
+
+    /**
+     * Latency breakdowns of sampled and slow requests, newest first.
+     *
+     * @param route Route template to filter by, e.g. "/api/ranking"
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Trace>> getTraces(@RequestParam(required = false) String route,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(requestTraceBuffer.getTraces(route, limit));
+    }
+}
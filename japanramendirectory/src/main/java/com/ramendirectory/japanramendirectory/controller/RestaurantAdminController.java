@@ -0,0 +1,64 @@
+package com.ramendirectory.japanramendirectory.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ramendirectory.japanramendirectory.service.OpeningHoursIndex;
+import com.ramendirectory.japanramendirectory.service.RestaurantDocumentStore;
+
+@RestController
+@RequestMapping("/api/admin/restaurants")
+public class RestaurantAdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(RestaurantAdminController.class);
+
+    private final RestaurantDocumentStore restaurantDocumentStore;
+    private final OpeningHoursIndex openingHoursIndex;
+
+    @Autowired
+    public RestaurantAdminController(RestaurantDocumentStore restaurantDocumentStore,
+            OpeningHoursIndex openingHoursIndex) {
+        this.restaurantDocumentStore = restaurantDocumentStore;
+        this.openingHoursIndex = openingHoursIndex;
+    }
+
+    /**
+     * Compare every restaurant document with its source tables now. Defaults
+     * to a report only; repair=true rewrites missing and stale documents.
+     */
+    @PostMapping("/documents/check")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> checkDocuments(@RequestParam(defaultValue = "false") boolean repair) {
+        try {
+            return ResponseEntity.ok(restaurantDocumentStore.check(repair));
+        } catch (Exception e) {
+            logger.error("Error checking restaurant documents: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("An error occurred while checking restaurant documents");
+        }
+    }
+
+    /**
+     * Parse the opening hours of restaurants that have none parsed yet, and
+     * list the ones whose text is not understood.
+     */
+    @PostMapping("/opening-hours/migrate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> migrateOpeningHours() {
+        try {
+            return ResponseEntity.ok(openingHoursIndex.migrate());
+        } catch (Exception e) {
+            logger.error("Error migrating opening hours: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("An error occurred while migrating opening hours");
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.ramendirectory.japanramendirectory.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.ramendirectory.japanramendirectory.dto.PageResponse;
 import com.ramendirectory.japanramendirectory.dto.RestaurantDTO;
@@ -19,20 +24,49 @@ import com.ramendirectory.japanramendirectory.model.Genre;
 import com.ramendirectory.japanramendirectory.model.Prefecture;
 import com.ramendirectory.japanramendirectory.model.Restaurant;
 import com.ramendirectory.japanramendirectory.model.SoupBase;
+import com.ramendirectory.japanramendirectory.repository.RestaurantField;
+import com.ramendirectory.japanramendirectory.repository.RestaurantSpecification;
+import com.ramendirectory.japanramendirectory.service.CommentService;
+import com.ramendirectory.japanramendirectory.service.RestaurantDocumentStore;
 import com.ramendirectory.japanramendirectory.service.RestaurantService;
+import com.ramendirectory.japanramendirectory.service.RestaurantTextStore;
+import com.ramendirectory.japanramendirectory.service.RestaurantTextStore.Kind;
+import com.ramendirectory.japanramendirectory.service.StreamingJsonWriter;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/restaurants")
 public class RestaurantController {
     
     private final RestaurantService restaurantService;
+    private final CommentService commentService;
+    private final RestaurantDocumentStore restaurantDocumentStore;
+    private final RestaurantTextStore restaurantTextStore;
+    private final StreamingJsonWriter streamingJsonWriter;
+    
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+    
+    @Value("${app.restaurant.batch.max-ids:100}")
+    private int maxBatchIds;
     
     @Autowired
-    public RestaurantController(RestaurantService restaurantService) {
+    public RestaurantController(RestaurantService restaurantService, CommentService commentService,
+            RestaurantDocumentStore restaurantDocumentStore, RestaurantTextStore restaurantTextStore,
+            StreamingJsonWriter streamingJsonWriter) {
         this.restaurantService = restaurantService;
+        this.commentService = commentService;
+        this.restaurantDocumentStore = restaurantDocumentStore;
+        this.restaurantTextStore = restaurantTextStore;
+        this.streamingJsonWriter = streamingJsonWriter;
     }
     
     @PostMapping
@@ -46,7 +80,12 @@ public class RestaurantController {
             @RequestParam(required = false) String name,
             @RequestParam(required = false, defaultValue = "0") int page,
             @RequestParam(required = false, defaultValue = "20") int size,
-            @RequestParam(required = false, defaultValue = "false") boolean paginated) {
+            @RequestParam(required = false, defaultValue = "false") boolean paginated,
+            @RequestParam(required = false) String fields) {
+        
+        if (fields != null) {
+            return withFields(RestaurantSpecification.hasNameContaining(name), fields, paginated, page, size);
+        }
         
         if (paginated) {
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "score"));
@@ -78,13 +117,128 @@ public class RestaurantController {
         }
     }
     
+    /**
+     * Every restaurant, or those whose name contains name, written while they
+     * are read instead of from a list built in memory. Same body as the
+     * unpaginated list, in id order.
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> getAllRestaurantsStreamed(
+            @RequestParam(required = false) String name) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(streamingJsonWriter.array(
+                () -> restaurantService.streamIds(RestaurantSpecification.hasNameContaining(name), Sort.by("id")),
+                ids -> RestaurantDTO.fromEntities(restaurantService.findAllByIds(ids))));
+    }
+    
+    /**
+     * A list endpoint's response with only the requested fields, for clients
+     * that render a few columns and should not pay for menus and descriptions.
+     */
+    private ResponseEntity<?> withFields(Specification<Restaurant> spec, String fields, boolean paginated,
+            int page, int size) {
+        Set<RestaurantField> selected;
+        try {
+            selected = RestaurantField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        Sort sort = Sort.by(Sort.Direction.DESC, "score");
+        if (paginated) {
+            Page<Map<String, Object>> restaurantPage = restaurantService.findFields(spec, selected,
+                    PageRequest.of(page, size, sort));
+            return new ResponseEntity<>(PageResponse.of(restaurantPage, restaurantPage.getContent()), HttpStatus.OK);
+        }
+        return new ResponseEntity<>(restaurantService.findFields(spec, selected, Pageable.unpaged(sort)).getContent(),
+                HttpStatus.OK);
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<RestaurantDTO> getRestaurantById(@PathVariable Long id) {
+    public ResponseEntity<?> getRestaurantById(@PathVariable Long id) {
+        // The materialized document is the whole response; assemble it only until the backfill has run
+        Optional<String> document = restaurantDocumentStore.find(id);
+        if (document.isPresent()) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(document.get());
+        }
         Optional<Restaurant> restaurant = restaurantService.getRestaurantById(id);
-        return restaurant.map(r -> new ResponseEntity<>(RestaurantDTO.fromEntity(r), HttpStatus.OK))
+        return restaurant.<ResponseEntity<?>>map(r -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                        .body(restaurantDocumentStore.render(r)))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
     
+    /**
+     * The full menu as plain text. Lists only carry its length and summary.
+     */
+    @GetMapping("/{id}/menu")
+    public ResponseEntity<String> getMenu(@PathVariable Long id, WebRequest request) {
+        return text(id, Kind.MENU, request);
+    }
+    
+    /**
+     * The full description as plain text. Lists only carry its length and summary.
+     */
+    @GetMapping("/{id}/description")
+    public ResponseEntity<String> getDescription(@PathVariable Long id, WebRequest request) {
+        return text(id, Kind.DESCRIPTION, request);
+    }
+    
+    private ResponseEntity<String> text(Long id, Kind kind, WebRequest request) {
+        // A matching ETag is answered from the hash column, without reading the body
+        Optional<String> hash = restaurantTextStore.findHash(id, kind);
+        if (hash.isPresent() && request.checkNotModified("\"" + hash.get() + "\"")) {
+            return null;
+        }
+        return restaurantTextStore.find(id, kind)
+                .map(text -> ResponseEntity.ok()
+                        .eTag("\"" + text.hash() + "\"")
+                        .contentType(TEXT_PLAIN_UTF8)
+                        .body(text.content()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Several restaurants by ID in one round trip, in the order requested.
+     * IDs that do not exist are listed under notFound.
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<?> getRestaurantsByIds(@RequestParam List<Long> ids) {
+        return batch(ids);
+    }
+    
+    // Same as the GET variant, for lists too long for a query string
+    @PostMapping("/batch")
+    public ResponseEntity<?> postRestaurantsByIds(@RequestBody List<Long> ids) {
+        return batch(ids);
+    }
+    
+    private ResponseEntity<?> batch(List<Long> ids) {
+        Set<Long> requested = ids.stream().filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (requested.isEmpty()) {
+            return ResponseEntity.badRequest().body("At least one restaurant id is required");
+        }
+        if (requested.size() > maxBatchIds) {
+            return ResponseEntity.badRequest().body("At most " + maxBatchIds + " restaurant ids per request");
+        }
+        Map<Long, String> documents = restaurantDocumentStore.findAll(requested);
+        // The documents are already JSON, so splice them in instead of parsing them again
+        StringBuilder body = new StringBuilder("{\"restaurants\":[");
+        List<Long> notFound = new ArrayList<>();
+        String separator = "";
+        for (Long id : requested) {
+            String document = documents.get(id);
+            if (document == null) {
+                notFound.add(id);
+            } else {
+                body.append(separator).append(document);
+                separator = ",";
+            }
+        }
+        body.append("],\"notFound\":[")
+                .append(notFound.stream().map(String::valueOf).collect(Collectors.joining(",")))
+                .append("]}");
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body.toString());
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<RestaurantDTO> updateRestaurant(@PathVariable Long id, @RequestBody Restaurant restaurant) {
         Optional<Restaurant> updatedRestaurant = restaurantService.updateRestaurant(id, restaurant);
@@ -103,7 +257,12 @@ public class RestaurantController {
             @PathVariable Long areaId,
             @RequestParam(required = false, defaultValue = "0") int page,
             @RequestParam(required = false, defaultValue = "20") int size,
-            @RequestParam(required = false, defaultValue = "false") boolean paginated) {
+            @RequestParam(required = false, defaultValue = "false") boolean paginated,
+            @RequestParam(required = false) String fields) {
+        
+        if (fields != null) {
+            return withFields(RestaurantSpecification.hasArea(areaId), fields, paginated, page, size);
+        }
         
         if (paginated) {
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "score"));
@@ -123,7 +282,12 @@ public class RestaurantController {
             @PathVariable Long prefectureId,
             @RequestParam(required = false, defaultValue = "0") int page,
             @RequestParam(required = false, defaultValue = "20") int size,
-            @RequestParam(required = false, defaultValue = "false") boolean paginated) {
+            @RequestParam(required = false, defaultValue = "false") boolean paginated,
+            @RequestParam(required = false) String fields) {
+        
+        if (fields != null) {
+            return withFields(RestaurantSpecification.hasPrefecture(prefectureId), fields, paginated, page, size);
+        }
         
         if (paginated) {
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "score"));
@@ -143,7 +307,12 @@ public class RestaurantController {
             @PathVariable SoupBase soupBase,
             @RequestParam(required = false, defaultValue = "0") int page,
             @RequestParam(required = false, defaultValue = "20") int size,
-            @RequestParam(required = false, defaultValue = "false") boolean paginated) {
+            @RequestParam(required = false, defaultValue = "false") boolean paginated,
+            @RequestParam(required = false) String fields) {
+        
+        if (fields != null) {
+            return withFields(RestaurantSpecification.hasAnySoupBase(List.of(soupBase)), fields, paginated, page, size);
+        }
         
         if (paginated) {
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "score"));
@@ -163,7 +332,12 @@ public class RestaurantController {
             @PathVariable Double score,
             @RequestParam(required = false, defaultValue = "0") int page,
             @RequestParam(required = false, defaultValue = "20") int size,
-            @RequestParam(required = false, defaultValue = "false") boolean paginated) {
+            @RequestParam(required = false, defaultValue = "false") boolean paginated,
+            @RequestParam(required = false) String fields) {
+        
+        if (fields != null) {
+            return withFields(RestaurantSpecification.hasMinScore(score), fields, paginated, page, size);
+        }
         
         if (paginated) {
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "score"));
@@ -183,7 +357,12 @@ public class RestaurantController {
             @PathVariable String genre,
             @RequestParam(required = false, defaultValue = "0") int page,
             @RequestParam(required = false, defaultValue = "20") int size,
-            @RequestParam(required = false, defaultValue = "false") boolean paginated) {
+            @RequestParam(required = false, defaultValue = "false") boolean paginated,
+            @RequestParam(required = false) String fields) {
+        
+        if (fields != null) {
+            return withFields(RestaurantSpecification.hasGenreNamed(genre), fields, paginated, page, size);
+        }
         
         if (paginated) {
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "score"));
@@ -237,6 +416,9 @@ public class RestaurantController {
     @GetMapping("/frontpage-cards")
     public ResponseEntity<List<RestaurantCardDTO>> getFrontPageCards() {
         List<Restaurant> topRestaurants = restaurantService.findTopRatedRestaurants(5);
-        return new ResponseEntity<>(RestaurantCardDTO.fromEntities(topRestaurants), HttpStatus.OK);
+        List<Long> ids = topRestaurants.stream().map(Restaurant::getId).toList();
+        return new ResponseEntity<>(
+                RestaurantCardDTO.fromEntities(topRestaurants, commentService.getThumbnailUrlsForRestaurants(ids)),
+                HttpStatus.OK);
     }
 }
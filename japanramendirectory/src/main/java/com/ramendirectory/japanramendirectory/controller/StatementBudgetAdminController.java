@@ -0,0 +1,43 @@
+package com.ramendirectory.japanramendirectory.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ramendirectory.japanramendirectory.service.StatementBudgetMonitor;
+import com.ramendirectory.japanramendirectory.service.StatementBudgetMonitor.Offender;
+
+@RestController
+@RequestMapping("/api/admin/statement-budget")
+public class StatementBudgetAdminController {
+
+    private final StatementBudgetMonitor statementBudgetMonitor;
+
+    @Autowired
+    public StatementBudgetAdminController(StatementBudgetMonitor statementBudgetMonitor) {
+        this.statementBudgetMonitor = statementBudgetMonitor;
+    }
+
+    /**
+     * Endpoints that ran more statements than their budget since startup or
+     * the last reset, with the statement shapes of their worst request.
+     */
+    @GetMapping("/offenders")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Offender>> getOffenders() {
+        return ResponseEntity.ok(statementBudgetMonitor.getOffenders());
+    }
+
+    @DeleteMapping("/offenders")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> resetOffenders() {
+        statementBudgetMonitor.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.ramendirectory.japanramendirectory.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated feed. Unlike {@link PageResponse} there is
+ * no total count: pass nextCursor back to get the following page, until
+ * hasMore is false.
+ */
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasMore;
+    
+    // Default constructor
+    public CursorPage() {
+    }
+    
+    // Constructor with parameters
+    public CursorPage(List<T> content, String nextCursor, boolean hasMore) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+    
+    // Getters and setters
+    public List<T> getContent() {
+        return content;
+    }
+    
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return hasMore;
+    }
+    
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
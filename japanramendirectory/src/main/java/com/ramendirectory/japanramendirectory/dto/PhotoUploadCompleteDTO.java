@@ -0,0 +1,33 @@
+package com.ramendirectory.japanramendirectory.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+
+/**
+ * Keys of upload slots whose content has been uploaded and should be
+ * attached to the comment.
+ */
+public class PhotoUploadCompleteDTO {
+    
+    @NotEmpty(message = "At least one key is required")
+    private List<String> keys;
+    
+    // Default constructor
+    public PhotoUploadCompleteDTO() {
+    }
+    
+    // Constructor with parameters
+    public PhotoUploadCompleteDTO(List<String> keys) {
+        this.keys = keys;
+    }
+    
+    // Getters and setters
+    public List<String> getKeys() {
+        return keys;
+    }
+    
+    public void setKeys(List<String> keys) {
+        this.keys = keys;
+    }
+}
@@ -0,0 +1,96 @@
+package com.ramendirectory.japanramendirectory.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Where to upload one photo. When the same content is already stored,
+ * alreadyStored is true and there is nothing to upload: the key can be passed
+ * to the completion endpoint right away.
+ */
+public class PhotoUploadSlotDTO {
+    private String sha256;
+    private String key;
+    private boolean alreadyStored;
+    private String uploadUrl;
+    private String method;
+    private Map<String, String> headers;
+    private Instant expiresAt;
+    
+    public static PhotoUploadSlotDTO stored(String sha256, String key) {
+        PhotoUploadSlotDTO dto = new PhotoUploadSlotDTO();
+        dto.setSha256(sha256);
+        dto.setKey(key);
+        dto.setAlreadyStored(true);
+        return dto;
+    }
+    
+    public static PhotoUploadSlotDTO upload(String sha256, String key, String uploadUrl, String method,
+            Map<String, String> headers, Instant expiresAt) {
+        PhotoUploadSlotDTO dto = new PhotoUploadSlotDTO();
+        dto.setSha256(sha256);
+        dto.setKey(key);
+        dto.setUploadUrl(uploadUrl);
+        dto.setMethod(method);
+        dto.setHeaders(headers);
+        dto.setExpiresAt(expiresAt);
+        return dto;
+    }
+    
+    // Getters and setters
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public boolean isAlreadyStored() {
+        return alreadyStored;
+    }
+
+    public void setAlreadyStored(boolean alreadyStored) {
+        this.alreadyStored = alreadyStored;
+    }
+
+    public String getUploadUrl() {
+        return uploadUrl;
+    }
+
+    public void setUploadUrl(String uploadUrl) {
+        this.uploadUrl = uploadUrl;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
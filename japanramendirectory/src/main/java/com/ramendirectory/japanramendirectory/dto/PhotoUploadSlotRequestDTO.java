@@ -0,0 +1,78 @@
+package com.ramendirectory.japanramendirectory.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Photos a client wants to upload straight to storage. The client computes
+ * the size and SHA-256 of each file before asking for upload URLs.
+ */
+public class PhotoUploadSlotRequestDTO {
+    
+    @NotEmpty(message = "At least one file is required")
+    @Valid
+    private List<FileInfo> files;
+    
+    // Getters and setters
+    public List<FileInfo> getFiles() {
+        return files;
+    }
+    
+    public void setFiles(List<FileInfo> files) {
+        this.files = files;
+    }
+    
+    public static class FileInfo {
+        
+        @NotBlank(message = "Content type is required")
+        private String contentType;
+        
+        @Positive(message = "Size must be positive")
+        private long size;
+        
+        @NotBlank(message = "SHA-256 is required")
+        @Pattern(regexp = "[0-9a-f]{64}", message = "SHA-256 must be 64 lowercase hex characters")
+        private String sha256;
+        
+        // Default constructor
+        public FileInfo() {
+        }
+        
+        // Constructor with parameters
+        public FileInfo(String contentType, long size, String sha256) {
+            this.contentType = contentType;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+        
+        // Getters and setters
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public void setContentType(String contentType) {
+            this.contentType = contentType;
+        }
+        
+        public long getSize() {
+            return size;
+        }
+        
+        public void setSize(long size) {
+            this.size = size;
+        }
+        
+        public String getSha256() {
+            return sha256;
+        }
+        
+        public void setSha256(String sha256) {
+            this.sha256 = sha256;
+        }
+    }
+}
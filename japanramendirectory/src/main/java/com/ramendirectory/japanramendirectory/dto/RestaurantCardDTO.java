@@ -2,6 +2,7 @@ package com.ramendirectory.japanramendirectory.dto;
 
 import com.ramendirectory.japanramendirectory.model.Restaurant;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Lightweight DTO for front page restaurant cards
@@ -12,6 +13,7 @@ public class RestaurantCardDTO {
     private String prefectureName;
     private String areaName;
     private Double score;
+    private String thumbnailUrl;
     
     public static RestaurantCardDTO fromEntity(Restaurant restaurant) {
         RestaurantCardDTO dto = new RestaurantCardDTO();
@@ -38,6 +40,12 @@ public class RestaurantCardDTO {
                 .toList();
     }
     
+    public static List<RestaurantCardDTO> fromEntities(List<Restaurant> restaurants, Map<Long, String> thumbnailUrls) {
+        List<RestaurantCardDTO> dtos = fromEntities(restaurants);
+        dtos.forEach(dto -> dto.setThumbnailUrl(thumbnailUrls.get(dto.getId())));
+        return dtos;
+    }
+    
     // Getters and setters
     public Long getId() {
         return id;
@@ -78,4 +86,12 @@ public class RestaurantCardDTO {
     public void setScore(Double score) {
         this.score = score;
     }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
 } 
\ No newline at end of file
@@ -15,11 +15,16 @@ public class RestaurantDTO {
     private Address address;
     private Integer seats;
     private Map<String, String> socialMediaLinks;
+    // Full texts only in the detail response; lists carry the length and summary
     private String menuContent;
+    private Integer menuLength;
+    private String menuSummary;
     private String openingHours;
     private String restDay;
     private Date openingDate;
     private String description;
+    private Integer descriptionLength;
+    private String descriptionSummary;
     
     // Static method to convert Restaurant to RestaurantDTO
     public static RestaurantDTO fromEntity(Restaurant restaurant) {
@@ -48,11 +53,13 @@ public class RestaurantDTO {
         dto.setSocialMediaLinks(restaurant.getSocialMediaLinks());
         
         if (restaurant.getMenu() != null) {
-            dto.setMenuContent(restaurant.getMenu().getMenuContent());
+            dto.setMenuLength(restaurant.getMenu().getContentLength());
+            dto.setMenuSummary(restaurant.getMenu().getContentSummary());
         }
         
         if (restaurant.getDescription() != null) {
-            dto.setDescription(restaurant.getDescription().getContent());
+            dto.setDescriptionLength(restaurant.getDescription().getContentLength());
+            dto.setDescriptionSummary(restaurant.getDescription().getContentSummary());
         }
         
         return dto;
@@ -153,6 +160,22 @@ public class RestaurantDTO {
     public void setMenuContent(String menuContent) {
         this.menuContent = menuContent;
     }
+
+    public Integer getMenuLength() {
+        return menuLength;
+    }
+
+    public void setMenuLength(Integer menuLength) {
+        this.menuLength = menuLength;
+    }
+
+    public String getMenuSummary() {
+        return menuSummary;
+    }
+
+    public void setMenuSummary(String menuSummary) {
+        this.menuSummary = menuSummary;
+    }
     
     public String getOpeningHours() {
         return openingHours;
@@ -185,4 +208,20 @@ public class RestaurantDTO {
     public void setDescription(String description) {
         this.description = description;
     }
-} 
\ No newline at end of file
+
+    public Integer getDescriptionLength() {
+        return descriptionLength;
+    }
+
+    public void setDescriptionLength(Integer descriptionLength) {
+        this.descriptionLength = descriptionLength;
+    }
+
+    public String getDescriptionSummary() {
+        return descriptionSummary;
+    }
+
+    public void setDescriptionSummary(String descriptionSummary) {
+        this.descriptionSummary = descriptionSummary;
+    }
+}
@@ -12,7 +12,7 @@ public class RestaurantRankingDTO {
     private String prefectureName;
     private Set<GenreDTO> genres;
     private Set<SoupBase> soupBases;
-    private String thumbnailUrl;  // For a small image if available
+    private String thumbnailUrl;  // Thumbnail of the latest photo, if any
     
     // Static method to convert Restaurant to RestaurantRankingDTO
     public static RestaurantRankingDTO fromEntity(Restaurant restaurant) {
@@ -36,9 +36,6 @@ public class RestaurantRankingDTO {
             }
         }
         
-        // Placeholder for if you add image support in the future
-        // dto.setThumbnailUrl(...);
-        
         return dto;
     }
     
@@ -49,6 +46,13 @@ public class RestaurantRankingDTO {
                 .toList();
     }
     
+    // Same as above, filling thumbnailUrl from a restaurant id -> URL map
+    public static List<RestaurantRankingDTO> fromEntities(List<Restaurant> restaurants, Map<Long, String> thumbnailUrls) {
+        List<RestaurantRankingDTO> dtos = fromEntities(restaurants);
+        dtos.forEach(dto -> dto.setThumbnailUrl(thumbnailUrls.get(dto.getId())));
+        return dtos;
+    }
+    
     // Getters and setters
     public Long getId() {
         return id;
@@ -0,0 +1,24 @@
+package com.ramendirectory.japanramendirectory.event;
+
+import com.ramendirectory.japanramendirectory.dto.CommentDTO;
+
+/**
+ * Published after a new comment has been committed.
+ */
+public class CommentCreatedEvent extends CommentEvent {
+    
+    private final CommentDTO comment;
+    
+    public CommentCreatedEvent(CommentDTO comment) {
+        this(comment, false);
+    }
+    
+    public CommentCreatedEvent(CommentDTO comment, boolean replayed) {
+        super(comment.getId(), comment.getRestaurantId(), comment.getUserId(), replayed);
+        this.comment = comment;
+    }
+    
+    public CommentDTO getComment() {
+        return comment;
+    }
+}
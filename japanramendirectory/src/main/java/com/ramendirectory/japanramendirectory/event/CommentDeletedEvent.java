@@ -0,0 +1,12 @@
+package com.ramendirectory.japanramendirectory.event;
+
+/**
+ * Published after a comment has been removed.
+ * Deletions cannot be recovered by a database replay since the row is gone.
+ */
+public class CommentDeletedEvent extends CommentEvent {
+    
+    public CommentDeletedEvent(Long commentId, Long restaurantId, Long userId) {
+        super(commentId, restaurantId, userId, false);
+    }
+}
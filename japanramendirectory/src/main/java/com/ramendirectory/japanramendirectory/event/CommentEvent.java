@@ -0,0 +1,53 @@
+package com.ramendirectory.japanramendirectory.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Base class for comment domain events.
+ * Events only carry identifiers and immutable snapshots so they can safely
+ * be handled on worker threads after the originating transaction committed.
+ */
+public abstract class CommentEvent {
+    
+    private final Long commentId;
+    private final Long restaurantId;
+    private final Long userId;
+    private final LocalDateTime occurredAt;
+    private final boolean replayed;
+    
+    protected CommentEvent(Long commentId, Long restaurantId, Long userId, boolean replayed) {
+        this.commentId = commentId;
+        this.restaurantId = restaurantId;
+        this.userId = userId;
+        this.occurredAt = LocalDateTime.now();
+        this.replayed = replayed;
+    }
+    
+    public Long getCommentId() {
+        return commentId;
+    }
+    
+    public Long getRestaurantId() {
+        return restaurantId;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+    
+    /**
+     * @return true if the event was re-published from the database by a replay
+     */
+    public boolean isReplayed() {
+        return replayed;
+    }
+    
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[comment=" + commentId + ", restaurant=" + restaurantId + "]";
+    }
+}
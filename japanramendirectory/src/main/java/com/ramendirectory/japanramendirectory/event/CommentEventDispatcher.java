@@ -0,0 +1,233 @@
+package com.ramendirectory.japanramendirectory.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Receives comment events once the publishing transaction has committed and
+ * hands them to {@link CommentEventHandler}s on a small pool of worker threads.
+ *
+ * Events are partitioned by restaurant so each restaurant's events are handled
+ * in order by a single worker. Every partition is a bounded queue: when it is
+ * full the committing thread, usually a request thread, waits up to
+ * {@code app.comment.events.offer-timeout-ms} and the event is dropped (and
+ * counted) afterwards, so a saturated pipeline adds at most that much latency
+ * to a write. Dropped events can be recovered with a replay from the database,
+ * see {@code CommentService#replayCommentEvents}, which queues through
+ * {@link #replay(CommentEvent)} and waits for room instead.
+ */
+@Component
+public class CommentEventDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentEventDispatcher.class);
+
+    @Value("${app.comment.events.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.comment.events.workers:2}")
+    private int workerCount;
+
+    @Value("${app.comment.events.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.comment.events.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    private final ObjectProvider<CommentEventHandler> handlers;
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private List<BlockingQueue<CommentEvent>> partitions;
+    private List<Thread> workers;
+    private volatile boolean running;
+
+    public CommentEventDispatcher(ObjectProvider<CommentEventHandler> handlers) {
+        this.handlers = handlers;
+    }
+
+    @PostConstruct
+    public void start() {
+        int workersToStart = Math.max(1, workerCount);
+        int partitionCapacity = Math.max(1, queueCapacity / workersToStart);
+
+        partitions = new ArrayList<>(workersToStart);
+        workers = new ArrayList<>(workersToStart);
+        running = true;
+
+        for (int i = 0; i < workersToStart; i++) {
+            BlockingQueue<CommentEvent> queue = new ArrayBlockingQueue<>(partitionCapacity);
+            partitions.add(queue);
+
+            Thread worker = new Thread(() -> drainLoop(queue), "comment-events-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        logger.info("Comment event pipeline started with {} workers, {} events per queue",
+                workersToStart, partitionCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long pending = getQueueDepth();
+        if (pending > 0) {
+            logger.warn("Comment event pipeline stopped with {} unprocessed events", pending);
+        }
+    }
+
+    /**
+     * Queue an event published by a committed transaction.
+     * Runs on the committing thread, so it must never do the actual work; it
+     * blocks that thread for up to the offer timeout when the partition is full.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCommentEvent(CommentEvent event) {
+        BlockingQueue<CommentEvent> queue = partitionFor(event.getRestaurantId());
+        publishedCount.incrementAndGet();
+
+        try {
+            if (!queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                droppedCount.incrementAndGet();
+                logger.warn("Comment event queue full, dropped {}. Replay from the database to recover", event);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedCount.incrementAndGet();
+            logger.warn("Interrupted while queueing {}", event);
+        }
+    }
+
+    /**
+     * Queue an event re-read from the database, waiting for as long as the
+     * partition needs to make room. Replays call this directly instead of
+     * publishing, so their events are neither held until a commit nor dropped.
+     *
+     * @throws InterruptedException if interrupted while waiting, the event is not queued
+     */
+    public void replay(CommentEvent event) throws InterruptedException {
+        partitionFor(event.getRestaurantId()).put(event);
+        publishedCount.incrementAndGet();
+    }
+
+    private BlockingQueue<CommentEvent> partitionFor(Long restaurantId) {
+        int index = restaurantId == null ? 0 : (int) Math.floorMod(restaurantId, (long) partitions.size());
+        return partitions.get(index);
+    }
+
+    private void drainLoop(BlockingQueue<CommentEvent> queue) {
+        List<CommentEvent> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            try {
+                CommentEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, Math.max(0, batchSize - 1));
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Split the drained events into runs of consecutive events for the same
+     * restaurant and hand each run to every handler.
+     */
+    private void dispatch(List<CommentEvent> events) {
+        int runStart = 0;
+        for (int i = 1; i <= events.size(); i++) {
+            boolean endOfRun = i == events.size()
+                    || !sameRestaurant(events.get(i).getRestaurantId(), events.get(runStart).getRestaurantId());
+            if (endOfRun) {
+                List<CommentEvent> run = events.subList(runStart, i);
+                handleRun(events.get(runStart).getRestaurantId(), run);
+                runStart = i;
+            }
+        }
+    }
+
+    private void handleRun(Long restaurantId, List<CommentEvent> run) {
+        List<CommentEvent> snapshot = List.copyOf(run);
+
+        handlers.orderedStream().forEach(handler -> {
+            try {
+                handler.onCommentEvents(restaurantId, snapshot);
+            } catch (Exception e) {
+                failedCount.incrementAndGet();
+                logger.error("Comment event handler {} failed for restaurant {}: {}",
+                        handler.getClass().getSimpleName(), restaurantId, e.getMessage(), e);
+            }
+        });
+
+        processedCount.addAndGet(snapshot.size());
+    }
+
+    private boolean sameRestaurant(Long a, Long b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * @return the number of events waiting in all partitions
+     */
+    public long getQueueDepth() {
+        long depth = 0;
+        for (BlockingQueue<CommentEvent> queue : partitions) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+}
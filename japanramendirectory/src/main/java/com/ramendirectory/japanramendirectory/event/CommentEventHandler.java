@@ -0,0 +1,20 @@
+package com.ramendirectory.japanramendirectory.event;
+
+import java.util.List;
+
+/**
+ * Implemented by beans doing derived work for comment writes (stats, counters,
+ * cache invalidation, indexing...). Handlers are invoked on the event worker
+ * threads, never on the request thread.
+ */
+public interface CommentEventHandler {
+    
+    /**
+     * Handle a batch of consecutive events for the same restaurant, in the
+     * order they were published.
+     * 
+     * @param restaurantId the restaurant all events in the batch belong to
+     * @param events the events, oldest first
+     */
+    void onCommentEvents(Long restaurantId, List<CommentEvent> events);
+}
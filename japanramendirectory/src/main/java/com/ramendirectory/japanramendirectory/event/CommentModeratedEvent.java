@@ -0,0 +1,30 @@
+package com.ramendirectory.japanramendirectory.event;
+
+import com.ramendirectory.japanramendirectory.dto.CommentDTO;
+
+/**
+ * Published after an admin approved or rejected a reported comment.
+ */
+public class CommentModeratedEvent extends CommentEvent {
+    
+    private final CommentDTO comment;
+    private final boolean approved;
+    
+    public CommentModeratedEvent(CommentDTO comment, boolean approved) {
+        this(comment, approved, false);
+    }
+    
+    public CommentModeratedEvent(CommentDTO comment, boolean approved, boolean replayed) {
+        super(comment.getId(), comment.getRestaurantId(), comment.getUserId(), replayed);
+        this.comment = comment;
+        this.approved = approved;
+    }
+    
+    public CommentDTO getComment() {
+        return comment;
+    }
+    
+    public boolean isApproved() {
+        return approved;
+    }
+}
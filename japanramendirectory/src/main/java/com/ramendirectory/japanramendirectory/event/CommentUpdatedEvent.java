@@ -0,0 +1,24 @@
+package com.ramendirectory.japanramendirectory.event;
+
+import com.ramendirectory.japanramendirectory.dto.CommentDTO;
+
+/**
+ * Published after an existing comment has been edited by its author.
+ */
+public class CommentUpdatedEvent extends CommentEvent {
+    
+    private final CommentDTO comment;
+    
+    public CommentUpdatedEvent(CommentDTO comment) {
+        this(comment, false);
+    }
+    
+    public CommentUpdatedEvent(CommentDTO comment, boolean replayed) {
+        super(comment.getId(), comment.getRestaurantId(), comment.getUserId(), replayed);
+        this.comment = comment;
+    }
+    
+    public CommentDTO getComment() {
+        return comment;
+    }
+}
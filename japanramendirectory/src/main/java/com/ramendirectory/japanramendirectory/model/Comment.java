@@ -4,6 +4,8 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
@@ -14,6 +16,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OrderColumn;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -94,8 +97,11 @@ public class Comment {
     @Column(nullable = true)
     private LocalDateTime reportedAt;
     
+    // Loaded for up to 50 comments in one query when a feed page is rendered, in the order they were added
     @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(name = "comment_photos", joinColumns = @JoinColumn(name = "comment_id"))
+    @OrderColumn(name = "photo_order")
     @Column(name = "photo_url", length = 1000)
     private List<String> photos = new ArrayList<>();
 
@@ -0,0 +1,64 @@
+package com.ramendirectory.japanramendirectory.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * Time of a user's latest comment on a restaurant. The unique (user,
+ * restaurant) pair and compare-and-set updates make the comment cooldown hold
+ * under concurrent submissions.
+ */
+@Entity
+@Table(name = "comment_cooldowns", uniqueConstraints = @UniqueConstraint(
+        name = "uk_comment_cooldowns_user_restaurant", columnNames = { "user_id", "restaurant_id" }))
+public class CommentCooldown {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "restaurant_id", nullable = false)
+    private Long restaurantId;
+
+    @Column(nullable = false)
+    private LocalDateTime lastCommentAt;
+
+    public CommentCooldown() {
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getRestaurantId() {
+        return restaurantId;
+    }
+
+    public void setRestaurantId(Long restaurantId) {
+        this.restaurantId = restaurantId;
+    }
+
+    public LocalDateTime getLastCommentAt() {
+        return lastCommentAt;
+    }
+
+    public void setLastCommentAt(LocalDateTime lastCommentAt) {
+        this.lastCommentAt = lastCommentAt;
+    }
+}
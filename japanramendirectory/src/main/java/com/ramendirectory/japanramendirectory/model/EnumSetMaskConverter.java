@@ -0,0 +1,30 @@
+package com.ramendirectory.japanramendirectory.model;
+
+import java.util.Set;
+
+import com.ramendirectory.japanramendirectory.util.EnumMasks;
+
+import jakarta.persistence.AttributeConverter;
+
+/**
+ * Stores a set of enum constants as a bitmask column, see {@link EnumMasks}.
+ * A null set is stored as the empty mask.
+ */
+public abstract class EnumSetMaskConverter<E extends Enum<E>> implements AttributeConverter<Set<E>, Integer> {
+
+    private final Class<E> type;
+
+    protected EnumSetMaskConverter(Class<E> type) {
+        this.type = type;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(Set<E> values) {
+        return values == null ? 0 : EnumMasks.of(values);
+    }
+
+    @Override
+    public Set<E> convertToEntityAttribute(Integer mask) {
+        return EnumMasks.toSet(mask == null ? 0 : mask, type);
+    }
+}
@@ -1,5 +1,6 @@
 package com.ramendirectory.japanramendirectory.model;
 
+// Stored as a bitmask of ordinals (restaurants.genre_mask): add new genres at the end, 10 at most
 public enum Genre {
     RAMEN("拉麵"),
     TSUKEMEN("沾麵"),
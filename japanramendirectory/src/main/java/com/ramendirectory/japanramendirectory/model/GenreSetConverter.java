@@ -0,0 +1,11 @@
+package com.ramendirectory.japanramendirectory.model;
+
+import jakarta.persistence.Converter;
+
+@Converter
+public class GenreSetConverter extends EnumSetMaskConverter<Genre> {
+
+    public GenreSetConverter() {
+        super(Genre.class);
+    }
+}
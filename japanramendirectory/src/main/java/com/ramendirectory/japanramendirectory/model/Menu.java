@@ -14,9 +14,12 @@ public class Menu {
     @JoinColumn(name = "restaurant_id")
     private Restaurant restaurant;
     
-    @Lob
-    @Column(columnDefinition = "TEXT")
-    private String menuContent;
+    // The body itself is read and written by RestaurantTextStore; its length is in Unicode code points
+    @Column(name = "content_length", insertable = false, updatable = false)
+    private Integer contentLength;
+    
+    @Column(name = "content_summary", insertable = false, updatable = false)
+    private String contentSummary;
     
     @Temporal(TemporalType.TIMESTAMP)
     private Date lastUpdated;
@@ -38,12 +41,12 @@ public class Menu {
         this.restaurant = restaurant;
     }
 
-    public String getMenuContent() {
-        return menuContent;
+    public Integer getContentLength() {
+        return contentLength;
     }
 
-    public void setMenuContent(String menuContent) {
-        this.menuContent = menuContent;
+    public String getContentSummary() {
+        return contentSummary;
     }
 
     public Date getLastUpdated() {
@@ -0,0 +1,104 @@
+package com.ramendirectory.japanramendirectory.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * A downscaled rendition of an uploaded comment photo, keyed by the URL of the
+ * original so it can be looked up for any entry in comment_photos.
+ */
+@Entity
+@Table(name = "photo_variants")
+public class PhotoVariant {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 700)
+    private String photoUrl;
+
+    @Column(nullable = false, length = 32)
+    private String label;
+
+    @Column(nullable = false)
+    private Integer width;
+
+    @Column(nullable = false)
+    private Integer height;
+
+    @Column(nullable = false, length = 1000)
+    private String url;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public PhotoVariant() {
+    }
+
+    public PhotoVariant(String photoUrl, String label, int width, int height, String url) {
+        this.photoUrl = photoUrl;
+        this.label = label;
+        this.width = width;
+        this.height = height;
+        this.url = url;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPhotoUrl() {
+        return photoUrl;
+    }
+
+    public void setPhotoUrl(String photoUrl) {
+        this.photoUrl = photoUrl;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
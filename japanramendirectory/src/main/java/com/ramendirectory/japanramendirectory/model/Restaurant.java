@@ -3,7 +3,7 @@ package com.ramendirectory.japanramendirectory.model;
 import jakarta.persistence.*;
 import java.util.Map;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.Date;
 
 @Entity
@@ -135,19 +135,21 @@ public class Restaurant {
 
     private String name;
     
-    @ElementCollection
-    @Enumerated(EnumType.STRING)
-    @CollectionTable(name = "restaurant_genres",
-            joinColumns = @JoinColumn(name = "restaurant_id"))
-    @Column(name = "genre")
-    private Set<Genre> genres = new HashSet<>();
-
-    @ElementCollection
-    @Enumerated(EnumType.STRING)
-    @CollectionTable(name = "restaurant_soup_bases",
-            joinColumns = @JoinColumn(name = "restaurant_id"))
-    @Column(name = "soup_base")
-    private Set<SoupBase> soupBases = new HashSet<>();
+    // Bitmasks over the enum ordinals, see EnumMasks
+    @Convert(converter = GenreSetConverter.class)
+    @Column(name = "genre_mask", nullable = false)
+    private Set<Genre> genres = EnumSet.noneOf(Genre.class);
+
+    @Convert(converter = SoupBaseSetConverter.class)
+    @Column(name = "soup_base_mask", nullable = false)
+    private Set<SoupBase> soupBases = EnumSet.noneOf(SoupBase.class);
+
+    // The same columns as numbers, for the mask predicates of queries
+    @Column(name = "genre_mask", insertable = false, updatable = false)
+    private Integer genreMask;
+
+    @Column(name = "soup_base_mask", insertable = false, updatable = false)
+    private Integer soupBaseMask;
 
     private Double score;
     private Boolean reservationSystem;
@@ -162,11 +164,8 @@ public class Restaurant {
     
     private Integer seats;
 
-    @ElementCollection
-    @CollectionTable(name = "restaurant_social_media_links",
-            joinColumns = @JoinColumn(name = "restaurant_id"))
-    @MapKeyColumn(name = "platform")
-    @Column(name = "url")
+    @Convert(converter = SocialMediaLinksConverter.class)
+    @Column(name = "social_media_links", columnDefinition = "TEXT")
     private Map<String, String> socialMediaLinks;
     
     @OneToOne(mappedBy = "restaurant", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -14,8 +14,12 @@ public class RestaurantDescription {
     @JoinColumn(name = "restaurant_id")
     private Restaurant restaurant;
     
-    @Column(columnDefinition = "TEXT")
-    private String content;
+    // The body itself is read and written by RestaurantTextStore; its length is in Unicode code points
+    @Column(name = "content_length", insertable = false, updatable = false)
+    private Integer contentLength;
+    
+    @Column(name = "content_summary", insertable = false, updatable = false)
+    private String contentSummary;
     
     @Temporal(TemporalType.TIMESTAMP)
     private Date lastUpdated;
@@ -37,12 +41,12 @@ public class RestaurantDescription {
         this.restaurant = restaurant;
     }
 
-    public String getContent() {
-        return content;
+    public Integer getContentLength() {
+        return contentLength;
     }
 
-    public void setContent(String content) {
-        this.content = content;
+    public String getContentSummary() {
+        return contentSummary;
     }
 
     public Date getLastUpdated() {
@@ -0,0 +1,47 @@
+package com.ramendirectory.japanramendirectory.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores social media links as one JSON object, platform to URL, with the
+ * platforms in sorted order.
+ */
+@Converter
+public class SocialMediaLinksConverter implements AttributeConverter<Map<String, String>, String> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<TreeMap<String, String>> LINKS = new TypeReference<>() {
+    };
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, String> links) {
+        if (links == null) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsString(new TreeMap<>(links));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize social media links", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> convertToEntityAttribute(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(json, LINKS);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid social media links: " + json, e);
+        }
+    }
+}
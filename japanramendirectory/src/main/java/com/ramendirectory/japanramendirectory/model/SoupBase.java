@@ -1,5 +1,6 @@
 package com.ramendirectory.japanramendirectory.model;
 
+// Stored as a bitmask of ordinals (restaurants.soup_base_mask): add new soup bases at the end, 10 at most
 public enum SoupBase {
     醬油,
     味噌,
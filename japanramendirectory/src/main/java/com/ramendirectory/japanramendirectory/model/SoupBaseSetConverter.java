@@ -0,0 +1,11 @@
+package com.ramendirectory.japanramendirectory.model;
+
+import jakarta.persistence.Converter;
+
+@Converter
+public class SoupBaseSetConverter extends EnumSetMaskConverter<SoupBase> {
+
+    public SoupBaseSetConverter() {
+        super(SoupBase.class);
+    }
+}
@@ -1,6 +1,8 @@
 package com.ramendirectory.japanramendirectory.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ramendirectory.japanramendirectory.model.Address;
@@ -11,7 +13,10 @@ import java.util.List;
 @Repository
 public interface AddressRepository extends JpaRepository<Address, Long> {
     List<Address> findByArea(Area area);
-    List<Address> findByAreaId(Long areaId);
-    List<Address> findByAreaPrefectureId(Long prefectureId);
+    // Compare the foreign key columns directly instead of outer joining areas
+    @Query("SELECT a FROM Address a WHERE a.area.id = :areaId")
+    List<Address> findByAreaId(@Param("areaId") Long areaId);
+    @Query("SELECT a FROM Address a JOIN a.area ar WHERE ar.prefecture.id = :prefectureId")
+    List<Address> findByAreaPrefectureId(@Param("prefectureId") Long prefectureId);
     List<Address> findByPostalCode(String postalCode);
 } 
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.ramendirectory.japanramendirectory.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ramendirectory.japanramendirectory.model.Area;
@@ -12,7 +14,9 @@ import java.util.Optional;
 @Repository
 public interface AreaRepository extends JpaRepository<Area, Long> {
     List<Area> findByPrefecture(Prefecture prefecture);
-    List<Area> findByPrefectureId(Long prefectureId);
+    // Compare the foreign key column directly instead of joining prefectures
+    @Query("SELECT a FROM Area a WHERE a.prefecture.id = :prefectureId")
+    List<Area> findByPrefectureId(@Param("prefectureId") Long prefectureId);
     Optional<Area> findByNameAndPrefecture(String name, Prefecture prefecture);
     Optional<Area> findByNameInEnglishAndPrefectureNameInEnglish(String nameInEnglish, String prefectureNameInEnglish);
 } 
\ No newline at end of file
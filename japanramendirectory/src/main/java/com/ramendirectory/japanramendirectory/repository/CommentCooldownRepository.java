@@ -0,0 +1,51 @@
+package com.ramendirectory.japanramendirectory.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.model.CommentCooldown;
+
+@Repository
+public interface CommentCooldownRepository extends JpaRepository<CommentCooldown, Long> {
+
+    // Time of the user's latest comment on the restaurant
+    @Query("SELECT c.lastCommentAt FROM CommentCooldown c WHERE c.userId = :userId AND c.restaurantId = :restaurantId")
+    Optional<LocalDateTime> findLastCommentAt(@Param("userId") Long userId, @Param("restaurantId") Long restaurantId);
+
+    // Move the latest comment time forward only if nobody else has since the value was read
+    @Transactional
+    @Modifying
+    @Query("UPDATE CommentCooldown c SET c.lastCommentAt = :now WHERE c.userId = :userId "
+            + "AND c.restaurantId = :restaurantId AND c.lastCommentAt = :seen")
+    int compareAndSetLastCommentAt(@Param("userId") Long userId, @Param("restaurantId") Long restaurantId,
+            @Param("seen") LocalDateTime seen, @Param("now") LocalDateTime now);
+
+    // Record a first comment; returns 0 when a concurrent submission recorded one first
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO comment_cooldowns (user_id, restaurant_id, last_comment_at) "
+            + "VALUES (:userId, :restaurantId, :now)", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("restaurantId") Long restaurantId,
+            @Param("now") LocalDateTime now);
+
+    // Set the latest comment time after a comment was deleted
+    @Transactional
+    @Modifying
+    @Query("UPDATE CommentCooldown c SET c.lastCommentAt = :lastCommentAt WHERE c.userId = :userId "
+            + "AND c.restaurantId = :restaurantId")
+    int setLastCommentAt(@Param("userId") Long userId, @Param("restaurantId") Long restaurantId,
+            @Param("lastCommentAt") LocalDateTime lastCommentAt);
+
+    // Forget the pair once the user has no comments left on the restaurant
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CommentCooldown c WHERE c.userId = :userId AND c.restaurantId = :restaurantId")
+    int deleteByUserIdAndRestaurantId(@Param("userId") Long userId, @Param("restaurantId") Long restaurantId);
+}
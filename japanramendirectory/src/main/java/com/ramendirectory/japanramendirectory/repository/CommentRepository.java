@@ -1,12 +1,19 @@
 package com.ramendirectory.japanramendirectory.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -14,13 +21,17 @@ import com.ramendirectory.japanramendirectory.model.Comment;
 import com.ramendirectory.japanramendirectory.model.Restaurant;
 import com.ramendirectory.japanramendirectory.model.User;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     
     // Find all comments for a specific restaurant
+    @EntityGraph(attributePaths = "user")
     List<Comment> findByRestaurantOrderByCreatedAtDesc(Restaurant restaurant);
     
     // Find comments with pagination
+    @EntityGraph(attributePaths = "user")
     Page<Comment> findByRestaurant(Restaurant restaurant, Pageable pageable);
     
     // Find all comments by a specific user
@@ -30,12 +41,22 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByRestaurantAndUser(Restaurant restaurant, User user);
     
     // Find reported comments
+    @EntityGraph(attributePaths = "user")
     List<Comment> findByReportedTrue();
     
     // Find all approved comments for a restaurant
+    @EntityGraph(attributePaths = "user")
     List<Comment> findByRestaurantAndApprovedTrueOrderByCreatedAtDesc(Restaurant restaurant);
     
+    // Same, read as the stream is consumed and not dirty-checked; consume inside a transaction and close.
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user JOIN FETCH c.restaurant WHERE c.restaurant.id = :restaurantId "
+            + "AND c.approved = true ORDER BY c.createdAt DESC, c.id DESC")
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    Stream<Comment> streamApprovedByRestaurantId(@Param("restaurantId") Long restaurantId);
+    
     // Find all approved comments for a restaurant with pagination
+    @EntityGraph(attributePaths = "user")
     Page<Comment> findByRestaurantAndApprovedTrue(Restaurant restaurant, Pageable pageable);
     
     // Check if a user has already commented on a restaurant
@@ -53,4 +74,53 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     // Find the latest comment by user and restaurant
     @Query("SELECT c FROM Comment c WHERE c.user = :user AND c.restaurant = :restaurant ORDER BY c.createdAt DESC")
     List<Comment> findLatestByUserAndRestaurant(@Param("user") User user, @Param("restaurant") Restaurant restaurant, Pageable pageable);
-} 
\ No newline at end of file
+    
+    // Time of the user's latest comment on the restaurant, read from the end of the (user, restaurant, created_at) index
+    @Query("SELECT MAX(c.createdAt) FROM Comment c WHERE c.user.id = :userId AND c.restaurant.id = :restaurantId")
+    Optional<LocalDateTime> findLatestCommentTime(@Param("userId") Long userId, @Param("restaurantId") Long restaurantId);
+    
+    // Replay: next comments created after the last (createdAt, id) seen, oldest first.
+    // Start from (since, Long.MAX_VALUE) to get the comments created after since
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user JOIN FETCH c.restaurant "
+            + "WHERE c.createdAt >= :createdAt AND (c.createdAt > :createdAt OR c.id > :id) "
+            + "ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findCreatedAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+    
+    // Replay: next comments created up to since and updated after the last (updatedAt, id) seen, oldest first
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user JOIN FETCH c.restaurant WHERE c.createdAt <= :since "
+            + "AND c.updatedAt >= :updatedAt AND (c.updatedAt > :updatedAt OR c.id > :id) "
+            + "ORDER BY c.updatedAt ASC, c.id ASC")
+    List<Comment> findUpdatedAfter(@Param("since") LocalDateTime since, @Param("updatedAt") LocalDateTime updatedAt,
+            @Param("id") Long id, Limit limit);
+    
+    // Find the first photo of the latest approved comment with photos for each restaurant, as [restaurantId, photoUrl]
+    // rows. Latest is by (createdAt, id) so comments posted in the same instant still give one answer
+    @Query("SELECT c.restaurant.id, p FROM Comment c JOIN c.photos p WHERE c.restaurant.id IN :restaurantIds "
+            + "AND INDEX(p) = 0 AND c.id = (SELECT c2.id FROM Comment c2 WHERE c2.restaurant = c.restaurant "
+            + "AND c2.approved = true AND c2.photos IS NOT EMPTY ORDER BY c2.createdAt DESC, c2.id DESC LIMIT 1)")
+    List<Object[]> findLatestPhotoByRestaurantIds(@Param("restaurantIds") Collection<Long> restaurantIds);
+    
+    // First page of a restaurant's approved comments, newest first, keyed on (createdAt, id) without a count query
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user JOIN FETCH c.restaurant WHERE c.restaurant.id = :restaurantId "
+            + "AND c.approved = true ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findFeedByRestaurantId(@Param("restaurantId") Long restaurantId, Limit limit);
+    
+    // Next page of a restaurant's approved comments after the last (createdAt, id) seen
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user JOIN FETCH c.restaurant WHERE c.restaurant.id = :restaurantId "
+            + "AND c.approved = true AND c.createdAt <= :createdAt AND (c.createdAt < :createdAt OR c.id < :id) "
+            + "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findFeedByRestaurantIdBefore(@Param("restaurantId") Long restaurantId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+    
+    // First page of a user's comments, newest first
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user JOIN FETCH c.restaurant WHERE c.user.id = :userId "
+            + "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findFeedByUserId(@Param("userId") Long userId, Limit limit);
+    
+    // Next page of a user's comments after the last (createdAt, id) seen
+    @Query("SELECT c FROM Comment c JOIN FETCH c.user JOIN FETCH c.restaurant WHERE c.user.id = :userId "
+            + "AND c.createdAt <= :createdAt AND (c.createdAt < :createdAt OR c.id < :id) "
+            + "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findFeedByUserIdBefore(@Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+}
@@ -0,0 +1,33 @@
+package com.ramendirectory.japanramendirectory.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.model.PhotoObject;
+
+@Repository
+public interface PhotoObjectRepository extends JpaRepository<PhotoObject, Long> {
+
+    // Find a stored photo by the SHA-256 of its content
+    Optional<PhotoObject> findByContentHash(String contentHash);
+
+    // Count one more comment photo pointing at the object with this URL
+    @Transactional
+    @Modifying
+    @Query("UPDATE PhotoObject p SET p.refCount = p.refCount + 1, p.lastReferencedAt = :now WHERE p.url = :url")
+    int incrementRefCount(@Param("url") String url, @Param("now") LocalDateTime now);
+
+    // Count one comment photo less for each of the given URLs
+    @Transactional
+    @Modifying
+    @Query("UPDATE PhotoObject p SET p.refCount = p.refCount - 1 WHERE p.url IN :urls AND p.refCount > 0")
+    int decrementRefCounts(@Param("urls") Collection<String> urls);
+}
@@ -0,0 +1,22 @@
+package com.ramendirectory.japanramendirectory.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.ramendirectory.japanramendirectory.model.PhotoVariant;
+
+@Repository
+public interface PhotoVariantRepository extends JpaRepository<PhotoVariant, Long> {
+
+    // Find all variants of one original photo
+    List<PhotoVariant> findByPhotoUrl(String photoUrl);
+
+    // Find one variant for each of several original photos
+    List<PhotoVariant> findByPhotoUrlInAndLabel(Collection<String> photoUrls, String label);
+
+    // Find all variants for several original photos
+    List<PhotoVariant> findByPhotoUrlIn(Collection<String> photoUrls);
+}
@@ -0,0 +1,65 @@
+package com.ramendirectory.japanramendirectory.repository;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Fields of a restaurant that a client can ask for with fields=, named as in
+ * RestaurantDTO.
+ */
+public enum RestaurantField {
+    ID("id"),
+    NAME("name"),
+    SCORE("score"),
+    RESERVATION_SYSTEM("reservationSystem"),
+    SEATS("seats"),
+    OPENING_HOURS("openingHours"),
+    REST_DAY("restDay"),
+    OPENING_DATE("openingDate"),
+    QUEUE_METHOD("queueMethod"),
+    ADDRESS("address"),
+    // Full menu and description texts have their own endpoints
+    MENU_LENGTH("menuLength"),
+    MENU_SUMMARY("menuSummary"),
+    DESCRIPTION_LENGTH("descriptionLength"),
+    DESCRIPTION_SUMMARY("descriptionSummary"),
+    GENRES("genres"),
+    SOUP_BASES("soupBases"),
+    SOCIAL_MEDIA_LINKS("socialMediaLinks");
+
+    private final String fieldName;
+
+    RestaurantField(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Parse a comma separated list of field names. The id is always included.
+     *
+     * @throws IllegalArgumentException if a name is not a restaurant field
+     */
+    public static Set<RestaurantField> parse(String fields) {
+        Set<RestaurantField> parsed = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            parsed.add(byName(trimmed));
+        }
+        return parsed;
+    }
+
+    private static RestaurantField byName(String name) {
+        for (RestaurantField field : values()) {
+            if (field.fieldName.equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown restaurant field: " + name);
+    }
+}
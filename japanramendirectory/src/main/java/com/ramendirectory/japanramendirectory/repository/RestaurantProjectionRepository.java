@@ -0,0 +1,39 @@
+package com.ramendirectory.japanramendirectory.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+
+public interface RestaurantProjectionRepository {
+
+    /**
+     * Restaurants matching a specification with only the given fields read.
+     * Columns and joins that were not asked for are never
+     * loaded, and null values are left out of the rows.
+     *
+     * @param pageable Page and sort; an unpaged pageable returns every match
+     * @return One map per restaurant, keyed by field name
+     */
+    Page<Map<String, Object>> findFields(Specification<Restaurant> spec, Set<RestaurantField> fields,
+            Pageable pageable);
+
+    /**
+     * Ids of all the restaurants matching a specification, in sort order.
+     */
+    List<Long> findIds(Specification<Restaurant> spec, Sort sort);
+
+    /**
+     * Ids of the restaurants matching a specification, read from the
+     * database as the stream is consumed. Must be consumed inside a
+     * transaction and closed.
+     */
+    Stream<Long> streamIds(Specification<Restaurant> spec, Sort sort);
+}
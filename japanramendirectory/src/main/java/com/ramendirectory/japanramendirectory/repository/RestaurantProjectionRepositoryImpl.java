@@ -0,0 +1,180 @@
+package com.ramendirectory.japanramendirectory.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import com.ramendirectory.japanramendirectory.dto.GenreDTO;
+import com.ramendirectory.japanramendirectory.dto.QueueMethodDTO;
+import com.ramendirectory.japanramendirectory.model.Genre;
+import com.ramendirectory.japanramendirectory.model.QueueMethod;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+/**
+ * Reads restaurant fields in two steps. The first query applies the
+ * specification, sort and page and returns only ids. The second reads the
+ * requested columns and to-one joins of those ids by primary key.
+ */
+public class RestaurantProjectionRepositoryImpl implements RestaurantProjectionRepository {
+
+    // Keeps IN lists of unpaged requests to a size every database plans well
+    private static final int ID_CHUNK_SIZE = 500;
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final EntityManager entityManager;
+
+    public RestaurantProjectionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Page<Map<String, Object>> findFields(Specification<Restaurant> spec, Set<RestaurantField> fields,
+            Pageable pageable) {
+        List<Long> ids = findIds(spec, pageable);
+        Map<Long, Map<String, Object>> rows = new LinkedHashMap<>();
+        ids.forEach(id -> rows.put(id, new LinkedHashMap<>()));
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + ID_CHUNK_SIZE));
+            Set<Long> found = readColumns(chunk, fields, rows);
+            // Restaurants deleted between the two queries
+            chunk.stream().filter(id -> !found.contains(id)).forEach(rows::remove);
+        }
+        return PageableExecutionUtils.getPage(new ArrayList<>(rows.values()), pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Restaurant> spec, Sort sort) {
+        return findIds(spec, Pageable.unpaged(sort));
+    }
+
+    @Override
+    public Stream<Long> streamIds(Specification<Restaurant> spec, Sort sort) {
+        return idQuery(spec, sort)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()
+                .map(tuple -> tuple.get(0, Long.class));
+    }
+
+    private List<Long> findIds(Specification<Restaurant> spec, Pageable pageable) {
+        TypedQuery<Tuple> typedQuery = idQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return typedQuery.getResultList().stream().map(tuple -> tuple.get(0, Long.class)).toList();
+    }
+
+    private TypedQuery<Tuple> idQuery(Specification<Restaurant> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Restaurant> root = query.from(Restaurant.class);
+        Predicate where = spec.toPredicate(root, query, cb);
+        if (where != null) {
+            query.where(where);
+        }
+        // Sort columns are selected too, as DISTINCT requires of ORDER BY columns if a specification asks for it
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get("id"));
+        for (Sort.Order order : sort) {
+            selections.add(root.get(order.getProperty()));
+        }
+        query.multiselect(selections);
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<Restaurant> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Restaurant> root = query.from(Restaurant.class);
+        Predicate where = spec.toPredicate(root, query, cb);
+        if (where != null) {
+            query.where(where);
+        }
+        query.select(query.isDistinct() ? cb.countDistinct(root) : cb.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private Set<Long> readColumns(List<Long> ids, Set<RestaurantField> fields, Map<Long, Map<String, Object>> rows) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Restaurant> root = query.from(Restaurant.class);
+
+        List<RestaurantField> selected = new ArrayList<>(fields);
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get("id"));
+        // One join per association, shared by its fields
+        Map<String, Join<Restaurant, ?>> joins = new HashMap<>();
+        Function<String, Join<Restaurant, ?>> join = name -> joins.computeIfAbsent(name,
+                key -> root.join(key, JoinType.LEFT));
+        for (RestaurantField field : selected) {
+            selections.add(switch (field) {
+                case QUEUE_METHOD -> join.apply("queueMethod");
+                case ADDRESS -> join.apply("address");
+                case MENU_LENGTH -> join.apply("menu").get("contentLength");
+                case MENU_SUMMARY -> join.apply("menu").get("contentSummary");
+                case DESCRIPTION_LENGTH -> join.apply("description").get("contentLength");
+                case DESCRIPTION_SUMMARY -> join.apply("description").get("contentSummary");
+                default -> root.get(field.getFieldName());
+            });
+        }
+        query.multiselect(selections).where(root.get("id").in(ids));
+
+        Set<Long> found = new HashSet<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            Long id = tuple.get(0, Long.class);
+            found.add(id);
+            Map<String, Object> row = rows.get(id);
+            for (int i = 0; i < selected.size(); i++) {
+                Object value = tuple.get(i + 1);
+                if (value instanceof QueueMethod queueMethod) {
+                    value = QueueMethodDTO.fromEntity(queueMethod);
+                } else if (selected.get(i) == RestaurantField.GENRES) {
+                    value = genres(value);
+                }
+                if (value != null) {
+                    row.put(selected.get(i).getFieldName(), value);
+                }
+            }
+        }
+        return found;
+    }
+
+    // Genres as in RestaurantDTO, sorted by name like the stored documents
+    @SuppressWarnings("unchecked")
+    private static Set<GenreDTO> genres(Object value) {
+        return ((Set<Genre>) value).stream()
+                .map(GenreDTO::new)
+                .sorted(Comparator.comparing(GenreDTO::getName))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
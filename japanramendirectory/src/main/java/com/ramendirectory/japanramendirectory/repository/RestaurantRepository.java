@@ -1,19 +1,23 @@
 package com.ramendirectory.japanramendirectory.repository;
 
 import com.ramendirectory.japanramendirectory.model.*;
+import com.ramendirectory.japanramendirectory.util.EnumMasks;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface RestaurantRepository extends JpaRepository<Restaurant, Long>, JpaSpecificationExecutor<Restaurant> {
+public interface RestaurantRepository extends JpaRepository<Restaurant, Long>, JpaSpecificationExecutor<Restaurant>,
+        RestaurantProjectionRepository {
     
     @Query("SELECT r FROM Restaurant r JOIN r.address a WHERE a.area = :area")
     List<Restaurant> findByArea(@Param("area") Area area);
@@ -39,31 +43,87 @@ public interface RestaurantRepository extends JpaRepository<Restaurant, Long>, J
     @Query("SELECT r FROM Restaurant r JOIN r.address a JOIN a.area ar WHERE ar.prefecture.id = :prefectureId")
     Page<Restaurant> findByPrefectureId(@Param("prefectureId") Long prefectureId, Pageable pageable);
     
-    List<Restaurant> findBySoupBasesContaining(SoupBase soupBase);
-    Page<Restaurant> findBySoupBasesContaining(SoupBase soupBase, Pageable pageable);
+    // Everything a detail view reads, in one statement for any number of restaurants
+    @EntityGraph(attributePaths = {"queueMethod", "menu", "description", "address", "address.area",
+            "address.area.prefecture"})
+    List<Restaurant> findByIdIn(Collection<Long> ids);
+    
+    // Restaurants whose detail documents embed the given address, area or prefecture
+    @Query("SELECT r.id FROM Restaurant r JOIN r.address a WHERE a.id = :addressId")
+    List<Long> findIdsByAddressId(@Param("addressId") Long addressId);
+    
+    @Query("SELECT r.id FROM Restaurant r JOIN r.address a WHERE a.area.id = :areaId")
+    List<Long> findIdsByAreaId(@Param("areaId") Long areaId);
+    
+    @Query("SELECT r.id FROM Restaurant r JOIN r.address a JOIN a.area ar WHERE ar.prefecture.id = :prefectureId")
+    List<Long> findIdsByPrefectureId(@Param("prefectureId") Long prefectureId);
+    
+    // Genres and soup bases are bitmask columns, matched with IN over every mask that has the bit
+    @Query("SELECT r FROM Restaurant r WHERE r.soupBaseMask IN :masks")
+    List<Restaurant> findBySoupBaseMaskIn(@Param("masks") Collection<Integer> masks);
+    
+    @Query("SELECT r FROM Restaurant r WHERE r.soupBaseMask IN :masks")
+    Page<Restaurant> findBySoupBaseMaskIn(@Param("masks") Collection<Integer> masks, Pageable pageable);
+    
+    default List<Restaurant> findBySoupBasesContaining(SoupBase soupBase) {
+        return findBySoupBaseMaskIn(EnumMasks.intersecting(List.of(soupBase), SoupBase.class));
+    }
+    
+    default Page<Restaurant> findBySoupBasesContaining(SoupBase soupBase, Pageable pageable) {
+        return findBySoupBaseMaskIn(EnumMasks.intersecting(List.of(soupBase), SoupBase.class), pageable);
+    }
     
     List<Restaurant> findByScoreGreaterThanEqual(Double score);
     Page<Restaurant> findByScoreGreaterThanEqual(Double score, Pageable pageable);
     
-    @Query("SELECT r FROM Restaurant r JOIN r.genres g WHERE g = :genre")
-    List<Restaurant> findByGenre(@Param("genre") Genre genre);
+    @Query("SELECT r FROM Restaurant r WHERE r.genreMask IN :masks")
+    List<Restaurant> findByGenreMaskIn(@Param("masks") Collection<Integer> masks);
+    
+    @Query("SELECT r FROM Restaurant r WHERE r.genreMask IN :masks")
+    Page<Restaurant> findByGenreMaskIn(@Param("masks") Collection<Integer> masks, Pageable pageable);
+    
+    default List<Restaurant> findByGenre(Genre genre) {
+        return findByGenreMaskIn(EnumMasks.intersecting(List.of(genre), Genre.class));
+    }
     
-    @Query("SELECT r FROM Restaurant r JOIN r.genres g WHERE g = :genre")
-    Page<Restaurant> findByGenre(@Param("genre") Genre genre, Pageable pageable);
+    default Page<Restaurant> findByGenre(Genre genre, Pageable pageable) {
+        return findByGenreMaskIn(EnumMasks.intersecting(List.of(genre), Genre.class), pageable);
+    }
     
     // Methods to find restaurants by name containing the search term
     List<Restaurant> findByNameContainingIgnoreCase(String name);
     Page<Restaurant> findByNameContainingIgnoreCase(String name, Pageable pageable);
     
-    @Query("SELECT DISTINCT g FROM Restaurant r JOIN r.genres g")
-    List<Genre> findAllDistinctGenres();
+    @Query("SELECT DISTINCT r.genreMask FROM Restaurant r")
+    List<Integer> findDistinctGenreMasks();
     
-    // Changing this query since genres are now enums
+    @Query("SELECT DISTINCT r.soupBaseMask FROM Restaurant r")
+    List<Integer> findDistinctSoupBaseMasks();
+    
+    default List<Genre> findAllDistinctGenres() {
+        return List.copyOf(EnumMasks.toSet(findDistinctGenreMasks().stream().reduce(0, (a, b) -> a | b), Genre.class));
+    }
+    
+    // Genre by enum name ignoring case; kept for callers from before genres were enums
     @Deprecated
-    List<Restaurant> findByGenresContainingIgnoreCase(String genre);
+    default List<Restaurant> findByGenresContainingIgnoreCase(String genre) {
+        return findByGenreMaskIn(genreMasksNamed(genre));
+    }
     
     @Deprecated
-    Page<Restaurant> findByGenresContainingIgnoreCase(String genre, Pageable pageable);
+    default Page<Restaurant> findByGenresContainingIgnoreCase(String genre, Pageable pageable) {
+        return findByGenreMaskIn(genreMasksNamed(genre), pageable);
+    }
+    
+    private static List<Integer> genreMasksNamed(String genre) {
+        for (Genre candidate : Genre.values()) {
+            if (candidate.name().equalsIgnoreCase(genre)) {
+                return EnumMasks.intersecting(List.of(candidate), Genre.class);
+            }
+        }
+        // IN () is not valid SQL; no stored mask is negative
+        return List.of(-1);
+    }
     
     List<Restaurant> findByOrderByScoreDesc(Pageable pageable);
     
@@ -74,9 +134,12 @@ public interface RestaurantRepository extends JpaRepository<Restaurant, Long>, J
     List<Prefecture> findAllPrefectures();
     
     @Deprecated
-    @Query("SELECT DISTINCT g FROM Restaurant r JOIN r.genres g")
-    List<String> findAllGenres();
-    
-    @Query("SELECT DISTINCT s FROM Restaurant r JOIN r.soupBases s")
-    List<SoupBase> findAllSoupBases();
+    default List<String> findAllGenres() {
+        return findAllDistinctGenres().stream().map(Genre::name).toList();
+    }
+    
+    default List<SoupBase> findAllSoupBases() {
+        return List.copyOf(EnumMasks.toSet(findDistinctSoupBaseMasks().stream().reduce(0, (a, b) -> a | b),
+                SoupBase.class));
+    }
 }
@@ -1,6 +1,7 @@
 package com.ramendirectory.japanramendirectory.repository;
 
 import com.ramendirectory.japanramendirectory.model.*;
+import com.ramendirectory.japanramendirectory.util.EnumMasks;
 import org.springframework.data.jpa.domain.Specification;
 
 import jakarta.persistence.criteria.Join;
@@ -43,8 +44,21 @@ public class RestaurantSpecification {
                 return criteriaBuilder.conjunction();
             }
             
-            Join<Restaurant, Genre> genreJoin = root.join("genres", JoinType.INNER);
-            return genreJoin.in(genres);
+            return root.get("genreMask").in(EnumMasks.intersecting(genres, Genre.class));
+        };
+    }
+    
+    /**
+     * Genre by enum name, ignoring case. An unknown name matches nothing.
+     */
+    public static Specification<Restaurant> hasGenreNamed(String genre) {
+        return (root, query, criteriaBuilder) -> {
+            for (Genre candidate : Genre.values()) {
+                if (candidate.name().equalsIgnoreCase(genre)) {
+                    return root.get("genreMask").in(EnumMasks.intersecting(List.of(candidate), Genre.class));
+                }
+            }
+            return criteriaBuilder.disjunction();
         };
     }
     
@@ -54,8 +68,7 @@ public class RestaurantSpecification {
                 return criteriaBuilder.conjunction();
             }
             
-            Join<Restaurant, SoupBase> soupBaseJoin = root.join("soupBases", JoinType.INNER);
-            return soupBaseJoin.in(soupBases);
+            return root.get("soupBaseMask").in(EnumMasks.intersecting(soupBases, SoupBase.class));
         };
     }
     
@@ -82,14 +95,4 @@ public class RestaurantSpecification {
             );
         };
     }
-    
-    /**
-     * Distinct is needed when querying with joins to avoid duplicate results
-     */
-    public static Specification<Restaurant> distinct() {
-        return (root, query, criteriaBuilder) -> {
-            query.distinct(true);
-            return criteriaBuilder.conjunction();
-        };
-    }
 } 
\ No newline at end of file
@@ -81,6 +81,8 @@ public class SecurityConfig {
         			.requestMatchers(HttpMethod.GET, "/api/comments/restaurant/*/latest-photo").permitAll()
         			.requestMatchers(HttpMethod.GET, "/api/comments/restaurant/*/*").permitAll()
 					.requestMatchers(HttpMethod.GET, "/api/restaurants/*").permitAll()
+					.requestMatchers(HttpMethod.POST, "/api/restaurants/batch").permitAll()
+					.requestMatchers(HttpMethod.GET, "/api/restaurants/*/menu", "/api/restaurants/*/description").permitAll()
 					.requestMatchers(HttpMethod.GET, "/api/restaurants/genres").permitAll()
 					.requestMatchers(HttpMethod.GET, "/api/restaurants/soupbases").permitAll()
 					.requestMatchers(HttpMethod.GET, "/api/ranking").permitAll()
@@ -89,7 +91,14 @@ public class SecurityConfig {
 					.requestMatchers(HttpMethod.GET, "/api/address/prefectures").permitAll()
 					.requestMatchers(HttpMethod.GET, "/api/ranking").permitAll()
         			.requestMatchers("/auth/login").permitAll()
+        			.requestMatchers(HttpMethod.GET, "/api/photos/photos/**").permitAll()
+        			// Local photo storage checks the signature of each upload URL itself
+        			.requestMatchers(HttpMethod.GET, "/local-storage/**").permitAll()
+        			.requestMatchers(HttpMethod.PUT, "/local-storage/**").permitAll()
+        			.requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+        			.requestMatchers("/actuator/**").hasAuthority("SCOPE_ADMIN")
         			.requestMatchers("/adminonly").hasAuthority("SCOPE_ADMIN")
+        			.requestMatchers("/api/admin/**").hasAuthority("SCOPE_ADMIN")
         			.anyRequest().authenticated()
         	)
 //        	.oauth2ResourceServer(OAuth2ResourceServerConfigurer::jwt)  //The old syntax
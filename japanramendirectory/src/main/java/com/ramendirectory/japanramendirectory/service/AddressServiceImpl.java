@@ -2,6 +2,7 @@ package com.ramendirectory.japanramendirectory.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ramendirectory.japanramendirectory.model.Address;
 import com.ramendirectory.japanramendirectory.model.Area;
@@ -9,6 +10,7 @@ import com.ramendirectory.japanramendirectory.model.Prefecture;
 import com.ramendirectory.japanramendirectory.repository.AddressRepository;
 import com.ramendirectory.japanramendirectory.repository.AreaRepository;
 import com.ramendirectory.japanramendirectory.repository.PrefectureRepository;
+import com.ramendirectory.japanramendirectory.service.CacheInvalidationBus.EntityType;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,15 +21,21 @@ public class AddressServiceImpl implements AddressService {
     private final PrefectureRepository prefectureRepository;
     private final AreaRepository areaRepository;
     private final AddressRepository addressRepository;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final RestaurantDocumentStore restaurantDocumentStore;
     
     @Autowired
     public AddressServiceImpl(
             PrefectureRepository prefectureRepository,
             AreaRepository areaRepository,
-            AddressRepository addressRepository) {
+            AddressRepository addressRepository,
+            CacheInvalidationBus cacheInvalidationBus,
+            RestaurantDocumentStore restaurantDocumentStore) {
         this.prefectureRepository = prefectureRepository;
         this.areaRepository = areaRepository;
         this.addressRepository = addressRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.restaurantDocumentStore = restaurantDocumentStore;
     }
     
     // Prefecture methods
@@ -48,25 +56,34 @@ public class AddressServiceImpl implements AddressService {
     }
     
     @Override
+    @Transactional
     public Prefecture createPrefecture(Prefecture prefecture) {
-        return prefectureRepository.save(prefecture);
+        Prefecture saved = prefectureRepository.save(prefecture);
+        cacheInvalidationBus.record(EntityType.PREFECTURE, saved.getId());
+        return saved;
     }
     
     @Override
+    @Transactional
     public Optional<Prefecture> updatePrefecture(Long id, Prefecture prefecture) {
         Optional<Prefecture> existingPrefecture = prefectureRepository.findById(id);
         if (existingPrefecture.isPresent()) {
             Prefecture prefectureToUpdate = existingPrefecture.get();
             prefectureToUpdate.setName(prefecture.getName());
             prefectureToUpdate.setNameInEnglish(prefecture.getNameInEnglish());
-            return Optional.of(prefectureRepository.save(prefectureToUpdate));
+            cacheInvalidationBus.record(EntityType.PREFECTURE, id);
+            Prefecture saved = prefectureRepository.save(prefectureToUpdate);
+            restaurantDocumentStore.refreshByPrefecture(id);
+            return Optional.of(saved);
         }
         return Optional.empty();
     }
     
     @Override
+    @Transactional
     public boolean deletePrefecture(Long id) {
         if (prefectureRepository.existsById(id)) {
+            cacheInvalidationBus.record(EntityType.PREFECTURE, id);
             prefectureRepository.deleteById(id);
             return true;
         }
@@ -101,11 +118,15 @@ public class AddressServiceImpl implements AddressService {
     }
     
     @Override
+    @Transactional
     public Area createArea(Area area) {
-        return areaRepository.save(area);
+        Area saved = areaRepository.save(area);
+        cacheInvalidationBus.record(EntityType.AREA, saved.getId());
+        return saved;
     }
     
     @Override
+    @Transactional
     public Optional<Area> updateArea(Long id, Area area) {
         Optional<Area> existingArea = areaRepository.findById(id);
         if (existingArea.isPresent()) {
@@ -113,14 +134,19 @@ public class AddressServiceImpl implements AddressService {
             areaToUpdate.setName(area.getName());
             areaToUpdate.setNameInEnglish(area.getNameInEnglish());
             areaToUpdate.setPrefecture(area.getPrefecture());
-            return Optional.of(areaRepository.save(areaToUpdate));
+            cacheInvalidationBus.record(EntityType.AREA, id);
+            Area saved = areaRepository.save(areaToUpdate);
+            restaurantDocumentStore.refreshByArea(id);
+            return Optional.of(saved);
         }
         return Optional.empty();
     }
     
     @Override
+    @Transactional
     public boolean deleteArea(Long id) {
         if (areaRepository.existsById(id)) {
+            cacheInvalidationBus.record(EntityType.AREA, id);
             areaRepository.deleteById(id);
             return true;
         }
@@ -155,11 +181,15 @@ public class AddressServiceImpl implements AddressService {
     }
     
     @Override
+    @Transactional
     public Address createAddress(Address address) {
-        return addressRepository.save(address);
+        Address saved = addressRepository.save(address);
+        cacheInvalidationBus.record(EntityType.ADDRESS, saved.getId());
+        return saved;
     }
     
     @Override
+    @Transactional
     public Optional<Address> updateAddress(Long id, Address address) {
         Optional<Address> existingAddress = addressRepository.findById(id);
         if (existingAddress.isPresent()) {
@@ -170,14 +200,19 @@ public class AddressServiceImpl implements AddressService {
             addressToUpdate.setFloor(address.getFloor());
             addressToUpdate.setUnit(address.getUnit());
             addressToUpdate.setPostalCode(address.getPostalCode());
-            return Optional.of(addressRepository.save(addressToUpdate));
+            cacheInvalidationBus.record(EntityType.ADDRESS, id);
+            Address saved = addressRepository.save(addressToUpdate);
+            restaurantDocumentStore.refreshByAddress(id);
+            return Optional.of(saved);
         }
         return Optional.empty();
     }
     
     @Override
+    @Transactional
     public boolean deleteAddress(Long id) {
         if (addressRepository.existsById(id)) {
+            cacheInvalidationBus.record(EntityType.ADDRESS, id);
             addressRepository.deleteById(id);
             return true;
         }
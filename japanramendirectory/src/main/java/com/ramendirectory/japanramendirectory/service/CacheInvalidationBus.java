@@ -0,0 +1,299 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Keeps in-process caches consistent across instances without a message
+ * broker.
+ *
+ * <p>Writes append (entity type, id) to change_log in their own transaction;
+ * the auto-increment version of the row orders the changes. Every instance
+ * polls for versions above its high-water mark and hands them to the
+ * listeners of that entity type, so a cache on one node is evicted shortly
+ * after another node commits. The writing node evicts its own caches right
+ * after commit.
+ *
+ * <p>Versions are assigned at insert but become visible at commit, so a
+ * later version can be seen before an earlier one. Skipped versions are
+ * remembered and looked up again until they show up or the gap timeout
+ * passes (rolled back writes leave permanent gaps).
+ *
+ * <p>Staleness is bounded: if polling fails for longer than the maximum lag,
+ * every listener is told to drop everything on each attempt until polling
+ * works again. Caches should still expire entries after a TTL as a last
+ * resort.
+ */
+@Service
+public class CacheInvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private static final RowMapper<Change> CHANGE_MAPPER = (rs, rowNum) -> new Change(
+            rs.getLong("version"), rs.getString("entity_type"), rs.getLong("entity_id"),
+            rs.getTimestamp("created_at").toInstant());
+
+    public enum EntityType {
+        RESTAURANT, PREFECTURE, AREA, ADDRESS
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<EntityType, List<Consumer<Long>>> listeners = new ConcurrentHashMap<>();
+
+    // Poller state, guarded by this
+    private long highWaterMark = -1;
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+    private volatile long lastPollNanos = System.nanoTime();
+
+    private final Timer lag;
+
+    @Value("${app.cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.invalidation.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.cache.invalidation.max-gaps:1000}")
+    private int maxGaps;
+
+    @Value("${app.cache.invalidation.gap-timeout-ms:60000}")
+    private long gapTimeoutMs;
+
+    @Value("${app.cache.invalidation.max-lag-ms:30000}")
+    private long maxLagMs;
+
+    @Value("${app.cache.invalidation.retention-hours:24}")
+    private long retentionHours;
+
+    @Autowired
+    public CacheInvalidationBus(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        // Read-write so polling goes to the primary, never to a lagging replica
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lag = Timer.builder("app.cache.invalidation.lag")
+                .description("Time from a write to its eviction on this instance")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("app.cache.invalidation.staleness", this,
+                bus -> (System.nanoTime() - bus.lastPollNanos) / 1e9)
+                .description("Seconds since the change log was last read successfully")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("app.cache.invalidation.gaps", gaps, TreeMap::size)
+                .description("Skipped versions still expected to commit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Call a listener with the id of every changed entity of the type, or
+     * with null when all entries of the type must be dropped.
+     */
+    public void subscribe(EntityType type, Consumer<Long> listener) {
+        listeners.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Record a change. Must run in the read-write transaction that makes it,
+     * so the change is published exactly when the write commits.
+     *
+     * @throws IllegalStateException if there is no read-write transaction
+     */
+    public void record(EntityType type, Long entityId) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("Changes must be recorded in the writing transaction");
+        }
+        jdbcTemplate.update("INSERT INTO change_log (entity_type, entity_id, created_at) VALUES (?, ?, ?)",
+                type.name(), entityId, Timestamp.from(Instant.now()));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notifyListeners(type, entityId);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.poll-interval-ms:1000}")
+    void scheduledPoll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            long staleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastPollNanos);
+            logger.warn("Could not read the change log for {} ms: {}", staleMs, e.getMessage());
+            if (staleMs > maxLagMs) {
+                listeners.keySet().forEach(type -> notifyListeners(type, null));
+            }
+        }
+    }
+
+    /**
+     * Apply every change committed since the last poll.
+     *
+     * @return Number of changes applied
+     */
+    public synchronized int poll() {
+        long started = System.nanoTime();
+        if (highWaterMark < 0) {
+            transactionTemplate.executeWithoutResult(status -> start(started));
+            listeners.keySet().forEach(type -> notifyListeners(type, null));
+            lastPollNanos = started;
+            return 0;
+        }
+        int applied = transactionTemplate.execute(status -> recheckGaps(started) + readNewChanges(started));
+        lastPollNanos = started;
+        return applied;
+    }
+
+    /**
+     * Start after the latest committed version. Older history does not
+     * matter once whatever was cached before the first poll is dropped, but
+     * versions missing since the last change older than the gap timeout may
+     * still commit, so they are tracked as gaps like any skipped version.
+     */
+    private void start(long now) {
+        highWaterMark = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(version), 0) FROM change_log", Long.class);
+        Timestamp settled = Timestamp.from(Instant.now().minusMillis(gapTimeoutMs));
+        long floor = jdbcTemplate.queryForList("SELECT version FROM change_log WHERE created_at < ? "
+                + "ORDER BY created_at DESC LIMIT 1", Long.class, settled).stream().findFirst().orElse(0L);
+        long previous = floor;
+        for (Long version : jdbcTemplate.queryForList("SELECT version FROM change_log WHERE version > ? "
+                + "AND version <= ? ORDER BY version", Long.class, floor, highWaterMark)) {
+            rememberGap(previous + 1, version, now);
+            previous = version;
+        }
+    }
+
+    private int readNewChanges(long now) {
+        int applied = 0;
+        List<Change> changes;
+        do {
+            changes = jdbcTemplate.query(
+                    "SELECT version, entity_type, entity_id, created_at FROM change_log "
+                            + "WHERE version > ? ORDER BY version LIMIT ?",
+                    CHANGE_MAPPER, highWaterMark, batchSize);
+            for (Change change : changes) {
+                rememberGap(highWaterMark + 1, change.version(), now);
+                highWaterMark = change.version();
+                apply(change);
+                applied++;
+            }
+        } while (changes.size() == batchSize);
+        return applied;
+    }
+
+    private int recheckGaps(long now) {
+        if (gaps.isEmpty()) {
+            return 0;
+        }
+        List<Change> found = namedJdbcTemplate.query(
+                "SELECT version, entity_type, entity_id, created_at FROM change_log WHERE version IN (:versions)",
+                Map.of("versions", new ArrayList<>(gaps.keySet())), CHANGE_MAPPER);
+        for (Change change : found) {
+            gaps.remove(change.version());
+            apply(change);
+        }
+        Iterator<Long> deadlines = gaps.values().iterator();
+        while (deadlines.hasNext()) {
+            if (deadlines.next() - now < 0) {
+                deadlines.remove();
+            }
+        }
+        return found.size();
+    }
+
+    /**
+     * Remember the versions in [from, to) as possibly still in flight. If
+     * too many are outstanding, drop everything instead of tracking more.
+     */
+    private void rememberGap(long from, long to, long now) {
+        if (to - from > maxGaps - gaps.size()) {
+            logger.warn("Change log skipped {} versions after {}, dropping all cached entries", to - from, from - 1);
+            listeners.keySet().forEach(type -> notifyListeners(type, null));
+            return;
+        }
+        long deadline = now + TimeUnit.MILLISECONDS.toNanos(gapTimeoutMs);
+        for (long version = from; version < to; version++) {
+            gaps.put(version, deadline);
+        }
+    }
+
+    private void apply(Change change) {
+        EntityType type;
+        try {
+            type = EntityType.valueOf(change.entityType());
+        } catch (IllegalArgumentException e) {
+            // Written by a newer version of the application
+            return;
+        }
+        notifyListeners(type, change.entityId());
+        lag.record(Duration.between(change.createdAt(), Instant.now()).abs());
+    }
+
+    private void notifyListeners(EntityType type, Long entityId) {
+        for (Consumer<Long> listener : listeners.getOrDefault(type, List.of())) {
+            try {
+                listener.accept(entityId);
+            } catch (RuntimeException e) {
+                logger.error("Cache invalidation listener for {} failed: {}", type, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Delete changes older than the retention period. Every instance has
+     * long read them by then.
+     */
+    @Scheduled(cron = "${app.cache.invalidation.prune-cron:0 15 * * * *}")
+    void prune() {
+        if (!enabled) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(Duration.ofHours(retentionHours));
+        try {
+            int deleted = transactionTemplate.execute(status ->
+                    jdbcTemplate.update("DELETE FROM change_log WHERE created_at < ?", Timestamp.from(cutoff)));
+            logger.debug("Pruned {} change log rows", deleted);
+        } catch (DataAccessException e) {
+            logger.warn("Could not prune the change log: {}", e.getMessage());
+        }
+    }
+
+    private record Change(long version, String entityType, long entityId, Instant createdAt) {
+    }
+}
@@ -0,0 +1,152 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ramendirectory.japanramendirectory.repository.CommentCooldownRepository;
+import com.ramendirectory.japanramendirectory.repository.CommentRepository;
+
+/**
+ * Enforces the wait between two comments of a user on the same restaurant.
+ *
+ * The latest comment time per (user, restaurant) lives in comment_cooldowns
+ * and is read with one primary key range lookup. Recent answers are kept in
+ * memory so repeated can-comment checks and the following post do not go to
+ * the database. The cache may be stale across instances; that is safe
+ * because {@link #claim} only succeeds through a compare-and-set on the
+ * value it read, or an insert that the unique key lets only one submission
+ * win.
+ */
+@Service
+public class CommentCooldownService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentCooldownService.class);
+    // Cached answer for a pair the user has never commented on
+    private static final LocalDateTime NEVER = LocalDateTime.MIN;
+
+    private final CommentCooldownRepository cooldownRepository;
+    private final CommentRepository commentRepository;
+    private final Duration cooldown;
+    private final Cache<Key, LocalDateTime> recent;
+
+    @Autowired
+    public CommentCooldownService(CommentCooldownRepository cooldownRepository, CommentRepository commentRepository,
+            @Value("${app.comment.cooldown-hours:0}") long cooldownHours,
+            @Value("${app.comment.cooldown-cache-size:100000}") long cacheSize,
+            @Value("${app.comment.cooldown-cache-ttl-seconds:600}") long cacheTtlSeconds) {
+        this.cooldownRepository = cooldownRepository;
+        this.commentRepository = commentRepository;
+        this.cooldown = Duration.ofHours(cooldownHours);
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+    }
+
+    /**
+     * Time of the user's latest comment on the restaurant.
+     */
+    public Optional<LocalDateTime> getLastCommentAt(Long userId, Long restaurantId) {
+        LocalDateTime last = recent.get(new Key(userId, restaurantId),
+                key -> cooldownRepository.findLastCommentAt(userId, restaurantId).orElse(NEVER));
+        return NEVER.equals(last) ? Optional.empty() : Optional.of(last);
+    }
+
+    /**
+     * When the user may comment on the restaurant again, or empty if they
+     * may comment now.
+     */
+    public Optional<LocalDateTime> getNextCommentTime(Long userId, Long restaurantId) {
+        return getLastCommentAt(userId, restaurantId)
+                .map(last -> last.plus(cooldown))
+                .filter(next -> next.isAfter(LocalDateTime.now()));
+    }
+
+    /**
+     * Record a new comment at the given time if the cooldown allows it. Must
+     * run in the transaction that inserts the comment.
+     *
+     * @param now The comment's creation time, truncated to microseconds like the column
+     * @return Empty when the comment may be saved, otherwise when the user may comment again
+     */
+    public Optional<LocalDateTime> claim(Long userId, Long restaurantId, LocalDateTime now) {
+        Key key = new Key(userId, restaurantId);
+        Optional<LocalDateTime> last = getLastCommentAt(userId, restaurantId);
+        if (last.isPresent() && last.get().plus(cooldown).isAfter(now)) {
+            return Optional.of(last.get().plus(cooldown));
+        }
+
+        int updated = last.isPresent()
+                ? cooldownRepository.compareAndSetLastCommentAt(userId, restaurantId, last.get(), now)
+                : cooldownRepository.insertIfAbsent(userId, restaurantId, now);
+        if (updated == 0) {
+            // Another submission (or another instance) got there first; read the winner's time next time
+            recent.invalidate(key);
+            if (!cooldown.isZero()) {
+                logger.info("Concurrent comment by user {} on restaurant {} rejected", userId, restaurantId);
+                return Optional.of(now.plus(cooldown));
+            }
+            return Optional.empty();
+        }
+        rememberAfterCommit(key, now);
+        return Optional.empty();
+    }
+
+    /**
+     * Recompute the latest comment time after one of the user's comments on
+     * the restaurant was deleted.
+     */
+    public void commentDeleted(Long userId, Long restaurantId) {
+        Optional<LocalDateTime> latest = commentRepository.findLatestCommentTime(userId, restaurantId);
+        if (latest.isPresent()) {
+            cooldownRepository.setLastCommentAt(userId, restaurantId, latest.get());
+        } else {
+            cooldownRepository.deleteByUserIdAndRestaurantId(userId, restaurantId);
+        }
+        recent.invalidate(new Key(userId, restaurantId));
+    }
+
+    /**
+     * Cache the new time only once the comment is committed; if the
+     * transaction rolls back the row keeps its old value.
+     */
+    private void rememberAfterCommit(Key key, LocalDateTime now) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recent.invalidate(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    recent.put(key, now);
+                } else {
+                    recent.invalidate(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * The current time at the precision of DATETIME(6), so a value read back
+     * compares equal to the one written.
+     */
+    public static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private record Key(Long userId, Long restaurantId) {
+    }
+}
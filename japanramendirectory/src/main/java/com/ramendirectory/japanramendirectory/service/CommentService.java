@@ -1,15 +1,18 @@
 package com.ramendirectory.japanramendirectory.service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import com.ramendirectory.japanramendirectory.dto.CommentDTO;
 import com.ramendirectory.japanramendirectory.dto.CommentRequestDTO;
+import com.ramendirectory.japanramendirectory.dto.CursorPage;
 import com.ramendirectory.japanramendirectory.dto.ReportCommentDTO;
 import com.ramendirectory.japanramendirectory.model.Comment;
 
@@ -27,12 +30,22 @@ public interface CommentService {
     // Get all comments for a restaurant
     List<CommentDTO> getCommentsByRestaurant(Long restaurantId);
     
+    // Same as entities, read as the stream is consumed; consume inside a transaction and close the stream.
+    // Unknown restaurants have no comments
+    Stream<Comment> streamCommentsByRestaurant(Long restaurantId);
+    
     // Get paginated comments for a restaurant
     Page<CommentDTO> getCommentsByRestaurantPaginated(Long restaurantId, Pageable pageable);
     
     // Get comments created by a specific user
     List<CommentDTO> getCommentsByUser(Long userId);
     
+    // Get one page of a restaurant's comments, newest first, continuing after cursor (null for the first page)
+    CursorPage<CommentDTO> getCommentFeedByRestaurant(Long restaurantId, String cursor, int size);
+    
+    // Get one page of a user's comments, newest first, continuing after cursor (null for the first page)
+    CursorPage<CommentDTO> getCommentFeedByUser(Long userId, String cursor, int size);
+    
     // Get a specific comment by ID
     Optional<CommentDTO> getCommentById(Long commentId);
     
@@ -65,4 +78,10 @@ public interface CommentService {
     
     // Get the latest photo URL from a restaurant's comments (for thumbnail)
     Optional<String> getLatestPhotoUrlForRestaurant(Long restaurantId);
+    
+    // Get a thumbnail URL for each restaurant that has photos, in one query for the whole list
+    Map<Long, String> getThumbnailUrlsForRestaurants(Collection<Long> restaurantIds);
+    
+    // Re-publish events for comments changed since the given time (admin function), returns the number of events
+    int replayCommentEvents(LocalDateTime since);
 } 
\ No newline at end of file
@@ -1,57 +1,102 @@
 package com.ramendirectory.japanramendirectory.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.ramendirectory.japanramendirectory.dto.CommentDTO;
 import com.ramendirectory.japanramendirectory.dto.CommentRequestDTO;
+import com.ramendirectory.japanramendirectory.dto.CursorPage;
 import com.ramendirectory.japanramendirectory.dto.ReportCommentDTO;
+import com.ramendirectory.japanramendirectory.event.CommentCreatedEvent;
+import com.ramendirectory.japanramendirectory.event.CommentDeletedEvent;
+import com.ramendirectory.japanramendirectory.event.CommentEvent;
+import com.ramendirectory.japanramendirectory.event.CommentEventDispatcher;
+import com.ramendirectory.japanramendirectory.event.CommentModeratedEvent;
+import com.ramendirectory.japanramendirectory.event.CommentUpdatedEvent;
 import com.ramendirectory.japanramendirectory.model.Comment;
 import com.ramendirectory.japanramendirectory.model.Restaurant;
 import com.ramendirectory.japanramendirectory.model.Role;
 import com.ramendirectory.japanramendirectory.model.User;
 import com.ramendirectory.japanramendirectory.repository.CommentRepository;
+import com.ramendirectory.japanramendirectory.repository.PhotoObjectRepository;
 import com.ramendirectory.japanramendirectory.repository.RestaurantRepository;
 import com.ramendirectory.japanramendirectory.repository.UserRepository;
 
+import jakarta.persistence.EntityManager;
+
 @Service
 public class CommentServiceImpl implements CommentService {
     
     private static final Logger logger = LoggerFactory.getLogger(CommentServiceImpl.class);
-    private static final int COMMENT_COOLDOWN_HOURS = 0; // Disabled for debugging (was 24 hours)
+    private static final int REPLAY_PAGE_SIZE = 500;
     
     private final CommentRepository commentRepository;
     private final UserRepository userRepository;
     private final RestaurantRepository restaurantRepository;
     private final ContentFilterService contentFilterService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageVariantService imageVariantService;
+    private final PhotoObjectRepository photoObjectRepository;
+    private final CommentCooldownService commentCooldownService;
+    private final CommentEventDispatcher commentEventDispatcher;
+    private final EntityManager entityManager;
+    private final TransactionTemplate replayTransaction;
+    
+    @Value("${app.comment.feed.max-page-size:50}")
+    private int maxFeedPageSize;
     
     @Autowired
     public CommentServiceImpl(
             CommentRepository commentRepository,
             UserRepository userRepository,
             RestaurantRepository restaurantRepository,
-            ContentFilterService contentFilterService
+            ContentFilterService contentFilterService,
+            ApplicationEventPublisher eventPublisher,
+            ImageVariantService imageVariantService,
+            PhotoObjectRepository photoObjectRepository,
+            CommentCooldownService commentCooldownService,
+            CommentEventDispatcher commentEventDispatcher,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager
     ) {
         this.commentRepository = commentRepository;
         this.userRepository = userRepository;
         this.restaurantRepository = restaurantRepository;
         this.contentFilterService = contentFilterService;
+        this.eventPublisher = eventPublisher;
+        this.imageVariantService = imageVariantService;
+        this.photoObjectRepository = photoObjectRepository;
+        this.commentCooldownService = commentCooldownService;
+        this.commentEventDispatcher = commentEventDispatcher;
+        this.entityManager = entityManager;
+        this.replayTransaction = new TransactionTemplate(transactionManager);
+        this.replayTransaction.setReadOnly(true);
     }
     
     @Override
@@ -63,20 +108,16 @@ public class CommentServiceImpl implements CommentService {
         Restaurant restaurant = restaurantRepository.findById(commentDTO.getRestaurantId())
                 .orElseThrow(() -> new IllegalArgumentException("Restaurant not found"));
         
-        // Check if user can comment on this restaurant
-        if (!canUserCommentOnRestaurant(userId, commentDTO.getRestaurantId())) {
-            Optional<LocalDateTime> nextCommentTime = getTimeWhenUserCanCommentAgain(userId, commentDTO.getRestaurantId());
-            if (nextCommentTime.isPresent()) {
-                LocalDateTime now = LocalDateTime.now();
-                long hoursRemaining = now.until(nextCommentTime.get(), ChronoUnit.HOURS);
-                long minutesRemaining = now.until(nextCommentTime.get(), ChronoUnit.MINUTES) % 60;
-                
-                throw new IllegalArgumentException(
-                    String.format("You can comment on this restaurant again in %d hours and %d minutes", 
-                                 hoursRemaining, minutesRemaining));
-            } else {
-                throw new IllegalArgumentException("You have already commented on this restaurant");
-            }
+        // Claim the cooldown slot first; it only succeeds for one of several concurrent submissions
+        LocalDateTime now = CommentCooldownService.now();
+        Optional<LocalDateTime> nextCommentTime = commentCooldownService.claim(userId, restaurant.getId(), now);
+        if (nextCommentTime.isPresent()) {
+            long hoursRemaining = now.until(nextCommentTime.get(), ChronoUnit.HOURS);
+            long minutesRemaining = now.until(nextCommentTime.get(), ChronoUnit.MINUTES) % 60;
+            
+            throw new IllegalArgumentException(
+                String.format("You can comment on this restaurant again in %d hours and %d minutes", 
+                             hoursRemaining, minutesRemaining));
         }
         
         Comment comment = new Comment();
@@ -89,7 +130,7 @@ public class CommentServiceImpl implements CommentService {
         comment.setVisitingScore(commentDTO.getVisitingScore());
         comment.setEnvironmentScore(commentDTO.getEnvironmentScore());
         comment.setOverallScore(commentDTO.getOverallScore());
-        comment.setCreatedAt(LocalDateTime.now());
+        comment.setCreatedAt(now);
         comment.setApproved(true);
         
         // Apply content filtering
@@ -98,7 +139,9 @@ public class CommentServiceImpl implements CommentService {
         Comment savedComment = commentRepository.save(filteredComment);
         logger.info("New comment created for restaurant {} by user {}", restaurant.getId(), user.getId());
         
-        return CommentDTO.fromEntity(savedComment);
+        CommentDTO result = CommentDTO.fromEntity(savedComment);
+        eventPublisher.publishEvent(new CommentCreatedEvent(result));
+        return result;
     }
     
     @Override
@@ -128,7 +171,9 @@ public class CommentServiceImpl implements CommentService {
         Comment savedComment = commentRepository.save(filteredComment);
         logger.info("Comment {} updated by user {}", commentId, userId);
         
-        return CommentDTO.fromEntity(savedComment);
+        CommentDTO result = CommentDTO.fromEntity(savedComment);
+        eventPublisher.publishEvent(new CommentUpdatedEvent(result));
+        return result;
     }
     
     @Override
@@ -145,8 +190,19 @@ public class CommentServiceImpl implements CommentService {
             throw new AccessDeniedException("You can only delete your own comments");
         }
         
+        Long restaurantId = comment.getRestaurant().getId();
+        Long authorId = comment.getUser().getId();
+        
+        // Release the shared photo objects, unreferenced ones are removed by cleanup
+        if (comment.getPhotos() != null && !comment.getPhotos().isEmpty()) {
+            photoObjectRepository.decrementRefCounts(new ArrayList<>(comment.getPhotos()));
+        }
+        
         commentRepository.delete(comment);
+        commentCooldownService.commentDeleted(authorId, restaurantId);
         logger.info("Comment {} deleted by {}", commentId, userId);
+        
+        eventPublisher.publishEvent(new CommentDeletedEvent(commentId, restaurantId, authorId));
     }
     
     @Override
@@ -161,6 +217,11 @@ public class CommentServiceImpl implements CommentService {
                 .collect(Collectors.toList());
     }
     
+    @Override
+    public Stream<Comment> streamCommentsByRestaurant(Long restaurantId) {
+        return commentRepository.streamApprovedByRestaurantId(restaurantId);
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public Page<CommentDTO> getCommentsByRestaurantPaginated(Long restaurantId, Pageable pageable) {
@@ -183,6 +244,85 @@ public class CommentServiceImpl implements CommentService {
                 .collect(Collectors.toList());
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<CommentDTO> getCommentFeedByRestaurant(Long restaurantId, String cursor, int size) {
+        Limit limit = feedLimit(size);
+        List<Comment> comments;
+        if (cursor == null || cursor.isBlank()) {
+            if (!restaurantRepository.existsById(restaurantId)) {
+                throw new IllegalArgumentException("Restaurant not found");
+            }
+            comments = commentRepository.findFeedByRestaurantId(restaurantId, limit);
+        } else {
+            FeedCursor after = FeedCursor.decode(cursor);
+            comments = commentRepository.findFeedByRestaurantIdBefore(restaurantId, after.createdAt(), after.id(), limit);
+        }
+        return toFeedPage(comments, limit.max() - 1);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<CommentDTO> getCommentFeedByUser(Long userId, String cursor, int size) {
+        Limit limit = feedLimit(size);
+        List<Comment> comments;
+        if (cursor == null || cursor.isBlank()) {
+            comments = commentRepository.findFeedByUserId(userId, limit);
+        } else {
+            FeedCursor after = FeedCursor.decode(cursor);
+            comments = commentRepository.findFeedByUserIdBefore(userId, after.createdAt(), after.id(), limit);
+        }
+        return toFeedPage(comments, limit.max() - 1);
+    }
+    
+    /**
+     * One row more than the page size is fetched to tell whether another
+     * page follows without counting.
+     */
+    private Limit feedLimit(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        return Limit.of(Math.min(size, maxFeedPageSize) + 1);
+    }
+    
+    private CursorPage<CommentDTO> toFeedPage(List<Comment> comments, int size) {
+        boolean hasMore = comments.size() > size;
+        List<Comment> page = hasMore ? comments.subList(0, size) : comments;
+        String nextCursor = null;
+        if (hasMore) {
+            Comment last = page.get(page.size() - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        List<CommentDTO> content = page.stream()
+                .map(CommentDTO::fromEntity)
+                .collect(Collectors.toList());
+        return new CursorPage<>(content, nextCursor, hasMore);
+    }
+    
+    /**
+     * Position in a feed: the (createdAt, id) of the last comment returned,
+     * sent to clients as an opaque URL-safe string.
+     */
+    record FeedCursor(LocalDateTime createdAt, Long id) {
+        
+        String encode() {
+            String value = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static FeedCursor decode(String cursor) {
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = value.indexOf('|');
+                return new FeedCursor(LocalDateTime.parse(value.substring(0, separator)),
+                        Long.parseLong(value.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public Optional<CommentDTO> getCommentById(Long commentId) {
@@ -191,64 +331,25 @@ public class CommentServiceImpl implements CommentService {
     }
     
     @Override
-    @Transactional(readOnly = true)
     public boolean hasUserCommentedOnRestaurant(Long userId, Long restaurantId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-        
-        Restaurant restaurant = restaurantRepository.findById(restaurantId)
-                .orElseThrow(() -> new IllegalArgumentException("Restaurant not found"));
-        
-        return commentRepository.existsByRestaurantAndUser(restaurant, user);
+        return commentCooldownService.getLastCommentAt(userId, restaurantId).isPresent();
     }
     
     @Override
-    @Transactional(readOnly = true)
     public boolean hasUserCommentedOnRestaurantSince(Long userId, Long restaurantId, LocalDateTime since) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-        
-        Restaurant restaurant = restaurantRepository.findById(restaurantId)
-                .orElseThrow(() -> new IllegalArgumentException("Restaurant not found"));
-        
-        return commentRepository.existsByRestaurantAndUserAndCreatedAtAfter(restaurant, user, since);
+        return commentCooldownService.getLastCommentAt(userId, restaurantId)
+                .filter(last -> last.isAfter(since))
+                .isPresent();
     }
     
     @Override
-    @Transactional(readOnly = true)
     public boolean canUserCommentOnRestaurant(Long userId, Long restaurantId) {
-        // Check if user has commented in the last 24 hours
-        LocalDateTime oneDayAgo = LocalDateTime.now().minusHours(COMMENT_COOLDOWN_HOURS);
-        return !hasUserCommentedOnRestaurantSince(userId, restaurantId, oneDayAgo);
+        return commentCooldownService.getNextCommentTime(userId, restaurantId).isEmpty();
     }
     
     @Override
-    @Transactional(readOnly = true)
     public Optional<LocalDateTime> getTimeWhenUserCanCommentAgain(Long userId, Long restaurantId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-        
-        Restaurant restaurant = restaurantRepository.findById(restaurantId)
-                .orElseThrow(() -> new IllegalArgumentException("Restaurant not found"));
-        
-        // Get the most recent comment
-        Pageable topOne = PageRequest.of(0, 1);
-        List<Comment> latestComments = commentRepository.findLatestByUserAndRestaurant(user, restaurant, topOne);
-        
-        if (latestComments.isEmpty()) {
-            return Optional.empty(); // No comment found, user can comment now
-        }
-        
-        Comment latestComment = latestComments.get(0);
-        LocalDateTime commentTime = latestComment.getCreatedAt();
-        LocalDateTime canCommentAgainAt = commentTime.plusHours(COMMENT_COOLDOWN_HOURS);
-        
-        LocalDateTime now = LocalDateTime.now();
-        if (now.isAfter(canCommentAgainAt)) {
-            return Optional.empty(); // Cooldown period has passed, user can comment now
-        }
-        
-        return Optional.of(canCommentAgainAt);
+        return commentCooldownService.getNextCommentTime(userId, restaurantId);
     }
     
     @Override
@@ -294,7 +395,9 @@ public class CommentServiceImpl implements CommentService {
         }
         
         Comment savedComment = commentRepository.save(comment);
-        return CommentDTO.fromEntity(savedComment);
+        CommentDTO result = CommentDTO.fromEntity(savedComment);
+        eventPublisher.publishEvent(new CommentModeratedEvent(result, approve));
+        return result;
     }
     
     @Override
@@ -331,6 +434,12 @@ public class CommentServiceImpl implements CommentService {
         // Get all approved comments for the restaurant
         List<Comment> comments = commentRepository.findByRestaurantAndApprovedTrueOrderByCreatedAtDesc(restaurant);
         
+        List<String> photoUrls = comments.stream()
+                .filter(comment -> comment.getPhotos() != null)
+                .flatMap(comment -> comment.getPhotos().stream())
+                .toList();
+        Map<String, String> thumbnails = imageVariantService.getThumbnailUrls(photoUrls);
+        
         // Extract photos with usernames
         List<Map<String, String>> photos = new ArrayList<>();
         
@@ -341,6 +450,7 @@ public class CommentServiceImpl implements CommentService {
                 for (String photoUrl : comment.getPhotos()) {
                     Map<String, String> photoData = new HashMap<>();
                     photoData.put("url", photoUrl);
+                    photoData.put("thumbnailUrl", thumbnails.get(photoUrl));
                     photoData.put("username", username);
                     photos.add(photoData);
                 }
@@ -353,21 +463,104 @@ public class CommentServiceImpl implements CommentService {
     @Override
     @Transactional(readOnly = true)
     public Optional<String> getLatestPhotoUrlForRestaurant(Long restaurantId) {
-        Restaurant restaurant = restaurantRepository.findById(restaurantId)
-                .orElseThrow(() -> new IllegalArgumentException("Restaurant not found"));
+        if (!restaurantRepository.existsById(restaurantId)) {
+            throw new IllegalArgumentException("Restaurant not found");
+        }
         
-        // Get all approved comments for the restaurant, ordered by creation date (newest first)
-        List<Comment> comments = commentRepository.findByRestaurantAndApprovedTrueOrderByCreatedAtDesc(restaurant);
+        // First photo of the most recent approved comment with photos, the same pick as the thumbnails
+        return commentRepository.findLatestPhotoByRestaurantIds(List.of(restaurantId)).stream()
+                .map(row -> (String) row[1])
+                .findFirst();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, String> getThumbnailUrlsForRestaurants(Collection<Long> restaurantIds) {
+        if (restaurantIds == null || restaurantIds.isEmpty()) {
+            return Map.of();
+        }
         
-        // Find the first comment with photos
-        for (Comment comment : comments) {
-            if (comment.getPhotos() != null && !comment.getPhotos().isEmpty()) {
-                // Return the first photo URL from the most recent comment with photos
-                return Optional.of(comment.getPhotos().get(0));
+        // First photo of the latest comment with photos, per restaurant
+        Map<Long, String> latestPhotos = new LinkedHashMap<>();
+        for (Object[] row : commentRepository.findLatestPhotoByRestaurantIds(restaurantIds)) {
+            latestPhotos.put((Long) row[0], (String) row[1]);
+        }
+        
+        Map<String, String> thumbnails = imageVariantService.getThumbnailUrls(latestPhotos.values());
+        Map<Long, String> result = new HashMap<>();
+        latestPhotos.forEach((restaurantId, photoUrl) -> result.put(restaurantId, thumbnails.get(photoUrl)));
+        return result;
+    }
+    
+    /**
+     * Replays in two keyset passes, comments created since the given time and
+     * then older comments updated since, one page per short read-only
+     * transaction. Each page is detached before its events are queued, and
+     * events go straight to the dispatcher so nothing waits for a commit.
+     */
+    @Override
+    public int replayCommentEvents(LocalDateTime since) {
+        if (since == null) {
+            throw new IllegalArgumentException("Replay start time is required");
+        }
+        
+        int replayed = 0;
+        try {
+            for (boolean updated : new boolean[] { false, true }) {
+                // (since, Long.MAX_VALUE) starts each pass just after the replay start time
+                ReplayPage page = new ReplayPage(List.of(), since, Long.MAX_VALUE);
+                do {
+                    page = readReplayPage(since, updated, page.lastTime(), page.lastId());
+                    for (CommentEvent event : page.events()) {
+                        commentEventDispatcher.replay(event);
+                        replayed++;
+                    }
+                } while (page.events().size() == REPLAY_PAGE_SIZE);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Comment event replay interrupted after " + replayed + " events");
         }
         
-        // No photos found
-        return Optional.empty();
+        logger.info("Replayed {} comment events changed since {}", replayed, since);
+        return replayed;
+    }
+    
+    private ReplayPage readReplayPage(LocalDateTime since, boolean updated, LocalDateTime lastTime, Long lastId) {
+        return replayTransaction.execute(status -> {
+            List<Comment> comments = updated
+                    ? commentRepository.findUpdatedAfter(since, lastTime, lastId, Limit.of(REPLAY_PAGE_SIZE))
+                    : commentRepository.findCreatedAfter(lastTime, lastId, Limit.of(REPLAY_PAGE_SIZE));
+            
+            List<CommentEvent> events = new ArrayList<>(comments.size());
+            for (Comment comment : comments) {
+                CommentDTO dto = CommentDTO.fromEntity(comment);
+                if (!comment.isApproved()) {
+                    events.add(new CommentModeratedEvent(dto, false, true));
+                } else if (comment.getUpdatedAt() != null && comment.getUpdatedAt().isAfter(since)) {
+                    events.add(new CommentUpdatedEvent(dto, true));
+                } else {
+                    events.add(new CommentCreatedEvent(dto, true));
+                }
+            }
+            
+            ReplayPage page = comments.isEmpty()
+                    ? new ReplayPage(events, lastTime, lastId)
+                    : new ReplayPage(events, replayKey(comments.get(comments.size() - 1), updated),
+                            comments.get(comments.size() - 1).getId());
+            // The request's persistence context outlives this transaction when open-in-view is on
+            entityManager.clear();
+            return page;
+        });
+    }
+    
+    private static LocalDateTime replayKey(Comment comment, boolean updated) {
+        return updated ? comment.getUpdatedAt() : comment.getCreatedAt();
+    }
+    
+    /**
+     * One page of replayed events and the keyset position of its last comment.
+     */
+    record ReplayPage(List<CommentEvent> events, LocalDateTime lastTime, Long lastId) {
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,254 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.ramendirectory.japanramendirectory.dto.CommentDTO;
+import com.ramendirectory.japanramendirectory.event.CommentCreatedEvent;
+import com.ramendirectory.japanramendirectory.event.CommentEvent;
+import com.ramendirectory.japanramendirectory.event.CommentEventHandler;
+import com.ramendirectory.japanramendirectory.event.CommentModeratedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Fans new reviews out to Server-Sent Events subscribers of a restaurant.
+ *
+ * <p>Streams are servlet async requests, so an idle subscriber holds a socket
+ * and a few objects but no request thread and no database connection. The
+ * hub is fed by the comment event pipeline, which only sees committed
+ * comments, and sends every comment once.
+ *
+ * <p>Each subscriber has a small bounded buffer drained by a shared pool of
+ * sender threads. A subscriber whose buffer is full is too slow to keep up
+ * and is disconnected; the browser's EventSource reconnects by itself.
+ */
+@Service
+public class CommentStreamHub implements CommentEventHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentStreamHub.class);
+    private static final Object HEARTBEAT = new Object();
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders;
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter sent;
+    private final Counter slowConsumersDropped;
+
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+
+    @Autowired
+    public CommentStreamHub(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${app.comment.stream.buffer-size:32}") int bufferSize,
+            @Value("${app.comment.stream.max-subscribers:20000}") int maxSubscribers,
+            @Value("${app.comment.stream.timeout-minutes:30}") long timeoutMinutes,
+            @Value("${app.comment.stream.sender-threads:4}") int senderThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeoutMinutes * 60_000;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "comment-stream-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sent = meterRegistry.counter("app.comment.stream.sent");
+        this.slowConsumersDropped = meterRegistry.counter("app.comment.stream.dropped");
+        Gauge.builder("app.comment.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open review streams")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.values().forEach(set -> set.forEach(Subscriber::close));
+        senders.shutdownNow();
+    }
+
+    /**
+     * Open a stream of new reviews of a restaurant.
+     *
+     * @throws IllegalArgumentException if the restaurant does not exist
+     * @throws IllegalStateException if the hub is at its subscriber limit
+     */
+    public SseEmitter subscribe(Long restaurantId) {
+        // Plain JDBC: a JPA lookup would pin the request's open-in-view session,
+        // and with it a pooled connection, for the lifetime of the stream
+        Integer found = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM restaurants WHERE id = ?", Integer.class, restaurantId);
+        if (found == null || found == 0) {
+            throw new IllegalArgumentException("Restaurant not found");
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many open review streams");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(restaurantId, emitter, new ArrayBlockingQueue<>(bufferSize));
+        // Add inside compute so a concurrent remove cannot drop the set we add to
+        subscribers.compute(restaurantId, (id, set) -> {
+            Set<Subscriber> listening = set != null ? set : ConcurrentHashMap.newKeySet();
+            listening.add(subscriber);
+            return listening;
+        });
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        return emitter;
+    }
+
+    @Override
+    public void onCommentEvents(Long restaurantId, List<CommentEvent> events) {
+        Set<Subscriber> listening = subscribers.get(restaurantId);
+        if (listening == null || listening.isEmpty()) {
+            return;
+        }
+        for (CommentEvent event : events) {
+            CommentDTO comment = newlyVisible(event);
+            if (comment != null) {
+                listening.forEach(subscriber -> subscriber.offer(comment));
+            }
+        }
+    }
+
+    /**
+     * A comment that just became visible on the restaurant page, or null.
+     * Replayed events were already streamed when they first happened.
+     */
+    private static CommentDTO newlyVisible(CommentEvent event) {
+        if (event.isReplayed()) {
+            return null;
+        }
+        if (event instanceof CommentCreatedEvent created) {
+            return created.getComment();
+        }
+        if (event instanceof CommentModeratedEvent moderated && moderated.isApproved()) {
+            return moderated.getComment();
+        }
+        return null;
+    }
+
+    /**
+     * Keep idle streams alive through proxies and find connections that went
+     * away without telling us.
+     */
+    @Scheduled(fixedDelayString = "${app.comment.stream.heartbeat-ms:30000}")
+    void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.offer(HEARTBEAT)));
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.restaurantId, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final Long restaurantId;
+        private final SseEmitter emitter;
+        private final Queue<Object> buffer;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(Long restaurantId, SseEmitter emitter, Queue<Object> buffer) {
+            this.restaurantId = restaurantId;
+            this.emitter = emitter;
+            this.buffer = buffer;
+        }
+
+        void offer(Object message) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(message)) {
+                if (message != HEARTBEAT) {
+                    slowConsumersDropped.increment();
+                    logger.debug("Review stream for restaurant {} fell behind, disconnecting", restaurantId);
+                    close();
+                }
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this);
+                } catch (RejectedExecutionException e) {
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Send everything buffered. Only one sender runs per subscriber.
+         */
+        @Override
+        public void run() {
+            try {
+                Object message;
+                while ((message = buffer.poll()) != null && !closed.get()) {
+                    if (message == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else {
+                        CommentDTO comment = (CommentDTO) message;
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(comment.getId()))
+                                .name("comment")
+                                .data(comment, MediaType.APPLICATION_JSON));
+                        sent.increment();
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the container reports it through onError/onCompletion too
+                remove(this);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            if (!buffer.isEmpty() && !closed.get() && scheduled.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+
+        void close() {
+            remove(this);
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.ramendirectory.japanramendirectory.model.PhotoVariant;
+import com.ramendirectory.japanramendirectory.repository.PhotoVariantRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Generates downscaled renditions of uploaded comment photos with the JDK's
+ * own ImageIO and Java2D, so cards and galleries do not have to download the
+ * multi-megabyte originals. Work runs on a small bounded pool; when its queue
+ * is full the uploading thread does the work itself, which slows uploads down
+ * instead of piling up decoded images in memory.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private final PhotoStorage photoStorage;
+    private final PhotoVariantRepository photoVariantRepository;
+
+    @Value("${app.photo.variants:thumb:320,medium:1024}")
+    private String variantSpec;
+
+    @Value("${app.photo.thumbnail-variant:thumb}")
+    private String thumbnailVariant;
+
+    @Value("${app.photo.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${app.photo.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Value("${app.photo.variant-workers:2}")
+    private int workers;
+
+    @Value("${app.photo.variant-queue-capacity:32}")
+    private int queueCapacity;
+
+    private List<VariantSize> variantSizes;
+    private ThreadPoolExecutor executor;
+
+    @Autowired
+    public ImageVariantService(PhotoStorage photoStorage, PhotoVariantRepository photoVariantRepository) {
+        this.photoStorage = photoStorage;
+        this.photoVariantRepository = photoVariantRepository;
+    }
+
+    @PostConstruct
+    void start() {
+        variantSizes = parseVariants(variantSpec);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "photo-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        ImageIO.setUseCache(false);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("Photo variant workers did not finish, {} uploads left without variants",
+                    executor.shutdownNow().size());
+        }
+    }
+
+    /**
+     * Queue variant generation for an uploaded photo.
+     *
+     * @param originalKey The storage key of the original
+     * @param originalUrl The public URL of the original, as stored in comment_photos
+     * @param content The bytes of the original
+     * @param contentType The content type of the original
+     */
+    public void generateVariantsAsync(String originalKey, String originalUrl, byte[] content, String contentType) {
+        executor.execute(() -> {
+            try {
+                generateVariants(originalKey, originalUrl, content, contentType);
+            } catch (Exception e) {
+                logger.error("Failed to generate variants for {}: {}", originalKey, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Queue variant generation for a photo that was uploaded straight to
+     * storage. The original is read back from storage by the worker.
+     */
+    public void generateVariantsAsync(String originalKey, String originalUrl, String contentType) {
+        executor.execute(() -> {
+            try (InputStream input = photoStorage.open(originalKey)) {
+                generateVariants(originalKey, originalUrl, input.readAllBytes(), contentType);
+            } catch (Exception e) {
+                logger.error("Failed to generate variants for {}: {}", originalKey, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Decode the original once and store every configured variant that is
+     * smaller than it. Images are never upscaled.
+     *
+     * @return The variants that were stored
+     */
+    public List<PhotoVariant> generateVariants(String originalKey, String originalUrl, byte[] content,
+            String contentType) throws IOException {
+        BufferedImage original = decode(content);
+        boolean png = "image/png".equalsIgnoreCase(contentType);
+        String format = png ? "png" : "jpg";
+        int longestEdge = Math.max(original.getWidth(), original.getHeight());
+
+        List<PhotoVariant> variants = new ArrayList<>();
+        for (VariantSize size : variantSizes) {
+            if (size.maxEdge() >= longestEdge) {
+                continue;
+            }
+            BufferedImage scaled = scale(original, size.maxEdge(), png);
+            byte[] encoded = png ? encodePng(scaled) : encodeJpeg(scaled);
+            String key = variantKey(originalKey, size.label(), format);
+
+            photoStorage.put(key, encoded, png ? "image/png" : "image/jpeg");
+            String url = photoStorage.getUrl(key);
+
+            variants.add(new PhotoVariant(originalUrl, size.label(), scaled.getWidth(), scaled.getHeight(), url));
+        }
+
+        photoVariantRepository.saveAll(variants);
+        logger.info("Stored {} variants for {}", variants.size(), originalKey);
+        return variants;
+    }
+
+    /**
+     * Map original photo URLs to their thumbnail URL. Photos without a
+     * thumbnail (not generated yet, or already small) map to themselves.
+     */
+    public Map<String, String> getThumbnailUrls(Collection<String> photoUrls) {
+        if (photoUrls.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> thumbnails = new HashMap<>();
+        for (String photoUrl : photoUrls) {
+            thumbnails.put(photoUrl, photoUrl);
+        }
+        for (PhotoVariant variant : photoVariantRepository.findByPhotoUrlInAndLabel(photoUrls, thumbnailVariant)) {
+            thumbnails.put(variant.getPhotoUrl(), variant.getUrl());
+        }
+        return thumbnails;
+    }
+
+    /**
+     * Decode an image, reading only the header first so a small file that
+     * claims huge dimensions is rejected before any pixels are allocated.
+     */
+    private BufferedImage decode(byte[] content) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IllegalArgumentException("Image too large: " + pixels + " pixels");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale down by halving until within a factor two of the target, then
+     * take the last step directly. Bilinear halving keeps quality close to a
+     * bicubic resize at a fraction of the cost.
+     */
+    static BufferedImage scale(BufferedImage source, int maxEdge, boolean keepAlpha) {
+        double ratio = (double) maxEdge / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        int type = keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            if (width < targetWidth * 2 && height < targetHeight * 2) {
+                width = targetWidth;
+                height = targetHeight;
+            }
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * photos/ab/ab12…ef.jpg becomes photos/ab/ab12…ef_thumb.jpg, next to the
+     * content-addressed original (photos/&lt;first two hex digits&gt;/&lt;sha256&gt;.ext)
+     */
+    static String variantKey(String originalKey, String label, String format) {
+        int slash = originalKey.lastIndexOf('/');
+        int dot = originalKey.lastIndexOf('.');
+        String base = dot > slash ? originalKey.substring(0, dot) : originalKey;
+        return base + "_" + label + "." + format;
+    }
+
+    static List<VariantSize> parseVariants(String spec) {
+        List<VariantSize> sizes = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid photo variant '" + entry + "', expected label:maxEdge");
+            }
+            sizes.add(new VariantSize(parts[0].trim(), Integer.parseInt(parts[1].trim())));
+        }
+        return sizes;
+    }
+
+    record VariantSize(String label, int maxEdge) {
+    }
+}
@@ -0,0 +1,199 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ramendirectory.japanramendirectory.model.Genre;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.model.SocialMediaLinksConverter;
+import com.ramendirectory.japanramendirectory.model.SoupBase;
+import com.ramendirectory.japanramendirectory.service.CacheInvalidationBus.EntityType;
+import com.ramendirectory.japanramendirectory.util.EnumMasks;
+
+/**
+ * The restaurant_genres, restaurant_soup_bases and
+ * restaurant_social_media_links tables, which V13 and V14 replaced with
+ * columns on the restaurant row.
+ *
+ * <p>Instances of the previous version keep reading and writing these tables
+ * during a rolling deploy. Restaurant writes mirror the collections into them
+ * in the same transaction, so old instances see the change, and a reconcile
+ * job copies the tables back into the columns, which picks up edits made on
+ * old instances. Both go away with the migration that drops the tables.
+ */
+@Service
+public class LegacyCollectionTables {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyCollectionTables.class);
+
+    private static final SocialMediaLinksConverter LINKS = new SocialMediaLinksConverter();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final RestaurantDocumentStore restaurantDocumentStore;
+
+    private final int batchSize;
+
+    @Autowired
+    public LegacyCollectionTables(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            CacheInvalidationBus cacheInvalidationBus, RestaurantDocumentStore restaurantDocumentStore,
+            @Value("${app.restaurant.legacy-collections.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.restaurantDocumentStore = restaurantDocumentStore;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Replace the rows of a saved restaurant with its current collections.
+     */
+    @Transactional
+    public void write(Restaurant restaurant) {
+        Long id = restaurant.getId();
+        delete(id);
+        if (restaurant.getGenres() != null) {
+            jdbcTemplate.batchUpdate("INSERT INTO restaurant_genres (restaurant_id, genre) VALUES (?, ?)",
+                    restaurant.getGenres().stream().map(genre -> new Object[] { id, genre.name() }).toList());
+        }
+        if (restaurant.getSoupBases() != null) {
+            jdbcTemplate.batchUpdate("INSERT INTO restaurant_soup_bases (restaurant_id, soup_base) VALUES (?, ?)",
+                    restaurant.getSoupBases().stream().map(soupBase -> new Object[] { id, soupBase.name() }).toList());
+        }
+        if (restaurant.getSocialMediaLinks() != null) {
+            jdbcTemplate.batchUpdate("INSERT INTO restaurant_social_media_links (restaurant_id, platform, url) "
+                    + "VALUES (?, ?, ?)", restaurant.getSocialMediaLinks().entrySet().stream()
+                    .map(link -> new Object[] { id, link.getKey(), link.getValue() }).toList());
+        }
+    }
+
+    /**
+     * Remove the rows of a restaurant, which its foreign keys require before
+     * the restaurant itself is deleted.
+     */
+    @Transactional
+    public void delete(Long restaurantId) {
+        jdbcTemplate.update("DELETE FROM restaurant_genres WHERE restaurant_id = ?", restaurantId);
+        jdbcTemplate.update("DELETE FROM restaurant_soup_bases WHERE restaurant_id = ?", restaurantId);
+        jdbcTemplate.update("DELETE FROM restaurant_social_media_links WHERE restaurant_id = ?", restaurantId);
+    }
+
+    /**
+     * Copy the tables into the restaurant columns where they differ, one page
+     * of restaurants per transaction. A row is only overwritten if its
+     * columns still hold what was read, so a concurrent write through this
+     * version wins. Safe to run any number of times.
+     *
+     * @return Number of restaurants updated
+     */
+    @Scheduled(initialDelayString = "${app.restaurant.legacy-collections.reconcile-initial-delay-ms:60000}",
+            fixedDelayString = "${app.restaurant.legacy-collections.reconcile-interval-ms:300000}")
+    public int reconcile() {
+        int reconciled = 0;
+        long lastId = 0;
+        try {
+            while (true) {
+                List<Row> rows = jdbcTemplate.query("SELECT id, genre_mask, soup_base_mask, social_media_links "
+                        + "FROM restaurants WHERE id > ? ORDER BY id LIMIT ?",
+                        (rs, rowNum) -> new Row(rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getString(4)),
+                        lastId, batchSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                reconciled += transactionTemplate.execute(status -> reconcile(rows));
+                lastId = rows.get(rows.size() - 1).id();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Restaurant collection reconciliation stopped after id {}: {}", lastId, e.getMessage());
+        }
+        if (reconciled > 0) {
+            logger.info("Copied collections of {} restaurants from the legacy tables", reconciled);
+        }
+        return reconciled;
+    }
+
+    private int reconcile(List<Row> rows) {
+        Map<String, Object> ids = Map.of("ids", rows.stream().map(Row::id).toList());
+        Map<Long, Set<Genre>> genres = new HashMap<>();
+        namedJdbcTemplate.query("SELECT restaurant_id, genre FROM restaurant_genres "
+                + "WHERE restaurant_id IN (:ids) AND genre IS NOT NULL", ids, rs -> {
+                    Genre genre = constant(Genre.class, rs.getString(2), rs.getLong(1));
+                    if (genre != null) {
+                        genres.computeIfAbsent(rs.getLong(1), id -> EnumSet.noneOf(Genre.class)).add(genre);
+                    }
+                });
+        Map<Long, Set<SoupBase>> soupBases = new HashMap<>();
+        namedJdbcTemplate.query("SELECT restaurant_id, soup_base FROM restaurant_soup_bases "
+                + "WHERE restaurant_id IN (:ids) AND soup_base IS NOT NULL", ids, rs -> {
+                    SoupBase soupBase = constant(SoupBase.class, rs.getString(2), rs.getLong(1));
+                    if (soupBase != null) {
+                        soupBases.computeIfAbsent(rs.getLong(1), id -> EnumSet.noneOf(SoupBase.class)).add(soupBase);
+                    }
+                });
+        Map<Long, Map<String, String>> links = new HashMap<>();
+        namedJdbcTemplate.query("SELECT restaurant_id, platform, url FROM restaurant_social_media_links "
+                + "WHERE restaurant_id IN (:ids)", ids, rs -> {
+                    links.computeIfAbsent(rs.getLong(1), id -> new TreeMap<>()).put(rs.getString(2), rs.getString(3));
+                });
+
+        List<Long> updated = new ArrayList<>();
+        for (Row row : rows) {
+            int genreMask = EnumMasks.of(genres.getOrDefault(row.id(), Set.of()));
+            int soupBaseMask = EnumMasks.of(soupBases.getOrDefault(row.id(), Set.of()));
+            Map<String, String> rowLinks = links.getOrDefault(row.id(), Map.of());
+            // A null column and an empty object both mean no links
+            Map<String, String> storedLinks = row.links() == null ? Map.of() : LINKS.convertToEntityAttribute(row.links());
+            if (genreMask == row.genreMask() && soupBaseMask == row.soupBaseMask()
+                    && Objects.equals(rowLinks, storedLinks)) {
+                continue;
+            }
+            int count = jdbcTemplate.update("UPDATE restaurants SET genre_mask = ?, soup_base_mask = ?, "
+                    + "social_media_links = ? WHERE id = ? AND genre_mask = ? AND soup_base_mask = ? "
+                    + "AND COALESCE(social_media_links, '') = ?",
+                    genreMask, soupBaseMask, rowLinks.isEmpty() ? null : LINKS.convertToDatabaseColumn(rowLinks),
+                    row.id(), row.genreMask(), row.soupBaseMask(), row.links() == null ? "" : row.links());
+            if (count == 1) {
+                updated.add(row.id());
+            }
+        }
+        for (Long id : updated) {
+            cacheInvalidationBus.record(EntityType.RESTAURANT, id);
+            restaurantDocumentStore.refresh(id);
+        }
+        return updated.size();
+    }
+
+    // The constant of a stored name, or null with a warning for names this version does not know
+    private static <E extends Enum<E>> E constant(Class<E> type, String name, long restaurantId) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Skipping unknown {} '{}' of restaurant {}", type.getSimpleName(), name, restaurantId);
+            return null;
+        }
+    }
+
+    private record Row(long id, int genreMask, int soupBaseMask, String links) {
+    }
+}
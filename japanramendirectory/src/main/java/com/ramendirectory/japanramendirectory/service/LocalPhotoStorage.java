@@ -0,0 +1,275 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.security.access.AccessDeniedException;
+
+/**
+ * Photo storage in a local directory, for development and tests. Files are
+ * served and accepted by LocalPhotoStorageController, and presigned uploads
+ * are HMAC-signed URLs that carry the announced type, length and checksum,
+ * so uploads are checked the same way S3 checks them.
+ */
+public class LocalPhotoStorage implements PhotoStorage {
+
+    static final String PATH_PREFIX = "/local-storage/";
+    private static final String META_SUFFIX = ".meta";
+
+    private final Path directory;
+    private final String baseUrl;
+    private final String publicBaseUrl;
+    private final byte[] secret;
+
+    /**
+     * @param baseUrl Base URL of this application, used for upload URLs
+     * @param publicBaseUrl Base of the URLs handed out for stored photos, or
+     *        blank to serve them from /local-storage
+     */
+    public LocalPhotoStorage(Path directory, String baseUrl, String publicBaseUrl, byte[] secret) throws IOException {
+        this.directory = Files.createDirectories(directory).toRealPath();
+        this.baseUrl = stripSlash(baseUrl);
+        this.publicBaseUrl = publicBaseUrl == null || publicBaseUrl.isBlank() ? null : stripSlash(publicBaseUrl);
+        this.secret = secret.clone();
+    }
+
+    @Override
+    public void put(String key, byte[] content, String contentType) {
+        try {
+            Path target = resolve(key);
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(directory, "put", ".tmp");
+            try {
+                Files.write(temp, content);
+                Files.writeString(metaPath(target), contentType + "\n");
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not store " + key, e);
+        }
+    }
+
+    @Override
+    public String getUrl(String key) {
+        if (publicBaseUrl != null) {
+            return publicBaseUrl + "/" + key;
+        }
+        return baseUrl + PATH_PREFIX + key;
+    }
+
+    @Override
+    public PresignedUpload presignUpload(String key, String contentType, long contentLength, String sha256Hex,
+            Duration ttl) {
+        resolve(key);
+        long expires = Instant.now().plus(ttl).getEpochSecond();
+        String signature = sign(key, contentType, contentLength, sha256Hex, expires);
+        String url = baseUrl + PATH_PREFIX + key
+                + "?type=" + URLEncoder.encode(contentType, StandardCharsets.UTF_8)
+                + "&length=" + contentLength
+                + "&sha256=" + sha256Hex
+                + "&expires=" + expires
+                + "&signature=" + signature;
+        return new PresignedUpload(url, "PUT", Map.of("Content-Type", contentType), Instant.ofEpochSecond(expires));
+    }
+
+    /**
+     * Store a presigned upload after checking the signature and the body.
+     *
+     * @throws AccessDeniedException If the signature is wrong or expired
+     * @throws IllegalArgumentException If the body does not match what was signed
+     */
+    public void acceptUpload(String key, String contentType, long contentLength, String sha256Hex, long expires,
+            String signature, String requestContentType, InputStream body) throws IOException {
+        byte[] expected = sign(key, contentType, contentLength, sha256Hex, expires).getBytes(StandardCharsets.US_ASCII);
+        if (signature == null || !MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII))) {
+            throw new AccessDeniedException("Invalid upload signature");
+        }
+        if (Instant.now().getEpochSecond() > expires) {
+            throw new AccessDeniedException("Upload URL has expired");
+        }
+        if (!contentType.equalsIgnoreCase(requestContentType)) {
+            throw new IllegalArgumentException("Content-Type must be " + contentType);
+        }
+
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(directory, "upload", ".tmp");
+        try {
+            long size;
+            try (OutputStream out = Files.newOutputStream(temp); InputStream in = body) {
+                size = copy(in, out, digest, contentLength);
+            }
+            if (size != contentLength) {
+                throw new IllegalArgumentException("Expected " + contentLength + " bytes but received " + size);
+            }
+            String actual = HexFormat.of().formatHex(digest.digest());
+            if (!actual.equals(sha256Hex)) {
+                throw new IllegalArgumentException("Body does not match the announced SHA-256");
+            }
+            Path target = resolve(key);
+            Files.createDirectories(target.getParent());
+            Files.writeString(metaPath(target), contentType + "\n" + sha256Hex);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try {
+            List<String> meta = Files.readAllLines(metaPath(path));
+            String contentType = meta.isEmpty() ? null : meta.get(0);
+            String sha256Hex = meta.size() < 2 || meta.get(1).isEmpty() ? null : meta.get(1);
+            return Optional.of(new StoredObject(Files.size(path), contentType, sha256Hex));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + key, e);
+        }
+    }
+
+    @Override
+    public byte[] readPrefix(String key, int maxBytes) throws IOException {
+        try (InputStream in = open(key)) {
+            return in.readNBytes(maxBytes);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) {
+        Path path = resolve(key);
+        try {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(metaPath(path));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not delete " + key, e);
+        }
+    }
+
+    @Override
+    public void deleteAll(List<String> keys) {
+        if (keys.size() > MAX_DELETE_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_DELETE_BATCH + " keys per delete request");
+        }
+        keys.forEach(this::delete);
+    }
+
+    @Override
+    public void list(String prefix, Consumer<ListedObject> consumer) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().endsWith(META_SUFFIX))
+                    .filter(path -> !path.getParent().equals(directory) || !path.getFileName().toString().endsWith(".tmp"))
+                    .forEach(path -> {
+                        String key = directory.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+                        if (key.startsWith(prefix)) {
+                            try {
+                                consumer.accept(new ListedObject(key, Files.size(path),
+                                        Files.getLastModifiedTime(path).toInstant()));
+                            } catch (IOException e) {
+                                // Deleted while listing
+                            }
+                        }
+                    });
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not list " + prefix, e);
+        }
+    }
+
+    @Override
+    public Optional<String> keyOf(String url) {
+        if (url == null) {
+            return Optional.empty();
+        }
+        if (publicBaseUrl != null && url.startsWith(publicBaseUrl + "/")) {
+            return Optional.of(url.substring(publicBaseUrl.length() + 1));
+        }
+        if (url.startsWith(baseUrl + PATH_PREFIX)) {
+            return Optional.of(url.substring(baseUrl.length() + PATH_PREFIX.length()));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Resolve a key inside the storage directory, rejecting keys that would escape it.
+     */
+    Path resolve(String key) {
+        Path path = directory.resolve(key).normalize();
+        if (key.isEmpty() || !path.startsWith(directory) || path.equals(directory) || key.endsWith(META_SUFFIX)) {
+            throw new IllegalArgumentException("Invalid storage key");
+        }
+        return path;
+    }
+
+    private static long copy(InputStream in, OutputStream out, MessageDigest digest, long limit) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > limit) {
+                return total;
+            }
+            digest.update(buffer, 0, read);
+            out.write(buffer, 0, read);
+        }
+        return total;
+    }
+
+    private String sign(String key, String contentType, long contentLength, String sha256Hex, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            String payload = String.join("\n", key, contentType, Long.toString(contentLength), sha256Hex,
+                    Long.toString(expires));
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static String stripSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static Path metaPath(Path path) {
+        return path.resolveSibling(path.getFileName() + META_SUFFIX);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
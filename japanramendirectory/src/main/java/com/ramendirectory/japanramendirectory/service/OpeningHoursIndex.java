@@ -0,0 +1,253 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ramendirectory.japanramendirectory.service.CacheInvalidationBus.EntityType;
+import com.ramendirectory.japanramendirectory.util.OpeningHoursParser;
+import com.ramendirectory.japanramendirectory.util.OpeningHoursParser.Interval;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Which restaurants are open at a time of the week.
+ *
+ * <p>Opening hours are parsed into restaurant_opening_hours when a restaurant
+ * is written. This index keeps, for every 15 minute slot of the week, a
+ * bitset of the restaurants open at the start of that slot, so "open now" is
+ * one bitset lookup. It follows writes on every instance through restaurant
+ * change events.
+ *
+ * <p>Restaurants whose hours could not be parsed have no intervals and are
+ * never reported open. A migration job parses restaurants that have hours
+ * text but no intervals (rows from before the table, the seed data) and
+ * reports the ones it cannot understand.
+ */
+@Service
+public class OpeningHoursIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpeningHoursIndex.class);
+
+    static final int SLOT_MINUTES = 15;
+    static final int SLOTS = OpeningHoursParser.MINUTES_PER_WEEK / SLOT_MINUTES;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final ZoneId zone;
+    private final AtomicInteger unparseable = new AtomicInteger();
+    // Serializes migrations; lookups and reloads only lock this for the bitset swap
+    private final Object migrationLock = new Object();
+
+    // Guarded by this
+    private BitSet[] slots = emptySlots();
+    private Map<Long, List<Interval>> schedules = new HashMap<>();
+
+    @Autowired
+    public OpeningHoursIndex(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            CacheInvalidationBus cacheInvalidationBus, MeterRegistry meterRegistry,
+            @Value("${app.opening-hours.zone:Asia/Tokyo}") String zone) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Reloads run in afterCommit of the writing transaction, which they must not join
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.zone = ZoneId.of(zone);
+        Gauge.builder("app.opening-hours.unparseable", unparseable, AtomicInteger::get)
+                .description("Restaurants whose opening hours could not be parsed")
+                .register(meterRegistry);
+        cacheInvalidationBus.subscribe(EntityType.RESTAURANT, id -> {
+            if (id == null) {
+                reloadAll();
+            } else {
+                reload(id);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void load() {
+        try {
+            reloadAll();
+        } catch (RuntimeException e) {
+            logger.warn("Could not load opening hours: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The current local time where the restaurants are.
+     */
+    public LocalDateTime localNow() {
+        return LocalDateTime.now(zone);
+    }
+
+    /**
+     * Ids of the restaurants open at a local date and time, as a bitset the
+     * caller may modify.
+     */
+    public synchronized BitSet openAt(LocalDateTime localTime) {
+        int minuteOfWeek = (localTime.getDayOfWeek().getValue() - 1) * OpeningHoursParser.MINUTES_PER_DAY
+                + localTime.getHour() * 60 + localTime.getMinute();
+        return (BitSet) slots[minuteOfWeek / SLOT_MINUTES].clone();
+    }
+
+    /**
+     * Parse and store the opening hours of a restaurant, replacing what was
+     * stored before. Must run in the writing transaction, which is also
+     * expected to record the restaurant change that updates the index.
+     *
+     * @return false if the hours could not be parsed; the restaurant then
+     *         has unknown hours until they are fixed
+     */
+    public boolean save(Long restaurantId, String openingHours, String restDay) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("Opening hours must be saved in a read-write transaction");
+        }
+        jdbcTemplate.update("DELETE FROM restaurant_opening_hours WHERE restaurant_id = ?", restaurantId);
+        List<Interval> intervals;
+        try {
+            intervals = OpeningHoursParser.parse(openingHours, restDay);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Opening hours of restaurant {} not understood: {}", restaurantId, e.getMessage());
+            return false;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO restaurant_opening_hours (restaurant_id, opens_at, closes_at) VALUES (?, ?, ?)",
+                intervals, intervals.size(), (ps, interval) -> {
+                    ps.setLong(1, restaurantId);
+                    ps.setInt(2, interval.opensAt());
+                    ps.setInt(3, interval.closesAt());
+                });
+        return true;
+    }
+
+    /**
+     * Parse the hours of restaurants that have hours text but no intervals,
+     * and report the ones that cannot be parsed.
+     */
+    @Scheduled(initialDelayString = "${app.opening-hours.migration-initial-delay-ms:30000}",
+            fixedDelayString = "${app.opening-hours.migration-interval-ms:3600000}")
+    public MigrationReport migrate() {
+        synchronized (migrationLock) {
+            return migrateUnparsed();
+        }
+    }
+
+    private MigrationReport migrateUnparsed() {
+        List<Unparseable> failures = new ArrayList<>();
+        int parsed = transactionTemplate.execute(status -> {
+            int count = 0;
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT r.id, r.opening_hours, r.rest_day "
+                    + "FROM restaurants r WHERE r.opening_hours IS NOT NULL AND NOT EXISTS "
+                    + "(SELECT 1 FROM restaurant_opening_hours h WHERE h.restaurant_id = r.id)");
+            for (Map<String, Object> row : rows) {
+                Long id = ((Number) row.get("id")).longValue();
+                String openingHours = (String) row.get("opening_hours");
+                String restDay = (String) row.get("rest_day");
+                try {
+                    OpeningHoursParser.parse(openingHours, restDay);
+                } catch (IllegalArgumentException e) {
+                    failures.add(new Unparseable(id, openingHours, restDay, e.getMessage()));
+                    continue;
+                }
+                save(id, openingHours, restDay);
+                cacheInvalidationBus.record(EntityType.RESTAURANT, id);
+                count++;
+            }
+            return count;
+        });
+        unparseable.set(failures.size());
+        if (parsed > 0) {
+            logger.info("Parsed the opening hours of {} restaurants", parsed);
+        }
+        if (!failures.isEmpty()) {
+            logger.warn("Opening hours of {} restaurants could not be parsed: {}", failures.size(),
+                    failures.stream().map(failure -> failure.restaurantId() + " (" + failure.reason() + ")").toList());
+        }
+        return new MigrationReport(parsed, failures);
+    }
+
+    private void reload(Long restaurantId) {
+        List<Interval> intervals = transactionTemplate.execute(status -> jdbcTemplate.query(
+                "SELECT opens_at, closes_at FROM restaurant_opening_hours WHERE restaurant_id = ?",
+                (rs, rowNum) -> new Interval(rs.getInt(1), rs.getInt(2)), restaurantId));
+        synchronized (this) {
+            List<Interval> previous = schedules.remove(restaurantId);
+            if (previous != null) {
+                mark(slots, restaurantId, previous, false);
+            }
+            if (!intervals.isEmpty()) {
+                schedules.put(restaurantId, intervals);
+                mark(slots, restaurantId, intervals, true);
+            }
+        }
+    }
+
+    private void reloadAll() {
+        Map<Long, List<Interval>> loaded = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(
+                "SELECT restaurant_id, opens_at, closes_at FROM restaurant_opening_hours",
+                rs -> {
+                    loaded.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>())
+                            .add(new Interval(rs.getInt(2), rs.getInt(3)));
+                }));
+        BitSet[] rebuilt = emptySlots();
+        loaded.forEach((id, intervals) -> mark(rebuilt, id, intervals, true));
+        synchronized (this) {
+            slots = rebuilt;
+            schedules = loaded;
+        }
+        logger.debug("Loaded opening hours of {} restaurants", loaded.size());
+    }
+
+    /**
+     * Set or clear a restaurant in every slot whose start lies in one of its
+     * intervals. Intervals past the end of Sunday wrap to Monday.
+     */
+    private static void mark(BitSet[] slots, Long restaurantId, List<Interval> intervals, boolean open) {
+        int bit = Math.toIntExact(restaurantId);
+        for (Interval interval : intervals) {
+            int first = (interval.opensAt() + SLOT_MINUTES - 1) / SLOT_MINUTES;
+            int end = (interval.closesAt() + SLOT_MINUTES - 1) / SLOT_MINUTES;
+            for (int slot = first; slot < end; slot++) {
+                slots[slot % SLOTS].set(bit, open);
+            }
+        }
+    }
+
+    private static BitSet[] emptySlots() {
+        BitSet[] empty = new BitSet[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            empty[i] = new BitSet();
+        }
+        return empty;
+    }
+
+    public record Unparseable(Long restaurantId, String openingHours, String restDay, String reason) {
+    }
+
+    public record MigrationReport(int parsed, List<Unparseable> unparseable) {
+    }
+}
@@ -0,0 +1,212 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Size-bounded on-disk LRU cache of photo objects in front of
+ * {@link PhotoStorage}. Concurrent misses for the same key share one fetch
+ * from the origin. Evicted files are deleted after a grace period rather than
+ * immediately, so a response that is still being sent from one (for example
+ * by the container's sendfile) is not cut short.
+ */
+@Service
+@ConditionalOnProperty(name = "app.photo.cache.enabled", havingValue = "true")
+public class PhotoCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoCache.class);
+    private static final long DELETE_GRACE_MS = 60_000;
+    private static final Pattern CACHE_FILE = Pattern.compile("[0-9a-f-]{36}(\\.tmp)?");
+
+    private final PhotoStorage photoStorage;
+    private final Map<String, CachedPhoto> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<Optional<CachedPhoto>>> fills = new ConcurrentHashMap<>();
+    private final Deque<PendingDelete> pendingDeletes = new ArrayDeque<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private long cachedBytes;
+
+    @Value("${app.photo.cache.directory:${java.io.tmpdir}/ramen-photo-cache}")
+    private Path directory;
+
+    @Value("${app.photo.cache.max-size:1GB}")
+    private DataSize maxSize;
+
+    @Autowired
+    public PhotoCache(PhotoStorage photoStorage, MeterRegistry meterRegistry) {
+        this.photoStorage = photoStorage;
+        this.hits = meterRegistry.counter("app.photo.cache", "result", "hit");
+        this.misses = meterRegistry.counter("app.photo.cache", "result", "miss");
+        this.coalesced = meterRegistry.counter("app.photo.cache", "result", "coalesced");
+        Gauge.builder("app.photo.cache.bytes", this, PhotoCache::getCachedBytes)
+                .description("Bytes of photos held in the disk cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Remove files left by a previous run; the index only lives in memory.
+     * Only file names this cache creates are touched.
+     */
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (CACHE_FILE.matcher(file.getFileName().toString()).matches()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        logger.info("Photo cache in {} limited to {}", directory, maxSize);
+    }
+
+    /**
+     * Get a photo from the cache, fetching it from storage on a miss.
+     *
+     * @return The cached file, or empty if storage has no such object
+     */
+    public Optional<CachedPhoto> get(String key) throws IOException {
+        synchronized (entries) {
+            CachedPhoto cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+        }
+
+        CompletableFuture<Optional<CachedPhoto>> fill = new CompletableFuture<>();
+        CompletableFuture<Optional<CachedPhoto>> running = fills.putIfAbsent(key, fill);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        try {
+            // Another fill may have finished between the lookup and registering this one
+            synchronized (entries) {
+                CachedPhoto cached = entries.get(key);
+                if (cached != null) {
+                    hits.increment();
+                    fill.complete(Optional.of(cached));
+                    return Optional.of(cached);
+                }
+            }
+            misses.increment();
+            Optional<CachedPhoto> loaded = load(key);
+            fill.complete(loaded);
+            return loaded;
+        } catch (IOException | RuntimeException e) {
+            fill.completeExceptionally(e);
+            throw e;
+        } finally {
+            fills.remove(key);
+        }
+    }
+
+    public long getCachedBytes() {
+        synchronized (entries) {
+            return cachedBytes;
+        }
+    }
+
+    private Optional<CachedPhoto> load(String key) throws IOException {
+        Optional<PhotoStorage.StoredObject> stored = photoStorage.stat(key);
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Path file = directory.resolve(UUID.randomUUID().toString());
+        Path temp = directory.resolve(file.getFileName() + ".tmp");
+        try (InputStream in = photoStorage.open(key)) {
+            Files.copy(in, temp);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        CachedPhoto cached = new CachedPhoto(file, Files.size(file), stored.get().contentType());
+        synchronized (entries) {
+            CachedPhoto replaced = entries.put(key, cached);
+            if (replaced != null) {
+                cachedBytes -= replaced.size();
+                pendingDeletes.add(new PendingDelete(replaced.file(), System.currentTimeMillis()));
+            }
+            cachedBytes += cached.size();
+            evict();
+        }
+        return Optional.of(cached);
+    }
+
+    /**
+     * Drop least recently used entries until the cache fits, and delete the
+     * files of entries evicted more than the grace period ago. Called with
+     * the entries lock held.
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, CachedPhoto>> eldest = entries.entrySet().iterator();
+        while (cachedBytes > maxSize.toBytes() && eldest.hasNext()) {
+            CachedPhoto evicted = eldest.next().getValue();
+            eldest.remove();
+            cachedBytes -= evicted.size();
+            pendingDeletes.add(new PendingDelete(evicted.file(), now));
+        }
+        while (!pendingDeletes.isEmpty() && now - pendingDeletes.peek().evictedAt() > DELETE_GRACE_MS) {
+            Path file = pendingDeletes.poll().file();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Could not delete evicted cache file {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private static Optional<CachedPhoto> await(CompletableFuture<Optional<CachedPhoto>> fill) throws IOException {
+        try {
+            return fill.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for photo", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to load photo", e.getCause());
+        }
+    }
+
+    public record CachedPhoto(Path file, long size, String contentType) {
+    }
+
+    private record PendingDelete(Path file, long evictedAt) {
+    }
+}
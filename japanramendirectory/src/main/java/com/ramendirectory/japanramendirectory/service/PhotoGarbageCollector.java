@@ -0,0 +1,328 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Deletes photo objects that no comment refers to any more: photos of
+ * deleted comments, variants of those photos, and presigned uploads that were
+ * never completed.
+ *
+ * <p>The referenced set is built by streaming comment_photos and keeping only
+ * a sorted array of 64-bit key hashes, about 8 bytes per photo. A hash
+ * collision can only make an orphan look referenced, so it is never deleted
+ * by mistake. On MySQL the scan only streams with useCursorFetch=true on the
+ * datasource URL (see DOCKER_README); otherwise the driver reads every
+ * comment_photos row into memory before the first is hashed. The bucket listing is streamed page by page and orphans are
+ * deleted in batches of at most {@link PhotoStorage#MAX_DELETE_BATCH} keys
+ * with a pause between batches.
+ *
+ * <p>Objects younger than the minimum age are left alone so uploads that are
+ * in flight, or whose comment is not committed yet, are not collected.
+ */
+@Service
+public class PhotoGarbageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoGarbageCollector.class);
+
+    private final PhotoStorage photoStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong referenced = new AtomicLong();
+    private final AtomicLong orphans = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final Counter deletedTotal;
+    private final Counter bytesReclaimed;
+    private final Timer runTimer;
+
+    @Value("${app.photo.gc.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.photo.gc.dry-run:true}")
+    private boolean dryRun;
+
+    @Value("${app.photo.gc.prefixes:photos/,comments/}")
+    private List<String> prefixes;
+
+    @Value("${app.photo.gc.min-age-hours:24}")
+    private long minAgeHours;
+
+    @Value("${app.photo.gc.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.photo.gc.batch-delay-ms:1000}")
+    private long batchDelayMs;
+
+    @Value("${app.photo.gc.fetch-size:1000}")
+    private int fetchSize;
+
+    @Autowired
+    public PhotoGarbageCollector(PhotoStorage photoStorage, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.photoStorage = photoStorage;
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        // Read-write so the referenced set comes from the primary, not a lagging replica
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deletedTotal = meterRegistry.counter("app.photo.gc.deleted");
+        this.bytesReclaimed = meterRegistry.counter("app.photo.gc.bytes.reclaimed");
+        this.runTimer = meterRegistry.timer("app.photo.gc.duration");
+        Gauge.builder("app.photo.gc.progress", scanned, AtomicLong::get).tag("stage", "scanned")
+                .description("Objects listed by the current or last run").register(meterRegistry);
+        Gauge.builder("app.photo.gc.progress", referenced, AtomicLong::get).tag("stage", "referenced")
+                .register(meterRegistry);
+        Gauge.builder("app.photo.gc.progress", orphans, AtomicLong::get).tag("stage", "orphans")
+                .register(meterRegistry);
+        Gauge.builder("app.photo.gc.progress", deleted, AtomicLong::get).tag("stage", "deleted")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.photo.gc.cron:0 30 3 * * *}")
+    void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            collect(dryRun);
+        } catch (IllegalStateException e) {
+            logger.warn("Photo garbage collection skipped: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Run one collection.
+     *
+     * @param dryRun Only count and log orphans, delete nothing
+     * @return What was found and deleted
+     * @throws IllegalStateException if a collection is already running
+     */
+    public Report collect(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Photo garbage collection is already running");
+        }
+        try {
+            return runTimer.record(() -> doCollect(dryRun));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Report doCollect(boolean dryRun) {
+        scanned.set(0);
+        referenced.set(0);
+        orphans.set(0);
+        deleted.set(0);
+        int effectiveBatch = Math.max(1, Math.min(batchSize, PhotoStorage.MAX_DELETE_BATCH));
+        Instant cutoff = Instant.now().minus(Duration.ofHours(minAgeHours));
+
+        long[] referencedHashes = transactionTemplate.execute(status -> loadReferencedHashes(cutoff));
+        referenced.set(referencedHashes.length);
+        logger.info("Photo GC: {} referenced keys, dry run {}", referencedHashes.length, dryRun);
+
+        AtomicLong orphanBytes = new AtomicLong();
+        List<PhotoStorage.ListedObject> batch = new ArrayList<>(effectiveBatch);
+        for (String prefix : prefixes) {
+            photoStorage.list(prefix, object -> {
+                scanned.incrementAndGet();
+                if (object.lastModified() != null && object.lastModified().isAfter(cutoff)) {
+                    return;
+                }
+                if (Arrays.binarySearch(referencedHashes, hash(object.key())) >= 0) {
+                    return;
+                }
+                orphans.incrementAndGet();
+                orphanBytes.addAndGet(object.size());
+                if (dryRun) {
+                    logger.debug("Photo GC: orphan {} ({} bytes)", object.key(), object.size());
+                    return;
+                }
+                batch.add(object);
+                if (batch.size() == effectiveBatch) {
+                    deleteBatch(batch, cutoff);
+                    batch.clear();
+                }
+            });
+        }
+        if (!batch.isEmpty()) {
+            deleteBatch(batch, cutoff);
+        }
+
+        Report report = new Report(dryRun, scanned.get(), referenced.get(), orphans.get(), orphanBytes.get(),
+                deleted.get());
+        logger.info("Photo GC finished: {}", report);
+        return report;
+    }
+
+    /**
+     * Hash every key that must be kept: photos on comments, the variants of
+     * those photos, and deduplicated objects that are counted or were reused
+     * recently. The result is sorted for binary search.
+     */
+    private long[] loadReferencedHashes(Instant cutoff) {
+        HashArray hashes = new HashArray();
+        Set<String> unknownUrls = new HashSet<>();
+
+        jdbcTemplate.setFetchSize(fetchSize);
+        jdbcTemplate.query("SELECT photo_url FROM comment_photos", rs -> {
+            addUrl(hashes, rs.getString(1), unknownUrls);
+        });
+        // Variants belong to a photo by URL; keep those whose original is kept
+        long[] originals = hashes.sortedCopy().values();
+        jdbcTemplate.query("SELECT photo_url, url FROM photo_variants", rs -> {
+            String originalKey = photoStorage.keyOf(rs.getString(1)).orElse(null);
+            if (originalKey != null && Arrays.binarySearch(originals, hash(originalKey)) >= 0) {
+                addUrl(hashes, rs.getString(2), unknownUrls);
+            }
+        });
+        jdbcTemplate.query("SELECT object_key FROM photo_objects WHERE ref_count > 0 OR last_referenced_at >= ?",
+                rs -> {
+                    hashes.add(hash(rs.getString(1)));
+                }, Timestamp.from(cutoff));
+
+        if (!unknownUrls.isEmpty()) {
+            logger.warn("Photo GC: {} referenced URLs do not belong to this storage, e.g. {}",
+                    unknownUrls.size(), unknownUrls.iterator().next());
+        }
+        return hashes.sortedCopy().values();
+    }
+
+    private void addUrl(HashArray hashes, String url, Set<String> unknownUrls) {
+        String key = photoStorage.keyOf(url).orElse(null);
+        if (key == null) {
+            if (unknownUrls.size() < 100) {
+                unknownUrls.add(url);
+            }
+            return;
+        }
+        hashes.add(hash(key));
+    }
+
+    /**
+     * Delete one batch. Deduplicated objects whose row was counted or reused
+     * since the referenced set was built are kept; the rows of the others are
+     * removed first so later uploads of the same content store it again
+     * instead of pointing at an object that is about to disappear.
+     */
+    private void deleteBatch(List<PhotoStorage.ListedObject> objects, Instant cutoff) {
+        List<String> keys = objects.stream().map(PhotoStorage.ListedObject::key).toList();
+        List<String> deletable = transactionTemplate.execute(status -> {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("keys", keys)
+                    .addValue("cutoff", Timestamp.from(cutoff));
+            Set<String> inUse = new HashSet<>(namedJdbcTemplate.queryForList(
+                    "SELECT object_key FROM photo_objects WHERE object_key IN (:keys) "
+                            + "AND (ref_count > 0 OR last_referenced_at >= :cutoff)",
+                    params, String.class));
+            List<String> remaining = keys.stream().filter(key -> !inUse.contains(key)).toList();
+            if (remaining.isEmpty()) {
+                return remaining;
+            }
+            MapSqlParameterSource removeParams = new MapSqlParameterSource("keys", remaining);
+            namedJdbcTemplate.update("DELETE FROM photo_objects WHERE object_key IN (:keys)", removeParams);
+            namedJdbcTemplate.update("DELETE FROM photo_variants WHERE url IN (:urls)",
+                    new MapSqlParameterSource("urls", remaining.stream().map(photoStorage::getUrl).toList()));
+            return remaining;
+        });
+        if (deletable.isEmpty()) {
+            return;
+        }
+
+        photoStorage.deleteAll(deletable);
+        deleted.addAndGet(deletable.size());
+        deletedTotal.increment(deletable.size());
+        Set<String> deletedKeys = new HashSet<>(deletable);
+        bytesReclaimed.increment(objects.stream()
+                .filter(object -> deletedKeys.contains(object.key()))
+                .mapToLong(PhotoStorage.ListedObject::size)
+                .sum());
+        logger.info("Photo GC: deleted {} objects ({} so far)", deletable.size(), deleted.get());
+
+        if (batchDelayMs > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(batchDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Photo garbage collection interrupted", e);
+            }
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a of the key's UTF-8 bytes.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public record Report(boolean dryRun, long scanned, long referenced, long orphans, long orphanBytes,
+            long deleted) {
+    }
+
+    /**
+     * Growable array of primitive longs, so the referenced set does not box
+     * every hash.
+     */
+    private static final class HashArray {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        HashArray sortedCopy() {
+            HashArray copy = new HashArray();
+            copy.values = Arrays.copyOf(values, size);
+            copy.size = size;
+            Arrays.sort(copy.values);
+            return copy;
+        }
+
+        long[] values() {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+}
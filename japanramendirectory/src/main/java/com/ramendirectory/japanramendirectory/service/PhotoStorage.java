@@ -0,0 +1,89 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Object storage for comment photos. {@link S3PhotoStorage} is used in
+ * production; {@link LocalPhotoStorage} keeps files on disk and serves them
+ * over HTTP so uploads can run without AWS.
+ */
+public interface PhotoStorage {
+
+    /**
+     * Store content under a key, replacing any existing object.
+     */
+    void put(String key, byte[] content, String contentType);
+
+    /**
+     * Public URL of the object stored under a key.
+     */
+    String getUrl(String key);
+
+    /**
+     * Issue a short-lived URL the client can PUT the content to directly.
+     * The storage only accepts a body of exactly contentLength bytes whose
+     * SHA-256 matches sha256Hex.
+     */
+    PresignedUpload presignUpload(String key, String contentType, long contentLength, String sha256Hex, Duration ttl);
+
+    /**
+     * Size, type and checksum of a stored object, or empty if there is none.
+     */
+    Optional<StoredObject> stat(String key);
+
+    /**
+     * Read up to maxBytes from the start of an object.
+     */
+    byte[] readPrefix(String key, int maxBytes) throws IOException;
+
+    /**
+     * Stream the whole object.
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Delete an object. Deleting a missing key is not an error.
+     */
+    void delete(String key);
+
+    /**
+     * Delete up to {@link #MAX_DELETE_BATCH} objects in one request.
+     */
+    void deleteAll(List<String> keys);
+
+    /**
+     * Stream every object under a prefix to the consumer, page by page,
+     * without holding the whole listing in memory.
+     */
+    void list(String prefix, Consumer<ListedObject> consumer);
+
+    /**
+     * The key of the object a URL handed out by {@link #getUrl(String)} points
+     * at, or empty if the URL does not belong to this storage.
+     */
+    Optional<String> keyOf(String url);
+
+    /**
+     * S3 accepts at most 1000 keys per DeleteObjects request.
+     */
+    int MAX_DELETE_BATCH = 1000;
+
+    record ListedObject(String key, long size, Instant lastModified) {
+    }
+
+    record PresignedUpload(String url, String method, Map<String, String> headers, Instant expiresAt) {
+    }
+
+    /**
+     * @param sha256Hex The checksum the storage verified on upload, or null if it did not keep one
+     */
+    record StoredObject(long size, String contentType, String sha256Hex) {
+    }
+}
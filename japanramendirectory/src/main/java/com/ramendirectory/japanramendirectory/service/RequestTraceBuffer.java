@@ -0,0 +1,140 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.ramendirectory.japanramendirectory.config.RequestTrace;
+import com.ramendirectory.japanramendirectory.config.RequestTrace.Phase;
+import com.ramendirectory.japanramendirectory.config.RequestTracer.Finished;
+import com.ramendirectory.japanramendirectory.util.SqlShapes;
+
+/**
+ * Keeps the latency breakdowns of recent requests: a random sample of
+ * app.request-trace.sample-rate of them, plus every request that took
+ * app.request-trace.slow-threshold-ms or longer. Requests are sampled when
+ * they start, as only sampled ones have their SQL timed; a slow request
+ * outside the sample is kept with its SQL counted in the surrounding phases. Traces go into a fixed
+ * ring of app.request-trace.capacity slots (rounded up to a power of two);
+ * request threads claim a slot with one atomic increment and never wait on
+ * each other, and the oldest trace is overwritten when the ring is full.
+ */
+@Service
+public class RequestTraceBuffer {
+
+    public enum Reason {
+        SAMPLED,
+        SLOW
+    }
+
+    public record StatementTiming(String sql, double ms) {
+    }
+
+    /**
+     * One kept request. Phases are self times that add up to the total;
+     * statement SQL is reduced to its shape so no values are kept. Only
+     * sampled traces have SQL and statements.
+     */
+    public record Trace(long id, Instant startedAt, String method, String route, String path, int status,
+            Reason reason, boolean sampled, double totalMs, Map<Phase, Double> phasesMs, int statements,
+            List<StatementTiming> slowestStatements) {
+    }
+
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final AtomicReferenceArray<Trace> ring;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Autowired
+    public RequestTraceBuffer(@Value("${app.request-trace.sample-rate:0.01}") double sampleRate,
+            @Value("${app.request-trace.slow-threshold-ms:1000}") long slowThresholdMs,
+            @Value("${app.request-trace.capacity:512}") int capacity) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("app.request-trace.sample-rate must be between 0 and 1: " + sampleRate);
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("app.request-trace.capacity must be positive: " + capacity);
+        }
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(slots);
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Whether a request about to start is part of the sample.
+     */
+    public boolean sample() {
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Keep the trace of a finished request if it is slow or sampled.
+     *
+     * @param finished The trace, or null if the request was not traced
+     */
+    public void offer(String method, String route, String path, int status, Finished finished) {
+        if (finished == null) {
+            return;
+        }
+        Reason reason;
+        if (finished.totalNanos() >= slowThresholdNanos) {
+            reason = Reason.SLOW;
+        } else if (finished.trace().isSampled()) {
+            reason = Reason.SAMPLED;
+        } else {
+            return;
+        }
+        long id = sequence.getAndIncrement();
+        ring.set((int) (id & mask), toTrace(id, method, route, path, status, reason, finished));
+    }
+
+    /**
+     * Kept traces, newest first.
+     *
+     * @param route Only traces of this route template, or null for all
+     */
+    public List<Trace> getTraces(String route, int limit) {
+        List<Trace> traces = new ArrayList<>();
+        for (int i = 0; i < ring.length(); i++) {
+            Trace trace = ring.get(i);
+            if (trace != null && (route == null || route.equals(trace.route()))) {
+                traces.add(trace);
+            }
+        }
+        traces.sort(Comparator.comparingLong(Trace::id).reversed());
+        return traces.size() > limit ? traces.subList(0, limit) : traces;
+    }
+
+    private static Trace toTrace(long id, String method, String route, String path, int status, Reason reason,
+            Finished finished) {
+        RequestTrace trace = finished.trace();
+        Map<Phase, Double> phases = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, millis(trace.getSelfNanos(phase)));
+        }
+        List<StatementTiming> slowest = trace.getSlowestStatements().stream()
+                .map(statement -> new StatementTiming(SqlShapes.normalize(statement.sql()), millis(statement.nanos())))
+                .toList();
+        Instant startedAt = Instant.now().minusNanos(finished.totalNanos());
+        return new Trace(id, startedAt, method, route, path, status, reason, trace.isSampled(),
+                millis(finished.totalNanos()), phases, trace.getStatements(), slowest);
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,316 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ramendirectory.japanramendirectory.dto.GenreDTO;
+import com.ramendirectory.japanramendirectory.dto.RestaurantDTO;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.model.SoupBase;
+import com.ramendirectory.japanramendirectory.repository.RestaurantRepository;
+import com.ramendirectory.japanramendirectory.service.RestaurantTextStore.Kind;
+import com.ramendirectory.japanramendirectory.service.RestaurantTextStore.Text;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Materialized restaurant detail documents.
+ *
+ * <p>Assembling a {@link RestaurantDTO} reads the restaurant, its address,
+ * area and prefecture, queue method, genres, soup bases, social media links,
+ * menu and description. The store keeps the assembled JSON in
+ * restaurant_documents so the detail endpoint is a single primary key
+ * lookup. Documents are rebuilt inside the transaction that changes their
+ * source rows, so a committed write and its document are never out of step.
+ *
+ * <p>Rows that predate the table, or that were written around the services
+ * (the seed data loader, manual SQL), are filled in by a backfill job, and a
+ * nightly consistency check rebuilds every document and compares it with the
+ * stored one.
+ */
+@Service
+public class RestaurantDocumentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RestaurantDocumentStore.class);
+
+    private final RestaurantRepository restaurantRepository;
+    private final RestaurantTextStore restaurantTextStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // Sorted map keys and canonical collection order make a rebuild byte-for-byte comparable
+    private final ObjectWriter writer;
+    private final Counter missing;
+    private final Counter stale;
+
+    private final int batchSize;
+    private final boolean repair;
+
+    @Autowired
+    public RestaurantDocumentStore(RestaurantRepository restaurantRepository, RestaurantTextStore restaurantTextStore,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${app.restaurant.documents.batch-size:200}") int batchSize,
+            @Value("${app.restaurant.documents.repair:true}") boolean repair) {
+        this.restaurantRepository = restaurantRepository;
+        this.restaurantTextStore = restaurantTextStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.writer = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.missing = meterRegistry.counter("app.restaurant.documents.inconsistent", "reason", "missing");
+        this.stale = meterRegistry.counter("app.restaurant.documents.inconsistent", "reason", "stale");
+        this.batchSize = batchSize;
+        this.repair = repair;
+    }
+
+    /**
+     * The stored detail JSON of a restaurant, if it has been built.
+     */
+    public Optional<String> find(Long restaurantId) {
+        return jdbcTemplate.query("SELECT document FROM restaurant_documents WHERE restaurant_id = ?",
+                (rs, rowNum) -> rs.getString(1), restaurantId).stream().findFirst();
+    }
+
+    /**
+     * Detail JSON of several restaurants. Stored documents are read with one
+     * IN query; restaurants without one yet are assembled from one query for
+     * the restaurants and one per text kind.
+     *
+     * @return Documents by restaurant id; ids of missing restaurants are absent
+     */
+    public Map<Long, String> findAll(Collection<Long> restaurantIds) {
+        Map<Long, String> documents = new HashMap<>();
+        if (restaurantIds.isEmpty()) {
+            return documents;
+        }
+        namedJdbcTemplate.query("SELECT restaurant_id, document FROM restaurant_documents WHERE restaurant_id IN (:ids)",
+                Map.of("ids", restaurantIds),
+                rs -> {
+                    documents.put(rs.getLong(1), rs.getString(2));
+                });
+        List<Long> unbuilt = restaurantIds.stream().filter(id -> !documents.containsKey(id)).toList();
+        if (!unbuilt.isEmpty()) {
+            Map<Long, Text> menus = restaurantTextStore.findAll(unbuilt, Kind.MENU);
+            Map<Long, Text> descriptions = restaurantTextStore.findAll(unbuilt, Kind.DESCRIPTION);
+            restaurantRepository.findByIdIn(unbuilt).forEach(r -> documents.put(r.getId(),
+                    render(r, menus.get(r.getId()), descriptions.get(r.getId()))));
+        }
+        return documents;
+    }
+
+    /**
+     * Rebuild the document of a restaurant, or remove it if the restaurant
+     * is gone. Must run in the read-write transaction that made the change.
+     */
+    public void refresh(Long restaurantId) {
+        requireWriteTransaction();
+        restaurantRepository.findById(restaurantId).ifPresentOrElse(
+                restaurant -> save(restaurantId, render(restaurant)),
+                () -> delete(restaurantId));
+    }
+
+    public void refreshByAddress(Long addressId) {
+        refreshAll(restaurantRepository.findIdsByAddressId(addressId));
+    }
+
+    public void refreshByArea(Long areaId) {
+        refreshAll(restaurantRepository.findIdsByAreaId(areaId));
+    }
+
+    public void refreshByPrefecture(Long prefectureId) {
+        refreshAll(restaurantRepository.findIdsByPrefectureId(prefectureId));
+    }
+
+    public void delete(Long restaurantId) {
+        requireWriteTransaction();
+        jdbcTemplate.update("DELETE FROM restaurant_documents WHERE restaurant_id = ?", restaurantId);
+    }
+
+    /**
+     * Build documents for restaurants that have none.
+     *
+     * @return Number of documents built
+     */
+    @Scheduled(initialDelayString = "${app.restaurant.documents.backfill-initial-delay-ms:30000}",
+            fixedDelayString = "${app.restaurant.documents.backfill-interval-ms:600000}")
+    public int backfill() {
+        int built = 0;
+        try {
+            List<Long> ids;
+            do {
+                ids = transactionTemplate.execute(status -> {
+                    List<Long> batch = jdbcTemplate.queryForList("SELECT r.id FROM restaurants r "
+                            + "LEFT JOIN restaurant_documents d ON d.restaurant_id = r.id "
+                            + "WHERE d.restaurant_id IS NULL ORDER BY r.id LIMIT ?", Long.class, batchSize);
+                    refreshAll(batch);
+                    return batch;
+                });
+                built += ids.size();
+            } while (ids.size() == batchSize);
+        } catch (RuntimeException e) {
+            logger.warn("Restaurant document backfill stopped after {} documents: {}", built, e.getMessage());
+        }
+        if (built > 0) {
+            logger.info("Built {} missing restaurant documents", built);
+        }
+        return built;
+    }
+
+    @Scheduled(cron = "${app.restaurant.documents.check-cron:0 0 4 * * *}")
+    void scheduledCheck() {
+        try {
+            check(repair);
+        } catch (RuntimeException e) {
+            logger.warn("Restaurant document consistency check failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild every document from the source tables and compare it with the
+     * stored one, one batch of restaurants per transaction.
+     *
+     * @param repair Overwrite missing and stale documents with the rebuilt ones
+     */
+    public synchronized CheckReport check(boolean repair) {
+        int checked = 0;
+        int missingCount = 0;
+        int staleCount = 0;
+        long lastId = 0;
+        while (true) {
+            long after = lastId;
+            BatchResult batch = transactionTemplate.execute(status -> checkBatch(after, repair));
+            if (batch.checked() == 0) {
+                break;
+            }
+            checked += batch.checked();
+            missingCount += batch.missing();
+            staleCount += batch.stale();
+            lastId = batch.lastId();
+        }
+        missing.increment(missingCount);
+        stale.increment(staleCount);
+        if (missingCount > 0 || staleCount > 0) {
+            logger.warn("Restaurant documents: {} checked, {} missing, {} stale{}", checked, missingCount,
+                    staleCount, repair ? ", repaired" : "");
+        } else {
+            logger.info("Restaurant documents: {} checked, all consistent", checked);
+        }
+        return new CheckReport(checked, missingCount, staleCount, repair);
+    }
+
+    private BatchResult checkBatch(long afterId, boolean repair) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM restaurants WHERE id > ? ORDER BY id LIMIT ?", Long.class, afterId, batchSize);
+        int missingCount = 0;
+        int staleCount = 0;
+        for (Long id : ids) {
+            Optional<Restaurant> restaurant = restaurantRepository.findById(id);
+            if (restaurant.isEmpty()) {
+                continue;
+            }
+            String expected = render(restaurant.get());
+            Optional<String> stored = find(id);
+            if (stored.isPresent() && stored.get().equals(expected)) {
+                continue;
+            }
+            if (stored.isEmpty()) {
+                missingCount++;
+            } else {
+                staleCount++;
+                logger.debug("Restaurant document {} is stale", id);
+            }
+            if (repair) {
+                save(id, expected);
+            }
+        }
+        return new BatchResult(ids.size(), missingCount, staleCount, ids.isEmpty() ? afterId : ids.get(ids.size() - 1));
+    }
+
+    /**
+     * The detail JSON of a restaurant: {@link RestaurantDTO#fromEntity} with
+     * the full menu and description, and collections in a fixed order.
+     */
+    public String render(Restaurant restaurant) {
+        return render(restaurant, restaurantTextStore.find(restaurant.getId(), Kind.MENU).orElse(null),
+                restaurantTextStore.find(restaurant.getId(), Kind.DESCRIPTION).orElse(null));
+    }
+
+    private String render(Restaurant restaurant, Text menu, Text description) {
+        RestaurantDTO dto = RestaurantDTO.fromEntity(restaurant);
+        if (menu != null) {
+            dto.setMenuContent(menu.content());
+        }
+        if (description != null) {
+            dto.setDescription(description.content());
+        }
+        if (dto.getSoupBases() != null) {
+            EnumSet<SoupBase> soupBases = EnumSet.noneOf(SoupBase.class);
+            soupBases.addAll(dto.getSoupBases());
+            dto.setSoupBases(soupBases);
+        }
+        if (dto.getGenres() != null) {
+            dto.setGenres(dto.getGenres().stream()
+                    .sorted(Comparator.comparing(GenreDTO::getName))
+                    .collect(Collectors.toCollection(LinkedHashSet::new)));
+        }
+        if (dto.getOpeningDate() != null && !(dto.getOpeningDate() instanceof java.sql.Date)) {
+            // Serialize a date that was just written the way it reads back from the DATE column
+            dto.setOpeningDate(new java.sql.Date(dto.getOpeningDate().getTime()));
+        }
+        try {
+            return writer.writeValueAsString(dto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize restaurant " + restaurant.getId(), e);
+        }
+    }
+
+    private void refreshAll(List<Long> restaurantIds) {
+        restaurantIds.forEach(this::refresh);
+    }
+
+    private void save(Long restaurantId, String document) {
+        jdbcTemplate.update("INSERT INTO restaurant_documents (restaurant_id, document, updated_at) VALUES (?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE document = VALUES(document), updated_at = VALUES(updated_at)",
+                restaurantId, document, Timestamp.from(Instant.now()));
+    }
+
+    private static void requireWriteTransaction() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("Restaurant documents must be written in a read-write transaction");
+        }
+    }
+
+    public record CheckReport(int checked, int missing, int stale, boolean repaired) {
+    }
+
+    private record BatchResult(int checked, int missing, int stale, long lastId) {
+    }
+}
@@ -1,11 +1,16 @@
 package com.ramendirectory.japanramendirectory.service;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
 import com.ramendirectory.japanramendirectory.model.Area;
 import com.ramendirectory.japanramendirectory.model.Genre;
@@ -13,6 +18,7 @@ import com.ramendirectory.japanramendirectory.model.Prefecture;
 import com.ramendirectory.japanramendirectory.model.Restaurant;
 import com.ramendirectory.japanramendirectory.model.SoupBase;
 import com.ramendirectory.japanramendirectory.dto.GenreDTO;
+import com.ramendirectory.japanramendirectory.repository.RestaurantField;
 
 public interface RestaurantService {
     // Basic CRUD operations
@@ -45,7 +51,7 @@ public interface RestaurantService {
     List<Restaurant> findByGenre(Genre genre);
     Page<Restaurant> findByGenre(Genre genre, Pageable pageable);
     
-    // Filter method for the ranking page
+    // Filter method for the ranking page; openAt keeps restaurants open at that local time
     List<Restaurant> findWithFilters(
         Long prefectureId, 
         Long areaId,
@@ -53,6 +59,7 @@ public interface RestaurantService {
         List<SoupBase> soupBases,
         Double minScore,
         String name,
+        LocalDateTime openAt,
         String sortBy,
         Sort.Direction sortDirection,
         Pageable pageable
@@ -66,11 +73,37 @@ public interface RestaurantService {
         List<SoupBase> soupBases,
         Double minScore,
         String name,
+        LocalDateTime openAt,
         String sortBy,
         Sort.Direction sortDirection,
         Pageable pageable
     );
     
+    // Ids of the ranking's matches in ranking order, read as the stream is consumed;
+    // consume inside a transaction and close the stream
+    Stream<Long> streamIdsWithFilters(
+        Long prefectureId,
+        Long areaId,
+        List<Genre> genres,
+        List<SoupBase> soupBases,
+        Double minScore,
+        String name,
+        LocalDateTime openAt,
+        String sortBy,
+        Sort.Direction sortDirection
+    );
+    
+    // Same for any specification and order
+    Stream<Long> streamIds(Specification<Restaurant> spec, Sort sort);
+    
+    // Restaurants with everything their DTOs read, in one query and in the order of the ids;
+    // ids that no longer exist are left out
+    List<Restaurant> findAllByIds(List<Long> ids);
+    
+    // Sparse fieldsets: only the requested fields are read, nulls are left out
+    Page<Map<String, Object>> findFields(Specification<Restaurant> spec, Set<RestaurantField> fields,
+            Pageable pageable);
+    
     // Utility methods
     List<Restaurant> findTopRatedRestaurants(int limit);
     List<Area> getAllAreas();
@@ -1,38 +1,79 @@
 package com.ramendirectory.japanramendirectory.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import com.ramendirectory.japanramendirectory.model.Area;
 import com.ramendirectory.japanramendirectory.model.Genre;
 import com.ramendirectory.japanramendirectory.model.Prefecture;
 import com.ramendirectory.japanramendirectory.model.Restaurant;
 import com.ramendirectory.japanramendirectory.model.SoupBase;
+import com.ramendirectory.japanramendirectory.repository.RestaurantField;
 import com.ramendirectory.japanramendirectory.repository.RestaurantRepository;
 import com.ramendirectory.japanramendirectory.repository.RestaurantSpecification;
 import com.ramendirectory.japanramendirectory.dto.GenreDTO;
+import com.ramendirectory.japanramendirectory.service.CacheInvalidationBus.EntityType;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class RestaurantServiceImpl implements RestaurantService {
     
     private final RestaurantRepository restaurantRepository;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final RestaurantDocumentStore restaurantDocumentStore;
+    private final OpeningHoursIndex openingHoursIndex;
+    private final LegacyCollectionTables legacyCollectionTables;
+    // Distinct genres and soup bases; any restaurant write can change them
+    private final Cache<String, List<?>> lookups;
     
     @Autowired
-    public RestaurantServiceImpl(RestaurantRepository restaurantRepository) {
+    public RestaurantServiceImpl(RestaurantRepository restaurantRepository, CacheInvalidationBus cacheInvalidationBus,
+            RestaurantDocumentStore restaurantDocumentStore, OpeningHoursIndex openingHoursIndex,
+            LegacyCollectionTables legacyCollectionTables,
+            @Value("${app.service.cache-ttl:3600}") long cacheTtlSeconds) {
         this.restaurantRepository = restaurantRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.restaurantDocumentStore = restaurantDocumentStore;
+        this.openingHoursIndex = openingHoursIndex;
+        this.legacyCollectionTables = legacyCollectionTables;
+        this.lookups = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+        cacheInvalidationBus.subscribe(EntityType.RESTAURANT, id -> lookups.invalidateAll());
     }
     
     @Override
+    @Transactional
     public Restaurant createRestaurant(Restaurant restaurant) {
-        return restaurantRepository.save(restaurant);
+        Restaurant saved = restaurantRepository.save(restaurant);
+        cacheInvalidationBus.record(EntityType.RESTAURANT, saved.getId());
+        openingHoursIndex.save(saved.getId(), saved.getOpeningHours(), saved.getRestDay());
+        legacyCollectionTables.write(saved);
+        restaurantDocumentStore.refresh(saved.getId());
+        return saved;
     }
     
     @Override
@@ -51,6 +92,7 @@ public class RestaurantServiceImpl implements RestaurantService {
     }
     
     @Override
+    @Transactional
     public Optional<Restaurant> updateRestaurant(Long id, Restaurant restaurantDetails) {
         Optional<Restaurant> restaurantOptional = restaurantRepository.findById(id);
         if (restaurantOptional.isPresent()) {
@@ -64,14 +106,23 @@ public class RestaurantServiceImpl implements RestaurantService {
             restaurant.setAddress(restaurantDetails.getAddress());
             restaurant.setSeats(restaurantDetails.getSeats());
             restaurant.setSocialMediaLinks(restaurantDetails.getSocialMediaLinks());
-            return Optional.of(restaurantRepository.save(restaurant));
+            cacheInvalidationBus.record(EntityType.RESTAURANT, id);
+            Restaurant saved = restaurantRepository.save(restaurant);
+            openingHoursIndex.save(id, saved.getOpeningHours(), saved.getRestDay());
+            legacyCollectionTables.write(saved);
+            restaurantDocumentStore.refresh(id);
+            return Optional.of(saved);
         }
         return Optional.empty();
     }
     
     @Override
+    @Transactional
     public boolean deleteRestaurant(Long id) {
         if (restaurantRepository.existsById(id)) {
+            cacheInvalidationBus.record(EntityType.RESTAURANT, id);
+            restaurantDocumentStore.delete(id);
+            legacyCollectionTables.delete(id);
             restaurantRepository.deleteById(id);
             return true;
         }
@@ -160,6 +211,12 @@ public class RestaurantServiceImpl implements RestaurantService {
         return restaurantRepository.findByGenresContainingIgnoreCase(genre, pageable);
     }
     
+    @Override
+    public Page<Map<String, Object>> findFields(Specification<Restaurant> spec, Set<RestaurantField> fields,
+            Pageable pageable) {
+        return restaurantRepository.findFields(spec, fields, pageable);
+    }
+    
     @Override
     public List<Restaurant> findTopRatedRestaurants(int limit) {
         return restaurantRepository.findByOrderByScoreDesc(PageRequest.of(0, limit));
@@ -177,7 +234,7 @@ public class RestaurantServiceImpl implements RestaurantService {
     
     @Override
     public List<Genre> getAllGenres() {
-        return restaurantRepository.findAllDistinctGenres();
+        return lookup("genres", restaurantRepository::findAllDistinctGenres);
     }
     
     @Override
@@ -190,7 +247,12 @@ public class RestaurantServiceImpl implements RestaurantService {
     
     @Override
     public List<SoupBase> getAllSoupBases() {
-        return restaurantRepository.findAllSoupBases();
+        return lookup("soupBases", restaurantRepository::findAllSoupBases);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> List<T> lookup(String key, Supplier<List<T>> loader) {
+        return (List<T>) lookups.get(key, k -> List.copyOf(loader.get()));
     }
     
     @Override
@@ -201,50 +263,17 @@ public class RestaurantServiceImpl implements RestaurantService {
             List<SoupBase> soupBases,
             Double minScore,
             String name,
+            LocalDateTime openAt,
             String sortBy,
             Sort.Direction sortDirection,
             Pageable pageable) {
         
-        // Build specifications
-        Specification<Restaurant> spec = Specification.where(RestaurantSpecification.distinct());
-        
-        if (prefectureId != null) {
-            spec = spec.and(RestaurantSpecification.hasPrefecture(prefectureId));
-        }
-        
-        if (areaId != null) {
-            spec = spec.and(RestaurantSpecification.hasArea(areaId));
-        }
+        Specification<Restaurant> spec = filterSpecification(prefectureId, areaId, genres, soupBases, minScore, name);
+        Sort sort = rankingSort(sortBy, sortDirection);
         
-        if (genres != null && !genres.isEmpty()) {
-            spec = spec.and(RestaurantSpecification.hasAnyGenre(genres));
-        }
-        
-        if (soupBases != null && !soupBases.isEmpty()) {
-            spec = spec.and(RestaurantSpecification.hasAnySoupBase(soupBases));
-        }
-        
-        if (minScore != null) {
-            spec = spec.and(RestaurantSpecification.hasMinScore(minScore));
-        }
-        
-        if (name != null && !name.trim().isEmpty()) {
-            spec = spec.and(RestaurantSpecification.hasNameContaining(name));
-        }
-        
-        // Determine sorting
-        Sort sort;
-        if (sortBy == null) {
-            sort = Sort.by(Sort.Direction.DESC, "score");
-        } else {
-            Sort.Direction direction = sortDirection != null ? sortDirection : Sort.Direction.DESC;
-            switch (sortBy) {
-                case "name":
-                    sort = Sort.by(direction, "name");
-                    break;
-                default:
-                    sort = Sort.by(direction, "score");
-            }
+        if (openAt != null) {
+            List<Long> ids = openIds(spec, sort, openAt);
+            return findAllByIds(pageable != null ? pageOf(ids, pageable) : ids);
         }
         
         // Apply pagination if provided
@@ -259,19 +288,47 @@ public class RestaurantServiceImpl implements RestaurantService {
     }
     
     @Override
-    public Page<Restaurant> findWithFiltersPage(
-            Long prefectureId, 
+    public Stream<Long> streamIdsWithFilters(
+            Long prefectureId,
             Long areaId,
             List<Genre> genres,
             List<SoupBase> soupBases,
             Double minScore,
             String name,
+            LocalDateTime openAt,
             String sortBy,
-            Sort.Direction sortDirection,
-            Pageable pageable) {
-        
-        // Build specifications
-        Specification<Restaurant> spec = Specification.where(RestaurantSpecification.distinct());
+            Sort.Direction sortDirection) {
+        Stream<Long> ids = restaurantRepository.streamIds(
+                filterSpecification(prefectureId, areaId, genres, soupBases, minScore, name),
+                rankingSort(sortBy, sortDirection));
+        if (openAt == null) {
+            return ids;
+        }
+        BitSet open = openingHoursIndex.openAt(openAt);
+        return ids.filter(id -> isOpen(open, id));
+    }
+    
+    @Override
+    public Stream<Long> streamIds(Specification<Restaurant> spec, Sort sort) {
+        return restaurantRepository.streamIds(spec, sort);
+    }
+    
+    @Override
+    public List<Restaurant> findAllByIds(List<Long> ids) {
+        Map<Long, Restaurant> found = restaurantRepository.findByIdIn(ids).stream()
+                .collect(Collectors.toMap(Restaurant::getId, Function.identity()));
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+    
+    // The ranking's SQL filters; unset ones match everything. Opening hours are applied with openIds
+    private Specification<Restaurant> filterSpecification(
+            Long prefectureId,
+            Long areaId,
+            List<Genre> genres,
+            List<SoupBase> soupBases,
+            Double minScore,
+            String name) {
+        Specification<Restaurant> spec = Specification.where(null);
         
         if (prefectureId != null) {
             spec = spec.and(RestaurantSpecification.hasPrefecture(prefectureId));
@@ -297,7 +354,29 @@ public class RestaurantServiceImpl implements RestaurantService {
             spec = spec.and(RestaurantSpecification.hasNameContaining(name));
         }
         
-        // Determine sorting
+        return spec;
+    }
+    
+    /**
+     * Ids matching the SQL filters that are open at a time, in ranking order.
+     * The open set is intersected here with an id-only query rather than sent
+     * to the database as an IN list, which could name every restaurant.
+     */
+    private List<Long> openIds(Specification<Restaurant> spec, Sort sort, LocalDateTime openAt) {
+        BitSet open = openingHoursIndex.openAt(openAt);
+        return restaurantRepository.findIds(spec, sort).stream().filter(id -> isOpen(open, id)).toList();
+    }
+    
+    private static boolean isOpen(BitSet open, Long id) {
+        return id <= Integer.MAX_VALUE && open.get(id.intValue());
+    }
+    
+    private static List<Long> pageOf(List<Long> ids, Pageable pageable) {
+        int from = (int) Math.min(ids.size(), pageable.getOffset());
+        return ids.subList(from, Math.min(ids.size(), from + pageable.getPageSize()));
+    }
+    
+    private static Sort rankingSort(String sortBy, Sort.Direction sortDirection) {
         Sort sort;
         if (sortBy == null) {
             sort = Sort.by(Sort.Direction.DESC, "score");
@@ -311,10 +390,33 @@ public class RestaurantServiceImpl implements RestaurantService {
                     sort = Sort.by(direction, "score");
             }
         }
+        return sort;
+    }
+    
+    @Override
+    public Page<Restaurant> findWithFiltersPage(
+            Long prefectureId, 
+            Long areaId,
+            List<Genre> genres,
+            List<SoupBase> soupBases,
+            Double minScore,
+            String name,
+            LocalDateTime openAt,
+            String sortBy,
+            Sort.Direction sortDirection,
+            Pageable pageable) {
+        
+        Specification<Restaurant> spec = filterSpecification(prefectureId, areaId, genres, soupBases, minScore, name);
+        Sort sort = rankingSort(sortBy, sortDirection);
+        PageRequest pageRequest = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        
+        if (openAt != null) {
+            List<Long> ids = openIds(spec, sort, openAt);
+            return new PageImpl<>(findAllByIds(pageOf(ids, pageRequest)), pageRequest, ids.size());
+        }
         
         // Apply pagination with sorting
-        return restaurantRepository.findAll(spec, 
-                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort));
+        return restaurantRepository.findAll(spec, pageRequest);
     }
     
     @Override
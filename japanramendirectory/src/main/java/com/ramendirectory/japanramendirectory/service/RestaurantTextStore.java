@@ -0,0 +1,270 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ramendirectory.japanramendirectory.service.CacheInvalidationBus.EntityType;
+import com.ramendirectory.japanramendirectory.util.TextCompression;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Menu and description bodies of restaurants.
+ *
+ * <p>Bodies are stored deflated in columns the JPA entities do not map, so
+ * loading a restaurant never moves them; the entities only carry the length
+ * and a summary, which is what lists show. The full text is read here, by the
+ * endpoints that serve it and by the detail document.
+ *
+ * <p>Rows written before compression still hold plain text. They are read as
+ * they are until the compaction job has compressed them.
+ */
+@Service
+public class RestaurantTextStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RestaurantTextStore.class);
+
+    // Length of the summary column, leaving room for the ellipsis
+    private static final int MAX_SUMMARY_LENGTH = 254;
+
+    public enum Kind {
+        MENU("menus", "menu_content"),
+        DESCRIPTION("restaurant_descriptions", "content");
+
+        private final String table;
+        private final String legacyColumn;
+
+        Kind(String table, String legacyColumn) {
+            this.table = table;
+            this.legacyColumn = legacyColumn;
+        }
+
+        private String deflatedColumn() {
+            return legacyColumn + "_deflated";
+        }
+    }
+
+    /**
+     * A body with the SHA-256 of its UTF-8 bytes, which serves as its ETag.
+     */
+    public record Text(String content, String hash) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    // The document store reads texts through this store, so it is looked up lazily
+    private final ObjectProvider<RestaurantDocumentStore> restaurantDocumentStore;
+    private final Map<Kind, DistributionSummary> rawSizes = new EnumMap<>(Kind.class);
+    private final Map<Kind, DistributionSummary> storedSizes = new EnumMap<>(Kind.class);
+
+    private final int compressionLevel;
+    private final int summaryLength;
+    private final int batchSize;
+
+    @Autowired
+    public RestaurantTextStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            CacheInvalidationBus cacheInvalidationBus, ObjectProvider<RestaurantDocumentStore> restaurantDocumentStore,
+            MeterRegistry meterRegistry,
+            @Value("${app.restaurant.texts.compression-level:6}") int compressionLevel,
+            @Value("${app.restaurant.texts.summary-length:120}") int summaryLength,
+            @Value("${app.restaurant.texts.batch-size:200}") int batchSize) {
+        if (summaryLength < 1 || summaryLength > MAX_SUMMARY_LENGTH) {
+            throw new IllegalArgumentException("Summary length must be between 1 and " + MAX_SUMMARY_LENGTH);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.restaurantDocumentStore = restaurantDocumentStore;
+        for (Kind kind : Kind.values()) {
+            String name = kind.name().toLowerCase();
+            rawSizes.put(kind, DistributionSummary.builder("app.restaurant.text.size")
+                    .description("Size of restaurant text bodies as written")
+                    .baseUnit("bytes").tag("kind", name).tag("form", "raw")
+                    .register(meterRegistry));
+            storedSizes.put(kind, DistributionSummary.builder("app.restaurant.text.size")
+                    .description("Size of restaurant text bodies as written")
+                    .baseUnit("bytes").tag("kind", name).tag("form", "deflated")
+                    .register(meterRegistry));
+        }
+        this.compressionLevel = compressionLevel;
+        this.summaryLength = summaryLength;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * The full text of a restaurant's menu or description.
+     */
+    public Optional<Text> find(Long restaurantId, Kind kind) {
+        return jdbcTemplate.query("SELECT " + kind.deflatedColumn() + ", " + kind.legacyColumn + ", content_hash FROM "
+                        + kind.table + " WHERE restaurant_id = ?",
+                (rs, rowNum) -> readText(rs), restaurantId).stream().filter(text -> text != null).findFirst();
+    }
+
+    /**
+     * The full texts of the menus or descriptions of several restaurants,
+     * read with one IN query.
+     *
+     * @return Texts by restaurant id; restaurants without a body are absent
+     */
+    public Map<Long, Text> findAll(Collection<Long> restaurantIds, Kind kind) {
+        Map<Long, Text> texts = new HashMap<>();
+        if (restaurantIds.isEmpty()) {
+            return texts;
+        }
+        namedJdbcTemplate.query("SELECT " + kind.deflatedColumn() + ", " + kind.legacyColumn + ", content_hash, "
+                        + "restaurant_id FROM " + kind.table + " WHERE restaurant_id IN (:ids)",
+                Map.of("ids", restaurantIds),
+                rs -> {
+                    Text text = readText(rs);
+                    if (text != null) {
+                        texts.put(rs.getLong(4), text);
+                    }
+                });
+        return texts;
+    }
+
+    // Reads the deflated body, legacy body and hash columns, in that order
+    private static Text readText(ResultSet rs) throws SQLException {
+        byte[] deflated = rs.getBytes(1);
+        if (deflated != null) {
+            return new Text(TextCompression.inflate(deflated), rs.getString(3));
+        }
+        String legacy = rs.getString(2);
+        return legacy == null ? null : new Text(legacy, hash(legacy));
+    }
+
+    /**
+     * The hash of a compressed body, without reading the body. Empty when
+     * there is no body or it has not been compressed yet.
+     */
+    public Optional<String> findHash(Long restaurantId, Kind kind) {
+        return jdbcTemplate.queryForList("SELECT content_hash FROM " + kind.table + " WHERE restaurant_id = ?",
+                String.class, restaurantId).stream().filter(hash -> hash != null).findFirst();
+    }
+
+    /**
+     * Store the menu or description of a restaurant, creating its row if
+     * needed. Blank text removes the body. Callers that change a restaurant
+     * with a stored document refresh it in the same transaction.
+     *
+     * <p>content_length is the length in Unicode code points, the unit the
+     * summary is cut in, so an emoji counts as one.
+     */
+    @Transactional
+    public void save(Long restaurantId, Kind kind, String content) {
+        if (content == null || content.isBlank()) {
+            jdbcTemplate.update("DELETE FROM " + kind.table + " WHERE restaurant_id = ?", restaurantId);
+            return;
+        }
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        byte[] deflated = TextCompression.deflate(content, compressionLevel);
+        Timestamp now = Timestamp.from(Instant.now());
+        Object[] values = { deflated, content.codePointCount(0, content.length()), summarize(content), hash(content),
+                now, restaurantId };
+        int updated = jdbcTemplate.update("UPDATE " + kind.table + " SET " + kind.deflatedColumn() + " = ?, "
+                + kind.legacyColumn + " = NULL, content_length = ?, content_summary = ?, content_hash = ?, "
+                + "last_updated = ? WHERE restaurant_id = ?", values);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO " + kind.table + " (" + kind.deflatedColumn() + ", content_length, "
+                    + "content_summary, content_hash, last_updated, restaurant_id) VALUES (?, ?, ?, ?, ?, ?)", values);
+        }
+        rawSizes.get(kind).record(raw.length);
+        storedSizes.get(kind).record(deflated.length);
+    }
+
+    /**
+     * Compress bodies still stored as plain text, one batch per transaction.
+     * Blank bodies are cleared rather than saved, which would delete the row.
+     * The length and summary columns change with the body, so each batch
+     * records the restaurants it touched and refreshes their documents.
+     *
+     * @return Number of bodies compressed
+     */
+    @Scheduled(initialDelayString = "${app.restaurant.texts.compact-initial-delay-ms:20000}",
+            fixedDelayString = "${app.restaurant.texts.compact-interval-ms:600000}")
+    public int compact() {
+        int compacted = 0;
+        try {
+            for (Kind kind : Kind.values()) {
+                int count;
+                do {
+                    count = transactionTemplate.execute(status -> {
+                        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT restaurant_id, "
+                                + kind.legacyColumn + " AS content FROM " + kind.table + " WHERE "
+                                + kind.deflatedColumn() + " IS NULL AND " + kind.legacyColumn + " IS NOT NULL "
+                                + "ORDER BY restaurant_id LIMIT ?", batchSize);
+                        rows.forEach(row -> {
+                            Long restaurantId = ((Number) row.get("restaurant_id")).longValue();
+                            String content = (String) row.get("content");
+                            if (content.isBlank()) {
+                                jdbcTemplate.update("UPDATE " + kind.table + " SET " + kind.legacyColumn
+                                        + " = NULL WHERE restaurant_id = ?", restaurantId);
+                            } else {
+                                save(restaurantId, kind, content);
+                            }
+                            cacheInvalidationBus.record(EntityType.RESTAURANT, restaurantId);
+                            restaurantDocumentStore.getObject().refresh(restaurantId);
+                        });
+                        return rows.size();
+                    });
+                    compacted += count;
+                } while (count == batchSize);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Restaurant text compaction stopped after {} bodies: {}", compacted, e.getMessage());
+        }
+        if (compacted > 0) {
+            logger.info("Compressed {} restaurant text bodies", compacted);
+        }
+        return compacted;
+    }
+
+    /**
+     * The start of a text on one line, cut at a code point boundary.
+     */
+    String summarize(String content) {
+        String line = content.strip().replaceAll("\\s+", " ");
+        if (line.codePointCount(0, line.length()) <= summaryLength) {
+            return line;
+        }
+        return line.substring(0, line.offsetByCodePoints(0, summaryLength)).stripTrailing() + "…";
+    }
+
+    private static String hash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
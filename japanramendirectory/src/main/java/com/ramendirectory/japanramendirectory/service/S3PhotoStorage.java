@@ -0,0 +1,213 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetUrlRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+
+/**
+ * Photo storage in an S3 bucket. Presigned uploads sign the content length
+ * and the SHA-256 checksum, so S3 itself rejects a body that does not match
+ * what the client announced.
+ */
+public class S3PhotoStorage implements PhotoStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3PhotoStorage.class);
+
+    private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
+    private final String bucketName;
+    private final String publicBaseUrl;
+
+    /**
+     * @param publicBaseUrl Base of the URLs handed out for stored photos, or
+     *        blank to link to the bucket directly
+     */
+    public S3PhotoStorage(S3Client s3Client, S3Presigner s3Presigner, String bucketName, String publicBaseUrl) {
+        this.s3Client = s3Client;
+        this.s3Presigner = s3Presigner;
+        this.bucketName = bucketName;
+        this.publicBaseUrl = publicBaseUrl == null || publicBaseUrl.isBlank() ? null : stripSlash(publicBaseUrl);
+    }
+
+    @Override
+    public void put(String key, byte[] content, String contentType) {
+        s3Client.putObject(PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build(), RequestBody.fromBytes(content));
+    }
+
+    @Override
+    public String getUrl(String key) {
+        if (publicBaseUrl != null) {
+            return publicBaseUrl + "/" + key;
+        }
+        return s3Client.utilities().getUrl(GetUrlRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build()).toString();
+    }
+
+    @Override
+    public PresignedUpload presignUpload(String key, String contentType, long contentLength, String sha256Hex,
+            Duration ttl) {
+        PutObjectRequest putRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .checksumSHA256(Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256Hex)))
+                .build();
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(ttl)
+                .putObjectRequest(putRequest)
+                .build());
+
+        // The client has to send every signed header except host, which its HTTP library sets
+        Map<String, String> headers = new LinkedHashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            if (!"host".equalsIgnoreCase(name)) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return new PresignedUpload(presigned.url().toString(), "PUT", headers, presigned.expiration());
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) {
+        try {
+            HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .checksumMode(ChecksumMode.ENABLED)
+                    .build());
+            String sha256Hex = head.checksumSHA256() == null ? null
+                    : HexFormat.of().formatHex(Base64.getDecoder().decode(head.checksumSHA256()));
+            return Optional.of(new StoredObject(head.contentLength(), head.contentType(), sha256Hex));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public byte[] readPrefix(String key, int maxBytes) throws IOException {
+        return s3Client.getObjectAsBytes(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range("bytes=0-" + (maxBytes - 1))
+                .build()).asByteArray();
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+
+    @Override
+    public void delete(String key) {
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+
+    @Override
+    public void deleteAll(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (keys.size() > MAX_DELETE_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_DELETE_BATCH + " keys per delete request");
+        }
+        List<ObjectIdentifier> objects = keys.stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+        DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder().objects(objects).quiet(true).build())
+                .build());
+        if (response.hasErrors() && !response.errors().isEmpty()) {
+            response.errors().forEach(error ->
+                    logger.warn("Could not delete {}: {} {}", error.key(), error.code(), error.message()));
+            throw new IllegalStateException(response.errors().size() + " of " + keys.size() + " deletes failed");
+        }
+    }
+
+    @Override
+    public void list(String prefix, Consumer<ListedObject> consumer) {
+        s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                        .bucket(bucketName)
+                        .prefix(prefix)
+                        .build())
+                .contents()
+                .forEach(object -> consumer.accept(new ListedObject(object.key(), object.size(), object.lastModified())));
+    }
+
+    @Override
+    public Optional<String> keyOf(String url) {
+        if (url == null) {
+            return Optional.empty();
+        }
+        if (publicBaseUrl != null && url.startsWith(publicBaseUrl + "/")) {
+            return Optional.of(url.substring(publicBaseUrl.length() + 1));
+        }
+        // Bucket URLs are https://<bucket>.s3.<region>.amazonaws.com/<key> or https://s3.<region>.amazonaws.com/<bucket>/<key>
+        try {
+            URI uri = URI.create(url);
+            String path = uri.getPath();
+            if (uri.getHost() == null || path == null || path.length() < 2) {
+                return Optional.empty();
+            }
+            if (uri.getHost().startsWith(bucketName + ".")) {
+                return Optional.of(path.substring(1));
+            }
+            if (path.startsWith("/" + bucketName + "/")) {
+                return Optional.of(path.substring(bucketName.length() + 2));
+            }
+            return Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static String stripSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
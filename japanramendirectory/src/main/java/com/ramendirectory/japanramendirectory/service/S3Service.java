@@ -1,45 +1,76 @@
 package com.ramendirectory.japanramendirectory.service;
 
 import java.io.IOException;
-import java.net.URL;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.ramendirectory.japanramendirectory.dto.PhotoUploadSlotDTO;
+
 import com.ramendirectory.japanramendirectory.model.Comment;
+import com.ramendirectory.japanramendirectory.model.PhotoObject;
 import com.ramendirectory.japanramendirectory.repository.CommentRepository;
+import com.ramendirectory.japanramendirectory.repository.PhotoObjectRepository;
 
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetUrlRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import io.micrometer.core.instrument.MeterRegistry;
 
+/**
+ * Stores comment photos. Photos either pass through the backend as multipart
+ * uploads, or go straight from the client to storage through presigned upload
+ * slots and are attached once the client reports them complete.
+ */
 @Service
 public class S3Service {
     
     private static final Logger logger = LoggerFactory.getLogger(S3Service.class);
+    private static final Pattern PHOTO_KEY = Pattern.compile("photos/([0-9a-f]{2})/(\\1[0-9a-f]{62})\\.(jpg|png)");
     
     @Autowired
-    private S3Client s3Client;
+    private PhotoStorage photoStorage;
     
     @Autowired
     private CommentRepository commentRepository;
     
-    @Value("${aws.s3.bucket-name}")
-    private String bucketName;
+    @Autowired
+    private PhotoObjectRepository photoObjectRepository;
+    
+    @Autowired
+    private ImageVariantService imageVariantService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
     
     @Value("${app.comment.allowed-content-types}")
     private String allowedContentTypes;
     
+    @Value("${app.comment.max-photos}")
+    private int maxPhotosPerComment;
+    
+    @Value("${spring.servlet.multipart.max-file-size:10MB}")
+    private DataSize maxFileSize;
+    
+    @Value("${app.photo.upload-url-ttl-seconds:300}")
+    private long uploadUrlTtlSeconds;
+    
     /**
-     * Upload a file to S3 and return the public URL.
+     * Upload a file to storage and return the public URL. Photos are stored under
+     * the SHA-256 of their content, so a photo that was uploaded before is
+     * reused instead of being transferred and stored again.
      * 
      * @param file The file to upload
      * @param userId The ID of the user uploading the file
@@ -58,45 +89,168 @@ public class S3Service {
             throw new IllegalArgumentException("Invalid content type. Allowed types: " + allowedContentTypes);
         }
         
-        // Generate unique file name to avoid collisions
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        // Hash the content while reading it
+        MessageDigest digest = sha256();
+        byte[] content;
+        try (DigestInputStream input = new DigestInputStream(file.getInputStream(), digest)) {
+            content = input.readAllBytes();
         }
+        String contentHash = HexFormat.of().formatHex(digest.digest());
         
-        // Create a unique key with timestamp and UUID to avoid collisions
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String uniqueKey = "comments/" + userId + "/" + commentId + "/" + timestamp + "_" + UUID.randomUUID() + extension;
-        
-        logger.info("Uploading file to S3: {}", uniqueKey);
+        PhotoObject photoObject = photoObjectRepository.findByContentHash(contentHash).orElse(null);
+        if (photoObject != null) {
+            logger.info("Photo {} already stored, reusing {}", contentHash, photoObject.getObjectKey());
+            meterRegistry.counter("app.photo.uploads", "result", "deduplicated").increment();
+            meterRegistry.counter("app.photo.bytes.saved").increment(content.length);
+        } else {
+            photoObject = storePhotoObject(contentHash, content, contentType, userId, commentId);
+        }
         
-        // Upload file to S3
-        PutObjectRequest request = PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key(uniqueKey)
-                .contentType(contentType)
-                .build();
+        // Add the photo URL to the comment
+        addPhotoToComment(commentId, photoObject.getUrl());
         
-        s3Client.putObject(request, RequestBody.fromBytes(file.getBytes()));
+        return photoObject.getUrl();
+    }
+    
+    /**
+     * Upload new content under its hash and record it. Two concurrent uploads
+     * of the same content write the same key, so the loser of the insert race
+     * simply uses the winner's row.
+     */
+    private PhotoObject storePhotoObject(String contentHash, byte[] content, String contentType,
+            Long userId, Long commentId) {
+        String key = photoKey(contentHash, contentType);
         
-        // Generate the public URL for the file
-        URL url = s3Client.utilities().getUrl(GetUrlRequest.builder()
-                .bucket(bucketName)
-                .key(uniqueKey)
-                .build());
+        logger.info("Uploading file to storage: {} (user {}, comment {})", key, userId, commentId);
+        photoStorage.put(key, content, contentType);
         
-        String photoUrl = url.toString();
+        String photoUrl = photoStorage.getUrl(key);
         logger.info("File uploaded successfully. URL: {}", photoUrl);
+        meterRegistry.counter("app.photo.uploads", "result", "stored").increment();
         
-        // Add the photo URL to the comment
-        addPhotoToComment(commentId, photoUrl);
+        PhotoObject photoObject = recordPhotoObject(new PhotoObject(contentHash, key, photoUrl, contentType, content.length));
+        
+        // Downscaled renditions are produced in the background
+        imageVariantService.generateVariantsAsync(key, photoUrl, content, contentType);
         
-        return photoUrl;
+        return photoObject;
+    }
+    
+    private PhotoObject recordPhotoObject(PhotoObject photoObject) {
+        try {
+            return photoObjectRepository.save(photoObject);
+        } catch (DataIntegrityViolationException e) {
+            return photoObjectRepository.findByContentHash(photoObject.getContentHash()).orElseThrow(() -> e);
+        }
     }
     
     /**
-     * Add a photo URL to a comment
+     * Issue an upload slot for one photo. Content that is already stored gets
+     * no upload URL, so the client skips the transfer entirely.
+     * 
+     * @param sha256 The hex SHA-256 of the file, computed by the client
+     * @param contentType The content type the file will be uploaded with
+     * @param size The exact size of the file in bytes
+     * @return The slot the client uploads to
+     * @throws IllegalArgumentException If the type, size or checksum is invalid
+     */
+    public PhotoUploadSlotDTO createUploadSlot(String sha256, String contentType, long size) {
+        if (sha256 == null || !sha256.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("SHA-256 must be 64 lowercase hex characters");
+        }
+        if (contentType == null || !isAllowedContentType(contentType)) {
+            throw new IllegalArgumentException("Invalid content type. Allowed types: " + allowedContentTypes);
+        }
+        if (size <= 0 || size > maxFileSize.toBytes()) {
+            throw new IllegalArgumentException("File size must be between 1 byte and " + maxFileSize);
+        }
+        
+        Optional<PhotoObject> existing = photoObjectRepository.findByContentHash(sha256);
+        if (existing.isPresent()) {
+            meterRegistry.counter("app.photo.uploads", "result", "deduplicated").increment();
+            meterRegistry.counter("app.photo.bytes.saved").increment(size);
+            return PhotoUploadSlotDTO.stored(sha256, existing.get().getObjectKey());
+        }
+        
+        String key = photoKey(sha256, contentType);
+        PhotoStorage.PresignedUpload upload = photoStorage.presignUpload(key, contentType, size, sha256,
+                Duration.ofSeconds(uploadUrlTtlSeconds));
+        return PhotoUploadSlotDTO.upload(sha256, key, upload.url(), upload.method(), upload.headers(),
+                upload.expiresAt());
+    }
+    
+    /**
+     * Attach a photo the client uploaded through a slot. The stored object is
+     * checked before it is used: the checksum storage verified must match the
+     * key, and the size, content type and leading bytes must be those of an
+     * allowed image.
+     * 
+     * @param commentId The ID of the comment to attach the photo to
+     * @param key The key of the upload slot
+     * @return The public URL of the photo
+     * @throws IllegalArgumentException If the upload is missing or invalid, or the comment is full
+     */
+    public String completeUpload(Long commentId, String key) throws IOException {
+        Matcher matcher = key == null ? null : PHOTO_KEY.matcher(key);
+        if (matcher == null || !matcher.matches()) {
+            throw new IllegalArgumentException("Invalid upload key");
+        }
+        String sha256 = matcher.group(2);
+        
+        PhotoObject photoObject = photoObjectRepository.findByContentHash(sha256).orElse(null);
+        if (photoObject == null) {
+            PhotoStorage.StoredObject stored = photoStorage.stat(key)
+                    .orElseThrow(() -> new IllegalArgumentException("Upload not found, it may not have finished"));
+            if (!sha256.equals(stored.sha256Hex())) {
+                throw new IllegalArgumentException("Uploaded content does not match its checksum");
+            }
+            if (stored.size() > maxFileSize.toBytes()) {
+                throw new IllegalArgumentException("File exceeds " + maxFileSize);
+            }
+            if (stored.contentType() == null || !isAllowedContentType(stored.contentType())) {
+                throw new IllegalArgumentException("Invalid content type. Allowed types: " + allowedContentTypes);
+            }
+            if (!hasImageSignature(photoStorage.readPrefix(key, 8), matcher.group(3))) {
+                throw new IllegalArgumentException("Uploaded file is not a valid image");
+            }
+            
+            String photoUrl = photoStorage.getUrl(key);
+            photoObject = recordPhotoObject(
+                    new PhotoObject(sha256, key, photoUrl, stored.contentType(), stored.size()));
+            meterRegistry.counter("app.photo.uploads", "result", "direct").increment();
+            imageVariantService.generateVariantsAsync(key, photoUrl, stored.contentType());
+        }
+        
+        Comment comment = commentRepository.findById(commentId)
+                .orElseThrow(() -> new IllegalArgumentException("Comment not found"));
+        if (!comment.getPhotos().contains(photoObject.getUrl()) && comment.getPhotos().size() >= maxPhotosPerComment) {
+            throw new IllegalArgumentException("Maximum " + maxPhotosPerComment + " photos allowed per comment");
+        }
+        addPhotoToComment(commentId, photoObject.getUrl());
+        
+        return photoObject.getUrl();
+    }
+    
+    private static String photoKey(String contentHash, String contentType) {
+        String extension = "image/png".equalsIgnoreCase(contentType) ? ".png" : ".jpg";
+        return "photos/" + contentHash.substring(0, 2) + "/" + contentHash + extension;
+    }
+    
+    /**
+     * Check the magic bytes of a JPEG (FF D8 FF) or PNG (89 'PNG' CR LF).
+     */
+    private static boolean hasImageSignature(byte[] prefix, String extension) {
+        if ("png".equals(extension)) {
+            return prefix.length >= 8 && (prefix[0] & 0xFF) == 0x89 && prefix[1] == 'P' && prefix[2] == 'N'
+                    && prefix[3] == 'G' && prefix[4] == '\r' && prefix[5] == '\n';
+        }
+        return prefix.length >= 3 && (prefix[0] & 0xFF) == 0xFF && (prefix[1] & 0xFF) == 0xD8
+                && (prefix[2] & 0xFF) == 0xFF;
+    }
+    
+    /**
+     * Add a photo URL to a comment. Adding a URL the comment already has (a
+     * retried upload) does nothing.
      * 
      * @param commentId The ID of the comment to add the photo to
      * @param photoUrl The URL of the photo to add
@@ -105,11 +259,25 @@ public class S3Service {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new IllegalArgumentException("Comment not found"));
         
+        if (comment.getPhotos() != null && comment.getPhotos().contains(photoUrl)) {
+            logger.info("Comment {} already has photo {}", commentId, photoUrl);
+            return;
+        }
+        
         comment.addPhoto(photoUrl);
         commentRepository.save(comment);
+        photoObjectRepository.incrementRefCount(photoUrl, LocalDateTime.now());
         logger.info("Added photo URL to comment {}: {}", commentId, photoUrl);
     }
     
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
     /**
      * Check if the content type is allowed.
      * 
@@ -0,0 +1,181 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+
+import com.ramendirectory.japanramendirectory.config.StatementCounter.Tally;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Checks the JDBC statements of each request against a budget and keeps
+ * the endpoints that went over it.
+ *
+ * <p>A request is over budget when it runs more statements than its
+ * endpoint allows, or runs one statement shape more often than allowed; the
+ * latter is the usual sign of an N+1 over a lazy association. Budgets
+ * default to app.statement-budget.max-statements and max-repeats and can be
+ * set per endpoint with app.statement-budget.overrides, a comma separated
+ * list of "[METHOD ]pattern=statements[/repeats]" or "[METHOD ]pattern=off".
+ * Patterns are Ant patterns matched against the route template.
+ */
+@Service
+public class StatementBudgetMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementBudgetMonitor.class);
+
+    // Statement shapes kept in an offender's worst sample
+    private static final int SAMPLE_SHAPES = 5;
+
+    public record Budget(int maxStatements, int maxRepeats) {
+
+        static final Budget UNLIMITED = new Budget(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * An endpoint that went over its budget, with the worst request seen.
+     */
+    public record Offender(String endpoint, Budget budget, long violations, int worstStatements,
+            int worstRepeats, Map<String, Integer> worstShapes, Instant lastSeen) {
+    }
+
+    private record EndpointBudget(String method, String pattern, Budget budget) {
+    }
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Budget defaultBudget;
+    private final List<EndpointBudget> overrides;
+    private final boolean failOnExceed;
+    private final Map<String, Offender> offenders = new ConcurrentHashMap<>();
+    private final DistributionSummary statementsPerRequest;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public StatementBudgetMonitor(MeterRegistry meterRegistry,
+            @Value("${app.statement-budget.max-statements:30}") int maxStatements,
+            @Value("${app.statement-budget.max-repeats:5}") int maxRepeats,
+            @Value("${app.statement-budget.overrides:}") String overrides,
+            @Value("${app.statement-budget.fail-on-exceed:false}") boolean failOnExceed) {
+        this.defaultBudget = new Budget(maxStatements, maxRepeats);
+        this.overrides = parse(overrides, defaultBudget);
+        this.failOnExceed = failOnExceed;
+        this.meterRegistry = meterRegistry;
+        this.statementsPerRequest = DistributionSummary.builder("app.request.statements")
+                .description("JDBC statements run by one HTTP request")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record the statements of a finished request.
+     *
+     * @param route Route template, e.g. "/api/restaurants/{id}"
+     * @throws IllegalStateException in test mode (fail-on-exceed) when the
+     *         request went over its budget
+     */
+    public void check(String method, String route, Tally tally) {
+        statementsPerRequest.record(tally.getStatements());
+        Budget budget = budgetFor(method, route);
+        int repeats = tally.getMaxRepeats();
+        if (tally.getStatements() <= budget.maxStatements() && repeats <= budget.maxRepeats()) {
+            return;
+        }
+        String endpoint = method + " " + route;
+        Counter.builder("app.statement-budget.exceeded")
+                .description("Requests that ran more statements than their endpoint's budget")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .increment();
+        Offender offender = offenders.compute(endpoint, (key, old) -> {
+            if (old == null || tally.getStatements() > old.worstStatements()) {
+                return new Offender(endpoint, budget, old == null ? 1 : old.violations() + 1, tally.getStatements(),
+                        repeats, topShapes(tally), Instant.now());
+            }
+            return new Offender(endpoint, budget, old.violations() + 1, old.worstStatements(), old.worstRepeats(),
+                    old.worstShapes(), Instant.now());
+        });
+        String message = String.format("%s ran %d statements (budget %d), one shape %d times (budget %d)",
+                endpoint, tally.getStatements(), budget.maxStatements(), repeats, budget.maxRepeats());
+        if (offender.violations() == 1) {
+            logger.warn("Statement budget exceeded: {}", message);
+        } else {
+            logger.debug("Statement budget exceeded: {}", message);
+        }
+        if (failOnExceed) {
+            throw new IllegalStateException("Statement budget exceeded: " + message + "; most run: "
+                    + topShapes(tally));
+        }
+    }
+
+    /**
+     * Endpoints that went over their budget, most violations first.
+     */
+    public List<Offender> getOffenders() {
+        List<Offender> sorted = new ArrayList<>(offenders.values());
+        sorted.sort(Comparator.comparingLong(Offender::violations).reversed());
+        return sorted;
+    }
+
+    public void reset() {
+        offenders.clear();
+    }
+
+    Budget budgetFor(String method, String route) {
+        for (EndpointBudget override : overrides) {
+            if ((override.method() == null || override.method().equalsIgnoreCase(method))
+                    && pathMatcher.match(override.pattern(), route)) {
+                return override.budget();
+            }
+        }
+        return defaultBudget;
+    }
+
+    private static Map<String, Integer> topShapes(Tally tally) {
+        Map<String, Integer> top = new LinkedHashMap<>();
+        tally.getShapes().entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(SAMPLE_SHAPES)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    private static List<EndpointBudget> parse(String overrides, Budget defaultBudget) {
+        List<EndpointBudget> parsed = new ArrayList<>();
+        for (String entry : overrides.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int equals = entry.lastIndexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Statement budget override without '=': " + entry);
+            }
+            String[] target = entry.substring(0, equals).trim().split("\\s+");
+            String value = entry.substring(equals + 1).trim();
+            Budget budget;
+            if (value.equals("off")) {
+                budget = Budget.UNLIMITED;
+            } else {
+                String[] limits = value.split("/");
+                budget = new Budget(Integer.parseInt(limits[0]),
+                        limits.length > 1 ? Integer.parseInt(limits[1]) : defaultBudget.maxRepeats());
+            }
+            parsed.add(target.length == 1
+                    ? new EndpointBudget(null, target[0], budget)
+                    : new EndpointBudget(target[0], target[1], budget));
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,107 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Writes large list responses as a JSON array while the rows are read from
+ * the database, instead of building the whole list of entities and DTOs
+ * first. Rows are taken from a lazy stream a chunk at a time
+ * (app.streaming.chunk-size), mapped to DTOs, written straight to the
+ * response's JsonGenerator and flushed, and the persistence context is
+ * cleared before the next chunk. Memory per response stays at one chunk
+ * however many rows match.
+ *
+ * <p>The response is written after the controller returns, on an MVC async
+ * thread, inside its own read-only transaction. The status is sent with the
+ * first chunk, so an error after it cuts the array short rather than
+ * turning into an error response.
+ */
+@Service
+public class StreamingJsonWriter {
+
+    private final ObjectWriter writer;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public StreamingJsonWriter(ObjectMapper objectMapper, EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.streaming.chunk-size:100}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("app.streaming.chunk-size must be positive: " + chunkSize);
+        }
+        this.objectMapper = objectMapper;
+        // Flushed once per chunk, not after every row
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * A response body writing one JSON array element per row.
+     *
+     * @param rows   Opens the stream of rows; called when the body is written,
+     *               inside the transaction, and closed after the last row
+     * @param mapper Maps a chunk of rows to the objects written for them, in
+     *               order; a chunk may map to fewer objects than rows
+     */
+    public <R> StreamingResponseBody array(Supplier<Stream<R>> rows, Function<List<R>, List<?>> mapper) {
+        return outputStream -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(rows, mapper, outputStream));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    private <R> void write(Supplier<Stream<R>> rows, Function<List<R>, List<?>> mapper, OutputStream outputStream) {
+        try (Stream<R> stream = rows.get(); JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+            // The servlet container closes the response stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            List<R> chunk = new ArrayList<>(chunkSize);
+            Iterator<R> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    for (Object element : mapper.apply(chunk)) {
+                        writer.writeValue(generator, element);
+                    }
+                    generator.flush();
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
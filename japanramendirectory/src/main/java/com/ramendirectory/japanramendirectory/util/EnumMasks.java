@@ -0,0 +1,64 @@
+package com.ramendirectory.japanramendirectory.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Sets of a small enum as an int, with bit n standing for the constant of
+ * ordinal n. Constants may only be added at the end of such an enum.
+ */
+public class EnumMasks {
+
+    // 2^10 - 1 masks at most, a list a database still plans as an index lookup
+    private static final int MAX_INTERSECTING_WIDTH = 10;
+
+    private EnumMasks() {
+    }
+
+    public static <E extends Enum<E>> int of(Collection<E> values) {
+        int mask = 0;
+        for (E value : values) {
+            mask |= 1 << value.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * The constants whose bits are set. Bits without a constant are ignored.
+     */
+    public static <E extends Enum<E>> EnumSet<E> toSet(int mask, Class<E> type) {
+        EnumSet<E> set = EnumSet.noneOf(type);
+        for (E constant : type.getEnumConstants()) {
+            if ((mask & (1 << constant.ordinal())) != 0) {
+                set.add(constant);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Every mask that shares a bit with the given values. A column of masks
+     * is matched with IN over this list, which an index on the column can
+     * serve, where (column &amp; mask) != 0 always reads every row. The list
+     * doubles with every constant, so enums are limited to
+     * {@value #MAX_INTERSECTING_WIDTH} constants.
+     *
+     * @throws IllegalArgumentException if the enum has more constants
+     */
+    public static <E extends Enum<E>> List<Integer> intersecting(Collection<E> values, Class<E> type) {
+        int mask = of(values);
+        int width = type.getEnumConstants().length;
+        if (width > MAX_INTERSECTING_WIDTH) {
+            throw new IllegalArgumentException(type.getSimpleName() + " has too many constants to match masks with IN");
+        }
+        List<Integer> masks = new ArrayList<>();
+        for (int candidate = 1; candidate < 1 << width; candidate++) {
+            if ((candidate & mask) != 0) {
+                masks.add(candidate);
+            }
+        }
+        return masks;
+    }
+}
@@ -0,0 +1,144 @@
+package com.ramendirectory.japanramendirectory.util;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Parses the free text opening hours and rest days of a restaurant, such as
+ * "11:00-15:00, 17:30-20:00" and "每週三，週五", into weekly intervals.
+ *
+ * Times are minutes of the week from Monday 00:00. An interval that runs past
+ * midnight ("11:00-深夜01:00", "18:00-25:00") belongs to the day it opens and
+ * may end after the end of Sunday; users of the intervals wrap it around.
+ * Rest days that only apply to some weeks of the month ("第三個週二") cannot
+ * be expressed weekly and are ignored.
+ */
+public class OpeningHoursParser {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private static final Pattern RANGE = Pattern.compile(
+            "(?:深夜|翌)?(\\d{1,2})[:：](\\d{2})[-~～〜－](?:深夜|翌)?(\\d{1,2})[:：](\\d{2})");
+    private static final Pattern DAY = Pattern.compile("(?:週|周|星期|禮拜)([一二三四五六日天])");
+    private static final Set<String> ALL_DAY = Set.of("24小時營業", "24小時", "24h", "24H");
+    private static final Set<String> NO_FIXED_REST_DAY = Set.of("無休", "年中無休", "全年無休", "不定休");
+    private static final Set<String> HOLIDAYS = Set.of("國定假日", "假日", "祝日", "祝祭日");
+
+    public record Interval(int opensAt, int closesAt) {
+    }
+
+    private OpeningHoursParser() {
+    }
+
+    /**
+     * Weekly intervals in which a restaurant is open, sorted by opening time.
+     *
+     * @throws IllegalArgumentException if either text is not understood
+     */
+    public static List<Interval> parse(String openingHours, String restDay) {
+        List<int[]> daily = parseDaily(openingHours);
+        Set<DayOfWeek> restDays = parseRestDays(restDay);
+        List<Interval> intervals = new ArrayList<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (restDays.contains(day)) {
+                continue;
+            }
+            int dayStart = (day.getValue() - 1) * MINUTES_PER_DAY;
+            for (int[] range : daily) {
+                intervals.add(new Interval(dayStart + range[0], dayStart + range[1]));
+            }
+        }
+        intervals.sort(Comparator.comparingInt(Interval::opensAt));
+        return intervals;
+    }
+
+    private static List<int[]> parseDaily(String openingHours) {
+        if (!StringUtils.hasText(openingHours)) {
+            throw new IllegalArgumentException("No opening hours");
+        }
+        String text = openingHours.replaceAll("\\s", "");
+        if (ALL_DAY.contains(text)) {
+            return List.of(new int[] { 0, MINUTES_PER_DAY });
+        }
+        List<int[]> ranges = new ArrayList<>();
+        for (String token : text.split("[,，、/／;；]")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            Matcher matcher = RANGE.matcher(token);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Unknown opening hours: " + token);
+            }
+            int opens = minutes(matcher.group(1), matcher.group(2));
+            int closes = minutes(matcher.group(3), matcher.group(4));
+            if (opens >= MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("Opening time past midnight: " + token);
+            }
+            if (closes <= opens) {
+                closes += MINUTES_PER_DAY;
+            }
+            if (closes - opens > MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("Opening hours longer than a day: " + token);
+            }
+            ranges.add(new int[] { opens, closes });
+        }
+        if (ranges.isEmpty()) {
+            throw new IllegalArgumentException("No opening hours");
+        }
+        return ranges;
+    }
+
+    private static Set<DayOfWeek> parseRestDays(String restDay) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        if (!StringUtils.hasText(restDay)) {
+            return days;
+        }
+        String text = restDay.replaceAll("\\s", "");
+        if (NO_FIXED_REST_DAY.contains(text)) {
+            return days;
+        }
+        for (String token : text.split("[,，、/／;；和及與]")) {
+            String day = token.startsWith("每") ? token.substring(1) : token;
+            if (day.isEmpty() || day.startsWith("第") || HOLIDAYS.contains(day)) {
+                continue;
+            }
+            Matcher matcher = DAY.matcher(day);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Unknown rest day: " + token);
+            }
+            days.add(dayOfWeek(matcher.group(1).charAt(0)));
+        }
+        return days;
+    }
+
+    private static int minutes(String hours, String minutes) {
+        int h = Integer.parseInt(hours);
+        int m = Integer.parseInt(minutes);
+        // Japanese listings write late closing times as 25:00, 26:00...
+        if (h > 30 || m >= 60) {
+            throw new IllegalArgumentException("Invalid time " + hours + ":" + minutes);
+        }
+        return h * 60 + m;
+    }
+
+    private static DayOfWeek dayOfWeek(char day) {
+        return switch (day) {
+            case '一' -> DayOfWeek.MONDAY;
+            case '二' -> DayOfWeek.TUESDAY;
+            case '三' -> DayOfWeek.WEDNESDAY;
+            case '四' -> DayOfWeek.THURSDAY;
+            case '五' -> DayOfWeek.FRIDAY;
+            case '六' -> DayOfWeek.SATURDAY;
+            default -> DayOfWeek.SUNDAY;
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.ramendirectory.japanramendirectory.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * The shape of a SQL statement: the text with its literals replaced by ?,
+ * so statements that differ only in their values compare equal.
+ */
+public class SqlShapes {
+
+    private static final int MAX_LENGTH = 500;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlShapes() {
+    }
+
+    /**
+     * Replace string and number literals with ?, collapse lists of
+     * parameters such as IN (?, ?, ?) to (?...) and whitespace to one space.
+     * Shapes longer than {@value #MAX_LENGTH} characters are cut.
+     */
+    public static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?...)");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").strip();
+        return shape.length() > MAX_LENGTH ? shape.substring(0, MAX_LENGTH) + "…" : shape;
+    }
+}
@@ -0,0 +1,139 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Copies restaurant_genres, restaurant_soup_bases and
+ * restaurant_social_media_links into the columns added by V13: masks with
+ * the bits below, and links as a JSON object with sorted platforms.
+ *
+ * <p>The bits are frozen here rather than taken from the enums, so the
+ * migration means the same thing whatever the enums become. Values without
+ * a bit are logged and left out. Restaurants are copied in pages of
+ * {@value #BATCH_SIZE} by id, each page committed on its own; copying again
+ * gives the same result, so a failed run can simply be repeated.
+ */
+public class V14__Copy_restaurant_collections extends BaseJavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(V14__Copy_restaurant_collections.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final Map<String, Integer> GENRE_BITS = Map.of(
+            "RAMEN", 0, "TSUKEMEN", 1, "VEGETARIAN", 2, "TANTANMEN", 3, "OTHER", 4);
+
+    private static final Map<String, Integer> SOUP_BASE_BITS = Map.of(
+            "醬油", 0, "味噌", 1, "豚骨", 2, "鹽味", 3, "魚介", 4, "其他", 5);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        // A connection already inside a transaction is committed by its owner
+        boolean commitPages = connection.getAutoCommit();
+        if (commitPages) {
+            connection.setAutoCommit(false);
+        }
+        try (PreparedStatement page = connection.prepareStatement(
+                        "SELECT id FROM restaurants WHERE id > ? ORDER BY id LIMIT " + BATCH_SIZE);
+                PreparedStatement genres = connection.prepareStatement("SELECT restaurant_id, genre "
+                        + "FROM restaurant_genres WHERE restaurant_id BETWEEN ? AND ? AND genre IS NOT NULL");
+                PreparedStatement soupBases = connection.prepareStatement("SELECT restaurant_id, soup_base "
+                        + "FROM restaurant_soup_bases WHERE restaurant_id BETWEEN ? AND ? AND soup_base IS NOT NULL");
+                PreparedStatement links = connection.prepareStatement("SELECT restaurant_id, platform, url "
+                        + "FROM restaurant_social_media_links WHERE restaurant_id BETWEEN ? AND ?");
+                PreparedStatement update = connection.prepareStatement("UPDATE restaurants SET genre_mask = ?, "
+                        + "soup_base_mask = ?, social_media_links = ? WHERE id = ?")) {
+            long lastId = 0;
+            while (true) {
+                List<Long> ids = new ArrayList<>();
+                page.setLong(1, lastId);
+                try (ResultSet rs = page.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+                long first = ids.get(0);
+                lastId = ids.get(ids.size() - 1);
+
+                Map<Long, Integer> genreMasks = masks(genres, first, lastId, GENRE_BITS, "genre");
+                Map<Long, Integer> soupBaseMasks = masks(soupBases, first, lastId, SOUP_BASE_BITS, "soup base");
+                Map<Long, Map<String, String>> linkMaps = new HashMap<>();
+                links.setLong(1, first);
+                links.setLong(2, lastId);
+                try (ResultSet rs = links.executeQuery()) {
+                    while (rs.next()) {
+                        linkMaps.computeIfAbsent(rs.getLong(1), id -> new TreeMap<>())
+                                .put(rs.getString(2), rs.getString(3));
+                    }
+                }
+
+                for (Long id : ids) {
+                    if (!genreMasks.containsKey(id) && !soupBaseMasks.containsKey(id) && !linkMaps.containsKey(id)) {
+                        continue;
+                    }
+                    update.setInt(1, genreMasks.getOrDefault(id, 0));
+                    update.setInt(2, soupBaseMasks.getOrDefault(id, 0));
+                    update.setString(3, linkMaps.containsKey(id) ? MAPPER.writeValueAsString(linkMaps.get(id)) : null);
+                    update.setLong(4, id);
+                    update.addBatch();
+                }
+                update.executeBatch();
+                if (commitPages) {
+                    connection.commit();
+                }
+            }
+        } catch (Exception e) {
+            if (commitPages) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            if (commitPages) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Masks of the restaurants in [first, last] from a restaurant_id, value query
+    private static Map<Long, Integer> masks(PreparedStatement query, long first, long last, Map<String, Integer> bits,
+            String kind) throws Exception {
+        Map<Long, Integer> masks = new HashMap<>();
+        query.setLong(1, first);
+        query.setLong(2, last);
+        try (ResultSet rs = query.executeQuery()) {
+            while (rs.next()) {
+                Integer bit = bits.get(rs.getString(2));
+                if (bit == null) {
+                    logger.warn("Skipping unknown {} '{}' of restaurant {}", kind, rs.getString(2), rs.getLong(1));
+                    continue;
+                }
+                masks.merge(rs.getLong(1), 1 << bit, (a, b) -> a | b);
+            }
+        }
+        return masks;
+    }
+}
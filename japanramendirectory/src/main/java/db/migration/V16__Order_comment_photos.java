@@ -0,0 +1,70 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Adds photo_order to comment_photos so a comment's photos, and with them its
+ * first photo, come back in a fixed order. Rows of comments with several
+ * photos are rewritten numbered in the order the table returns them, the
+ * closest to insertion order there is, as the table has no key to sort by.
+ * (comment_id, photo_order) becomes the primary key.
+ */
+public class V16__Order_comment_photos extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        Map<Long, List<String>> photos = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE comment_photos ADD COLUMN photo_order INT NOT NULL DEFAULT 0");
+            try (ResultSet rs = statement.executeQuery("SELECT comment_id, photo_url FROM comment_photos")) {
+                while (rs.next()) {
+                    photos.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(rs.getString(2));
+                }
+            }
+        }
+        // A single photo already has order 0
+        photos.values().removeIf(urls -> urls.size() < 2);
+
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM comment_photos WHERE comment_id = ?");
+                PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO comment_photos (comment_id, photo_url, photo_order) VALUES (?, ?, ?)")) {
+            int pending = 0;
+            for (Map.Entry<Long, List<String>> comment : photos.entrySet()) {
+                delete.setLong(1, comment.getKey());
+                delete.addBatch();
+                for (int i = 0; i < comment.getValue().size(); i++) {
+                    insert.setLong(1, comment.getKey());
+                    insert.setString(2, comment.getValue().get(i));
+                    insert.setInt(3, i);
+                    insert.addBatch();
+                }
+                if (++pending == BATCH_SIZE) {
+                    delete.executeBatch();
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                delete.executeBatch();
+                insert.executeBatch();
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE comment_photos ADD PRIMARY KEY (comment_id, photo_order)");
+        }
+    }
+}
@@ -0,0 +1,12 @@
+-- Fully assembled restaurant detail JSON, one row per restaurant, rebuilt in
+-- the same transaction as every write to the restaurant or its address, area
+-- and prefecture. The detail endpoint reads it with one primary key lookup.
+
+CREATE TABLE restaurant_documents (
+    restaurant_id BIGINT NOT NULL,
+    document LONGTEXT NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (restaurant_id),
+    CONSTRAINT fk_restaurant_documents_restaurant FOREIGN KEY (restaurant_id)
+        REFERENCES restaurants (id) ON DELETE CASCADE
+);
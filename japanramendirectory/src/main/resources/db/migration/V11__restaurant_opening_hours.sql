@@ -0,0 +1,13 @@
+-- Opening hours parsed from restaurants.opening_hours and rest_day into
+-- weekly intervals. Times are minutes of the week from Monday 00:00; an
+-- interval that runs past midnight belongs to the day it opens, so closes_at
+-- can go past the end of Sunday. A restaurant without rows has unknown hours.
+
+CREATE TABLE restaurant_opening_hours (
+    restaurant_id BIGINT NOT NULL,
+    opens_at SMALLINT NOT NULL,
+    closes_at SMALLINT NOT NULL,
+    PRIMARY KEY (restaurant_id, opens_at),
+    CONSTRAINT fk_restaurant_opening_hours_restaurant FOREIGN KEY (restaurant_id)
+        REFERENCES restaurants (id) ON DELETE CASCADE
+);
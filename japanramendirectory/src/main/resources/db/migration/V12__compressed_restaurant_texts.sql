@@ -0,0 +1,17 @@
+-- Menu and description bodies are stored deflated in *_deflated and read
+-- only by the endpoints that serve them. Lists carry the length and a short
+-- summary instead. The TEXT columns keep rows written before this migration
+-- until the compaction job has moved them.
+
+ALTER TABLE menus ADD COLUMN menu_content_deflated LONGBLOB;
+ALTER TABLE menus ADD COLUMN content_length INT;
+ALTER TABLE menus ADD COLUMN content_summary VARCHAR(255);
+ALTER TABLE menus ADD COLUMN content_hash CHAR(64);
+
+ALTER TABLE restaurant_descriptions ADD COLUMN content_deflated LONGBLOB;
+ALTER TABLE restaurant_descriptions ADD COLUMN content_length INT;
+ALTER TABLE restaurant_descriptions ADD COLUMN content_summary VARCHAR(255);
+ALTER TABLE restaurant_descriptions ADD COLUMN content_hash CHAR(64);
+
+-- Documents gain the length and summary fields; the backfill rebuilds them
+DELETE FROM restaurant_documents;
@@ -0,0 +1,14 @@
+-- Genres and soup bases as bitmasks (bit n is the enum constant of ordinal
+-- n) and social media links as one JSON object, so a restaurant is a single
+-- row to read and update. V14 copies the side tables into these columns.
+-- restaurant_genres, restaurant_soup_bases and restaurant_social_media_links
+-- stay in place for the previous version during a rolling deploy; a later
+-- migration drops them.
+
+ALTER TABLE restaurants ADD COLUMN genre_mask INT NOT NULL DEFAULT 0;
+ALTER TABLE restaurants ADD COLUMN soup_base_mask INT NOT NULL DEFAULT 0;
+ALTER TABLE restaurants ADD COLUMN social_media_links TEXT;
+
+-- Mask filters are IN lists of every mask that has the bit
+CREATE INDEX idx_restaurants_genre_mask ON restaurants (genre_mask);
+CREATE INDEX idx_restaurants_soup_base_mask ON restaurants (soup_base_mask);
@@ -0,0 +1,6 @@
+-- Comment event replay walks comments created, then comments updated, after a
+-- point in time with (created_at, id) and (updated_at, id) keysets. Each page
+-- is one index range read instead of a scan of the whole table.
+
+CREATE INDEX idx_comments_created_id ON comments (created_at, id);
+CREATE INDEX idx_comments_updated_id ON comments (updated_at, id);
@@ -0,0 +1,137 @@
+-- Baseline schema, matching what Hibernate generated with ddl-auto=update.
+-- Every statement is guarded with IF NOT EXISTS so databases created before
+-- Flyway was introduced can run it as a no-op.
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    password VARCHAR(255) NOT NULL,
+    username VARCHAR(255) NOT NULL,
+    role ENUM('USER','ADMIN'),
+    failed_login_attempts INT NOT NULL,
+    locked_until DATETIME(6),
+    account_non_locked BIT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username)
+);
+
+CREATE TABLE IF NOT EXISTS prefectures (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    name_in_english VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_prefectures_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS areas (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    name_in_english VARCHAR(255),
+    prefecture_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_areas_prefecture FOREIGN KEY (prefecture_id) REFERENCES prefectures (id)
+);
+
+CREATE TABLE IF NOT EXISTS address (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    area_id BIGINT NOT NULL,
+    detailed_address VARCHAR(255) NOT NULL,
+    building VARCHAR(255),
+    floor VARCHAR(255),
+    unit VARCHAR(255),
+    postal_code VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_address_area FOREIGN KEY (area_id) REFERENCES areas (id)
+);
+
+CREATE TABLE IF NOT EXISTS queue_methods (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    type ENUM('QUEUE_UP','TICKET','RESERVATION','OTHER') NOT NULL,
+    detailed_guide TEXT,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS restaurants (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255),
+    score DOUBLE,
+    reservation_system BIT,
+    queue_method_id BIGINT,
+    address_id BIGINT,
+    seats INT,
+    opening_hours VARCHAR(1000),
+    rest_day VARCHAR(200),
+    opening_date DATE,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_restaurants_queue_method UNIQUE (queue_method_id),
+    CONSTRAINT uk_restaurants_address UNIQUE (address_id),
+    CONSTRAINT fk_restaurants_queue_method FOREIGN KEY (queue_method_id) REFERENCES queue_methods (id),
+    CONSTRAINT fk_restaurants_address FOREIGN KEY (address_id) REFERENCES address (id)
+);
+
+CREATE TABLE IF NOT EXISTS restaurant_genres (
+    restaurant_id BIGINT NOT NULL,
+    genre ENUM('RAMEN','TSUKEMEN','VEGETARIAN','TANTANMEN','OTHER'),
+    CONSTRAINT fk_restaurant_genres_restaurant FOREIGN KEY (restaurant_id) REFERENCES restaurants (id)
+);
+
+CREATE TABLE IF NOT EXISTS restaurant_soup_bases (
+    restaurant_id BIGINT NOT NULL,
+    soup_base ENUM('醬油','味噌','豚骨','鹽味','魚介','其他'),
+    CONSTRAINT fk_restaurant_soup_bases_restaurant FOREIGN KEY (restaurant_id) REFERENCES restaurants (id)
+);
+
+CREATE TABLE IF NOT EXISTS restaurant_social_media_links (
+    restaurant_id BIGINT NOT NULL,
+    platform VARCHAR(255) NOT NULL,
+    url VARCHAR(255),
+    PRIMARY KEY (restaurant_id, platform),
+    CONSTRAINT fk_restaurant_social_media_links_restaurant FOREIGN KEY (restaurant_id) REFERENCES restaurants (id)
+);
+
+CREATE TABLE IF NOT EXISTS menus (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    restaurant_id BIGINT,
+    menu_content TEXT,
+    last_updated DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_menus_restaurant UNIQUE (restaurant_id),
+    CONSTRAINT fk_menus_restaurant FOREIGN KEY (restaurant_id) REFERENCES restaurants (id)
+);
+
+CREATE TABLE IF NOT EXISTS restaurant_descriptions (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    restaurant_id BIGINT,
+    content TEXT,
+    last_updated DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_restaurant_descriptions_restaurant UNIQUE (restaurant_id),
+    CONSTRAINT fk_restaurant_descriptions_restaurant FOREIGN KEY (restaurant_id) REFERENCES restaurants (id)
+);
+
+CREATE TABLE IF NOT EXISTS comments (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    restaurant_id BIGINT NOT NULL,
+    food_comment VARCHAR(1000) NOT NULL,
+    visiting_comment VARCHAR(1000) NOT NULL,
+    environment_comment VARCHAR(1000) NOT NULL,
+    food_score INT NOT NULL,
+    visiting_score INT NOT NULL,
+    environment_score INT NOT NULL,
+    overall_score INT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6),
+    reported BIT NOT NULL,
+    report_reason VARCHAR(1000),
+    approved BIT NOT NULL,
+    reported_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_comments_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_comments_restaurant FOREIGN KEY (restaurant_id) REFERENCES restaurants (id)
+);
+
+CREATE TABLE IF NOT EXISTS comment_photos (
+    comment_id BIGINT NOT NULL,
+    photo_url VARCHAR(1000),
+    CONSTRAINT fk_comment_photos_comment FOREIGN KEY (comment_id) REFERENCES comments (id)
+);
@@ -0,0 +1,38 @@
+-- Composite indexes designed around the repository access patterns.
+-- Column order is equality columns first, then the range / ORDER BY column,
+-- so each query can be answered by a single index range read without a sort.
+
+-- CommentRepository.findByRestaurantAndApprovedTrueOrderByCreatedAtDesc / findByRestaurantAndApprovedTrue
+-- (also serves countByRestaurant and findByRestaurantOrderByCreatedAtDesc through the leading column)
+CREATE INDEX idx_comments_restaurant_approved_created ON comments (restaurant_id, approved, created_at);
+
+-- CommentRepository.existsByRestaurantAndUserAndCreatedAtAfter / findLatestByUserAndRestaurant
+-- (also existsByRestaurantAndUser and findByRestaurantAndUser)
+CREATE INDEX idx_comments_user_restaurant_created ON comments (user_id, restaurant_id, created_at);
+
+-- CommentRepository.findByUserOrderByCreatedAtDesc
+CREATE INDEX idx_comments_user_created ON comments (user_id, created_at);
+
+-- CommentRepository.findByReportedTrue / countByReportedTrue
+CREATE INDEX idx_comments_reported ON comments (reported, reported_at);
+
+-- RestaurantRepository.findByOrderByScoreDesc / findByScoreGreaterThanEqual
+CREATE INDEX idx_restaurants_score_id ON restaurants (score, id);
+
+-- RestaurantRepository.findByGenre / findAllDistinctGenres
+CREATE INDEX idx_restaurant_genres_genre ON restaurant_genres (genre, restaurant_id);
+
+-- RestaurantRepository.findBySoupBasesContaining / findAllSoupBases
+CREATE INDEX idx_restaurant_soup_bases_soup_base ON restaurant_soup_bases (soup_base, restaurant_id);
+
+-- PrefectureRepository.findByNameInEnglish
+CREATE INDEX idx_prefectures_name_in_english ON prefectures (name_in_english);
+
+-- AreaRepository.findByNameAndPrefecture / findByPrefectureId
+CREATE INDEX idx_areas_prefecture_name ON areas (prefecture_id, name);
+
+-- AreaRepository.findByNameInEnglishAndPrefectureNameInEnglish
+CREATE INDEX idx_areas_name_in_english ON areas (name_in_english);
+
+-- AddressRepository.findByPostalCode
+CREATE INDEX idx_address_postal_code ON address (postal_code);
@@ -0,0 +1,17 @@
+-- Downscaled renditions of comment photos, generated after upload.
+-- photo_url holds the comment_photos URL of the original. It is shorter than
+-- comment_photos.photo_url so (photo_url, label) fits InnoDB's 3072 byte key
+-- limit in utf8mb4; the URLs this app generates are well under 200 characters.
+
+CREATE TABLE photo_variants (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    photo_url VARCHAR(700) NOT NULL,
+    label VARCHAR(32) NOT NULL,
+    width INT NOT NULL,
+    height INT NOT NULL,
+    url VARCHAR(1000) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_photo_variants_photo_url_label ON photo_variants (photo_url, label);
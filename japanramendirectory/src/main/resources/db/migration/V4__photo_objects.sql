@@ -0,0 +1,18 @@
+-- Content-addressed photo storage. Identical uploads share one S3 object;
+-- ref_count is the number of comment_photos rows pointing at url.
+
+CREATE TABLE photo_objects (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    content_hash VARCHAR(64) NOT NULL,
+    object_key VARCHAR(255) NOT NULL,
+    url VARCHAR(700) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count INT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    last_referenced_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_photo_objects_content_hash UNIQUE (content_hash)
+);
+
+CREATE INDEX idx_photo_objects_url ON photo_objects (url);
@@ -0,0 +1,3 @@
+-- The photo garbage collector looks deduplicated objects up by storage key.
+
+CREATE INDEX idx_photo_objects_object_key ON photo_objects (object_key);
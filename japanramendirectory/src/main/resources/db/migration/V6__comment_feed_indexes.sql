@@ -0,0 +1,10 @@
+-- Keyset pagination of comment feeds orders by (created_at, id). Name id
+-- explicitly so each page is one index range read on every engine; InnoDB
+-- already appends the primary key, H2 does not. The new indexes are created
+-- before the old ones are dropped so the foreign keys always have an index.
+
+CREATE INDEX idx_comments_restaurant_approved_created_id ON comments (restaurant_id, approved, created_at, id);
+DROP INDEX idx_comments_restaurant_approved_created ON comments;
+
+CREATE INDEX idx_comments_user_created_id ON comments (user_id, created_at, id);
+DROP INDEX idx_comments_user_created ON comments;
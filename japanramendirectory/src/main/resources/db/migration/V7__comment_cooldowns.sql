@@ -0,0 +1,14 @@
+-- Latest comment time per (user, restaurant). The unique key lets concurrent
+-- submissions race on one row instead of both passing a check on comments.
+
+CREATE TABLE comment_cooldowns (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    restaurant_id BIGINT NOT NULL,
+    last_comment_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_comment_cooldowns_user_restaurant UNIQUE (user_id, restaurant_id)
+);
+
+INSERT INTO comment_cooldowns (user_id, restaurant_id, last_comment_at)
+SELECT user_id, restaurant_id, MAX(created_at) FROM comments GROUP BY user_id, restaurant_id;
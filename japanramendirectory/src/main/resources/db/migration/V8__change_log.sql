@@ -0,0 +1,12 @@
+-- Append-only log of entity writes. Every instance tails it by version to
+-- evict its in-process caches; rows are pruned after a retention period.
+
+CREATE TABLE change_log (
+    version BIGINT NOT NULL AUTO_INCREMENT,
+    entity_type VARCHAR(32) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (version)
+);
+
+CREATE INDEX idx_change_log_created_at ON change_log (created_at);
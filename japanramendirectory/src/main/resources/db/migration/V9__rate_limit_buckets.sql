@@ -0,0 +1,13 @@
+-- Token bucket state shared by all instances when app.rate-limit.store=shared.
+-- version drives compare-and-swap updates; expires_at (epoch millis) is when
+-- the bucket would be full again and the row can be deleted.
+
+CREATE TABLE rate_limit_buckets (
+    bucket_key VARCHAR(191) NOT NULL,
+    state VARBINARY(2048) NOT NULL,
+    version BIGINT NOT NULL,
+    expires_at BIGINT NOT NULL,
+    PRIMARY KEY (bucket_key)
+);
+
+CREATE INDEX idx_rate_limit_buckets_expires_at ON rate_limit_buckets (expires_at);
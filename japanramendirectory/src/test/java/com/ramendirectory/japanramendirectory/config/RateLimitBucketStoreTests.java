@@ -0,0 +1,80 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.github.bucket4j.Bucket;
+
+/**
+ * Two stores against the same database stand in for two instances.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class RateLimitBucketStoreTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void sharedBucketsLimitAllInstancesTogether() {
+        String ip = UUID.randomUUID().toString();
+        Bucket first = store("shared", 0).limiter("test", 5, Duration.ofMinutes(10)).resolve(ip, key -> { });
+        Bucket second = store("shared", 0).limiter("test", 5, Duration.ofMinutes(10)).resolve(ip, key -> { });
+
+        assertEquals(5, consumeAlternately(first, second, 10));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM rate_limit_buckets WHERE bucket_key = ?", Integer.class, "test:" + ip));
+    }
+
+    @Test
+    void nearCacheOvershootIsBoundedByUnsynchronizedTokens() {
+        String ip = UUID.randomUUID().toString();
+        Bucket first = store("shared", 2).limiter("test", 5, Duration.ofMinutes(10)).resolve(ip, key -> { });
+        Bucket second = store("shared", 2).limiter("test", 5, Duration.ofMinutes(10)).resolve(ip, key -> { });
+
+        long allowed = consumeAlternately(first, second, 20);
+        assertTrue(allowed >= 5 && allowed <= 5 + 2 * 2, "allowed " + allowed);
+    }
+
+    @Test
+    void localBucketsAreLimitedPerInstance() {
+        String ip = UUID.randomUUID().toString();
+        Bucket first = store("local", 0).limiter("test", 5, Duration.ofMinutes(10)).resolve(ip, key -> { });
+        Bucket second = store("local", 0).limiter("test", 5, Duration.ofMinutes(10)).resolve(ip, key -> { });
+
+        assertEquals(10, consumeAlternately(first, second, 20));
+    }
+
+    @Test
+    void unknownStoreIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> store("redis", 0));
+    }
+
+    private RateLimitBucketStore store(String mode, long maxUnsynchronizedTokens) {
+        return new RateLimitBucketStore(mode, maxUnsynchronizedTokens, 60000, jdbcTemplate, transactionManager);
+    }
+
+    private static long consumeAlternately(Bucket first, Bucket second, int attempts) {
+        long allowed = 0;
+        for (int i = 0; i < attempts; i++) {
+            if ((i % 2 == 0 ? first : second).tryConsume(1)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+}
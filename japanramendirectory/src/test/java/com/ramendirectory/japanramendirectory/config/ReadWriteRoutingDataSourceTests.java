@@ -0,0 +1,132 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Routes against two embedded databases that each report their own name.
+ */
+class ReadWriteRoutingDataSourceTests {
+
+    private ReadYourWritesContext readYourWrites;
+    private SimpleMeterRegistry meterRegistry;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+
+        readYourWrites = new ReadYourWritesContext(Duration.ofSeconds(5));
+        meterRegistry = new SimpleMeterRegistry();
+        DataSource routing = new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, replica, readYourWrites, meterRegistry));
+
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        readYourWrites.endRequest();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplica() {
+        assertEquals("replica", readOnly.execute(status -> whichDatabase()));
+    }
+
+    @Test
+    void readsOutsideTransactionsUseReplica() {
+        assertEquals("replica", whichDatabase());
+    }
+
+    @Test
+    void readWriteTransactionsUsePrimary() {
+        assertEquals("primary", readWrite.execute(status -> whichDatabase()));
+    }
+
+    @Test
+    void readsAfterAWriteStayOnPrimaryForTheRequest() {
+        readYourWrites.beginRequest();
+        readWrite.executeWithoutResult(status -> whichDatabase());
+
+        assertEquals("primary", readOnly.execute(status -> whichDatabase()));
+
+        readYourWrites.endRequest();
+        assertEquals("replica", readOnly.execute(status -> whichDatabase()));
+    }
+
+    @Test
+    void writesOutsideARequestDoNotPinTheThread() {
+        readWrite.executeWithoutResult(status -> whichDatabase());
+
+        assertEquals("replica", readOnly.execute(status -> whichDatabase()));
+    }
+
+    @Test
+    void recentWritersArePinnedOnTheirNextRequest() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "writer", null, AuthorityUtils.createAuthorityList("USER")));
+        readWrite.executeWithoutResult(status -> whichDatabase());
+        readYourWrites.endRequest();
+
+        readYourWrites.beginRequest();
+        assertEquals("primary", readOnly.execute(status -> whichDatabase()));
+    }
+
+    @Test
+    void routingIsCountedPerPool() {
+        // The lazy proxy fetches one connection up front to read the connection defaults
+        whichDatabase();
+        double replicaBefore = routed("replica");
+        double primaryBefore = routed("primary");
+
+        readOnly.executeWithoutResult(status -> whichDatabase());
+        readWrite.executeWithoutResult(status -> whichDatabase());
+
+        assertEquals(1.0, routed("replica") - replicaBefore);
+        assertEquals(1.0, routed("primary") - primaryBefore);
+    }
+
+    private double routed(String pool) {
+        return meterRegistry.get("app.datasource.routing").tag("pool", pool).counter().count();
+    }
+
+    private String whichDatabase() {
+        return jdbcTemplate.queryForObject("SELECT name FROM whoami", String.class);
+    }
+
+    private DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing_" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE IF NOT EXISTS whoami (name VARCHAR(20))");
+        setup.execute("DELETE FROM whoami");
+        setup.update("INSERT INTO whoami (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
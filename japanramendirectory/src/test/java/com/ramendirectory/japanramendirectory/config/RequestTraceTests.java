@@ -0,0 +1,129 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.config.RequestTrace.Phase;
+import com.ramendirectory.japanramendirectory.service.RequestTraceBuffer;
+import com.ramendirectory.japanramendirectory.service.RequestTraceBuffer.Trace;
+
+@SpringBootTest(properties = { "app.request-trace.sample-rate=1",
+        "app.statement-budget.overrides=GET /api/ranking=off,/api/admin/**=off" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class RequestTraceTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    // Without a test transaction, so the request fetches its own connection as it does when deployed
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void rankingRequestsAreBrokenDownIntoPhases() throws Exception {
+        mockMvc.perform(get("/api/ranking?minScore=0"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/admin/request-traces").param("route", "/api/ranking").with(jwt().authorities(
+                        new SimpleGrantedAuthority("SCOPE_ADMIN"), new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].path").value("/api/ranking?minScore=0"))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].statements").value(greaterThan(0)))
+                .andExpect(jsonPath("$[0].phasesMs.SQL").value(greaterThan(0.0)))
+                .andExpect(jsonPath("$[0].phasesMs.HYDRATION").value(greaterThan(0.0)))
+                .andExpect(jsonPath("$[0].phasesMs.MAPPING").value(greaterThan(0.0)))
+                .andExpect(jsonPath("$[0].phasesMs.SERIALIZATION").value(greaterThan(0.0)))
+                .andExpect(jsonPath("$[0].slowestStatements[0].sql").exists());
+    }
+
+    @Test
+    void phasesAddUpAndNestedTimeIsChargedToTheInnermostPhase() throws Exception {
+        RequestTracer tracer = new RequestTracer();
+        tracer.beginRequest(true);
+        RequestTrace trace = tracer.current();
+        tracer.time(Phase.MAPPING, () -> {
+            trace.enter(Phase.SQL);
+            sleep(20);
+            trace.exit();
+            return null;
+        });
+        RequestTracer.Finished finished = tracer.endRequest();
+
+        long sum = 0;
+        for (Phase phase : Phase.values()) {
+            sum += trace.getSelfNanos(phase);
+        }
+        assertEquals(finished.totalNanos(), sum);
+        assertTrue(trace.getSelfNanos(Phase.SQL) >= 20_000_000L);
+        assertTrue(trace.getSelfNanos(Phase.MAPPING) < 20_000_000L);
+    }
+
+    @Test
+    void ringKeepsTheNewestTraces() {
+        RequestTraceBuffer buffer = new RequestTraceBuffer(1, 1000, 3);
+        for (int i = 0; i < 6; i++) {
+            RequestTracer tracer = new RequestTracer();
+            tracer.beginRequest(true);
+            buffer.offer("GET", "/api/ranking", "/api/ranking?page=" + i, 200, tracer.endRequest());
+        }
+
+        List<Trace> traces = buffer.getTraces(null, 10);
+        assertEquals(4, traces.size());
+        assertEquals("/api/ranking?page=5", traces.get(0).path());
+        assertEquals("/api/ranking?page=2", traces.get(3).path());
+    }
+
+    @Test
+    void onlySampledOrCountedRequestsGetWrappedConnections() throws Exception {
+        Connection pooled = mock(Connection.class);
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenReturn(pooled);
+        RequestTracer tracer = new RequestTracer();
+        StatementCounter counter = new StatementCounter();
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(pool, counter, tracer);
+
+        assertSame(pooled, dataSource.getConnection());
+        tracer.beginRequest(false);
+        assertSame(pooled, dataSource.getConnection());
+        counter.beginRequest();
+        assertNotSame(pooled, dataSource.getConnection());
+        counter.endRequest();
+        tracer.endRequest();
+        tracer.beginRequest(true);
+        assertNotSame(pooled, dataSource.getConnection());
+        tracer.endRequest();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
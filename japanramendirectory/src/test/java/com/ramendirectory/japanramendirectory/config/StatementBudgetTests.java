@@ -0,0 +1,81 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.util.SqlShapes;
+
+@SpringBootTest(properties = "app.statement-budget.overrides=GET /api/ranking=1")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class StatementBudgetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Without a test transaction, so the request fetches its own connection as it does when deployed
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void requestsOverBudgetFailAndAreListedForAdmins() throws Exception {
+        Exception failure = assertThrows(Exception.class, () -> mockMvc.perform(get("/api/ranking")));
+        assertTrue(failure.getMessage().contains("GET /api/ranking ran"), failure.getMessage());
+
+        mockMvc.perform(get("/api/admin/statement-budget/offenders").with(jwt().authorities(
+                        new SimpleGrantedAuthority("SCOPE_ADMIN"), new SimpleGrantedAuthority("ROLE_ADMIN"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].endpoint").value("GET /api/ranking"))
+                .andExpect(jsonPath("$[0].budget.maxStatements").value(1));
+    }
+
+    @Test
+    void commentListsStayWithinTheDefaultBudget() throws Exception {
+        Long restaurantId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM restaurants", Long.class);
+        for (int i = 0; i < 12; i++) {
+            jdbcTemplate.update("INSERT INTO users (username, password, role, failed_login_attempts, "
+                    + "account_non_locked) VALUES (?, 'x', 'USER', 0, TRUE)", "budget" + i);
+        }
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users WHERE username LIKE 'budget%'",
+                Long.class);
+        for (Long userId : userIds) {
+            jdbcTemplate.update("INSERT INTO comments (user_id, restaurant_id, food_comment, visiting_comment, "
+                    + "environment_comment, food_score, visiting_score, environment_score, overall_score, "
+                    + "created_at, reported, approved) VALUES (?, ?, 'うまい', '近い', '静か', 4, 4, 4, 4, ?, FALSE, TRUE)",
+                    userId, restaurantId, Timestamp.valueOf(LocalDateTime.now()));
+        }
+
+        mockMvc.perform(get("/api/comments/restaurant/" + restaurantId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(userIds.size()));
+    }
+
+    @Test
+    void statementsThatDifferInValuesShareAShape() {
+        assertEquals("select c1_0.id from comments c1_0 where c1_0.user_id in (?...) and c1_0.note=? limit ?",
+                SqlShapes.normalize("select c1_0.id from comments c1_0\n where c1_0.user_id in (?, ?, ?) "
+                        + "and c1_0.note='it''s' limit 20"));
+    }
+}
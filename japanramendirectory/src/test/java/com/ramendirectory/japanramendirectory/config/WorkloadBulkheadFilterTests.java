@@ -0,0 +1,102 @@
+package com.ramendirectory.japanramendirectory.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Runs the filter over mock requests with one permit per workload.
+ */
+class WorkloadBulkheadFilterTests {
+
+    private SimpleMeterRegistry meterRegistry;
+    private Map<Workload, WorkloadBulkhead> bulkheads;
+    private WorkloadBulkheadFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkheads = new EnumMap<>(Workload.class);
+        for (Workload workload : Workload.values()) {
+            bulkheads.put(workload, new WorkloadBulkhead(workload, 1, meterRegistry));
+        }
+        filter = new WorkloadBulkheadFilter(bulkheads, 20);
+    }
+
+    @Test
+    void requestsAreClassifiedByMethodAndPath() {
+        assertEquals(Workload.PUBLIC_READ, Workload.classify(request("GET", "/api/ranking")));
+        assertEquals(Workload.PUBLIC_READ, Workload.classify(request("POST", "/api/restaurants/batch")));
+        assertEquals(Workload.WRITE, Workload.classify(request("POST", "/api/comments")));
+        assertEquals(Workload.WRITE, Workload.classify(request("DELETE", "/api/comments/1")));
+        assertEquals(Workload.AUTH, Workload.classify(request("POST", "/auth/login")));
+        assertEquals(Workload.AUTH, Workload.classify(request("POST", "/api/users/register")));
+        assertEquals(Workload.ADMIN, Workload.classify(request("GET", "/api/comments/reported")));
+        assertEquals(Workload.ADMIN, Workload.classify(request("POST", "/api/comments/events/replay")));
+        assertEquals(Workload.ADMIN, Workload.classify(request("PUT", "/api/users/7/role/ADMIN")));
+        assertEquals(Workload.ADMIN, Workload.classify(request("GET", "/actuator/metrics")));
+        assertNull(Workload.classify(request("GET", "/actuator/health")));
+        assertNull(Workload.classify(request("OPTIONS", "/api/comments")));
+    }
+
+    @Test
+    void permitIsReleasedWhenTheRequestFails() throws Exception {
+        MockFilterChain failing = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException {
+                throw new ServletException("handler failed");
+            }
+        });
+        assertThrows(ServletException.class, () -> filter.doFilter(request("POST", "/api/comments"),
+                new MockHttpServletResponse(), failing));
+        assertEquals(0, bulkheads.get(Workload.WRITE).getActive());
+
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request("POST", "/api/comments"), new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void fullBulkheadAnswers503WithRetryAfter() throws Exception {
+        WorkloadBulkhead write = bulkheads.get(Workload.WRITE);
+        assertTrue(write.tryAcquire(0));
+        try {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request("POST", "/api/comments"), response, chain);
+
+            assertEquals(503, response.getStatus());
+            assertEquals("1", response.getHeader("Retry-After"));
+            assertNull(chain.getRequest());
+            assertEquals(1.0, meterRegistry.get("app.bulkhead.rejected").tag("workload", "write").counter().count());
+
+            // Other workloads keep their own permits
+            MockHttpServletResponse read = new MockHttpServletResponse();
+            filter.doFilter(request("GET", "/api/ranking"), read, new MockFilterChain());
+            assertEquals(200, read.getStatus());
+        } finally {
+            write.release();
+        }
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        return new MockHttpServletRequest(method, path);
+    }
+}
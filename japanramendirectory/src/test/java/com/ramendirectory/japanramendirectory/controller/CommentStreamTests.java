@@ -0,0 +1,80 @@
+package com.ramendirectory.japanramendirectory.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ramendirectory.japanramendirectory.dto.CommentDTO;
+import com.ramendirectory.japanramendirectory.event.CommentCreatedEvent;
+import com.ramendirectory.japanramendirectory.repository.RestaurantRepository;
+import com.ramendirectory.japanramendirectory.service.CommentStreamHub;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CommentStreamTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CommentStreamHub commentStreamHub;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Test
+    void streamsCommentsOfItsRestaurantOnly() throws Exception {
+        Long restaurantId = restaurantRepository.findAll().get(0).getId();
+        int before = commentStreamHub.getSubscriberCount();
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/comments/restaurant/" + restaurantId + "/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+        assertEquals(before + 1, commentStreamHub.getSubscriberCount());
+
+        eventPublisher.publishEvent(new CommentCreatedEvent(comment(-2L, restaurantId + 1)));
+        eventPublisher.publishEvent(new CommentCreatedEvent(comment(-1L, restaurantId)));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!response.getContentAsString().contains("Rich tonkotsu") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        String body = response.getContentAsString();
+        assertTrue(body.contains("id:-1\nevent:comment\ndata:{"), body);
+        assertFalse(body.contains("id:-2"), body);
+    }
+
+    @Test
+    void unknownRestaurantIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/comments/restaurant/999999999/stream"))
+                .andExpect(status().isNotFound());
+    }
+
+    private static CommentDTO comment(Long id, Long restaurantId) {
+        CommentDTO comment = new CommentDTO();
+        comment.setId(id);
+        comment.setRestaurantId(restaurantId);
+        comment.setUserId(1L);
+        comment.setFoodComment("Rich tonkotsu");
+        comment.setCreatedAt(LocalDateTime.now());
+        return comment;
+    }
+}
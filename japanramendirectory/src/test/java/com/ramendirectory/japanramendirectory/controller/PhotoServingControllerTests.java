@@ -0,0 +1,120 @@
+package com.ramendirectory.japanramendirectory.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ramendirectory.japanramendirectory.service.LocalPhotoStorage;
+import com.ramendirectory.japanramendirectory.service.PhotoCache;
+
+@SpringBootTest(properties = "app.photo.cache.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PhotoServingControllerTests {
+
+    @MockitoSpyBean
+    private LocalPhotoStorage photoStorage;
+
+    @Autowired
+    private PhotoCache photoCache;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void servesRangesAndRevalidation() throws Exception {
+        byte[] content = new byte[1000];
+        ThreadLocalRandom.current().nextBytes(content);
+        String hash = randomHash();
+        String key = "photos/" + hash.substring(0, 2) + "/" + hash + ".jpg";
+        photoStorage.put(key, content, "image/jpeg");
+        String etag = "\"" + hash + "\"";
+
+        mockMvc.perform(get("/api/photos/" + key))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                .andExpect(content().bytes(content));
+
+        byte[] expectedRange = new byte[100];
+        System.arraycopy(content, 100, expectedRange, 0, 100);
+        mockMvc.perform(get("/api/photos/" + key).header(HttpHeaders.RANGE, "bytes=100-199"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 100-199/1000"))
+                .andExpect(content().bytes(expectedRange));
+
+        mockMvc.perform(get("/api/photos/" + key).header(HttpHeaders.RANGE, "bytes=5000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+
+        mockMvc.perform(get("/api/photos/" + key).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // Only the first request reached the origin
+        verify(photoStorage, times(1)).open(key);
+
+        mockMvc.perform(get("/api/photos/photos/00/missing.jpg")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/photos/photos/ab/not-a-photo.txt")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void concurrentMissesFetchOnce() throws Exception {
+        byte[] content = new byte[64 * 1024];
+        ThreadLocalRandom.current().nextBytes(content);
+        String hash = randomHash();
+        String key = "photos/" + hash.substring(0, 2) + "/" + hash + "_thumb.jpg";
+        photoStorage.put(key, content, "image/jpeg");
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<PhotoCache.CachedPhoto>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> photoCache.get(key).orElseThrow()));
+            }
+            PhotoCache.CachedPhoto first = results.get(0).get();
+            for (Future<PhotoCache.CachedPhoto> result : results) {
+                assertEquals(first.file(), result.get().file());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        verify(photoStorage, times(1)).open(key);
+    }
+
+    @Test
+    void parseRangeHandlesSuffixAndInvalidRanges() {
+        assertArrayEquals(new long[] { 900, 999 }, PhotoServingController.parseRange("bytes=-100", 1000));
+        assertArrayEquals(new long[] { 10, 999 }, PhotoServingController.parseRange("bytes=10-", 1000));
+        assertArrayEquals(new long[] { 10, 999 }, PhotoServingController.parseRange("bytes=10-5000", 1000));
+        assertArrayEquals(new long[0], PhotoServingController.parseRange("bytes=0-1,5-6", 1000));
+        assertNull(PhotoServingController.parseRange("bytes=20-10", 1000));
+    }
+
+    private static String randomHash() {
+        byte[] hash = new byte[32];
+        ThreadLocalRandom.current().nextBytes(hash);
+        return HexFormat.of().formatHex(hash);
+    }
+}
@@ -0,0 +1,59 @@
+package com.ramendirectory.japanramendirectory.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.repository.RestaurantRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RestaurantBatchTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Test
+    void returnsRestaurantsInRequestOrderAndReportsMissingIds() throws Exception {
+        List<Restaurant> restaurants = restaurantRepository.findAll();
+        Long first = restaurants.get(0).getId();
+        Long second = restaurants.get(1).getId();
+
+        mockMvc.perform(get("/api/restaurants/batch").param("ids", second + ",999999999," + first + "," + second))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.restaurants.length()").value(2))
+                .andExpect(jsonPath("$.restaurants[0].id").value(second))
+                .andExpect(jsonPath("$.restaurants[1].id").value(first))
+                .andExpect(jsonPath("$.notFound[0]").value(999999999));
+
+        mockMvc.perform(post("/api/restaurants/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + first + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.restaurants[0].name").value(restaurants.get(0).getName()));
+    }
+
+    @Test
+    void rejectsTooManyIds() throws Exception {
+        String ids = LongStream.rangeClosed(1, 101).mapToObj(String::valueOf).collect(Collectors.joining(","));
+        mockMvc.perform(get("/api/restaurants/batch").param("ids", ids))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,41 @@
+package com.ramendirectory.japanramendirectory.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RestaurantFieldsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void returnsOnlyRequestedFields() throws Exception {
+        mockMvc.perform(get("/api/restaurants").param("paginated", "true").param("size", "5")
+                        .param("fields", "name,score,genres"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(5))
+                .andExpect(jsonPath("$.content[0].id").exists())
+                .andExpect(jsonPath("$.content[0].name").exists())
+                .andExpect(jsonPath("$.content[0].genres").isArray())
+                .andExpect(jsonPath("$.content[0].menuContent").doesNotExist())
+                .andExpect(jsonPath("$.content[0].address").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").isNumber());
+    }
+
+    @Test
+    void rejectsUnknownFields() throws Exception {
+        mockMvc.perform(get("/api/restaurants").param("fields", "name,password"))
+                .andExpect(status().isBadRequest());
+    }
+}
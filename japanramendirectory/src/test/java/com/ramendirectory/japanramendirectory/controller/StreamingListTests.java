@@ -0,0 +1,103 @@
+package com.ramendirectory.japanramendirectory.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// A chunk smaller than the seed data, so responses span several chunks
+@SpringBootTest(properties = { "app.streaming.chunk-size=3", "app.statement-budget.overrides=GET /api/ranking=off,GET /api/restaurants=off" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StreamingListTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void streamedRestaurantsMatchTheList() throws Exception {
+        JsonNode listed = read(mockMvc.perform(get("/api/restaurants")).andExpect(status().isOk()).andReturn());
+        JsonNode streamed = stream("/api/restaurants?stream=true");
+
+        assertTrue(streamed.size() > 3, "Seed data should span several chunks");
+        assertEquals(ids(listed).stream().sorted().toList(), ids(streamed));
+        assertEquals(listed.get(0).get("menuSummary"), streamed.get(0).get("menuSummary"));
+    }
+
+    @Test
+    void streamedRankingKeepsTheRankingOrder() throws Exception {
+        JsonNode ranked = read(mockMvc.perform(get("/api/ranking?size=1000&sortDirection=ASC"))
+                .andExpect(status().isOk()).andReturn());
+        JsonNode streamed = stream("/api/ranking?stream=true&sortDirection=ASC");
+
+        assertEquals(ids(ranked), ids(streamed));
+        assertEquals(ranked.get(0).get("thumbnailUrl"), streamed.get(0).get("thumbnailUrl"));
+    }
+
+    @Test
+    void streamedCommentsMatchTheList() throws Exception {
+        // Committed, as the response is written in a transaction of its own
+        Long restaurantId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM restaurants", Long.class);
+        for (int i = 0; i < 7; i++) {
+            jdbcTemplate.update("INSERT INTO users (username, password, role, failed_login_attempts, "
+                    + "account_non_locked) VALUES (?, 'x', 'USER', 0, TRUE)", "streaming" + i);
+            jdbcTemplate.update("INSERT INTO comments (user_id, restaurant_id, food_comment, visiting_comment, "
+                    + "environment_comment, food_score, visiting_score, environment_score, overall_score, "
+                    + "created_at, reported, approved) SELECT id, ?, 'うまい', '近い', '静か', 4, 4, 4, 4, ?, FALSE, "
+                    + "TRUE FROM users WHERE username = ?", restaurantId,
+                    Timestamp.valueOf(LocalDateTime.now().minusMinutes(i)), "streaming" + i);
+        }
+        try {
+            JsonNode listed = read(mockMvc.perform(get("/api/comments/restaurant/" + restaurantId))
+                    .andExpect(status().isOk()).andReturn());
+            JsonNode streamed = stream("/api/comments/restaurant/" + restaurantId + "?stream=true");
+
+            assertEquals(7, streamed.size());
+            assertEquals(listed, streamed);
+        } finally {
+            jdbcTemplate.update("DELETE FROM comments WHERE user_id IN "
+                    + "(SELECT id FROM users WHERE username LIKE 'streaming%')");
+            jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'streaming%'");
+        }
+    }
+
+    private JsonNode stream(String url) throws Exception {
+        MvcResult started = mockMvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn();
+        return read(mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn());
+    }
+
+    private JsonNode read(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsByteArray());
+    }
+
+    private static List<Long> ids(JsonNode array) {
+        List<Long> ids = new ArrayList<>();
+        array.forEach(element -> ids.add(element.get("id").asLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,199 @@
+package com.ramendirectory.japanramendirectory.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Drives the dispatcher directly with a recording handler. The handler can
+ * hold the first batch to keep a worker busy while a partition fills up.
+ */
+class CommentEventDispatcherTests {
+
+    private final RecordingHandler handler = new RecordingHandler();
+    private CommentEventDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        handler.release.countDown();
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void fullPartitionWaitsForTheOfferTimeoutThenDrops() throws Exception {
+        start(1, 2, 50);
+        handler.holdFirstBatch();
+
+        dispatcher.onCommentEvent(event(1L, 1L));
+        assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+        dispatcher.onCommentEvent(event(2L, 1L));
+        dispatcher.onCommentEvent(event(3L, 1L));
+
+        long started = System.nanoTime();
+        dispatcher.onCommentEvent(event(4L, 1L));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue(waitedMs >= 50, "waited " + waitedMs + "ms");
+        assertEquals(1, dispatcher.getDroppedCount());
+
+        handler.release.countDown();
+        awaitProcessed(3);
+        assertEquals(List.of(1L, 2L, 3L), handler.commentIds(1L));
+    }
+
+    @Test
+    void replayWaitsForRoomInsteadOfDropping() throws Exception {
+        start(1, 2, 10);
+        handler.holdFirstBatch();
+
+        dispatcher.onCommentEvent(event(1L, 1L));
+        assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+        dispatcher.replay(replayed(2L, 1L));
+        dispatcher.replay(replayed(3L, 1L));
+
+        CountDownLatch queued = new CountDownLatch(1);
+        Thread replaying = new Thread(() -> {
+            try {
+                dispatcher.replay(replayed(4L, 1L));
+                queued.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        replaying.start();
+
+        assertFalse(queued.await(200, TimeUnit.MILLISECONDS));
+        handler.release.countDown();
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+
+        awaitProcessed(4);
+        assertEquals(0, dispatcher.getDroppedCount());
+        assertEquals(List.of(1L, 2L, 3L, 4L), handler.commentIds(1L));
+    }
+
+    @Test
+    void consecutiveEventsForTheSameRestaurantAreHandledAsOneBatch() throws Exception {
+        start(1, 100, 50);
+        handler.holdFirstBatch();
+
+        dispatcher.onCommentEvent(event(1L, 7L));
+        assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+        dispatcher.onCommentEvent(event(2L, 7L));
+        dispatcher.onCommentEvent(event(3L, 7L));
+        dispatcher.onCommentEvent(event(4L, 8L));
+        dispatcher.onCommentEvent(event(5L, 7L));
+        handler.release.countDown();
+        awaitProcessed(5);
+
+        List<String> batches = new ArrayList<>();
+        for (Batch batch : handler.batches) {
+            batches.add(batch.restaurantId + ":" + batch.commentIds);
+        }
+        assertEquals(List.of("7:[1]", "7:[2, 3]", "8:[4]", "7:[5]"), batches);
+    }
+
+    @Test
+    void eachRestaurantIsHandledInOrderByOneWorker() throws Exception {
+        start(2, 1000, 1000);
+
+        int events = 400;
+        for (long id = 1; id <= events; id++) {
+            dispatcher.onCommentEvent(event(id, id % 5));
+        }
+        awaitProcessed(events);
+
+        Map<Long, Set<String>> threads = new ConcurrentHashMap<>();
+        for (Batch batch : handler.batches) {
+            threads.computeIfAbsent(batch.restaurantId, k -> ConcurrentHashMap.newKeySet()).add(batch.thread);
+        }
+        for (long restaurantId = 0; restaurantId < 5; restaurantId++) {
+            List<Long> ids = handler.commentIds(restaurantId);
+            assertEquals(events / 5, ids.size());
+            assertEquals(ids.stream().sorted().toList(), ids, "restaurant " + restaurantId);
+            assertEquals(1, threads.get(restaurantId).size(), "restaurant " + restaurantId);
+        }
+    }
+
+    private void start(int workers, int queueCapacity, long offerTimeoutMs) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("recordingHandler", handler));
+        dispatcher = new CommentEventDispatcher(beans.getBeanProvider(CommentEventHandler.class));
+        ReflectionTestUtils.setField(dispatcher, "workerCount", workers);
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", queueCapacity * workers);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 100);
+        ReflectionTestUtils.setField(dispatcher, "offerTimeoutMs", offerTimeoutMs);
+        dispatcher.start();
+    }
+
+    private void awaitProcessed(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dispatcher.getProcessedCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, dispatcher.getProcessedCount());
+    }
+
+    private static CommentEvent event(Long commentId, Long restaurantId) {
+        return new CommentDeletedEvent(commentId, restaurantId, 1L);
+    }
+
+    private static CommentEvent replayed(Long commentId, Long restaurantId) {
+        return new CommentEvent(commentId, restaurantId, 1L, true) {
+        };
+    }
+
+    private record Batch(Long restaurantId, List<Long> commentIds, String thread) {
+    }
+
+    private static class RecordingHandler implements CommentEventHandler {
+
+        final List<Batch> batches = new CopyOnWriteArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean hold;
+
+        void holdFirstBatch() {
+            hold = true;
+        }
+
+        @Override
+        public void onCommentEvents(Long restaurantId, List<CommentEvent> events) {
+            batches.add(new Batch(restaurantId, events.stream().map(CommentEvent::getCommentId).toList(),
+                    Thread.currentThread().getName()));
+            if (hold) {
+                hold = false;
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        List<Long> commentIds(Long restaurantId) {
+            List<Long> ids = new ArrayList<>();
+            for (Batch batch : batches) {
+                if (batch.restaurantId().equals(restaurantId)) {
+                    ids.addAll(batch.commentIds());
+                }
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ramendirectory.japanramendirectory.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ramendirectory.japanramendirectory.loadtest.OpenLoadGenerator.EndpointStats;
+import com.ramendirectory.japanramendirectory.loadtest.TrafficMix.Endpoint;
+
+/**
+ * Results of a load test run per endpoint, stored as JSON so a later run can
+ * be compared with it. Latencies are in milliseconds.
+ */
+record LoadReport(Instant startedAt, double ratePerSecond, long durationSeconds, String mix,
+        List<EndpointResult> endpoints) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    /**
+     * @param errorRate Server errors, failed and dropped requests over all
+     *                  requests; 4xx responses are counted but not errors
+     */
+    record EndpointResult(String endpoint, long requests, double throughput, double p50, double p99, double p999,
+            double max, long clientErrors, long serverErrors, long dropped, double errorRate) {
+    }
+
+    /**
+     * A p99 that got worse than allowed compared with the baseline.
+     */
+    record Regression(String endpoint, double baselineP99, double p99, double percent) {
+    }
+
+    static LoadReport of(Instant startedAt, double ratePerSecond, long durationSeconds, String mix,
+            Map<Endpoint, EndpointStats> stats) {
+        List<EndpointResult> results = new ArrayList<>();
+        stats.forEach((endpoint, endpointStats) -> {
+            Histogram latencies = endpointStats.latencies;
+            long completed = latencies.getTotalCount();
+            long failed = endpointStats.serverErrors.sum() + endpointStats.dropped.sum();
+            long requests = completed + endpointStats.dropped.sum();
+            double seconds = endpointStats.elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+            results.add(new EndpointResult(endpoint.key(), requests, round(completed / seconds),
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+                    millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()),
+                    endpointStats.clientErrors.sum(), endpointStats.serverErrors.sum(), endpointStats.dropped.sum(),
+                    requests == 0 ? 0 : round((double) failed / requests)));
+        });
+        return new LoadReport(startedAt, ratePerSecond, durationSeconds, mix, results);
+    }
+
+    static Optional<LoadReport> read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        return Optional.of(MAPPER.readValue(path.toFile(), LoadReport.class));
+    }
+
+    void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        MAPPER.writeValue(path.toFile(), this);
+    }
+
+    /**
+     * Endpoints whose p99 is more than the given percentage above the
+     * baseline's. Endpoints missing from either run are skipped.
+     */
+    List<Regression> regressionsAgainst(LoadReport baseline, double maxPercent) {
+        List<Regression> regressions = new ArrayList<>();
+        for (EndpointResult result : endpoints) {
+            baseline.endpoints.stream()
+                    .filter(previous -> previous.endpoint().equals(result.endpoint()) && previous.p99() > 0)
+                    .findFirst()
+                    .ifPresent(previous -> {
+                        double percent = (result.p99() - previous.p99()) / previous.p99() * 100;
+                        if (percent > maxPercent) {
+                            regressions.add(new Regression(result.endpoint(), previous.p99(), result.p99(),
+                                    round(percent)));
+                        }
+                    });
+        }
+        return regressions;
+    }
+
+    String table() {
+        StringBuilder table = new StringBuilder(String.format("%-14s %9s %9s %9s %9s %9s %9s %6s %6s %6s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "4xx", "5xx", "drop"));
+        for (EndpointResult result : endpoints) {
+            table.append(String.format("%-14s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %6d %6d %6d%n", result.endpoint(),
+                    result.requests(), result.throughput(), result.p50(), result.p99(), result.p999(), result.max(),
+                    result.clientErrors(), result.serverErrors(), result.dropped()));
+        }
+        return table.toString();
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1_000_000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,140 @@
+package com.ramendirectory.japanramendirectory.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ramendirectory.japanramendirectory.loadtest.TrafficMix.Endpoint;
+
+/**
+ * Open-model load: requests arrive as a Poisson process at a fixed rate and
+ * are sent whether or not earlier ones have completed, the way independent
+ * users arrive. A slow server therefore builds a queue instead of slowing
+ * the generator down.
+ *
+ * <p>Latency is measured from the time a request was scheduled to arrive,
+ * not from when it was sent, so a stall in the client or the server shows up
+ * in the percentiles (no coordinated omission).
+ */
+class OpenLoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenLoadGenerator.class);
+
+    private static final long MAX_TRACKED_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final TrafficMix mix;
+    private final double ratePerSecond;
+    private final int maxInFlight;
+    private final Random random;
+
+    OpenLoadGenerator(TrafficMix mix, double ratePerSecond, int maxInFlight, Random random) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Load test rate must be positive");
+        }
+        this.executor = Executors.newCachedThreadPool();
+        this.client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(5)).build();
+        this.mix = mix;
+        this.ratePerSecond = ratePerSecond;
+        this.maxInFlight = maxInFlight;
+        this.random = random;
+    }
+
+    /**
+     * Send load for a warmup period that is not recorded, then for the
+     * measured period, and wait for the requests still in flight.
+     */
+    Map<Endpoint, EndpointStats> run(Duration warmup, Duration measured) throws InterruptedException {
+        try {
+            logger.info("Warming up for {}s at {} requests/s", warmup.toSeconds(), ratePerSecond);
+            drive(warmup, newStats());
+            logger.info("Measuring for {}s at {} requests/s", measured.toSeconds(), ratePerSecond);
+            return drive(measured, newStats());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<Endpoint, EndpointStats> drive(Duration duration, Map<Endpoint, EndpointStats> stats)
+            throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long intended = start;
+        while (true) {
+            intended += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = mix.pick(random);
+            EndpointStats endpointStats = stats.get(endpoint);
+            if (inFlight.get() >= maxInFlight) {
+                endpointStats.dropped.increment();
+                continue;
+            }
+            HttpRequest request = mix.request(endpoint, random);
+            long scheduledAt = intended;
+            inFlight.incrementAndGet();
+            client.sendAsync(request, BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                long latency = System.nanoTime() - scheduledAt;
+                endpointStats.latencies.recordValue(Math.min(latency, MAX_TRACKED_NANOS));
+                if (failure != null || response.statusCode() >= 500) {
+                    endpointStats.serverErrors.increment();
+                } else if (response.statusCode() >= 400) {
+                    endpointStats.clientErrors.increment();
+                }
+                inFlight.decrementAndGet();
+            });
+        }
+        long elapsed = System.nanoTime() - start;
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        if (inFlight.get() > 0) {
+            logger.warn("{} requests still in flight after the drain timeout; they are not counted", inFlight.get());
+        }
+        stats.values().forEach(endpointStats -> endpointStats.elapsedNanos = elapsed);
+        return stats;
+    }
+
+    private Map<Endpoint, EndpointStats> newStats() {
+        Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+        List<Endpoint> endpoints = mix.endpoints();
+        endpoints.forEach(endpoint -> stats.put(endpoint, new EndpointStats()));
+        return stats;
+    }
+
+    /**
+     * What one endpoint saw during a phase. Latencies are in nanoseconds.
+     */
+    static class EndpointStats {
+        final Histogram latencies = new ConcurrentHistogram(MAX_TRACKED_NANOS, 3);
+        final LongAdder clientErrors = new LongAdder();
+        final LongAdder serverErrors = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        long elapsedNanos;
+    }
+}
@@ -0,0 +1,130 @@
+package com.ramendirectory.japanramendirectory.loadtest;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.ramendirectory.japanramendirectory.model.Genre;
+import com.ramendirectory.japanramendirectory.model.SoupBase;
+
+/**
+ * Restaurants, users and comments for the load test, written with JDBC
+ * batches on top of the prefectures and areas of the DataLoader. Values are
+ * drawn from a seeded random so every run sees the same data.
+ */
+class SyntheticData {
+
+    static final String PASSWORD = "LoadTest123!";
+
+    private static final String[] OPENING_HOURS = { "11:00-15:00, 17:30-21:00", "11:30-22:00", "18:00-深夜02:00",
+            "24小時營業", "10:30-14:30" };
+    private static final String[] REST_DAYS = { "週一", "週二", "無休", "每週三，週日", "週一和第三個週二" };
+
+    private final List<Long> restaurantIds;
+    private final List<Long> prefectureIds;
+    private final List<Long> areaIds;
+    private final List<String> usernames;
+
+    private SyntheticData(List<Long> restaurantIds, List<Long> prefectureIds, List<Long> areaIds,
+            List<String> usernames) {
+        this.restaurantIds = restaurantIds;
+        this.prefectureIds = prefectureIds;
+        this.areaIds = areaIds;
+        this.usernames = usernames;
+    }
+
+    /**
+     * @param encodedPassword {@link #PASSWORD} encoded once, shared by every user
+     */
+    static SyntheticData seed(JdbcTemplate jdbcTemplate, String encodedPassword, int restaurants, int users,
+            int commentsPerRestaurant, double photoRatio, Random random) {
+        List<Long> prefectureIds = jdbcTemplate.queryForList("SELECT id FROM prefectures ORDER BY id", Long.class);
+        List<Long> areaIds = jdbcTemplate.queryForList("SELECT id FROM areas ORDER BY id", Long.class);
+        if (areaIds.isEmpty()) {
+            throw new IllegalStateException("No areas to place restaurants in; the DataLoader has not run");
+        }
+
+        List<Object[]> addresses = IntStream.range(0, restaurants)
+                .mapToObj(i -> new Object[] { areaIds.get(random.nextInt(areaIds.size())), "loadtest-" + i })
+                .toList();
+        jdbcTemplate.batchUpdate("INSERT INTO address (area_id, detailed_address) VALUES (?, ?)", addresses);
+        List<Long> addressIds = jdbcTemplate.queryForList(
+                "SELECT id FROM address WHERE detailed_address LIKE 'loadtest-%' ORDER BY id", Long.class);
+
+        List<Object[]> rows = new ArrayList<>(restaurants);
+        for (int i = 0; i < restaurants; i++) {
+            rows.add(new Object[] { "ロードテスト" + i, 3.0 + random.nextInt(21) / 10.0, random.nextBoolean(),
+                    8 + random.nextInt(30), OPENING_HOURS[random.nextInt(OPENING_HOURS.length)],
+                    REST_DAYS[random.nextInt(REST_DAYS.length)],
+                    Date.valueOf(LocalDate.of(2000, 1, 1).plusDays(random.nextInt(9000))),
+                    addressIds.get(i), randomMask(Genre.values().length, random),
+                    randomMask(SoupBase.values().length, random) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO restaurants (name, score, reservation_system, seats, opening_hours, "
+                + "rest_day, opening_date, address_id, genre_mask, soup_base_mask) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                rows);
+        List<Long> restaurantIds = jdbcTemplate.queryForList("SELECT r.id FROM restaurants r JOIN address a "
+                + "ON a.id = r.address_id WHERE a.detailed_address LIKE 'loadtest-%' ORDER BY r.id", Long.class);
+
+        List<String> usernames = IntStream.range(0, users).mapToObj(i -> "loadtest" + i).toList();
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, password, role, failed_login_attempts, "
+                + "account_non_locked) VALUES (?, ?, 'USER', 0, TRUE)",
+                usernames.stream().map(username -> new Object[] { username, encodedPassword }).toList());
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users WHERE username LIKE 'loadtest%' "
+                + "ORDER BY id", Long.class);
+
+        List<Object[]> comments = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Long restaurantId : restaurantIds) {
+            for (int i = 0; i < commentsPerRestaurant; i++) {
+                int score = 1 + random.nextInt(5);
+                comments.add(new Object[] { userIds.get(random.nextInt(userIds.size())), restaurantId,
+                        "スープが濃厚", "駅から徒歩五分", "店員さんが親切", score, score, score, score,
+                        Timestamp.valueOf(now.minusMinutes(random.nextInt(60 * 24 * 365))) });
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO comments (user_id, restaurant_id, food_comment, visiting_comment, "
+                + "environment_comment, food_score, visiting_score, environment_score, overall_score, created_at, "
+                + "reported, approved) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE, TRUE)", comments);
+        List<Object[]> photos = jdbcTemplate.queryForList("SELECT c.id FROM comments c JOIN users u "
+                        + "ON u.id = c.user_id WHERE u.username LIKE 'loadtest%'", Long.class).stream()
+                .filter(id -> random.nextDouble() < photoRatio)
+                .map(id -> new Object[] { id, "https://photos.invalid/loadtest/" + id + ".jpg" })
+                .toList();
+        jdbcTemplate.batchUpdate("INSERT INTO comment_photos (comment_id, photo_url) VALUES (?, ?)", photos);
+
+        return new SyntheticData(restaurantIds, prefectureIds, areaIds, usernames);
+    }
+
+    List<Long> restaurantIds() {
+        return restaurantIds;
+    }
+
+    List<Long> prefectureIds() {
+        return prefectureIds;
+    }
+
+    List<Long> areaIds() {
+        return areaIds;
+    }
+
+    List<String> usernames() {
+        return usernames;
+    }
+
+    // One to three bits, like most listings
+    private static int randomMask(int width, Random random) {
+        int mask = 0;
+        for (int i = 0, bits = 1 + random.nextInt(3); i < bits; i++) {
+            mask |= 1 << random.nextInt(width);
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,190 @@
+package com.ramendirectory.japanramendirectory.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+
+import com.ramendirectory.japanramendirectory.model.Genre;
+import com.ramendirectory.japanramendirectory.model.SoupBase;
+
+/**
+ * The requests the load test sends, weighted like production traffic. Each
+ * endpoint builds a request with random parameters over the synthetic data.
+ */
+class TrafficMix {
+
+    enum Endpoint {
+        RANKING("ranking"),
+        RESTAURANT("restaurant"),
+        LATEST_PHOTO("latest-photo"),
+        COMMENT("comment"),
+        LOGIN("login");
+
+        private final String key;
+
+        Endpoint(String key) {
+            this.key = key;
+        }
+
+        String key() {
+            return key;
+        }
+
+        static Endpoint fromKey(String key) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.key.equals(key)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint in load test mix: " + key);
+        }
+    }
+
+    private final String baseUrl;
+    private final SyntheticData data;
+    private final List<String> tokens;
+    private final Duration timeout;
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+
+    /**
+     * @param mix    Weights as "ranking:40,restaurant:30,..."; endpoints left out are not sent
+     * @param tokens Bearer tokens of logged in users, for comment posts
+     */
+    TrafficMix(String baseUrl, SyntheticData data, List<String> tokens, Duration timeout, String mix) {
+        this.baseUrl = baseUrl;
+        this.data = data;
+        this.tokens = tokens;
+        this.timeout = timeout;
+        Map<Endpoint, Integer> weights = parse(mix);
+        this.endpoints = weights.keySet().toArray(Endpoint[]::new);
+        this.cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += weights.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (weights.containsKey(Endpoint.COMMENT) && tokens.isEmpty()) {
+            throw new IllegalArgumentException("Comment posts need at least one logged in user");
+        }
+    }
+
+    List<Endpoint> endpoints() {
+        return List.of(endpoints);
+    }
+
+    Endpoint pick(Random random) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        throw new IllegalStateException("Weight draw out of range: " + draw);
+    }
+
+    HttpRequest request(Endpoint endpoint, Random random) {
+        return switch (endpoint) {
+            case RANKING -> get("/api/ranking?" + rankingQuery(random));
+            case RESTAURANT -> get("/api/restaurants/" + anyOf(data.restaurantIds(), random));
+            case LATEST_PHOTO -> get("/api/comments/restaurant/" + anyOf(data.restaurantIds(), random) + "/latest-photo");
+            case COMMENT -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/comments"))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "Bearer " + anyOf(tokens, random))
+                    .POST(BodyPublishers.ofString(commentJson(random)))
+                    .build();
+            case LOGIN -> login(anyOf(data.usernames(), random));
+        };
+    }
+
+    HttpRequest login(String username) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(BodyPublishers.ofString("{\"username\":\"" + username + "\",\"password\":\""
+                        + SyntheticData.PASSWORD + "\",\"recaptchaResponse\":\"loadtest\"}"))
+                .build();
+    }
+
+    /**
+     * Facets in about the proportions the ranking page uses them: a region
+     * most of the time, a genre or soup base often, the rest now and then.
+     */
+    private String rankingQuery(Random random) {
+        List<String> params = new ArrayList<>();
+        double region = random.nextDouble();
+        if (region < 0.4) {
+            params.add("prefectureId=" + anyOf(data.prefectureIds(), random));
+        } else if (region < 0.7) {
+            params.add("areaId=" + anyOf(data.areaIds(), random));
+        }
+        if (random.nextDouble() < 0.3) {
+            params.add("genres=" + Genre.values()[random.nextInt(Genre.values().length)]);
+        }
+        if (random.nextDouble() < 0.3) {
+            params.add("soupBases=" + URLEncoder.encode(
+                    SoupBase.values()[random.nextInt(SoupBase.values().length)].name(), StandardCharsets.UTF_8));
+        }
+        if (random.nextDouble() < 0.2) {
+            params.add("minScore=" + (3 + random.nextInt(3)));
+        }
+        if (random.nextDouble() < 0.1) {
+            params.add("openNow=true");
+        }
+        params.add("paginated=true");
+        params.add("page=" + (random.nextDouble() < 0.8 ? 0 : random.nextInt(5)));
+        return String.join("&", params);
+    }
+
+    private String commentJson(Random random) {
+        int score = 1 + random.nextInt(5);
+        StringJoiner json = new StringJoiner(",", "{", "}");
+        json.add("\"restaurantId\":" + anyOf(data.restaurantIds(), random));
+        json.add("\"foodComment\":\"麺のコシが強い\"");
+        json.add("\"visitingComment\":\"昼は行列\"");
+        json.add("\"environmentComment\":\"カウンターのみ\"");
+        for (String field : List.of("foodScore", "visitingScore", "environmentScore", "overallScore")) {
+            json.add("\"" + field + "\":" + score);
+        }
+        return json.toString();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(timeout).GET().build();
+    }
+
+    private static <T> T anyOf(List<T> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static Map<Endpoint, Integer> parse(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Load test mix entries are endpoint:weight, got " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + parts[0]);
+            }
+            if (weight > 0) {
+                weights.put(Endpoint.fromKey(parts[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Load test mix has no endpoints");
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,188 @@
+package com.ramendirectory.japanramendirectory.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ramendirectory.japanramendirectory.loadtest.LoadReport.Regression;
+import com.ramendirectory.japanramendirectory.service.OpeningHoursIndex;
+import com.ramendirectory.japanramendirectory.service.ReCaptchaService;
+import com.ramendirectory.japanramendirectory.service.RestaurantDocumentStore;
+
+/**
+ * Replays a production-like traffic mix against the whole application on a
+ * real port, over an embedded database seeded with synthetic data. Only runs
+ * with {@code mvn -Ploadtest verify}; see application-loadtest.properties
+ * for the settings.
+ *
+ * <p>Each run writes a report to target/loadtest. When a baseline report
+ * exists the run fails if an endpoint's p99 regressed by more than the
+ * allowed percentage; -Dloadtest.save-baseline=true makes the run the new
+ * baseline.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({ "test", "loadtest" })
+class TrafficReplayLoadTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficReplayLoadTests.class);
+
+    // Users logged in before the run to post comments
+    private static final int COMMENT_AUTHORS = 20;
+
+    @TestConfiguration
+    static class StubReCaptchaConfig {
+
+        @Bean
+        @Primary
+        ReCaptchaService stubReCaptchaService() {
+            return new ReCaptchaService() {
+                @Override
+                public boolean validateCaptcha(String captchaResponse) {
+                    return StringUtils.hasText(captchaResponse);
+                }
+            };
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private OpeningHoursIndex openingHoursIndex;
+
+    @Autowired
+    private RestaurantDocumentStore restaurantDocumentStore;
+
+    @Value("${loadtest.restaurants}")
+    private int restaurants;
+
+    @Value("${loadtest.users}")
+    private int users;
+
+    @Value("${loadtest.comments-per-restaurant}")
+    private int commentsPerRestaurant;
+
+    @Value("${loadtest.photo-ratio}")
+    private double photoRatio;
+
+    @Value("${loadtest.seed}")
+    private long seed;
+
+    @Value("${loadtest.rate}")
+    private double rate;
+
+    @Value("${loadtest.warmup-seconds}")
+    private long warmupSeconds;
+
+    @Value("${loadtest.duration-seconds}")
+    private long durationSeconds;
+
+    @Value("${loadtest.max-in-flight}")
+    private int maxInFlight;
+
+    @Value("${loadtest.request-timeout-seconds}")
+    private long requestTimeoutSeconds;
+
+    @Value("${loadtest.mix}")
+    private String mix;
+
+    @Value("${loadtest.baseline}")
+    private Path baseline;
+
+    @Value("${loadtest.save-baseline}")
+    private boolean saveBaseline;
+
+    @Value("${loadtest.max-error-rate}")
+    private double maxErrorRate;
+
+    @Value("${loadtest.max-p99-regression-percent}")
+    private double maxP99RegressionPercent;
+
+    @Test
+    void replayTrafficMix() throws Exception {
+        Random random = new Random(seed);
+        SyntheticData data = SyntheticData.seed(jdbcTemplate, passwordEncoder.encode(SyntheticData.PASSWORD),
+                restaurants, users, commentsPerRestaurant, photoRatio, random);
+        openingHoursIndex.migrate();
+        restaurantDocumentStore.backfill();
+        logger.info("Seeded {} restaurants and {} users", data.restaurantIds().size(), data.usernames().size());
+
+        Duration timeout = Duration.ofSeconds(requestTimeoutSeconds);
+        TrafficMix trafficMix = new TrafficMix("http://localhost:" + port, data, login(data, timeout), timeout, mix);
+        Instant startedAt = Instant.now();
+        LoadReport report = LoadReport.of(startedAt, rate, durationSeconds, mix,
+                new OpenLoadGenerator(trafficMix, rate, maxInFlight, random)
+                        .run(Duration.ofSeconds(warmupSeconds), Duration.ofSeconds(durationSeconds)));
+
+        Path reportFile = Path.of("target", "loadtest", "report-"
+                + DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC).format(startedAt) + ".json");
+        report.write(reportFile);
+        logger.info("Load test report written to {}\n{}", reportFile, report.table());
+
+        report.endpoints().forEach(result -> assertTrue(result.errorRate() <= maxErrorRate,
+                () -> result.endpoint() + " error rate " + result.errorRate() + " is above " + maxErrorRate));
+        List<Regression> regressions = LoadReport.read(baseline)
+                .map(previous -> report.regressionsAgainst(previous, maxP99RegressionPercent))
+                .orElseGet(() -> {
+                    logger.info("No baseline at {}; nothing to compare with", baseline);
+                    return List.of();
+                });
+        if (saveBaseline) {
+            Files.copy(reportFile, baseline, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Saved the report as the baseline {}", baseline);
+        }
+        assertTrue(regressions.isEmpty(), () -> "p99 regressed by more than " + maxP99RegressionPercent
+                + "% against " + baseline + ": " + regressions);
+    }
+
+    private List<String> login(SyntheticData data, Duration timeout) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        ObjectMapper objectMapper = new ObjectMapper();
+        TrafficMix loginOnly = new TrafficMix("http://localhost:" + port, data, List.of(), timeout, "login:1");
+        List<String> tokens = new ArrayList<>();
+        for (String username : data.usernames().subList(0, Math.min(COMMENT_AUTHORS, data.usernames().size()))) {
+            HttpResponse<String> response = client.send(loginOnly.login(username),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode(), () -> "Login of " + username + " failed: " + response.body());
+            tokens.add(objectMapper.readTree(response.body()).get("token").asText());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,270 @@
+package com.ramendirectory.japanramendirectory.repository;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.model.Area;
+import com.ramendirectory.japanramendirectory.model.Comment;
+import com.ramendirectory.japanramendirectory.model.Genre;
+import com.ramendirectory.japanramendirectory.model.Prefecture;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.model.SoupBase;
+import com.ramendirectory.japanramendirectory.model.User;
+
+/**
+ * Runs every repository query against the migrated H2 schema, asks H2 for the
+ * plan with EXPLAIN and fails when a query reads a table with a full scan.
+ * Queries that have to scan by design are listed in {@link #ALLOWED_SCANS}.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.ramendirectory.japanramendirectory.repository.RepositoryQueryPlanTests$CapturingStatementInspector")
+@ActiveProfiles("test")
+@Transactional
+class RepositoryQueryPlanTests {
+
+    private static final Map<String, String> ALLOWED_SCANS = Map.of(
+            "RestaurantRepository.findByNameContainingIgnoreCase", "substring search cannot use a B-tree index",
+            "RestaurantRepository.findAllDistinctGenres", "distinct over all rows, covered by the genre mask index",
+            "RestaurantRepository.findAllSoupBases", "distinct over all rows, covered by the soup base mask index",
+            "RestaurantRepository.findAllAreas", "reads every restaurant by definition",
+            "RestaurantRepository.findAllPrefectures", "reads every restaurant by definition");
+
+    private static final Pattern FULL_INDEX_SCAN = Pattern.compile("/\\* public\\.[\\w]+ \\*/");
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PrefectureRepository prefectureRepository;
+
+    @Autowired
+    private AreaRepository areaRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private PhotoVariantRepository photoVariantRepository;
+
+    @Autowired
+    private PhotoObjectRepository photoObjectRepository;
+
+    @Autowired
+    private CommentCooldownRepository commentCooldownRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        User user = userRepository.findAll().get(0);
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("Plan Test Ramen");
+        restaurant = restaurantRepository.save(restaurant);
+        Prefecture prefecture = prefectureRepository.findAll().get(0);
+        Area area = areaRepository.findByPrefecture(prefecture).get(0);
+
+        Restaurant r = restaurant;
+        LocalDateTime since = LocalDateTime.now().minusDays(1);
+        PageRequest page = PageRequest.of(0, 10);
+
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("CommentRepository.findByRestaurantAndApprovedTrueOrderByCreatedAtDesc",
+                () -> commentRepository.findByRestaurantAndApprovedTrueOrderByCreatedAtDesc(r));
+        queries.put("CommentRepository.findByRestaurantAndApprovedTrue",
+                () -> commentRepository.findByRestaurantAndApprovedTrue(r, page));
+        queries.put("CommentRepository.findByRestaurantOrderByCreatedAtDesc",
+                () -> commentRepository.findByRestaurantOrderByCreatedAtDesc(r));
+        queries.put("CommentRepository.findByUserOrderByCreatedAtDesc",
+                () -> commentRepository.findByUserOrderByCreatedAtDesc(user));
+        queries.put("CommentRepository.findByRestaurantAndUser",
+                () -> commentRepository.findByRestaurantAndUser(r, user));
+        queries.put("CommentRepository.existsByRestaurantAndUser",
+                () -> commentRepository.existsByRestaurantAndUser(r, user));
+        queries.put("CommentRepository.existsByRestaurantAndUserAndCreatedAtAfter",
+                () -> commentRepository.existsByRestaurantAndUserAndCreatedAtAfter(r, user, since));
+        queries.put("CommentRepository.findLatestByUserAndRestaurant",
+                () -> commentRepository.findLatestByUserAndRestaurant(user, r, PageRequest.of(0, 1)));
+        queries.put("CommentRepository.findByReportedTrue", () -> commentRepository.findByReportedTrue());
+        queries.put("CommentRepository.countByReportedTrue", () -> commentRepository.countByReportedTrue());
+        queries.put("CommentRepository.countByRestaurant", () -> commentRepository.countByRestaurant(r));
+        queries.put("CommentRepository.findCreatedAfter",
+                () -> commentRepository.findCreatedAfter(since, Long.MAX_VALUE, Limit.of(500)));
+        queries.put("CommentRepository.findUpdatedAfter",
+                () -> commentRepository.findUpdatedAfter(since, since, Long.MAX_VALUE, Limit.of(500)));
+        queries.put("CommentRepository.streamApprovedByRestaurantId", () -> {
+            try (Stream<Comment> comments = commentRepository.streamApprovedByRestaurantId(r.getId())) {
+                comments.count();
+            }
+        });
+        queries.put("CommentRepository.findLatestPhotoByRestaurantIds",
+                () -> commentRepository.findLatestPhotoByRestaurantIds(List.of(r.getId())));
+        queries.put("CommentRepository.findLatestCommentTime",
+                () -> commentRepository.findLatestCommentTime(user.getId(), r.getId()));
+        queries.put("CommentRepository.findFeedByRestaurantId",
+                () -> commentRepository.findFeedByRestaurantId(r.getId(), Limit.of(21)));
+        queries.put("CommentRepository.findFeedByRestaurantIdBefore",
+                () -> commentRepository.findFeedByRestaurantIdBefore(r.getId(), since, 1L, Limit.of(21)));
+        queries.put("CommentRepository.findFeedByUserId",
+                () -> commentRepository.findFeedByUserId(user.getId(), Limit.of(21)));
+        queries.put("CommentRepository.findFeedByUserIdBefore",
+                () -> commentRepository.findFeedByUserIdBefore(user.getId(), since, 1L, Limit.of(21)));
+
+        queries.put("RestaurantRepository.findByOrderByScoreDesc",
+                () -> restaurantRepository.findByOrderByScoreDesc(page));
+        queries.put("RestaurantRepository.findByScoreGreaterThanEqual",
+                () -> restaurantRepository.findByScoreGreaterThanEqual(4.0));
+        queries.put("RestaurantRepository.findByGenre", () -> restaurantRepository.findByGenre(Genre.RAMEN));
+        queries.put("RestaurantRepository.findBySoupBasesContaining",
+                () -> restaurantRepository.findBySoupBasesContaining(SoupBase.醬油));
+        queries.put("RestaurantRepository.findByAreaId", () -> restaurantRepository.findByAreaId(area.getId()));
+        queries.put("RestaurantRepository.findByPrefectureId",
+                () -> restaurantRepository.findByPrefectureId(prefecture.getId()));
+        queries.put("RestaurantRepository.findByIdIn", () -> restaurantRepository.findByIdIn(List.of(r.getId(), 1L)));
+        queries.put("RestaurantRepository.findFields", () -> restaurantRepository.findFields(
+                RestaurantSpecification.hasArea(area.getId()), EnumSet.allOf(RestaurantField.class),
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "score"))));
+        queries.put("RestaurantRepository.streamIds", () -> {
+            try (Stream<Long> ids = restaurantRepository.streamIds(RestaurantSpecification.hasArea(area.getId()),
+                    Sort.by(Sort.Direction.DESC, "score"))) {
+                ids.count();
+            }
+        });
+        queries.put("RestaurantRepository.findIdsByAddressId",
+                () -> restaurantRepository.findIdsByAddressId(1L));
+        queries.put("RestaurantRepository.findIdsByAreaId", () -> restaurantRepository.findIdsByAreaId(area.getId()));
+        queries.put("RestaurantRepository.findIdsByPrefectureId",
+                () -> restaurantRepository.findIdsByPrefectureId(prefecture.getId()));
+        queries.put("RestaurantRepository.findByNameContainingIgnoreCase",
+                () -> restaurantRepository.findByNameContainingIgnoreCase("ramen"));
+        queries.put("RestaurantRepository.findAllDistinctGenres", () -> restaurantRepository.findAllDistinctGenres());
+        queries.put("RestaurantRepository.findAllSoupBases", () -> restaurantRepository.findAllSoupBases());
+        queries.put("RestaurantRepository.findAllAreas", () -> restaurantRepository.findAllAreas());
+        queries.put("RestaurantRepository.findAllPrefectures", () -> restaurantRepository.findAllPrefectures());
+
+        queries.put("UserRepository.findByUsername", () -> userRepository.findByUsername("admin"));
+        queries.put("PrefectureRepository.findByName", () -> prefectureRepository.findByName(prefecture.getName()));
+        queries.put("PrefectureRepository.findByNameInEnglish",
+                () -> prefectureRepository.findByNameInEnglish("Tokyo"));
+        queries.put("AreaRepository.findByPrefectureId", () -> areaRepository.findByPrefectureId(prefecture.getId()));
+        queries.put("AreaRepository.findByNameAndPrefecture",
+                () -> areaRepository.findByNameAndPrefecture(area.getName(), prefecture));
+        queries.put("AreaRepository.findByNameInEnglishAndPrefectureNameInEnglish",
+                () -> areaRepository.findByNameInEnglishAndPrefectureNameInEnglish("Shinjuku", "Tokyo"));
+        queries.put("AddressRepository.findByAreaId", () -> addressRepository.findByAreaId(area.getId()));
+        queries.put("AddressRepository.findByAreaPrefectureId",
+                () -> addressRepository.findByAreaPrefectureId(prefecture.getId()));
+        queries.put("PhotoVariantRepository.findByPhotoUrl",
+                () -> photoVariantRepository.findByPhotoUrl("https://example.com/a.jpg"));
+        queries.put("PhotoVariantRepository.findByPhotoUrlInAndLabel",
+                () -> photoVariantRepository.findByPhotoUrlInAndLabel(List.of("https://example.com/a.jpg"), "thumb"));
+        queries.put("PhotoObjectRepository.findByContentHash",
+                () -> photoObjectRepository.findByContentHash("0".repeat(64)));
+        queries.put("CommentCooldownRepository.findLastCommentAt",
+                () -> commentCooldownRepository.findLastCommentAt(user.getId(), r.getId()));
+        queries.put("AddressRepository.findByPostalCode", () -> addressRepository.findByPostalCode("100-0001"));
+
+        List<String> offenders = new ArrayList<>();
+        Set<String> allowedButUnused = new HashSet<>(ALLOWED_SCANS.keySet());
+
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            CapturingStatementInspector.clear();
+            query.getValue().run();
+            List<String> statements = CapturingStatementInspector.drain();
+            assertFalse(statements.isEmpty(), "No SQL captured for " + query.getKey());
+
+            for (String sql : statements) {
+                String plan = explain(sql);
+                if (isFullScan(plan)) {
+                    if (ALLOWED_SCANS.containsKey(query.getKey())) {
+                        allowedButUnused.remove(query.getKey());
+                    } else {
+                        offenders.add(query.getKey() + ":\n" + plan);
+                    }
+                }
+            }
+        }
+
+        assertTrue(offenders.isEmpty(), "Full table scans found:\n\n" + String.join("\n\n", offenders));
+        assertTrue(allowedButUnused.isEmpty(), "Allowed scans no longer scan, remove them: " + allowedButUnused);
+    }
+
+    /**
+     * H2 marks a full table read as "tableScan" and a full index read as an
+     * index comment without a condition. Reading the first rows of an index in
+     * order ("index sorted" with FETCH FIRST and no WHERE) is a top-N lookup,
+     * not a scan.
+     */
+    private boolean isFullScan(String plan) {
+        if (plan.contains(".tableScan")) {
+            return true;
+        }
+        boolean unconditionedIndex = FULL_INDEX_SCAN.matcher(plan).find();
+        boolean topN = plan.contains("/* index sorted */") && plan.contains("FETCH FIRST") && !plan.contains("WHERE");
+        return unconditionedIndex && !topN;
+    }
+
+    /**
+     * Explain a captured statement. Parameters are bound as NULL, which is
+     * enough for H2 to choose the access path.
+     */
+    private String explain(String sql) {
+        int parameters = (int) sql.chars().filter(c -> c == '?').count();
+        Object[] args = Collections.nCopies(parameters, null).toArray();
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.trim().toLowerCase().startsWith("select")) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+
+        static void clear() {
+            STATEMENTS.clear();
+        }
+
+        static List<String> drain() {
+            synchronized (STATEMENTS) {
+                List<String> copy = new ArrayList<>(STATEMENTS);
+                STATEMENTS.clear();
+                return copy;
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.ramendirectory.japanramendirectory.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.model.Address;
+import com.ramendirectory.japanramendirectory.model.Genre;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.model.SoupBase;
+import com.ramendirectory.japanramendirectory.service.LegacyCollectionTables;
+import com.ramendirectory.japanramendirectory.service.RestaurantDocumentStore;
+import com.ramendirectory.japanramendirectory.service.RestaurantService;
+
+import db.migration.V14__Copy_restaurant_collections;
+import jakarta.persistence.EntityManager;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class RestaurantCollectionColumnsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private AreaRepository areaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private LegacyCollectionTables legacyCollectionTables;
+
+    @Autowired
+    private RestaurantDocumentStore restaurantDocumentStore;
+
+    @Test
+    void collectionsAreStoredOnTheRestaurantRowAndFilterByMask() throws Exception {
+        Restaurant restaurant = restaurant("ビットマスクテスト");
+        restaurant.setGenres(EnumSet.of(Genre.TSUKEMEN, Genre.OTHER));
+        restaurant.setSoupBases(EnumSet.of(SoupBase.豚骨, SoupBase.魚介));
+        restaurant.setSocialMediaLinks(Map.of("x", "https://x.com/ramen", "instagram", "https://instagram.com/ramen"));
+        Long id = restaurantService.createRestaurant(restaurant).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT genre_mask, soup_base_mask, social_media_links FROM restaurants WHERE id = ?", id);
+        assertEquals(1 << Genre.TSUKEMEN.ordinal() | 1 << Genre.OTHER.ordinal(), row.get("genre_mask"));
+        assertEquals(1 << SoupBase.豚骨.ordinal() | 1 << SoupBase.魚介.ordinal(), row.get("soup_base_mask"));
+        assertEquals("{\"instagram\":\"https://instagram.com/ramen\",\"x\":\"https://x.com/ramen\"}",
+                row.get("social_media_links"));
+
+        Restaurant loaded = restaurantRepository.findById(id).orElseThrow();
+        assertEquals(EnumSet.of(Genre.TSUKEMEN, Genre.OTHER), loaded.getGenres());
+        assertEquals("https://x.com/ramen", loaded.getSocialMediaLinks().get("x"));
+        assertTrue(restaurantRepository.findByGenre(Genre.OTHER).stream().anyMatch(r -> r.getId().equals(id)));
+        assertTrue(restaurantRepository.findByGenre(Genre.RAMEN).stream().noneMatch(r -> r.getId().equals(id)));
+
+        mockMvc.perform(get("/api/ranking").param("name", "ビットマスクテスト").param("soupBases", "醬油", "魚介"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(id));
+        mockMvc.perform(get("/api/ranking").param("name", "ビットマスクテスト").param("genres", "RAMEN"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void migrationCopiesTheSideTables() throws Exception {
+        Long id = restaurantService.createRestaurant(restaurant("移行テスト")).getId();
+        entityManager.flush();
+        jdbcTemplate.update("INSERT INTO restaurant_genres (restaurant_id, genre) VALUES (?, 'RAMEN'), (?, 'TANTANMEN')",
+                id, id);
+        jdbcTemplate.update("INSERT INTO restaurant_soup_bases (restaurant_id, soup_base) VALUES (?, '味噌')", id);
+
+        Context context = mock(Context.class);
+        when(context.getConnection()).thenReturn(DataSourceUtils.getConnection(dataSource));
+        new V14__Copy_restaurant_collections().migrate(context);
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT genre_mask, soup_base_mask, social_media_links FROM restaurants WHERE id = ?", id);
+        assertEquals(1 << Genre.RAMEN.ordinal() | 1 << Genre.TANTANMEN.ordinal(), row.get("genre_mask"));
+        assertEquals(1 << SoupBase.味噌.ordinal(), row.get("soup_base_mask"));
+        assertNull(row.get("social_media_links"));
+    }
+
+    @Test
+    void legacyTablesAreWrittenAlongsideAndReconciledBack() {
+        Restaurant restaurant = restaurant("二重書き込みテスト");
+        restaurant.setGenres(EnumSet.of(Genre.RAMEN));
+        restaurant.setSocialMediaLinks(Map.of("x", "https://x.com/ramen"));
+        Long id = restaurantService.createRestaurant(restaurant).getId();
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(List.of("RAMEN"), jdbcTemplate.queryForList(
+                "SELECT genre FROM restaurant_genres WHERE restaurant_id = ?", String.class, id));
+        assertEquals(List.of("x"), jdbcTemplate.queryForList(
+                "SELECT platform FROM restaurant_social_media_links WHERE restaurant_id = ?", String.class, id));
+
+        // An edit made by an instance of the previous version
+        jdbcTemplate.update("DELETE FROM restaurant_genres WHERE restaurant_id = ?", id);
+        jdbcTemplate.update("DELETE FROM restaurant_social_media_links WHERE restaurant_id = ?", id);
+        jdbcTemplate.update("INSERT INTO restaurant_genres (restaurant_id, genre) VALUES (?, 'TSUKEMEN')", id);
+        jdbcTemplate.update("INSERT INTO restaurant_soup_bases (restaurant_id, soup_base) VALUES (?, '味噌')", id);
+
+        assertTrue(legacyCollectionTables.reconcile() >= 1);
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT genre_mask, soup_base_mask, social_media_links FROM restaurants WHERE id = ?", id);
+        assertEquals(1 << Genre.TSUKEMEN.ordinal(), row.get("genre_mask"));
+        assertEquals(1 << SoupBase.味噌.ordinal(), row.get("soup_base_mask"));
+        assertNull(row.get("social_media_links"));
+        assertTrue(restaurantDocumentStore.find(id).orElseThrow().contains("味噌"));
+        assertEquals(0, legacyCollectionTables.reconcile());
+
+        assertTrue(restaurantService.deleteRestaurant(id));
+        entityManager.flush();
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM restaurant_genres WHERE restaurant_id = ?", Integer.class, id));
+    }
+
+    private Restaurant restaurant(String name) {
+        Address address = new Address();
+        address.setDetailedAddress("1-2-3");
+        address.setArea(areaRepository.findAll().get(0));
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName(name);
+        restaurant.setAddress(address);
+        return restaurant;
+    }
+}
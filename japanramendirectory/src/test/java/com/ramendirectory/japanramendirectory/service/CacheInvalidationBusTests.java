@@ -0,0 +1,138 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ramendirectory.japanramendirectory.JapanramendirectoryApplication;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.service.CacheInvalidationBus.EntityType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Two application instances sharing one embedded database, as two replicas
+ * share MySQL. Polling is driven by the test instead of the scheduler.
+ */
+class CacheInvalidationBusTests {
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    private final List<Long> seenByB = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(JapanramendirectoryApplication.class)
+                .profiles("test")
+                .run("--server.port=0", "--app.cache.invalidation.poll-interval-ms=3600000");
+    }
+
+    @BeforeEach
+    void setUp() {
+        busB().poll();
+        busB().subscribe(EntityType.RESTAURANT, seenByB::add);
+    }
+
+    @Test
+    void writeOnOneNodeEvictsCacheOnTheOther() {
+        RestaurantService restaurantsA = nodeA.getBean(RestaurantService.class);
+        RestaurantService restaurantsB = nodeB.getBean(RestaurantService.class);
+
+        List<?> cached = restaurantsB.getAllGenres();
+        assertSame(cached, restaurantsB.getAllGenres());
+
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("Invalidation Test Ramen");
+        Long id = restaurantsA.createRestaurant(restaurant).getId();
+        try {
+            assertSame(cached, restaurantsB.getAllGenres(), "B only learns about the write by polling");
+            assertEquals(1, busB().poll());
+            assertEquals(List.of(id), seenByB);
+            assertNotSame(cached, restaurantsB.getAllGenres());
+        } finally {
+            restaurantsA.deleteRestaurant(id);
+        }
+    }
+
+    @Test
+    void changeCommittedAfterALaterOneIsNotLost() {
+        CacheInvalidationBus busA = nodeA.getBean(CacheInvalidationBus.class);
+        TransactionTemplate outer = new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class));
+        TransactionTemplate inner = new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class));
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        outer.executeWithoutResult(status -> {
+            busA.record(EntityType.RESTAURANT, -1L);
+            inner.executeWithoutResult(innerStatus -> busA.record(EntityType.RESTAURANT, -2L));
+            // The later version is visible while the earlier one is still uncommitted
+            assertEquals(1, busB().poll());
+            assertEquals(List.of(-2L), seenByB);
+        });
+
+        assertEquals(1, busB().poll());
+        assertEquals(List.of(-2L, -1L), seenByB);
+        assertEquals(0, busB().poll());
+    }
+
+    @Test
+    void changeInFlightDuringTheFirstPollIsNotLost() {
+        CacheInvalidationBus busA = nodeA.getBean(CacheInvalidationBus.class);
+        CacheInvalidationBus fresh = new CacheInvalidationBus(nodeB.getBean(JdbcTemplate.class),
+                nodeB.getBean(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(fresh, "batchSize", 500);
+        ReflectionTestUtils.setField(fresh, "maxGaps", 1000);
+        ReflectionTestUtils.setField(fresh, "gapTimeoutMs", 60000L);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        TransactionTemplate outer = new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class));
+        TransactionTemplate inner = new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class));
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        outer.executeWithoutResult(status -> {
+            busA.record(EntityType.RESTAURANT, -3L);
+            inner.executeWithoutResult(innerStatus -> busA.record(EntityType.RESTAURANT, -4L));
+            // Starts above the committed later version while the earlier one is in flight
+            assertEquals(0, fresh.poll());
+            fresh.subscribe(EntityType.RESTAURANT, seen::add);
+        });
+
+        assertEquals(1, fresh.poll());
+        assertEquals(List.of(-3L), seen);
+    }
+
+    @Test
+    void recordingOutsideATransactionIsRejected() {
+        assertThrows(IllegalStateException.class, () -> busB().record(EntityType.ADDRESS, 1L));
+    }
+
+    private static CacheInvalidationBus busB() {
+        return nodeB.getBean(CacheInvalidationBus.class);
+    }
+}
@@ -0,0 +1,79 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static com.ramendirectory.japanramendirectory.service.CommentFixtures.request;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.dto.CommentDTO;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.model.User;
+import com.ramendirectory.japanramendirectory.repository.CommentCooldownRepository;
+import com.ramendirectory.japanramendirectory.repository.RestaurantRepository;
+import com.ramendirectory.japanramendirectory.repository.UserRepository;
+
+@SpringBootTest(properties = "app.comment.cooldown-hours=24")
+@ActiveProfiles("test")
+@Transactional
+class CommentCooldownServiceTests {
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private CommentCooldownRepository cooldownRepository;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Restaurant restaurant;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.findAll().get(0);
+        restaurant = new Restaurant();
+        restaurant.setName("Cooldown Test Ramen");
+        restaurant = restaurantRepository.save(restaurant);
+    }
+
+    @Test
+    void secondCommentWaitsForCooldownUntilFirstIsDeleted() {
+        assertTrue(commentService.canUserCommentOnRestaurant(user.getId(), restaurant.getId()));
+        CommentDTO first = commentService.createComment(request(restaurant.getId()), user.getId());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> commentService.createComment(request(restaurant.getId()), user.getId()));
+        assertTrue(commentService.getTimeWhenUserCanCommentAgain(user.getId(), restaurant.getId()).isPresent());
+
+        commentService.deleteComment(first.getId(), user.getId());
+        assertFalse(commentService.hasUserCommentedOnRestaurant(user.getId(), restaurant.getId()));
+        commentService.createComment(request(restaurant.getId()), user.getId());
+    }
+
+    @Test
+    void onlyOneOfTwoRacingWritersWins() {
+        LocalDateTime seen = CommentCooldownService.now().minusDays(2);
+        assertEquals(1, cooldownRepository.insertIfAbsent(user.getId(), restaurant.getId(), seen));
+        assertEquals(0, cooldownRepository.insertIfAbsent(user.getId(), restaurant.getId(), seen));
+
+        // Both read the same old time; the second compare-and-set finds it changed
+        LocalDateTime now = CommentCooldownService.now();
+        assertEquals(1, cooldownRepository.compareAndSetLastCommentAt(user.getId(), restaurant.getId(), seen, now));
+        assertEquals(0, cooldownRepository.compareAndSetLastCommentAt(user.getId(), restaurant.getId(), seen,
+                now.plusSeconds(1)));
+    }
+}
@@ -0,0 +1,124 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static com.ramendirectory.japanramendirectory.service.CommentFixtures.comment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.dto.CommentDTO;
+import com.ramendirectory.japanramendirectory.dto.CursorPage;
+import com.ramendirectory.japanramendirectory.model.Comment;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.model.User;
+import com.ramendirectory.japanramendirectory.repository.CommentRepository;
+import com.ramendirectory.japanramendirectory.repository.RestaurantRepository;
+import com.ramendirectory.japanramendirectory.repository.UserRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class CommentFeedTests {
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void feedWalksEveryCommentOnceWhenTimestampsTie() {
+        User user = userRepository.findAll().get(0);
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("Feed Test Ramen");
+        restaurant = restaurantRepository.save(restaurant);
+
+        // Three comments share a timestamp so the id decides their order
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(0, newComment(user, restaurant, i < 3 ? now : now.plusMinutes(i)).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<CommentDTO> page = commentService.getCommentFeedByRestaurant(restaurant.getId(), cursor, 2);
+            page.getContent().forEach(comment -> seen.add(comment.getId()));
+            cursor = page.getNextCursor();
+            assertEquals(page.isHasMore(), cursor != null);
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> commentService.getCommentFeedByRestaurant(1L, "not-a-cursor", 10));
+        CommentServiceImpl.FeedCursor cursor =
+                new CommentServiceImpl.FeedCursor(LocalDateTime.of(2025, 1, 2, 3, 4, 5, 6000), 42L);
+        assertEquals(cursor, CommentServiceImpl.FeedCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void emptyFeedHasNoCursor() {
+        User user = userRepository.findAll().get(0);
+        CursorPage<CommentDTO> page = commentService.getCommentFeedByUser(user.getId() + 100_000, null, 10);
+        assertTrue(page.getContent().isEmpty());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void thumbnailIsTheFirstPhotoOfTheLatestCommentWhenTimestampsTie() {
+        User user = userRepository.findAll().get(0);
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("Thumbnail Test Ramen");
+        restaurant = restaurantRepository.save(restaurant);
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        newComment(user, restaurant, now.minusDays(1), "https://photos.invalid/older.jpg");
+        newComment(user, restaurant, now, "https://photos.invalid/tied-1a.jpg", "https://photos.invalid/tied-1b.jpg");
+        newComment(user, restaurant, now, "https://photos.invalid/tied-2a.jpg", "https://photos.invalid/tied-2b.jpg");
+        newComment(user, restaurant, now.plusMinutes(1));
+        Comment hidden = newComment(user, restaurant, now.plusMinutes(2), "https://photos.invalid/hidden.jpg");
+        hidden.setApproved(false);
+        commentRepository.flush();
+
+        // Newer comments without photos or not approved are skipped, the tie goes to the higher id
+        assertEquals("https://photos.invalid/tied-2a.jpg",
+                commentService.getThumbnailUrlsForRestaurants(List.of(restaurant.getId())).get(restaurant.getId()));
+        assertEquals("https://photos.invalid/tied-2a.jpg",
+                commentService.getLatestPhotoUrlForRestaurant(restaurant.getId()).orElseThrow());
+    }
+
+    private Comment newComment(User user, Restaurant restaurant, LocalDateTime createdAt, String... photos) {
+        Comment comment = comment(user, restaurant);
+        comment.setCreatedAt(createdAt);
+        for (String photo : photos) {
+            comment.addPhoto(photo);
+        }
+        return commentRepository.save(comment);
+    }
+}
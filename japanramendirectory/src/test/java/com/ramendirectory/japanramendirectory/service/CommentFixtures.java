@@ -0,0 +1,46 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import com.ramendirectory.japanramendirectory.dto.CommentRequestDTO;
+import com.ramendirectory.japanramendirectory.model.Comment;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.model.User;
+
+/**
+ * Comments and comment requests with the required texts and scores filled
+ * in, so a test only sets the fields it checks.
+ */
+final class CommentFixtures {
+
+    private CommentFixtures() {
+    }
+
+    /**
+     * An unsaved comment of a user on a restaurant.
+     */
+    static Comment comment(User user, Restaurant restaurant) {
+        Comment comment = new Comment();
+        comment.setUser(user);
+        comment.setRestaurant(restaurant);
+        comment.setFoodComment("food");
+        comment.setVisitingComment("visit");
+        comment.setEnvironmentComment("environment");
+        comment.setFoodScore(3);
+        comment.setVisitingScore(3);
+        comment.setEnvironmentScore(3);
+        comment.setOverallScore(3);
+        return comment;
+    }
+
+    static CommentRequestDTO request(Long restaurantId) {
+        CommentRequestDTO request = new CommentRequestDTO();
+        request.setRestaurantId(restaurantId);
+        request.setFoodComment("food");
+        request.setVisitingComment("visit");
+        request.setEnvironmentComment("environment");
+        request.setFoodScore(3);
+        request.setVisitingScore(3);
+        request.setEnvironmentScore(3);
+        request.setOverallScore(3);
+        return request;
+    }
+}
@@ -0,0 +1,42 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ImageVariantServiceTests {
+
+    @Test
+    void scaleKeepsAspectRatioAndFitsLongestEdge() {
+        BufferedImage landscape = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB);
+        BufferedImage scaled = ImageVariantService.scale(landscape, 320, false);
+        assertEquals(320, scaled.getWidth());
+        assertEquals(240, scaled.getHeight());
+
+        BufferedImage portrait = new BufferedImage(900, 1600, BufferedImage.TYPE_INT_ARGB);
+        scaled = ImageVariantService.scale(portrait, 1024, true);
+        assertEquals(576, scaled.getWidth());
+        assertEquals(1024, scaled.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_ARGB, scaled.getType());
+    }
+
+    @Test
+    void variantKeyReplacesExtension() {
+        assertEquals("comments/1/2/20250101_120000_abc_thumb.jpg",
+                ImageVariantService.variantKey("comments/1/2/20250101_120000_abc.jpeg", "thumb", "jpg"));
+        assertEquals("comments/1.5/2/photo_medium.png",
+                ImageVariantService.variantKey("comments/1.5/2/photo", "medium", "png"));
+    }
+
+    @Test
+    void parseVariantsRejectsMalformedEntries() {
+        assertEquals(List.of(new ImageVariantService.VariantSize("thumb", 320),
+                new ImageVariantService.VariantSize("medium", 1024)),
+                ImageVariantService.parseVariants("thumb:320, medium:1024"));
+        assertThrows(IllegalArgumentException.class, () -> ImageVariantService.parseVariants("thumb"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ramendirectory.japanramendirectory.model.Address;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.repository.AreaRepository;
+import com.ramendirectory.japanramendirectory.service.OpeningHoursIndex.MigrationReport;
+import com.ramendirectory.japanramendirectory.util.OpeningHoursParser;
+import com.ramendirectory.japanramendirectory.util.OpeningHoursParser.Interval;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OpeningHoursIndexTests {
+
+    // A Monday and the Tuesday after it
+    private static final LocalDateTime MONDAY_NOON = LocalDateTime.of(2025, 6, 2, 12, 0);
+    private static final LocalDateTime TUESDAY_NOON = LocalDateTime.of(2025, 6, 3, 12, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private AreaRepository areaRepository;
+
+    @Autowired
+    private OpeningHoursIndex openingHoursIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void parsesListingsIntoWeeklyIntervals() {
+        List<Interval> split = OpeningHoursParser.parse("11:00-15:00, 17:30-20:00", "每週三，週五，週日");
+        assertEquals(8, split.size());
+        assertEquals(new Interval(11 * 60, 15 * 60), split.get(0));
+
+        List<Interval> lateNight = OpeningHoursParser.parse("11:00-深夜01:00", "週一和第三個週二");
+        Interval sunday = lateNight.get(lateNight.size() - 1);
+        assertEquals(6 * OpeningHoursParser.MINUTES_PER_DAY + 11 * 60, sunday.opensAt());
+        assertTrue(sunday.closesAt() > OpeningHoursParser.MINUTES_PER_WEEK);
+
+        assertEquals(7, OpeningHoursParser.parse("24小時營業", "無休").size());
+        assertThrows(IllegalArgumentException.class, () -> OpeningHoursParser.parse("昼のみ", "無休"));
+        assertThrows(IllegalArgumentException.class, () -> OpeningHoursParser.parse("11:00-15:00", "月曜"));
+    }
+
+    @Test
+    void rankingKeepsRestaurantsOpenAtTheRequestedTime() throws Exception {
+        Long id = restaurantService.createRestaurant(restaurant("営業中テスト", "11:00-15:00", "週一")).getId();
+        try {
+            assertTrue(openingHoursIndex.openAt(TUESDAY_NOON).get(id.intValue()));
+            assertFalse(openingHoursIndex.openAt(MONDAY_NOON).get(id.intValue()));
+            assertFalse(openingHoursIndex.openAt(TUESDAY_NOON.withHour(15)).get(id.intValue()));
+
+            mockMvc.perform(get("/api/ranking").param("name", "営業中テスト").param("openAt", "2025-06-03T12:00"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andExpect(jsonPath("$[0].id").value(id));
+            mockMvc.perform(get("/api/ranking").param("name", "営業中テスト").param("openAt", "2025-06-02T12:00"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(0));
+            mockMvc.perform(get("/api/ranking").param("openAt", "2025-06-03T12:00").param("paginated", "true")
+                    .param("sortBy", "name").param("size", "1000"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[?(@.id == " + id + ")]").exists());
+            mockMvc.perform(get("/api/ranking").param("name", "営業中テスト").param("openAt", "2025-06-02T12:00")
+                    .param("paginated", "true"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").value(0));
+
+            // Text written around the services is picked up, or reported, by the migration
+            jdbcTemplate.update("DELETE FROM restaurant_opening_hours WHERE restaurant_id = ?", id);
+            jdbcTemplate.update("UPDATE restaurants SET opening_hours = '昼のみ' WHERE id = ?", id);
+            MigrationReport report = openingHoursIndex.migrate();
+            assertTrue(report.unparseable().stream().anyMatch(failure -> failure.restaurantId().equals(id)),
+                    report.toString());
+        } finally {
+            restaurantService.deleteRestaurant(id);
+        }
+        assertFalse(openingHoursIndex.openAt(TUESDAY_NOON).get(id.intValue()));
+    }
+
+    private Restaurant restaurant(String name, String openingHours, String restDay) {
+        Address address = new Address();
+        address.setDetailedAddress("1-2-3");
+        address.setArea(areaRepository.findAll().get(0));
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName(name);
+        restaurant.setOpeningHours(openingHours);
+        restaurant.setRestDay(restDay);
+        restaurant.setAddress(address);
+        return restaurant;
+    }
+}
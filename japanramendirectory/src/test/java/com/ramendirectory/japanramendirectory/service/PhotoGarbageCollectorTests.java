@@ -0,0 +1,92 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static com.ramendirectory.japanramendirectory.service.CommentFixtures.comment;
+
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.model.Comment;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.model.User;
+import com.ramendirectory.japanramendirectory.repository.CommentRepository;
+import com.ramendirectory.japanramendirectory.repository.RestaurantRepository;
+import com.ramendirectory.japanramendirectory.repository.UserRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class PhotoGarbageCollectorTests {
+
+    @Autowired
+    private PhotoGarbageCollector photoGarbageCollector;
+
+    @Autowired
+    private LocalPhotoStorage photoStorage;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void onlyOldUnreferencedObjectsAreDeleted() throws Exception {
+        String prefix = "comments/gc-" + UUID.randomUUID() + "/";
+        String kept = prefix + "kept.jpg";
+        String orphan = prefix + "orphan.jpg";
+        String recent = prefix + "recent.jpg";
+        for (String key : new String[] { kept, orphan, recent }) {
+            photoStorage.put(key, key.getBytes(), "image/jpeg");
+        }
+        age(kept);
+        age(orphan);
+
+        Comment comment = newComment();
+        comment.addPhoto(photoStorage.getUrl(kept));
+        commentRepository.saveAndFlush(comment);
+
+        PhotoGarbageCollector.Report dryRun = photoGarbageCollector.collect(true);
+        assertTrue(dryRun.orphans() >= 1);
+        assertEquals(0, dryRun.deleted());
+        assertTrue(photoStorage.stat(orphan).isPresent());
+
+        PhotoGarbageCollector.Report report = photoGarbageCollector.collect(false);
+        assertTrue(report.deleted() >= 1);
+        assertFalse(photoStorage.stat(orphan).isPresent());
+        assertTrue(photoStorage.stat(kept).isPresent());
+        assertTrue(photoStorage.stat(recent).isPresent());
+    }
+
+    @Test
+    void hashIsStableAcrossCalls() {
+        assertEquals(PhotoGarbageCollector.hash("photos/ab/ab12.jpg"), PhotoGarbageCollector.hash("photos/ab/ab12.jpg"));
+        assertFalse(PhotoGarbageCollector.hash("photos/ab/ab12.jpg") == PhotoGarbageCollector.hash("photos/ab/ab13.jpg"));
+    }
+
+    private void age(String key) throws Exception {
+        Files.setLastModifiedTime(photoStorage.resolve(key), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+    }
+
+    private Comment newComment() {
+        User user = userRepository.findAll().get(0);
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("GC Test Ramen");
+        restaurant = restaurantRepository.save(restaurant);
+        return commentRepository.save(comment(user, restaurant));
+    }
+}
@@ -0,0 +1,127 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.model.Address;
+import com.ramendirectory.japanramendirectory.model.Area;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.repository.AreaRepository;
+import com.ramendirectory.japanramendirectory.repository.RestaurantRepository;
+import com.ramendirectory.japanramendirectory.service.RestaurantDocumentStore.CheckReport;
+import com.ramendirectory.japanramendirectory.service.RestaurantTextStore.Kind;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class RestaurantDocumentStoreTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private AreaRepository areaRepository;
+
+    @Autowired
+    private RestaurantDocumentStore restaurantDocumentStore;
+
+    @Autowired
+    private RestaurantTextStore restaurantTextStore;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void documentFollowsWritesToTheRestaurantAndItsArea() throws Exception {
+        Area area = areaRepository.findAll().get(0);
+        Long id = restaurantService.createRestaurant(restaurant("らーめん 文書", area)).getId();
+
+        String document = restaurantDocumentStore.find(id).orElseThrow();
+        assertTrue(document.contains("らーめん 文書"), document);
+        String body = mockMvc.perform(get("/api/restaurants/" + id))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertEquals(document, body);
+
+        Area renamed = new Area();
+        renamed.setName("文書テスト区");
+        renamed.setNameInEnglish(area.getNameInEnglish());
+        renamed.setPrefecture(area.getPrefecture());
+        addressService.updateArea(area.getId(), renamed);
+        assertTrue(restaurantDocumentStore.find(id).orElseThrow().contains("文書テスト区"));
+
+        restaurantService.deleteRestaurant(id);
+        assertTrue(restaurantDocumentStore.find(id).isEmpty());
+    }
+
+    @Test
+    void checkFindsAndRepairsStaleDocuments() {
+        Long id = restaurantService.createRestaurant(restaurant("Stale Ramen", areaRepository.findAll().get(0)))
+                .getId();
+        jdbcTemplate.update("UPDATE restaurant_documents SET document = '{}' WHERE restaurant_id = ?", id);
+
+        CheckReport report = restaurantDocumentStore.check(true);
+        assertTrue(report.stale() >= 1, report.toString());
+        assertTrue(restaurantDocumentStore.find(id).orElseThrow().contains("Stale Ramen"));
+
+        CheckReport again = restaurantDocumentStore.check(false);
+        assertEquals(0, again.missing());
+        assertEquals(0, again.stale());
+    }
+
+    @Test
+    void unbuiltDocumentsAreAssembledWithTheirTexts() {
+        Area area = areaRepository.findAll().get(0);
+        Long withTexts = restaurantService.createRestaurant(restaurant("Unbuilt Ramen", area)).getId();
+        Long plain = restaurantService.createRestaurant(restaurant("Unbuilt Tsukemen", area)).getId();
+        restaurantTextStore.save(withTexts, Kind.MENU, "醤油らーめん 800円");
+        restaurantTextStore.save(withTexts, Kind.DESCRIPTION, "Family run since 1962.");
+        jdbcTemplate.update("DELETE FROM restaurant_documents WHERE restaurant_id IN (?, ?)", withTexts, plain);
+
+        Map<Long, String> documents = restaurantDocumentStore.findAll(List.of(withTexts, plain));
+        assertEquals(restaurantDocumentStore.render(restaurantRepository.findById(withTexts).orElseThrow()),
+                documents.get(withTexts));
+        assertTrue(documents.get(withTexts).contains("醤油らーめん 800円"));
+        assertTrue(documents.get(withTexts).contains("Family run since 1962."));
+        assertEquals(restaurantDocumentStore.render(restaurantRepository.findById(plain).orElseThrow()),
+                documents.get(plain));
+    }
+
+    private static Restaurant restaurant(String name, Area area) {
+        Address address = new Address();
+        address.setDetailedAddress("1-2-3");
+        address.setArea(area);
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName(name);
+        restaurant.setAddress(address);
+        return restaurant;
+    }
+}
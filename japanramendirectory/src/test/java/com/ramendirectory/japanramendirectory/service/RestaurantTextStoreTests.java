@@ -0,0 +1,138 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.model.Address;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.repository.AreaRepository;
+import com.ramendirectory.japanramendirectory.service.RestaurantTextStore.Kind;
+
+import jakarta.persistence.EntityManager;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class RestaurantTextStoreTests {
+
+    private static final String MENU = "特製醤油らーめん 🍜 1200円\n".repeat(40);
+    private static final int MENU_LENGTH = MENU.codePointCount(0, MENU.length());
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestaurantService restaurantService;
+
+    @Autowired
+    private RestaurantTextStore restaurantTextStore;
+
+    @Autowired
+    private RestaurantDocumentStore restaurantDocumentStore;
+
+    @Autowired
+    private AreaRepository areaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void listsCarryTheSummaryAndTheMenuEndpointServesTheText() throws Exception {
+        Long id = createRestaurant("圧縮テスト");
+        restaurantTextStore.save(id, Kind.MENU, MENU);
+        entityManager.flush();
+        entityManager.clear();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT menu_content, menu_content_deflated, content_length, content_summary FROM menus "
+                        + "WHERE restaurant_id = ?", id);
+        assertNull(row.get("menu_content"));
+        assertTrue(((byte[]) row.get("menu_content_deflated")).length < MENU.getBytes(StandardCharsets.UTF_8).length);
+        assertEquals(MENU_LENGTH, row.get("content_length"));
+        assertTrue(((String) row.get("content_summary")).endsWith("…"));
+
+        mockMvc.perform(get("/api/restaurants").param("name", "圧縮テスト"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].menuLength").value(MENU_LENGTH))
+                .andExpect(jsonPath("$[0].menuSummary").value(row.get("content_summary")))
+                .andExpect(jsonPath("$[0].menuContent").doesNotExist());
+
+        String etag = mockMvc.perform(get("/api/restaurants/" + id + "/menu"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/plain"))
+                .andExpect(content().string(MENU))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/restaurants/" + id + "/menu").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mockMvc.perform(get("/api/restaurants/" + id + "/description"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void compactionCompressesPlainTextRows() {
+        Long id = createRestaurant("旧形式テスト");
+        jdbcTemplate.update("INSERT INTO restaurant_descriptions (restaurant_id, content) VALUES (?, ?)", id,
+                "昔ながらの中華そば");
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals("昔ながらの中華そば", restaurantTextStore.find(id, Kind.DESCRIPTION).orElseThrow().content());
+        assertTrue(restaurantTextStore.findHash(id, Kind.DESCRIPTION).isEmpty());
+        assertFalse(restaurantDocumentStore.find(id).orElseThrow().contains("昔ながらの中華そば"));
+
+        assertTrue(restaurantTextStore.compact() >= 1);
+        assertEquals("昔ながらの中華そば", restaurantTextStore.find(id, Kind.DESCRIPTION).orElseThrow().content());
+        assertEquals(restaurantTextStore.find(id, Kind.DESCRIPTION).orElseThrow().hash(),
+                restaurantTextStore.findHash(id, Kind.DESCRIPTION).orElseThrow());
+        assertNull(jdbcTemplate.queryForObject("SELECT content FROM restaurant_descriptions WHERE restaurant_id = ?",
+                String.class, id));
+        assertTrue(restaurantDocumentStore.find(id).orElseThrow().contains("昔ながらの中華そば"));
+    }
+
+    @Test
+    void compactionClearsBlankPlainTextWithoutDeletingTheRow() {
+        Long id = createRestaurant("空白テスト");
+        jdbcTemplate.update("INSERT INTO menus (restaurant_id, menu_content) VALUES (?, ?)", id, "  \n ");
+
+        restaurantTextStore.compact();
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT menu_content, menu_content_deflated FROM menus WHERE restaurant_id = ?", id);
+        assertNull(row.get("menu_content"));
+        assertNull(row.get("menu_content_deflated"));
+        assertTrue(restaurantTextStore.find(id, Kind.MENU).isEmpty());
+    }
+
+    private Long createRestaurant(String name) {
+        Address address = new Address();
+        address.setDetailedAddress("1-2-3");
+        address.setArea(areaRepository.findAll().get(0));
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName(name);
+        restaurant.setAddress(address);
+        return restaurantService.createRestaurant(restaurant).getId();
+    }
+}
@@ -0,0 +1,165 @@
+package com.ramendirectory.japanramendirectory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static com.ramendirectory.japanramendirectory.service.CommentFixtures.comment;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ramendirectory.japanramendirectory.dto.PhotoUploadSlotDTO;
+import com.ramendirectory.japanramendirectory.model.Comment;
+import com.ramendirectory.japanramendirectory.model.Restaurant;
+import com.ramendirectory.japanramendirectory.model.User;
+import com.ramendirectory.japanramendirectory.repository.CommentRepository;
+import com.ramendirectory.japanramendirectory.repository.RestaurantRepository;
+import com.ramendirectory.japanramendirectory.repository.UserRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class S3ServiceTests {
+
+    @MockitoSpyBean
+    private LocalPhotoStorage photoStorage;
+
+    @Autowired
+    private S3Service s3Service;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Restaurant restaurant;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.findAll().get(0);
+        restaurant = new Restaurant();
+        restaurant.setName("Dedup Test Ramen");
+        restaurant = restaurantRepository.save(restaurant);
+    }
+
+    @Test
+    void identicalPhotosAreStoredOnceAndCounted() throws Exception {
+        Comment first = commentRepository.save(comment(user, restaurant));
+        Comment second = commentRepository.save(comment(user, restaurant));
+        MockMultipartFile photo = new MockMultipartFile("files", "bowl.jpg", "image/jpeg", "same bytes".getBytes());
+
+        String firstUrl = s3Service.uploadFile(photo, user.getId(), first.getId());
+        String secondUrl = s3Service.uploadFile(photo, user.getId(), second.getId());
+        // A retried upload to the same comment is not added or counted again
+        String retriedUrl = s3Service.uploadFile(photo, user.getId(), second.getId());
+
+        assertEquals(firstUrl, secondUrl);
+        assertEquals(firstUrl, retriedUrl);
+        verify(photoStorage, times(1)).put(anyString(), any(byte[].class), anyString());
+        assertEquals(1, second.getPhotos().size());
+        assertEquals(2, refCount(firstUrl));
+
+        commentService.deleteComment(first.getId(), user.getId());
+        assertEquals(1, refCount(firstUrl));
+    }
+
+    @Test
+    void presignedUploadIsVerifiedAndAttached() throws Exception {
+        Comment comment = commentRepository.save(comment(user, restaurant));
+        byte[] jpeg = jpeg();
+        String sha256 = sha256(jpeg);
+
+        PhotoUploadSlotDTO slot = s3Service.createUploadSlot(sha256, "image/jpeg", jpeg.length);
+        assertFalse(slot.isAlreadyStored());
+        assertEquals("PUT", slot.getMethod());
+
+        // Nothing uploaded yet
+        assertThrows(IllegalArgumentException.class, () -> s3Service.completeUpload(comment.getId(), slot.getKey()));
+
+        Map<String, String> query = query(slot.getUploadUrl());
+        // A body other than the announced one is refused
+        byte[] other = jpeg.clone();
+        other[other.length - 3] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> accept(slot.getKey(), query, other));
+        accept(slot.getKey(), query, jpeg);
+
+        String url = s3Service.completeUpload(comment.getId(), slot.getKey());
+        assertEquals(photoStorage.getUrl(slot.getKey()), url);
+        assertEquals(1, comment.getPhotos().size());
+        assertEquals(1, refCount(url));
+
+        // Same content again needs no upload
+        assertTrue(s3Service.createUploadSlot(sha256, "image/jpeg", jpeg.length).isAlreadyStored());
+    }
+
+    private void accept(String key, Map<String, String> query, byte[] body) throws Exception {
+        photoStorage.acceptUpload(key, query.get("type"), Long.parseLong(query.get("length")), query.get("sha256"),
+                Long.parseLong(query.get("expires")), query.get("signature"), "image/jpeg",
+                new ByteArrayInputStream(body));
+    }
+
+    private static Map<String, String> query(String url) {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : URI.create(url).getQuery().split("&")) {
+            String[] parts = pair.split("=", 2);
+            params.put(parts[0], parts[1]);
+        }
+        return params;
+    }
+
+    private static byte[] jpeg() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Random content so files left in the storage directory by earlier runs do not match
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, ThreadLocalRandom.current().nextInt());
+            }
+        }
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private int refCount(String url) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM photo_objects WHERE url = ?", Integer.class, url);
+    }
+}